@@ -0,0 +1,75 @@
+package toko;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// SalesAnalytics.compute untuk beberapa ukuran ForkJoinPool; speedup dibatasi jumlah core mesin. Nama produk
+// katalog yang tidak terjual di-intern lebih dulu, jadi shard dan gabungannya tidak boleh membayar untuknya.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AnalyticsBenchmark {
+    @Param({ "1", "4", "16" })
+    int threads;
+
+    @Param({ "500000" })
+    int userCount;
+
+    @Param({ "1000000" })
+    int catalogNames;
+
+    UserNode[] users;
+
+    @Setup(Level.Trial)
+    public void fill() {
+        for (int i = 0; i < catalogNames; i++) {
+            ProductNames.intern("Katalog " + i);
+        }
+        SplittableRandom random = new SplittableRandom(17);
+        String[] names = new String[500];
+        long[] prices = new long[names.length];
+        for (int p = 0; p < names.length; p++) {
+            names[p] = "Analitik " + p;
+            prices[p] = Money.ofRupiah(10_000 + random.nextInt(990_000));
+        }
+        long now = System.currentTimeMillis();
+        users = new UserNode[userCount];
+        for (int u = 0; u < userCount; u++) {
+            UserNode user = new UserNode("pelanggan" + u, "pw", "user");
+            for (int t = 0; t < 4; t++) {
+                TransactionNode transaction = new TransactionNode(random.nextInt(4) == 0 ? "rental" : "purchase");
+                transaction.date = now - random.nextLong(TimeUnit.DAYS.toMillis(90));
+                transaction.duration = transaction.type.equals("rental") ? 1 + random.nextInt(7) : 0;
+                for (int line = 0; line < 3; line++) {
+                    int p = random.nextInt(names.length);
+                    transaction.addItem(names[p], prices[p], 1 + random.nextInt(3));
+                }
+                transaction.freeze();
+                transaction.allUser = user;
+                transaction.next = user.transactionHead;
+                user.transactionHead = transaction;
+            }
+            users[u] = user;
+        }
+    }
+
+    @Benchmark
+    public long compute() {
+        return SalesAnalytics.compute(users, threads).transactions;
+    }
+}
@@ -0,0 +1,112 @@
+package toko;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Jalur panas katalog dan kategori: lookup produk, StockIndex, reserve/release, dan indeks kategori.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CatalogBenchmark {
+    @Param({ "1000", "100000", "1000000" })
+    int size;
+
+    SyntheticStore store;
+    SplittableRandom random;
+    int next;
+
+    @Setup(Level.Trial)
+    public void build() {
+        store = new SyntheticStore(size);
+        random = new SplittableRandom(42);
+    }
+
+    private int key() {
+        return next++ & SyntheticStore.KEYS_MASK;
+    }
+
+    @Benchmark
+    public boolean getProductByName() {
+        return store.catalog.getByName(store.productKeys[key()]) != null;
+    }
+
+    @Benchmark
+    public int getProductByIndex() {
+        return store.catalog.getByIndex(store.indexKeys[key()]).stock;
+    }
+
+    @Benchmark
+    public int stockIndexLowest10() {
+        return store.catalog.stockIndex().lowest(10).size();
+    }
+
+    // reserve + release: dua geseran heap per op, jalur yang sama dengan keranjang checkout
+    @Benchmark
+    public boolean productReserveRelease() {
+        ProductNode product = store.catalog.getByIndex(store.indexKeys[key()]);
+        if (product.reserve(1)) {
+            product.release(1);
+            return true;
+        }
+        return false;
+    }
+
+    @Benchmark
+    public int sortCategoriesByIdSorted() {
+        store.categories = CategoryIndex.sortById(store.categories);
+        return store.categories.id;
+    }
+
+    @Benchmark
+    public int sortCategoriesByIdShuffled() {
+        store.categories = CategoryIndex.sortById(store.shuffledCategories(random));
+        return store.categories.id;
+    }
+
+    @Benchmark
+    public boolean isCategoryIdExists() {
+        return store.categoryIndex.contains(store.categoryKeys[key()]);
+    }
+
+    @Benchmark
+    public int getKategoriByIndex() {
+        return store.categoryIndex.getByIndex(store.categoryKeys[key()]).id;
+    }
+
+    @Benchmark
+    public int categoryIndexLoadAll() {
+        return store.categoryIndex.loadAll(store.categoryCopies);
+    }
+
+    // salinan katalog di engine memori, hanya dibangun untuk benchmark yang memakainya
+    @State(Scope.Benchmark)
+    public static class Engine {
+        MemoryStorageEngine engine;
+
+        @Setup(Level.Trial)
+        public void build(CatalogBenchmark benchmark) {
+            engine = benchmark.store.engine();
+        }
+    }
+
+    // cek yang sama dengan isKategoryLinkedToProduct di menu edit kategori
+    @Benchmark
+    public boolean isKategoryLinkedToProduct(Engine engine) {
+        return engine.engine.products().countInKategori(store.categoryNodes[store.categoryKeys[key()] - 1]) > 0;
+    }
+}
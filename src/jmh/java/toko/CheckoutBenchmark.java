@@ -0,0 +1,74 @@
+package toko;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Banyak terminal berebut stok: satu SKU populer, dan 256 produk yang terdaftar di satu StockIndex sehingga
+// setiap perubahan stok juga memindahkan posisi produk di indeks. Jumlah thread lewat -t, misalnya
+//   gradle jmh -Pjmh='CheckoutBenchmark -t 64'
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(8)
+@Fork(1)
+public class CheckoutBenchmark {
+    static final int PRODUCTS = 256;
+
+    ProductNode hot;
+    final ProductNode[] indexed = new ProductNode[PRODUCTS];
+
+    @Setup(Level.Trial)
+    public void fill() {
+        hot = new ProductNode("Bola Basket", Money.ofRupiah(300_000), 1_000_000, null);
+        StockIndex index = new StockIndex(StockIndex.DEFAULT_REORDER_LEVEL);
+        for (int i = 0; i < PRODUCTS; i++) {
+            indexed[i] = new ProductNode("Produk " + i, Money.ofRupiah(10_000), 50, null);
+            index.add(indexed[i]);
+        }
+    }
+
+    // seperempat keranjang dibatalkan; stok diisi ulang begitu habis agar pengukuran tidak berhenti
+    @Benchmark
+    public int singleSku() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int quantity = 1 + random.nextInt(3);
+        if (!hot.reserve(quantity)) {
+            hot.addStock(1_000_000);
+        } else if (random.nextInt(4) == 0) {
+            hot.release(quantity);
+        } else {
+            hot.confirm(quantity);
+        }
+        return hot.stock;
+    }
+
+    // restock begitu habis agar stok terus naik turun di sekitar ambang reorder
+    @Benchmark
+    public int stockIndex() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        ProductNode product = indexed[random.nextInt(PRODUCTS)];
+        if (!product.reserve(1)) {
+            product.addStock(10);
+        } else if (random.nextInt(3) == 0) {
+            product.release(1);
+        } else {
+            product.confirm(1);
+        }
+        return product.stock;
+    }
+}
@@ -0,0 +1,124 @@
+package toko;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Filter viewProducts lewat ProductRangeIndex (kategori, rentang harga, rentang stok, urut harga) untuk
+// beberapa bentuk filter, halaman di tengah hasil, dan biaya indeks saat stok berubah. Pembanding:
+// memindai seluruh katalog untuk filter kategori+harga+stok.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FilterBenchmark {
+    static final int KATEGORI = 20;
+
+    @Param({ "1000000" })
+    int products;
+
+    @Param({ "harga1Persen", "kategoriHargaStok", "stokHabis", "kategoriStokTinggi", "hargaAtasStok98",
+            "tanpaHasil" })
+    String shape;
+
+    ProductCatalog catalog;
+    ProductRangeIndex ranges;
+    final ProductRangeIndex.Filter[] filters = new ProductRangeIndex.Filter[256];
+    ProductRangeIndex.Cursor middle;
+    int next;
+
+    @Setup(Level.Trial)
+    public void build() {
+        KategoriNode[] kategori = new KategoriNode[KATEGORI];
+        for (int k = 0; k < KATEGORI; k++) {
+            kategori[k] = new KategoriNode(k + 1, "Kategori " + (k + 1), "Deskripsi " + (k + 1));
+        }
+        SplittableRandom random = new SplittableRandom(25);
+        catalog = new ProductCatalog();
+        for (int i = 0; i < products; i++) {
+            catalog.addLast(new ProductNode("Produk " + i, Money.ofRupiah(10_000 + random.nextInt(990_000)),
+                    random.nextInt(10) == 0 ? 0 : random.nextInt(1, 100), kategori[i % KATEGORI]));
+        }
+        ranges = catalog.ranges();
+        for (int i = 0; i < filters.length; i++) {
+            long low = Money.ofRupiah(10_000 + random.nextInt(700_000));
+            KategoriNode own = kategori[random.nextInt(KATEGORI)];
+            switch (shape) {
+                case "harga1Persen":
+                    filters[i] = new ProductRangeIndex.Filter(null, low, low + Money.ofRupiah(10_000),
+                            Integer.MIN_VALUE, Integer.MAX_VALUE);
+                    break;
+                case "kategoriHargaStok":
+                    filters[i] = new ProductRangeIndex.Filter(own, low, low + Money.ofRupiah(300_000), 1,
+                            Integer.MAX_VALUE);
+                    break;
+                case "stokHabis":
+                    filters[i] = new ProductRangeIndex.Filter(null, low, Long.MAX_VALUE, 0, 0);
+                    break;
+                case "kategoriStokTinggi":
+                    filters[i] = new ProductRangeIndex.Filter(own, Long.MIN_VALUE, low, 97, Integer.MAX_VALUE);
+                    break;
+                case "hargaAtasStok98":
+                    filters[i] = new ProductRangeIndex.Filter(null, Money.ofRupiah(990_000), Long.MAX_VALUE, 98, 98);
+                    break;
+                default:
+                    filters[i] = new ProductRangeIndex.Filter(own, Money.ofRupiah(2_000_000), Long.MAX_VALUE, 1,
+                            Integer.MAX_VALUE);
+            }
+        }
+        List<ProductNode> half = ranges.query(ProductRangeIndex.Filter.all(), ProductRangeIndex.Cursor.START,
+                products / 2);
+        middle = ProductRangeIndex.Cursor.after(half.get(half.size() - 1));
+    }
+
+    @Benchmark
+    public int firstPage() {
+        return ranges.query(filters[next++ & 255], ProductRangeIndex.Cursor.START, ProductRangeIndex.DEFAULT_LIMIT)
+                .size();
+    }
+
+    @Benchmark
+    public int middlePage() {
+        return ranges.query(filters[next++ & 255], middle, ProductRangeIndex.DEFAULT_LIMIT).size();
+    }
+
+    // dua perubahan stok per op, masing-masing memindahkan produk di indeks stok
+    @Benchmark
+    public int stockChange() {
+        ProductNode product = catalog.getByIndex(1 + (next++ * 7919 & Integer.MAX_VALUE) % products);
+        product.addStock(1);
+        product.addStock(-1);
+        return product.stock;
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public int fullScan() {
+        ProductRangeIndex.Filter filter = filters[next++ & 255];
+        List<ProductNode> matches = new ArrayList<>();
+        for (ProductNode product = catalog.head(); product != null; product = product.next) {
+            if (filter.matches(product)) {
+                matches.add(product);
+            }
+        }
+        matches.sort(Comparator.comparingLong((ProductNode product) -> product.price)
+                .thenComparingLong(product -> product.orderKey));
+        return Math.min(matches.size(), ProductRangeIndex.DEFAULT_LIMIT);
+    }
+}
@@ -0,0 +1,72 @@
+package toko;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Riwayat transaksi lewat TransactionHistory dibanding berjalan atas semua user seperti viewAllTransactions.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HistoryBenchmark {
+    @Param({ "1000", "100000", "1000000" })
+    int size;
+
+    SyntheticStore store;
+    long weekStart;
+    int next;
+
+    @Setup(Level.Trial)
+    public void build() {
+        store = new SyntheticStore(size);
+        weekStart = store.lastDate - TimeUnit.DAYS.toMillis(7);
+    }
+
+    @Benchmark
+    public long transactionTotal() {
+        return store.transactions[store.transactionKeys[next++ & SyntheticStore.KEYS_MASK]].getTotalAmount();
+    }
+
+    @Benchmark
+    public int last50Purchases() {
+        return store.history.query(new TransactionHistory.Query().type("purchase")).nextPage(50).size();
+    }
+
+    @Benchmark
+    public int weekRentals() {
+        int count = 0;
+        TransactionHistory.Cursor cursor = store.history
+                .query(new TransactionHistory.Query().type("rental").since(weekStart));
+        while (cursor.hasNext()) {
+            count += cursor.next().lineCount();
+        }
+        return count;
+    }
+
+    // pembanding: jalan lengkap atas semua user
+    @Benchmark
+    public int weekRentalsScan() {
+        int count = 0;
+        for (UserNode user = store.users.head(); user != null; user = user.next) {
+            for (TransactionNode t = user.transactionHead; t != null; t = t.next) {
+                if (t.type.equals("rental") && t.date >= weekStart) {
+                    count += t.lineCount();
+                }
+            }
+        }
+        return count;
+    }
+}
@@ -0,0 +1,94 @@
+package toko;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Replay satu segmen journal berisi record transaksi dari awal sampai akhir, seperti saat toko dibuka.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class JournalBenchmark {
+    @Param({ "1000000" })
+    int records;
+
+    Path file;
+
+    @Setup(Level.Trial)
+    public void write() throws IOException {
+        file = Files.createTempFile("toko-bench", ".journal");
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(file), 1 << 16)) {
+            for (int i = 0; i < records; i++) {
+                TransactionNode transaction = new TransactionNode(i % 4 == 0 ? "rental" : "purchase");
+                transaction.id = i + 1;
+                transaction.duration = 3;
+                transaction.addItem("Produk " + (i % 1000), 150000, 1 + i % 3);
+                String username = "member" + (i % 10_000);
+                out.write(Journal.frame(Journal.TRANSACTION, o -> {
+                    o.writeUTF(username);
+                    Journal.writeTransaction(o, transaction);
+                }));
+            }
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void delete() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    @Benchmark
+    public long replay() throws IOException {
+        long[] ids = new long[1];
+        Journal.replay(file, new Journal.Handler() {
+            public void register(String username, String password, String role) {
+            }
+
+            public void addKategori(int id, String name, String deskripsi) {
+            }
+
+            public void editKategori(int id, String name, String deskripsi) {
+            }
+
+            public void addProduct(String name, long price, int stock, int kategoriId) {
+            }
+
+            public void addStok(String productName, int amount) {
+            }
+
+            public void editProduct(String oldName, String name, long price, int stock, int kategoriId) {
+            }
+
+            public void deleteProduct(String name) {
+            }
+
+            public void transaction(String username, TransactionNode transaction) {
+                ids[0] += transaction.id;
+            }
+
+            public void returnItem(String username, long transactionId, String productName, long returnTime,
+                    long fee, long payment) {
+            }
+        });
+        return ids[0];
+    }
+}
@@ -0,0 +1,61 @@
+package toko;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Login lewat UserRegistry.authenticate: lookup username lalu verifikasi PBKDF2. Username yang tidak ada
+// diverifikasi terhadap hash dummy, jadi kedua benchmark seharusnya sama mahal.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LoginBenchmark {
+    @Param({ "1000", "100000", "1000000" })
+    int users;
+
+    UserRegistry registry;
+    final String[] names = new String[SyntheticStore.KEYS];
+    int next;
+
+    @Setup(Level.Trial)
+    public void build() {
+        // satu hash untuk semua member: PBKDF2 per user membuat setup sejuta user berjalan puluhan menit
+        String hash = PasswordHash.hash("rahasia");
+        List<UserNode> members = new ArrayList<>(users);
+        for (int i = 0; i < users; i++) {
+            members.add(new UserNode("member" + i, hash, "user"));
+        }
+        registry = new UserRegistry(users);
+        registry.importAll(members);
+        SplittableRandom random = new SplittableRandom(users);
+        for (int i = 0; i < names.length; i++) {
+            names[i] = "member" + random.nextInt(users);
+        }
+    }
+
+    @Benchmark
+    public boolean loginExistingUser() {
+        return registry.authenticate(names[next++ & SyntheticStore.KEYS_MASK], "rahasia") != null;
+    }
+
+    @Benchmark
+    public boolean loginUnknownUser() {
+        return registry.authenticate("tamu" + (next++ & SyntheticStore.KEYS_MASK), "rahasia") != null;
+    }
+}
@@ -0,0 +1,64 @@
+package toko;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Penjumlahan keranjang: double + Map boxed (cara lama) dibanding baris TransactionNode fixed-point.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MoneyBenchmark {
+    @Param({ "20" })
+    int lines;
+
+    String[] names;
+    final Map<String, Integer> quantities = new HashMap<>();
+    final Map<String, Double> boxedPrices = new HashMap<>();
+    TransactionNode transaction;
+
+    @Setup(Level.Trial)
+    public void fill() {
+        names = new String[lines];
+        transaction = new TransactionNode("purchase");
+        for (int i = 0; i < lines; i++) {
+            names[i] = "Produk " + i;
+            quantities.put(names[i], 1 + i % 5);
+            boxedPrices.put(names[i], 149_999.99 + i);
+            transaction.addItem(names[i], Money.ofRupiah(149_999) + 99 + Money.ofRupiah(i), 1 + i % 5);
+        }
+    }
+
+    @Benchmark
+    public double boxedDouble() {
+        double total = 0.0;
+        for (String name : names) {
+            total += boxedPrices.getOrDefault(name, 0.0) * quantities.getOrDefault(name, 0);
+        }
+        return total;
+    }
+
+    @Benchmark
+    public long fixedPoint() {
+        long total = 0;
+        for (int line = 0; line < transaction.lineCount(); line++) {
+            total += transaction.lineTotal(line);
+        }
+        return total;
+    }
+}
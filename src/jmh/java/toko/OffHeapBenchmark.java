@@ -0,0 +1,94 @@
+package toko;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Katalog yang sama di ProductCatalog (ProductNode di heap) dan OffHeapProductTable: latensi get dan
+// reserve/release. Heap, direct memory, dan jeda GC: jalankan dengan heap tetap dan -prof gc, misalnya
+//   gradle jmh -Pjmh='OffHeapBenchmark -prof gc -jvmArgs -Xms1g -jvmArgs -Xmx1g'
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OffHeapBenchmark {
+    static final int KATEGORI = 20;
+
+    @Param({ "heap", "offheap" })
+    String table;
+
+    @Param({ "2000000" })
+    int products;
+
+    ProductCatalog catalog;
+    OffHeapProductTable offHeap;
+    final String[] keys = new String[SyntheticStore.KEYS];
+    final ProductNode[] nodes = new ProductNode[SyntheticStore.KEYS];
+    final int[] handles = new int[SyntheticStore.KEYS];
+    int next;
+
+    @Setup(Level.Trial)
+    public void fill() {
+        KategoriNode[] kategori = new KategoriNode[KATEGORI];
+        for (int k = 0; k < KATEGORI; k++) {
+            kategori[k] = new KategoriNode(k + 1, "Kategori " + (k + 1), "Deskripsi " + (k + 1));
+        }
+        if (table.equals("offheap")) {
+            offHeap = new OffHeapProductTable(id -> id >= 1 && id <= KATEGORI ? kategori[id - 1] : null);
+        } else {
+            catalog = new ProductCatalog();
+        }
+        for (int i = 0; i < products; i++) {
+            ProductNode product = new ProductNode("Produk " + i, Money.ofRupiah(10_000 + i % 990_000), i % 500,
+                    kategori[i % KATEGORI]);
+            if (offHeap != null) {
+                offHeap.insert(product);
+            } else {
+                catalog.addFirst(product);
+            }
+        }
+        SplittableRandom random = new SplittableRandom(23);
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = "produk " + random.nextInt(products);
+            if (offHeap != null) {
+                handles[i] = offHeap.find(keys[i]);
+            } else {
+                nodes[i] = catalog.getByName(keys[i]);
+            }
+        }
+    }
+
+    @Benchmark
+    public int get() {
+        String key = keys[next++ & SyntheticStore.KEYS_MASK];
+        return offHeap != null ? offHeap.stock(offHeap.find(key)) : catalog.getByName(key).stock;
+    }
+
+    @Benchmark
+    public int reserveRelease() {
+        int i = next++ & SyntheticStore.KEYS_MASK;
+        if (offHeap != null) {
+            if (offHeap.reserve(handles[i], 1)) {
+                offHeap.release(handles[i], 1);
+            }
+            return offHeap.stock(handles[i]);
+        }
+        if (nodes[i].reserve(1)) {
+            nodes[i].release(1);
+        }
+        return nodes[i].stock;
+    }
+}
@@ -0,0 +1,75 @@
+package toko;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.annotations.TearDown;
+
+// Biaya format listing konsol lewat ConsoleRenderer; System.out dibuang selama trial, jadi yang diukur
+// format dan encoding, bukan kecepatan terminal.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RenderBenchmark {
+    @Param({ "1000", "100000" })
+    int size;
+
+    SyntheticStore store;
+    MemoryStorageEngine engine;
+    KategoriNode kategori;
+    int count;
+    ProductNode beforeLastPage;
+    List<UserNode> owners;
+    PrintStream console;
+
+    @Setup(Level.Trial)
+    public void build() {
+        store = new SyntheticStore(size);
+        engine = store.engine();
+        owners = Arrays.asList(store.users.toArray());
+        // halaman terakhir kategori terbesar, dicapai lewat cursor seperti di browseByKategori
+        kategori = store.categoryNodes[0];
+        count = engine.products().countInKategori(kategori);
+        for (int shown = 10; shown < count; shown += 10) { // 10 produk per halaman
+            List<ProductNode> page = engine.products().inKategori(kategori, beforeLastPage, 10);
+            beforeLastPage = page.get(page.size() - 1);
+        }
+        console = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+    }
+
+    @TearDown(Level.Trial)
+    public void restore() {
+        System.setOut(console);
+    }
+
+    @Benchmark
+    public int browseByKategoriPage() {
+        List<ProductNode> page = engine.products().inKategori(kategori, beforeLastPage, 10);
+        MultiLinkedListTokoOlahraga.printKategoriPage(engine.products(), kategori, page, 1, 1, count);
+        return page.size();
+    }
+
+    // transaksi dibaca dari daftar per user seperti engine memori
+    @Benchmark
+    public void viewAllTransactions() {
+        MultiLinkedListTokoOlahraga.printAllTransactions(owners, new MemoryStorageEngine.MemoryTransactions(), null);
+    }
+}
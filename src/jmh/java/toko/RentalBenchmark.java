@@ -0,0 +1,81 @@
+package toko;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Sewa aktif dengan jatuh tempo acak dalam 30 hari terakhir, separuhnya sudah dikembalikan: indeks jatuh
+// tempo RentalIndex dibanding memindai semua sewa aktif.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RentalBenchmark {
+    @Param({ "100000", "1000000" })
+    int rentals;
+
+    RentalIndex index;
+    long now;
+    int next;
+
+    @Setup(Level.Trial)
+    public void build() {
+        SplittableRandom random = new SplittableRandom(20);
+        now = System.currentTimeMillis();
+        index = new RentalIndex();
+        for (int i = 0; i < rentals; i++) {
+            TransactionNode rental = new TransactionNode("rental");
+            rental.id = i + 1;
+            rental.date = now - random.nextLong(TimeUnit.DAYS.toMillis(30));
+            rental.duration = 1 + random.nextInt(14);
+            rental.addItem("Sewa " + (i % 1000), Money.ofRupiah(50_000), 1);
+            rental.freeze();
+            index.rentalCreated(rental);
+            if (i % 2 == 0) {
+                rental.markLineReturned(0);
+                index.itemReturned(rental, 0);
+            }
+        }
+    }
+
+    @Benchmark
+    public int overdueCount() {
+        return index.overdueCount(now);
+    }
+
+    @Benchmark
+    public int oldest100Overdue() {
+        return index.overdue(now, 100).size();
+    }
+
+    @Benchmark
+    public boolean isProductRented() {
+        return index.isRented("Sewa " + (next++ % 2000));
+    }
+
+    // pembanding: tanpa indeks jatuh tempo
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public int overdueScan() {
+        int overdue = 0;
+        for (TransactionNode rental : index.openRentals()) {
+            if (rental.dueDate() < now) {
+                overdue++;
+            }
+        }
+        return overdue;
+    }
+}
@@ -0,0 +1,58 @@
+package toko;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Keranjang dibuka, memegang satu unit, lalu dibayar atau dibatalkan: biaya penjadwalan dan pembatalan batas
+// waktu di TimerWheel, tanpa satu thread pun per keranjang.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ReservationBenchmark {
+    Reservations reservations;
+    ProductNode product;
+
+    @Setup(Level.Trial)
+    public void open() {
+        reservations = new Reservations(new MemoryStorageEngine().products(), new ReentrantLock(), 1, TimeUnit.HOURS);
+        product = new ProductNode("Jersey", Money.ofRupiah(200_000), Integer.MAX_VALUE / 2, null);
+    }
+
+    @TearDown(Level.Trial)
+    public void close() {
+        reservations.close();
+    }
+
+    @Benchmark
+    public boolean holdCancel() {
+        Reservations.Reservation cart = reservations.open();
+        boolean held = cart.hold(product, 1);
+        cart.cancel();
+        return held;
+    }
+
+    @Benchmark
+    public boolean holdCommit() {
+        Reservations.Reservation cart = reservations.open();
+        cart.hold(product, 1);
+        boolean paid = cart.commit();
+        product.addStock(1);
+        return paid;
+    }
+}
@@ -0,0 +1,106 @@
+package toko;
+
+import java.util.Locale;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Pencarian teks penuh dan autocomplete atas katalog dengan nama dari kosakata toko olahraga. Bentuk query:
+// kode model langka, kata umum, tiga kata, prefix dua huruf, kata yang hanya ada di kategori, tanpa hasil.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SearchBenchmark {
+    static final String[] TYPES = { "Sepatu", "Bola", "Raket", "Jersey", "Celana", "Kaos", "Tas", "Sarung Tangan",
+            "Matras", "Dumbbell", "Helm", "Kacamata", "Botol", "Handuk", "Jaket" };
+    static final String[] SPORTS = { "Lari", "Futsal", "Basket", "Badminton", "Tenis", "Renang", "Yoga", "Sepeda",
+            "Gym", "Voli" };
+    static final String[] BRANDS = { "Nike", "Adidas", "Puma", "Yonex", "Specs", "Ortuseight", "Mizuno", "Asics",
+            "Li-Ning", "Kelme", "Diadora", "Lotto", "Reebok", "Umbro", "Joma", "Victor", "Wilson", "Molten", "Mikasa",
+            "Speedo" };
+    static final String[] COLORS = { "Merah", "Hitam", "Putih", "Biru", "Hijau", "Kuning", "Abu", "Oranye" };
+    static final int KATEGORI = 20;
+
+    @Param({ "1000000" })
+    int products;
+
+    @Param({ "kodeModel", "kataUmum", "tigaKata", "prefix", "kataKategori", "tanpaHasil" })
+    String shape;
+
+    ProductSearch search;
+    final String[] queries = new String[256];
+    final String[] prefixes = { "s", "sep", "m1", "b" };
+    int next;
+
+    @Setup(Level.Trial)
+    public void build() {
+        search = catalog(products).search();
+        SplittableRandom random = new SplittableRandom(24);
+        for (int i = 0; i < queries.length; i++) {
+            switch (shape) {
+                case "kodeModel":
+                    queries[i] = "m" + random.nextInt(20_000) + " ";
+                    break;
+                case "kataUmum":
+                    queries[i] = SPORTS[random.nextInt(SPORTS.length)].toLowerCase(Locale.ROOT) + " ";
+                    break;
+                case "tigaKata":
+                    queries[i] = TYPES[random.nextInt(TYPES.length)] + " " + SPORTS[random.nextInt(SPORTS.length)]
+                            + " " + BRANDS[random.nextInt(BRANDS.length)];
+                    break;
+                case "prefix":
+                    queries[i] = BRANDS[random.nextInt(BRANDS.length)].substring(0, 2);
+                    break;
+                case "kataKategori":
+                    queries[i] = "perlengkapan kelompok " + (1 + random.nextInt(KATEGORI)) + " ";
+                    break;
+                default:
+                    queries[i] = "zz" + random.nextInt(100);
+            }
+        }
+    }
+
+    // nama unik dari kombinasi jenis, olahraga, merek, warna, seri, dan kode model
+    static ProductCatalog catalog(int products) {
+        KategoriNode[] kategori = new KategoriNode[KATEGORI];
+        for (int k = 0; k < KATEGORI; k++) {
+            kategori[k] = new KategoriNode(k + 1, "Kategori " + (k + 1), "Perlengkapan olahraga kelompok " + (k + 1));
+        }
+        int combinations = TYPES.length * SPORTS.length * BRANDS.length * COLORS.length;
+        ProductCatalog catalog = new ProductCatalog();
+        for (int i = 0; i < products; i++) {
+            int c = i % combinations;
+            String name = TYPES[c % TYPES.length] + " " + SPORTS[c / TYPES.length % SPORTS.length] + " "
+                    + BRANDS[c / (TYPES.length * SPORTS.length) % BRANDS.length] + " "
+                    + COLORS[c / (TYPES.length * SPORTS.length * BRANDS.length)] + " Seri " + i / combinations
+                    + " M" + i % 20_000;
+            catalog.addFirst(new ProductNode(name, Money.ofRupiah(10_000 + i % 990_000), i % 50,
+                    kategori[i % KATEGORI]));
+        }
+        return catalog;
+    }
+
+    @Benchmark
+    public int search() {
+        return search.search(queries[next++ & 255], ProductSearch.DEFAULT_LIMIT).size();
+    }
+
+    @Benchmark
+    public int suggest() {
+        return search.suggest(prefixes[next++ & 3], 5).size();
+    }
+}
@@ -0,0 +1,120 @@
+package toko;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Akses repositori di MemoryStorageEngine dan PagedStorageEngine untuk isi yang sama. Engine paged dibatasi
+// buffer pool DEFAULT_POOL_PAGES, jadi dengan katalog besar get acak banyak membaca halaman dari file.
+// Pemakaian heap tiap engine: jalankan dengan -prof gc dan heap kecil, misalnya -jvmArgs -Xmx64m.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StorageEngineBenchmark {
+    static final int KATEGORI = 20;
+
+    @Param({ "memory", "paged" })
+    String engine;
+
+    @Param({ "2000000" })
+    int products;
+
+    Path directory;
+    StorageEngine storage;
+    int userCount;
+    final String[] keys = new String[SyntheticStore.KEYS];
+    final int[] offsets = new int[SyntheticStore.KEYS];
+    final UserNode[] users = new UserNode[SyntheticStore.KEYS];
+    int next;
+
+    @Setup(Level.Trial)
+    public void fill() throws IOException {
+        if (engine.equals("paged")) {
+            directory = Files.createTempDirectory("toko-storage");
+            storage = new PagedStorageEngine(directory, PagedStorageEngine.DEFAULT_POOL_PAGES);
+        } else {
+            storage = new MemoryStorageEngine();
+        }
+        KategoriNode[] kategori = new KategoriNode[KATEGORI];
+        for (int k = 0; k < KATEGORI; k++) {
+            kategori[k] = new KategoriNode(k + 1, "Kategori " + (k + 1), "Deskripsi " + (k + 1));
+            storage.categories().insert(kategori[k]);
+        }
+        for (int i = 0; i < products; i++) {
+            storage.products().insert(new ProductNode("Produk " + i, Money.ofRupiah(10_000 + i % 990_000), i % 500,
+                    kategori[i % KATEGORI]));
+        }
+        userCount = Math.max(1, products / 20);
+        UserNode[] all = new UserNode[userCount];
+        for (int u = 0; u < userCount; u++) {
+            all[u] = new UserNode("user" + u, "pw" + u, "user");
+            storage.users().insert(all[u]);
+        }
+        // nama baris transaksi di-intern ke ProductNames (heap), jadi transaksi memakai produk terlaris saja
+        int bestSellers = Math.min(products, 10_000);
+        SplittableRandom random = new SplittableRandom(22);
+        for (int t = 0, transactions = Math.max(1, products / 10); t < transactions; t++) {
+            TransactionNode transaction = new TransactionNode(t % 4 == 0 ? "rental" : "purchase");
+            transaction.id = t + 1;
+            transaction.duration = 3;
+            for (int line = 0; line <= t % 3; line++) {
+                int product = random.nextInt(bestSellers);
+                transaction.addItem("Produk " + product, Money.ofRupiah(10_000 + product % 990_000), 1 + line);
+            }
+            transaction.freeze();
+            storage.transactions().append(all[t % userCount], transaction);
+        }
+        for (int i = 0; i < keys.length; i++) {
+            int pick = random.nextInt(products);
+            keys[i] = "Produk " + pick;
+            offsets[i] = pick;
+            users[i] = storage.users().get("user" + pick % userCount);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void close() throws IOException {
+        storage.close();
+        if (directory != null) {
+            LoadGenerator.deleteDirectory(directory);
+        }
+    }
+
+    @Benchmark
+    public int get() {
+        return storage.products().get(keys[next++ & SyntheticStore.KEYS_MASK]).stock;
+    }
+
+    @Benchmark
+    public int page20() {
+        return storage.products().page(offsets[next++ & SyntheticStore.KEYS_MASK], 20).size();
+    }
+
+    @Benchmark
+    public boolean addStock() {
+        return storage.products().addStock(keys[next++ & SyntheticStore.KEYS_MASK], 0);
+    }
+
+    @Benchmark
+    public int recent5() {
+        return storage.transactions().recent(users[next++ & SyntheticStore.KEYS_MASK], 5).size();
+    }
+}
@@ -0,0 +1,116 @@
+package toko;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+// Toko sintetis untuk benchmark: n produk, n kategori, n user masing-masing satu transaksi 3 baris, 1 dari 4
+// sewa, satu transaksi per menit. Kunci acak dipakai bergiliran lewat KEYS_MASK.
+final class SyntheticStore {
+    static final int KEYS = 4096; // pangkat dua
+    static final int KEYS_MASK = KEYS - 1;
+
+    final ProductCatalog catalog = new ProductCatalog();
+    final UserRegistry users;
+    final RentalIndex rentals = new RentalIndex();
+    final TransactionHistory history = new TransactionHistory();
+    final long lastDate;
+    final CategoryIndex categoryIndex = new CategoryIndex();
+    final List<KategoriNode> categoryCopies;
+    KategoriNode categories;
+    final KategoriNode[] categoryNodes;
+    final TransactionNode[] transactions;
+    final String[] productKeys = new String[KEYS];
+    final int[] indexKeys = new int[KEYS];
+    final int[] transactionKeys = new int[KEYS];
+    final int[] categoryKeys = new int[KEYS];
+
+    SyntheticStore(int size) {
+        SplittableRandom random = new SplittableRandom(size);
+        categoryNodes = new KategoriNode[size];
+        categoryCopies = new ArrayList<>(size);
+        for (int i = size - 1; i >= 0; i--) {
+            categoryNodes[i] = new KategoriNode(i + 1, "Kategori " + (i + 1), "");
+            categoryNodes[i].next = categories;
+            categories = categoryNodes[i];
+            categoryCopies.add(new KategoriNode(i + 1, categoryNodes[i].name, ""));
+        }
+        Collections.shuffle(categoryCopies, new Random(size));
+        categoryIndex.loadAll(categoryCopies);
+        for (int i = 0; i < size; i++) {
+            catalog.addLast(new ProductNode("Produk " + i, Money.ofRupiah(10_000 + i % 990_000),
+                    (int) (i * 7919L % 200), categoryNodes[i % Math.min(size, 100)]));
+        }
+
+        List<UserNode> members = new ArrayList<>(size);
+        transactions = new TransactionNode[size];
+        for (int i = 0; i < size; i++) {
+            UserNode user = new UserNode("member" + i, "pw" + i, "user");
+            TransactionNode transaction = new TransactionNode(i % 4 == 0 ? "rental" : "purchase");
+            transaction.id = i + 1;
+            transaction.date = TimeUnit.MINUTES.toMillis(29_000_000L + i);
+            for (int line = 0; line < 3; line++) {
+                int product = random.nextInt(size);
+                transaction.addItem("Produk " + product, Money.ofRupiah(10_000 + product % 990_000), 1 + line);
+            }
+            transaction.freeze();
+            transaction.paidAmount = transaction.getTotalAmount();
+            transaction.duration = transaction.type.equals("rental") ? 3 : 0;
+            transaction.allUser = user;
+            user.transactionHead = transaction;
+            if (transaction.type.equals("rental")) {
+                rentals.rentalCreated(transaction);
+            }
+            history.add(transaction);
+            transactions[i] = transaction;
+            members.add(user);
+        }
+        users = new UserRegistry(size);
+        users.importAll(members);
+        lastDate = transactions[size - 1].date;
+
+        for (int k = 0; k < KEYS; k++) {
+            int id = random.nextInt(size);
+            productKeys[k] = "Produk " + id;
+            indexKeys[k] = 1 + random.nextInt(size);
+            transactionKeys[k] = random.nextInt(size);
+            categoryKeys[k] = 1 + random.nextInt(size);
+        }
+    }
+
+    // engine memori berisi kategori dan produk yang sama (salinan baru) dalam urutan tampil yang sama, untuk
+    // benchmark yang memanggil operasi toko lewat StorageEngine
+    MemoryStorageEngine engine() {
+        MemoryStorageEngine engine = new MemoryStorageEngine();
+        for (KategoriNode kategori : categoryNodes) {
+            engine.categories().insert(new KategoriNode(kategori.id, kategori.name, kategori.deskripsi));
+        }
+        List<ProductNode> products = new ArrayList<>(catalog.size());
+        for (ProductNode product = catalog.head(); product != null; product = product.next) {
+            products.add(product);
+        }
+        for (int i = products.size() - 1; i >= 0; i--) { // insert masuk di depan urutan tampil
+            ProductNode product = products.get(i);
+            engine.products().insert(new ProductNode(product.name, product.price, product.stock, product.kategori));
+        }
+        return engine;
+    }
+
+    // relink kategori ke urutan acak sebelum diurutkan
+    KategoriNode shuffledCategories(SplittableRandom random) {
+        KategoriNode[] nodes = categoryNodes.clone();
+        for (int i = nodes.length - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            KategoriNode tmp = nodes[i];
+            nodes[i] = nodes[j];
+            nodes[j] = tmp;
+        }
+        for (int i = 0; i < nodes.length; i++) {
+            nodes[i].next = i + 1 < nodes.length ? nodes[i + 1] : null;
+        }
+        return nodes[0];
+    }
+}
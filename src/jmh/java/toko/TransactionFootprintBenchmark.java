@@ -0,0 +1,89 @@
+package toko;
+
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Alokasi per transaksi 1-3 baris: TransactionNode dengan baris primitif dibanding tata letak lama (Map per
+// transaksi dan ProductNode salinan per baris). Byte per transaksi dibaca dari gc.alloc.rate.norm:
+//   gradle jmh -Pjmh='TransactionFootprintBenchmark -prof gc'
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TransactionFootprintBenchmark {
+    final String[] names = new String[1000];
+    int next;
+
+    // tata letak TransactionNode sebelum baris barang primitif, hanya untuk pembanding
+    static final class LegacyTransaction {
+        Date date = new Date();
+        String type;
+        ProductNode productHead;
+        Map<String, Integer> quantities = new HashMap<>();
+        Map<String, Double> productPrice = new HashMap<>();
+        Map<String, Boolean> returnedStatus = new HashMap<>();
+        LegacyTransaction next;
+        double payment, paidAmount;
+        double change, changeAmount;
+        Date returnDate;
+        int duration;
+        boolean isReturned;
+        UserNode allUser;
+    }
+
+    @Setup(Level.Trial)
+    public void intern() {
+        for (int i = 0; i < names.length; i++) {
+            names[i] = "Produk " + i;
+            ProductNames.intern(names[i]);
+        }
+    }
+
+    @Benchmark
+    public int compact() {
+        int i = next++ & Integer.MAX_VALUE;
+        TransactionNode transaction = new TransactionNode(i % 4 == 0 ? "rental" : "purchase");
+        for (int line = 0; line <= i % 3; line++) {
+            transaction.addItem(names[(i + line * 7) % names.length], Money.ofRupiah(150_000), 1 + line);
+        }
+        transaction.freeze();
+        return transaction.lineCount();
+    }
+
+    @Benchmark
+    public int legacy() {
+        int i = next++ & Integer.MAX_VALUE;
+        LegacyTransaction transaction = new LegacyTransaction();
+        transaction.type = i % 4 == 0 ? "rental" : "purchase";
+        ProductNode tail = null;
+        for (int line = 0; line <= i % 3; line++) {
+            String name = names[(i + line * 7) % names.length];
+            ProductNode item = new ProductNode(name, Money.ofRupiah(150_000), 1 + line, null);
+            if (tail == null) {
+                transaction.productHead = item;
+            } else {
+                tail.next = item;
+            }
+            tail = item;
+            transaction.quantities.put(name, 1 + line);
+            transaction.productPrice.put(name, 150_000.0);
+        }
+        return transaction.quantities.size();
+    }
+}
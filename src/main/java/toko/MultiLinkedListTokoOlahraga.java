@@ -0,0 +1,10699 @@
+package toko;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.*;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.URI;
+import java.net.URLDecoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.CoderResult;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.IntFunction;
+import java.util.function.LongPredicate;
+import java.util.function.Predicate;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+
+class KategoriNode {
+    int id;
+    String name;
+    String deskripsi;
+    KategoriNode next;
+    // produk dalam kategori ini (intrusive list lewat ProductNode.kategoriNext/kategoriPrev), dijaga ProductCatalog
+    ProductNode productHead;
+    ProductNode productTail;
+    int productCount;
+
+    public KategoriNode(int id, String name, String deskripsi) {
+        this.id = id;
+        this.name = name;
+        this.deskripsi = deskripsi;
+    }
+
+    @Override
+    public String toString() {
+        return "ID: " + id + ", Name: " + name + ", Des: " + deskripsi;
+    }
+}
+
+class ProductNode {
+    private static final AtomicIntegerFieldUpdater<ProductNode> STOCK =
+            AtomicIntegerFieldUpdater.newUpdater(ProductNode.class, "stock");
+    private static final AtomicIntegerFieldUpdater<ProductNode> RESERVED =
+            AtomicIntegerFieldUpdater.newUpdater(ProductNode.class, "reserved");
+
+    String name;
+    long price; // dalam sen, lihat Money
+    volatile int stock; // stok tersedia, diubah lewat CAS bila ada beberapa terminal
+    volatile int reserved; // sudah diambil keranjang tapi belum dibayar
+    KategoriNode kategori;
+    ProductNode next;
+    ProductNode prev; // dipakai ProductCatalog untuk unlink O(1)
+    ProductNode kategoriNext; // urutan dalam daftar produk milik kategori
+    ProductNode kategoriPrev;
+    long orderKey; // posisi urutan tampil di ProductCatalog
+    StockIndex stockIndex; // diisi saat masuk katalog, diberi tahu setiap stok berubah
+    int heapIndex = -1; // posisi di StockIndex, -1 bila tidak terdaftar
+    volatile int reorderAlerted; // 1 bila event reorder sudah dikirim dan belum ada restock di atas ambang
+    volatile int stockPending; // 1 selama menunggu di antrean perubahan stok StockIndex
+    int searchId = -1; // id di ProductSearch, -1 bila tidak terindeks
+    ProductRangeIndex rangeIndex; // diisi saat masuk katalog, diberi tahu setiap stok berubah
+    int indexedStock; // stok saat terakhir diposisikan di ProductRangeIndex
+    volatile int rangePending; // 1 selama menunggu di antrean perubahan stok ProductRangeIndex
+
+    public ProductNode(String name, long price, int stock, KategoriNode kategori) {
+        this.name = name;
+        this.price = price;
+        this.stock = stock;
+        this.kategori = kategori;
+    }
+
+    // ambil stok untuk keranjang tanpa lock; gagal tanpa efek bila stok tidak cukup
+    public boolean reserve(int quantity) {
+        if (quantity <= 0) {
+            return false;
+        }
+        while (true) {
+            int available = stock;
+            if (available < quantity) {
+                return false;
+            }
+            if (STOCK.compareAndSet(this, available, available - quantity)) {
+                RESERVED.addAndGet(this, quantity);
+                stockChanged();
+                return true;
+            }
+        }
+    }
+
+    // keranjang dibayar: stok yang dipegang menjadi terjual
+    public void confirm(int quantity) {
+        RESERVED.addAndGet(this, -quantity);
+    }
+
+    // keranjang batal: stok yang dipegang dikembalikan
+    public void release(int quantity) {
+        RESERVED.addAndGet(this, -quantity);
+        STOCK.addAndGet(this, quantity);
+        stockChanged();
+    }
+
+    public void addStock(int amount) {
+        STOCK.addAndGet(this, amount);
+        stockChanged();
+    }
+
+    // edit admin: stok ditimpa, bukan ditambah
+    public void setStock(int stock) {
+        this.stock = stock;
+        stockChanged();
+    }
+
+    private void stockChanged() {
+        StockIndex index = stockIndex;
+        if (index != null) {
+            index.changed(this);
+        }
+        ProductRangeIndex ranges = rangeIndex;
+        if (ranges != null) {
+            ranges.stockChanged(this);
+        }
+    }
+
+    @Override
+    public String toString() {
+        String kategoriName = (kategori != null) ? kategori.name : "Tidak ada kategori";
+        return name + " ($" + Money.format(price) + ", Stok: " + stock + ", Kategori: " + kategoriName + ")";
+    }
+}
+
+class TransactionNode {
+    private static final int[] NO_IDS = new int[0];
+    private static final long[] NO_PRICES = new long[0];
+
+    long id;
+    long date; // epoch millis saat keranjang dibuka, juga awal masa sewa
+    long committedAt; // epoch millis saat dibayar; 0 untuk data lama yang tidak menyimpannya
+    String type; // untuk purchase atau rental
+    TransactionNode next;
+    long paidAmount; // dalam sen
+    long change;
+    long returnDate; // 0 jika belum ada barang yang dikembalikan
+    long lateFees; // denda keterlambatan yang sudah dibayar saat pengembalian, dalam sen
+    int duration;
+    boolean isReturned = false;
+    UserNode allUser;
+
+    // baris barang disimpan sebagai array paralel primitif; nama produk di-intern lewat ProductNames
+    private int[] nameIds = NO_IDS;
+    private int[] quantities = NO_IDS;
+    private long[] unitPrices = NO_PRICES;
+    private long[] returnedBits; // null sampai ada barang yang dikembalikan
+    private int lineCount;
+    private long total; // sebelum freeze: jumlah harga x qty, sesudahnya: total akhir
+    private boolean frozen;
+
+    public TransactionNode(String type) {
+        this.date = System.currentTimeMillis();
+        this.type = type;
+    }
+
+    // menambah barang ke keranjang; produk yang sama digabung ke baris yang sudah ada
+    public void addItem(String name, long price, int quantity) {
+        if (frozen) {
+            throw new IllegalStateException("Transaksi sudah selesai, keranjang tidak bisa diubah");
+        }
+        int nameId = ProductNames.intern(name);
+        int line = findLine(nameId);
+        if (line >= 0) {
+            quantities[line] += quantity;
+            total += Money.times(unitPrices[line], quantity);
+            return;
+        }
+
+        if (lineCount == nameIds.length) {
+            int capacity = Math.max(4, lineCount * 2);
+            nameIds = Arrays.copyOf(nameIds, capacity);
+            quantities = Arrays.copyOf(quantities, capacity);
+            unitPrices = Arrays.copyOf(unitPrices, capacity);
+        }
+        nameIds[lineCount] = nameId;
+        quantities[lineCount] = quantity;
+        unitPrices[lineCount] = price;
+        lineCount++;
+        total += Money.times(price, quantity);
+    }
+
+    // total dikunci dan array dipangkas saat transaksi di-commit
+    public void freeze() {
+        if (frozen) {
+            return;
+        }
+        total = getTotalAmount();
+        frozen = true;
+        if (nameIds.length != lineCount) {
+            nameIds = Arrays.copyOf(nameIds, lineCount);
+            quantities = Arrays.copyOf(quantities, lineCount);
+            unitPrices = Arrays.copyOf(unitPrices, lineCount);
+        }
+    }
+
+    // hari pendapatan transaksi: saat dibayar, bukan saat keranjang dibuka
+    public long commitDate() {
+        return committedAt != 0 ? committedAt : date;
+    }
+
+    public long getTotalAmount() {
+        if (!frozen && type.equals("rental")) {
+            return Money.percent(Money.times(total, duration), 20); // Harga 20% dari harga asli per hari
+        }
+        return total;
+    }
+
+    public boolean isEmpty() {
+        return lineCount == 0;
+    }
+
+    public int lineCount() {
+        return lineCount;
+    }
+
+    public int lineNameId(int line) {
+        return nameIds[line];
+    }
+
+    public String lineName(int line) {
+        return ProductNames.name(nameIds[line]);
+    }
+
+    public int lineQuantity(int line) {
+        return quantities[line];
+    }
+
+    public long linePrice(int line) {
+        return unitPrices[line];
+    }
+
+    public long lineTotal(int line) {
+        return Money.times(unitPrices[line], quantities[line]);
+    }
+
+    public boolean isLineReturned(int line) {
+        return returnedBits != null && line >>> 6 < returnedBits.length
+                && (returnedBits[line >>> 6] & (1L << line)) != 0;
+    }
+
+    // loader snapshot/engine menandai baris selagi baris berikutnya masih ditambahkan, jadi array ikut tumbuh
+    public void markLineReturned(int line) {
+        int word = line >>> 6;
+        if (returnedBits == null) {
+            returnedBits = new long[Math.max(word + 1, (lineCount + 63) >>> 6)];
+        } else if (word >= returnedBits.length) {
+            returnedBits = Arrays.copyOf(returnedBits, Math.max(word + 1, (lineCount + 63) >>> 6));
+        }
+        returnedBits[word] |= 1L << line;
+    }
+
+    // batas pengembalian sewa: tanggal transaksi + durasi hari
+    public long dueDate() {
+        return date + TimeUnit.DAYS.toMillis(duration);
+    }
+
+    // hari keterlambatan (dibulatkan ke atas) bila dikembalikan pada returnDate
+    public int lateDays(long returnDate) {
+        long late = returnDate - dueDate();
+        return late <= 0 ? 0 : (int) Math.min(Integer.MAX_VALUE, (late + TimeUnit.DAYS.toMillis(1) - 1)
+                / TimeUnit.DAYS.toMillis(1));
+    }
+
+    public boolean allLinesReturned() {
+        for (int i = 0; i < lineCount; i++) {
+            if (!isLineReturned(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public int findLine(String productName) {
+        int nameId = ProductNames.idOf(productName);
+        return nameId < 0 ? -1 : findLine(nameId);
+    }
+
+    private int findLine(int nameId) {
+        for (int i = 0; i < lineCount; i++) {
+            if (nameIds[i] == nameId) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    public long getProductPrice(String productName) {
+        int line = findLine(productName);
+        return line >= 0 ? unitPrices[line] : 0;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("Transaction (" + type + ") on " + new Date(date) + "\nProducts:\n");
+        for (int i = 0; i < lineCount; i++) {
+            sb.append(lineName(i)).append(" x").append(quantities[i]).append(" ($");
+            Money.appendTo(sb, lineTotal(i)).append(")\n");
+        }
+        sb.append("Total: $");
+        Money.appendTo(sb, getTotalAmount());
+        return sb.toString();
+    }
+}
+
+// Tabel intern nama produk: setiap nama mendapat id int tetap yang dipakai baris transaksi
+final class ProductNames {
+    private static final Map<String, Integer> ids = new HashMap<>();
+    private static String[] names = new String[64];
+    private static int count;
+
+    private ProductNames() {
+    }
+
+    static synchronized int intern(String name) {
+        Integer id = ids.get(name);
+        if (id != null) {
+            return id;
+        }
+        if (count == names.length) {
+            names = Arrays.copyOf(names, count * 2);
+        }
+        names[count] = name;
+        ids.put(name, count);
+        return count++;
+    }
+
+    // -1 jika nama belum pernah dipakai
+    static synchronized int idOf(String name) {
+        Integer id = ids.get(name);
+        return id != null ? id : -1;
+    }
+
+    static synchronized String name(int id) {
+        return names[id];
+    }
+
+    static synchronized int size() {
+        return count;
+    }
+}
+
+class UserNode {
+    String username;
+    String password; // hash dari PasswordHash, bukan password aslinya
+    String role;
+    TransactionNode transactionHead;
+    UserNode next;
+
+    public UserNode(String username, String password, String role) {
+        this.username = username;
+        this.password = password;
+        this.role = role;
+    }
+
+    public boolean authenticate(String password) {
+        return PasswordHash.verify(this.password, password);
+    }
+
+    @Override
+    public String toString() {
+        return "Username: " + username + ", Role: " + role;
+    }
+}
+
+// Password disimpan sebagai PBKDF2-HMAC-SHA256 bergaram: "pbkdf2$<iterasi>$<garam>$<hash>" (base64).
+// Jumlah iterasi ikut tersimpan, jadi ITERATIONS dapat dinaikkan tanpa membatalkan hash lama.
+final class PasswordHash {
+    static final int ITERATIONS = 10_000;
+    private static final String PREFIX = "pbkdf2$";
+    private static final int SALT_BYTES = 16;
+    private static final int HASH_BITS = 256;
+    private static final SecureRandom RANDOM = new SecureRandom();
+    // untuk username yang tidak ada: verifikasi tetap menjalankan PBKDF2 penuh dan membandingkan 32 byte
+    static final String UNKNOWN_USER = hash("");
+
+    private PasswordHash() {
+    }
+
+    static String hash(String password) {
+        byte[] salt = new byte[SALT_BYTES];
+        RANDOM.nextBytes(salt);
+        Base64.Encoder base64 = Base64.getEncoder();
+        return PREFIX + ITERATIONS + "$" + base64.encodeToString(salt) + "$"
+                + base64.encodeToString(derive(password, salt, ITERATIONS));
+    }
+
+    static boolean verify(String stored, String password) {
+        if (!stored.startsWith(PREFIX)) {
+            // data lama menyimpan password apa adanya; bandingkan digest-nya agar panjangnya pun tidak bocor
+            return MessageDigest.isEqual(sha256(stored), sha256(password));
+        }
+        String[] parts = stored.split("\\$");
+        if (parts.length != 4) {
+            return false;
+        }
+        Base64.Decoder base64 = Base64.getDecoder();
+        byte[] expected = base64.decode(parts[3]);
+        return MessageDigest.isEqual(expected, derive(password, base64.decode(parts[2]), Integer.parseInt(parts[1])));
+    }
+
+    private static byte[] derive(String password, byte[] salt, int iterations) {
+        PBEKeySpec spec = new PBEKeySpec(password.toCharArray(), salt, iterations, HASH_BITS);
+        try {
+            return SecretKeyFactory.getInstance("PBKDF2WithHmacSHA256").generateSecret(spec).getEncoded();
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("PBKDF2WithHmacSHA256 tidak tersedia", e);
+        } finally {
+            spec.clearPassword();
+        }
+    }
+
+    private static byte[] sha256(String value) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(value.getBytes(StandardCharsets.UTF_8));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("SHA-256 tidak tersedia", e);
+        }
+    }
+}
+
+// Uang fixed-point: long dalam sen (1/100 rupiah). Aritmetika eksak dan tanpa alokasi.
+final class Money {
+    static final long SCALE = 100;
+
+    private Money() {
+    }
+
+    static long ofRupiah(long rupiah) {
+        return Math.multiplyExact(rupiah, SCALE);
+    }
+
+    static long of(BigDecimal amount) {
+        return amount.setScale(2, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+
+    static long times(long amount, long factor) {
+        return Math.multiplyExact(amount, factor);
+    }
+
+    // persen dengan pembulatan setengah ke atas ke sen terdekat
+    static long percent(long amount, int percent) {
+        long scaled = Math.multiplyExact(amount, percent);
+        return scaled >= 0 ? (scaled + 50) / 100 : -((-scaled + 50) / 100);
+    }
+
+    static String format(long amount) {
+        return appendTo(new StringBuilder(24), amount).toString();
+    }
+
+    // format sama dengan %,.2f, misalnya 1,500,000.00
+    static StringBuilder appendTo(StringBuilder sb, long amount) {
+        if (amount < 0) {
+            sb.append('-');
+            amount = -amount;
+        }
+        appendGrouped(sb, amount / SCALE);
+        int sen = (int) (amount % SCALE);
+        sb.append('.');
+        if (sen < 10) {
+            sb.append('0');
+        }
+        return sb.append(sen);
+    }
+
+    private static void appendGrouped(StringBuilder sb, long value) {
+        if (value < 1000) {
+            sb.append(value);
+            return;
+        }
+        appendGrouped(sb, value / 1000);
+        int group = (int) (value % 1000);
+        sb.append(',');
+        if (group < 100) {
+            sb.append('0');
+        }
+        if (group < 10) {
+            sb.append('0');
+        }
+        sb.append(group);
+    }
+}
+
+// Penulis listing besar. Baris diformat ke StringBuilder yang dipakai ulang lewat template yang
+// dikompilasi sekali (tanpa parsing format printf per baris), rupiah dan tanggal lewat cache kecil,
+// lalu dikirim per potongan besar ke channel NIO di atas System.out (konsol atau socket sesi).
+// Mode halaman opsional berhenti setiap pageSize record dan menunggu Enter.
+final class ConsoleRenderer implements Closeable {
+    // pola dengan slot "{}", dipecah sekali menjadi potongan literal
+    static final class Template {
+        private final String[] literals;
+
+        private Template(String[] literals) {
+            this.literals = literals;
+        }
+
+        static Template compile(String pattern) {
+            List<String> parts = new ArrayList<>();
+            int from = 0;
+            int slot;
+            while ((slot = pattern.indexOf("{}", from)) >= 0) {
+                parts.add(pattern.substring(from, slot));
+                from = slot + 2;
+            }
+            parts.add(pattern.substring(from));
+            return new Template(parts.toArray(new String[0]));
+        }
+    }
+
+    private static final int FLUSH_CHARS = 1 << 15;
+    private static final int CACHE_SLOTS = 1024;
+    private static final String NEWLINE = System.lineSeparator();
+    private static final ThreadLocal<ConsoleRenderer> PER_THREAD = ThreadLocal.withInitial(ConsoleRenderer::new);
+
+    private final StringBuilder text = new StringBuilder(FLUSH_CHARS + 1024);
+    private final ByteBuffer bytes = ByteBuffer.allocate(FLUSH_CHARS * 2);
+    private final CharsetEncoder encoder = Charset.defaultCharset().newEncoder()
+            .onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    private final long[] moneyKeys = new long[CACHE_SLOTS];
+    private final String[] moneyText = new String[CACHE_SLOTS];
+    private final long[] dateKeys = new long[CACHE_SLOTS];
+    private final String[] dateText = new String[CACHE_SLOTS];
+    private PrintStream target;
+    private WritableByteChannel channel;
+    private Template template;
+    private int slot;
+    private Scanner pager;
+    private int pageSize;
+    private int records;
+    private boolean stopped;
+
+    private ConsoleRenderer() {
+    }
+
+    // renderer milik thread ini, tanpa halaman
+    static ConsoleRenderer open() {
+        return open(null, 0);
+    }
+
+    // pager null atau pageSize <= 0 berarti semua record ditulis sekaligus
+    static ConsoleRenderer open(Scanner pager, int pageSize) {
+        ConsoleRenderer renderer = PER_THREAD.get();
+        if (renderer.target != System.out) {
+            renderer.target = System.out;
+            renderer.channel = Channels.newChannel(System.out);
+        }
+        renderer.pager = pageSize > 0 ? pager : null;
+        renderer.pageSize = pageSize;
+        renderer.records = 0;
+        renderer.stopped = false;
+        return renderer;
+    }
+
+    public ConsoleRenderer line(String value) {
+        text.append(value).append(NEWLINE);
+        return maybeFlush();
+    }
+
+    public ConsoleRenderer blankLine() {
+        text.append(NEWLINE);
+        return maybeFlush();
+    }
+
+    public ConsoleRenderer row(Template rowTemplate) {
+        template = rowTemplate;
+        slot = 0;
+        text.append(rowTemplate.literals[0]);
+        return this;
+    }
+
+    public ConsoleRenderer text(String value) {
+        text.append(value);
+        return next();
+    }
+
+    public ConsoleRenderer number(long value) {
+        text.append(value);
+        return next();
+    }
+
+    public ConsoleRenderer money(long amount) {
+        int index = slot(amount);
+        String cached = moneyText[index];
+        if (cached == null || moneyKeys[index] != amount) {
+            cached = Money.format(amount);
+            moneyKeys[index] = amount;
+            moneyText[index] = cached;
+        }
+        text.append(cached);
+        return next();
+    }
+
+    // format sama dengan Date.toString, di-cache per detik
+    public ConsoleRenderer date(long epochMillis) {
+        long second = Math.floorDiv(epochMillis, 1000);
+        int index = slot(second);
+        String cached = dateText[index];
+        if (cached == null || dateKeys[index] != second) {
+            cached = new Date(epochMillis).toString();
+            dateKeys[index] = second;
+            dateText[index] = cached;
+        }
+        text.append(cached);
+        return next();
+    }
+
+    // dipanggil di awal setiap record; false bila pengguna berhenti di batas halaman
+    public boolean record() {
+        if (stopped) {
+            return false;
+        }
+        if (pager != null && records > 0 && records % pageSize == 0) {
+            text.append("-- Enter untuk halaman berikutnya, q untuk berhenti --");
+            flush();
+            if (!pager.hasNextLine() || pager.nextLine().trim().equalsIgnoreCase("q")) {
+                stopped = true;
+                return false;
+            }
+        }
+        records++;
+        return true;
+    }
+
+    private ConsoleRenderer next() {
+        slot++;
+        text.append(template.literals[slot]);
+        if (slot == template.literals.length - 1) {
+            text.append(NEWLINE);
+            return maybeFlush();
+        }
+        return this;
+    }
+
+    private ConsoleRenderer maybeFlush() {
+        if (text.length() >= FLUSH_CHARS) {
+            flush();
+        }
+        return this;
+    }
+
+    public void flush() {
+        CharBuffer chars = CharBuffer.wrap(text);
+        encoder.reset();
+        try {
+            while (true) {
+                CoderResult result = encoder.encode(chars, bytes, true);
+                if (result.isOverflow()) {
+                    drain();
+                    continue;
+                }
+                encoder.flush(bytes);
+                drain();
+                break;
+            }
+        } catch (IOException e) {
+            // konsol/socket tertutup; sisa keluaran dibuang
+            bytes.clear();
+        }
+        text.setLength(0);
+        target.flush();
+    }
+
+    private void drain() throws IOException {
+        bytes.flip();
+        while (bytes.hasRemaining()) {
+            channel.write(bytes);
+        }
+        bytes.clear();
+    }
+
+    private static int slot(long key) {
+        return (int) ((key ^ (key >>> 32)) * 0x9E3779B9L >>> 22) & (CACHE_SLOTS - 1);
+    }
+
+    @Override
+    public void close() {
+        flush();
+        pager = null;
+    }
+}
+
+// Daftar user (urutan terbaru di depan) dengan indeks hash pada username
+class UserRegistry {
+    private static final UserNode MISSING = new UserNode("", PasswordHash.UNKNOWN_USER, "");
+
+    private UserNode head;
+    private Map<String, UserNode> byUsername;
+
+    public UserRegistry() {
+        this(16);
+    }
+
+    public UserRegistry(int expectedUsers) {
+        this.byUsername = new HashMap<>(capacityFor(expectedUsers));
+    }
+
+    public synchronized UserNode head() {
+        return head;
+    }
+
+    // urutan sama dengan daftar (terbaru dulu), untuk dibagi menjadi shard
+    public synchronized UserNode[] toArray() {
+        UserNode[] result = new UserNode[byUsername.size()];
+        int i = 0;
+        for (UserNode user = head; user != null && i < result.length; user = user.next) {
+            result[i++] = user;
+        }
+        return i == result.length ? result : Arrays.copyOf(result, i);
+    }
+
+    public synchronized int size() {
+        return byUsername.size();
+    }
+
+    public synchronized boolean exists(String username) {
+        return byUsername.containsKey(username);
+    }
+
+    public synchronized UserNode get(String username) {
+        return byUsername.get(username);
+    }
+
+    // perbandingan hash dilakukan di luar lock
+    public UserNode authenticate(String username, String password) {
+        UserNode user = get(username);
+        if (user == null) {
+            MISSING.authenticate(password); // samakan biaya dengan username yang ada
+            return null;
+        }
+        return user.authenticate(password) ? user : null;
+    }
+
+    public synchronized boolean register(UserNode user) {
+        if (byUsername.putIfAbsent(user.username, user) != null) {
+            return false;
+        }
+        user.next = head;
+        head = user;
+        return true;
+    }
+
+    // impor massal daftar member, username yang sudah ada dilewati
+    public synchronized int importAll(Collection<UserNode> users) {
+        int expected = byUsername.size() + users.size();
+        if (expected > byUsername.size() * 2) {
+            Map<String, UserNode> resized = new HashMap<>(capacityFor(expected));
+            resized.putAll(byUsername);
+            byUsername = resized;
+        }
+
+        int added = 0;
+        for (UserNode user : users) {
+            if (register(user)) {
+                added++;
+            }
+        }
+        return added;
+    }
+
+    private static int capacityFor(int expected) {
+        return (int) Math.min(1 << 30, Math.max(16L, (long) (expected / 0.75f) + 1));
+    }
+}
+
+// Treap berkunci long dengan ukuran subtree, untuk akses berdasarkan posisi dalam O(log n)
+class OrderStatisticTree<T> {
+    private static final class Node<T> {
+        final long key;
+        final int priority;
+        final T value;
+        int size = 1;
+        Node<T> left, right;
+
+        Node(long key, int priority, T value) {
+            this.key = key;
+            this.priority = priority;
+            this.value = value;
+        }
+    }
+
+    private final SplittableRandom random = new SplittableRandom(0x70C0L);
+    private Node<T> root;
+
+    public int size() {
+        return size(root);
+    }
+
+    public void insert(long key, T value) {
+        Node<T> node = new Node<>(key, random.nextInt(), value);
+        Node<T>[] parts = split(root, key);
+        root = merge(merge(parts[0], node), parts[1]);
+    }
+
+    public boolean remove(long key) {
+        int before = size(root);
+        root = remove(root, key);
+        return size(root) < before;
+    }
+
+    // rank berbasis 0, null jika di luar jangkauan
+    public T select(int rank) {
+        if (rank < 0 || rank >= size(root)) {
+            return null;
+        }
+        Node<T> current = root;
+        while (current != null) {
+            int leftSize = size(current.left);
+            if (rank < leftSize) {
+                current = current.left;
+            } else if (rank == leftSize) {
+                return current.value;
+            } else {
+                rank -= leftSize + 1;
+                current = current.right;
+            }
+        }
+        return null;
+    }
+
+    // jumlah kunci yang lebih kecil dari key
+    public int rank(long key) {
+        int rank = 0;
+        Node<T> current = root;
+        while (current != null) {
+            if (key <= current.key) {
+                current = current.left;
+            } else {
+                rank += size(current.left) + 1;
+                current = current.right;
+            }
+        }
+        return rank;
+    }
+
+    public T get(long key) {
+        Node<T> current = root;
+        while (current != null) {
+            if (key == current.key) {
+                return current.value;
+            }
+            current = key < current.key ? current.left : current.right;
+        }
+        return null;
+    }
+
+    public void clear() {
+        root = null;
+    }
+
+    // ganti isi tree dari kunci yang sudah terurut naik tanpa duplikat, O(n) tanpa rotasi.
+    // Prioritas acak diurutkan turun lalu dibagikan pre-order, sehingga sifat heap tetap terpenuhi.
+    public void loadSorted(long[] keys, List<T> values) {
+        int[] priorities = new int[keys.length];
+        for (int i = 0; i < priorities.length; i++) {
+            priorities[i] = random.nextInt();
+        }
+        Arrays.sort(priorities);
+        int[] next = { priorities.length - 1 };
+        root = build(keys, values, 0, keys.length - 1, priorities, next);
+    }
+
+    private Node<T> build(long[] keys, List<T> values, int lo, int hi, int[] priorities, int[] next) {
+        if (lo > hi) {
+            return null;
+        }
+        int mid = (lo + hi) >>> 1;
+        Node<T> node = new Node<>(keys[mid], priorities[next[0]--], values.get(mid));
+        node.left = build(keys, values, lo, mid - 1, priorities, next);
+        node.right = build(keys, values, mid + 1, hi, priorities, next);
+        update(node);
+        return node;
+    }
+
+    private Node<T> remove(Node<T> node, long key) {
+        if (node == null) {
+            return null;
+        }
+        if (key == node.key) {
+            return merge(node.left, node.right);
+        }
+        if (key < node.key) {
+            node.left = remove(node.left, key);
+        } else {
+            node.right = remove(node.right, key);
+        }
+        update(node);
+        return node;
+    }
+
+    // memisah menjadi [< key] dan [>= key]
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private Node<T>[] split(Node<T> node, long key) {
+        if (node == null) {
+            return new Node[] { null, null };
+        }
+        if (node.key < key) {
+            Node<T>[] parts = split(node.right, key);
+            node.right = parts[0];
+            update(node);
+            parts[0] = node;
+            return parts;
+        }
+        Node<T>[] parts = split(node.left, key);
+        node.left = parts[1];
+        update(node);
+        parts[1] = node;
+        return parts;
+    }
+
+    private Node<T> merge(Node<T> a, Node<T> b) {
+        if (a == null) {
+            return b;
+        }
+        if (b == null) {
+            return a;
+        }
+        if (a.priority > b.priority) {
+            a.right = merge(a.right, b);
+            update(a);
+            return a;
+        }
+        b.left = merge(a, b.left);
+        update(b);
+        return b;
+    }
+
+    private static int size(Node<?> node) {
+        return node == null ? 0 : node.size;
+    }
+
+    private static void update(Node<?> node) {
+        node.size = 1 + size(node.left) + size(node.right);
+    }
+}
+
+// Kategori terurut menurut id: treap untuk cek id dan akses posisi O(log n), sementara linked list
+// KategoriNode dijaga tetap terurut sehingga viewKategori cukup berjalan dari head tanpa mengurutkan.
+class CategoryIndex {
+    private KategoriNode head;
+    private final OrderStatisticTree<KategoriNode> byId = new OrderStatisticTree<>();
+
+    public synchronized KategoriNode head() {
+        return head;
+    }
+
+    public synchronized int size() {
+        return byId.size();
+    }
+
+    public synchronized KategoriNode getById(int id) {
+        return byId.get(id);
+    }
+
+    public synchronized boolean contains(int id) {
+        return byId.get(id) != null;
+    }
+
+    // index berbasis 1 seperti nomor di viewKategori
+    public synchronized KategoriNode getByIndex(int index) {
+        return byId.select(index - 1);
+    }
+
+    // disisipkan setelah pendahulunya menurut id; false bila id sudah ada
+    public synchronized boolean add(KategoriNode kategori) {
+        if (byId.get(kategori.id) != null) {
+            return false;
+        }
+        int rank = byId.rank(kategori.id);
+        KategoriNode prev = rank == 0 ? null : byId.select(rank - 1);
+        if (prev == null) {
+            kategori.next = head;
+            head = kategori;
+        } else {
+            kategori.next = prev.next;
+            prev.next = kategori;
+        }
+        byId.insert(kategori.id, kategori);
+        return true;
+    }
+
+    // impor massal (snapshot, taksonomi pemasok): urutkan sekali O(n log n), lalu bangun treap O(n).
+    // Id ganda setelah yang pertama dilewati. Mengganti seluruh isi indeks.
+    public synchronized int loadAll(Collection<KategoriNode> categories) {
+        KategoriNode unsorted = null;
+        KategoriNode tail = null;
+        for (KategoriNode kategori : categories) {
+            kategori.next = null;
+            if (tail == null) {
+                unsorted = kategori;
+            } else {
+                tail.next = kategori;
+            }
+            tail = kategori;
+        }
+
+        head = sortById(unsorted);
+        long[] keys = new long[categories.size()];
+        List<KategoriNode> values = new ArrayList<>(categories.size());
+        KategoriNode prev = null;
+        for (KategoriNode current = head; current != null; current = current.next) {
+            if (prev != null && prev.id == current.id) {
+                prev.next = current.next;
+                current = prev;
+                continue;
+            }
+            keys[values.size()] = current.id;
+            values.add(current);
+            prev = current;
+        }
+        byId.loadSorted(Arrays.copyOf(keys, values.size()), values);
+        return values.size();
+    }
+
+    // O(n) bila sudah terurut (kasus umum), selain itu id dan posisi dikemas ke long[] lalu diurutkan
+    // sebagai primitif O(n log n) sebelum di-relink. Posisi di bit bawah membuat urutan stabil.
+    static KategoriNode sortById(KategoriNode head) {
+        int length = 0;
+        boolean sorted = true;
+        for (KategoriNode k = head; k != null; k = k.next) {
+            if (k.next != null && k.next.id < k.id) {
+                sorted = false;
+            }
+            length++;
+        }
+        if (sorted) {
+            return head;
+        }
+
+        KategoriNode[] nodes = new KategoriNode[length];
+        long[] keys = new long[length];
+        int position = 0;
+        for (KategoriNode k = head; k != null; k = k.next) {
+            nodes[position] = k;
+            keys[position] = ((long) k.id << 32) | position;
+            position++;
+        }
+        Arrays.sort(keys);
+
+        KategoriNode first = nodes[(int) keys[0]];
+        KategoriNode tail = first;
+        for (int i = 1; i < length; i++) {
+            tail.next = nodes[(int) keys[i]];
+            tail = tail.next;
+        }
+        tail.next = null;
+        return first;
+    }
+}
+
+// Min-heap berindeks atas stok produk. Posisi heap disimpan di ProductNode.heapIndex, jadi setiap
+// perubahan stok (jual, sewa, kembali, restock, edit) cukup menggeser satu node O(log n) tanpa pernah
+// memindai katalog. Perubahan stok hanya mengantre produknya tanpa lock; heap baru digeser saat dibaca,
+// sehingga reserve/release di jalur checkout tidak antre di satu monitor. Produk yang turun ke ambang
+// reorder memicu satu event ke listener saat itu juga; event berikutnya baru dikirim setelah stoknya naik
+// lagi di atas ambang.
+class StockIndex {
+    static final int DEFAULT_REORDER_LEVEL = 5;
+
+    interface ReorderListener {
+        void reorderNeeded(ProductNode product, int stock);
+    }
+
+    private static final AtomicIntegerFieldUpdater<ProductNode> PENDING =
+            AtomicIntegerFieldUpdater.newUpdater(ProductNode.class, "stockPending");
+    private static final AtomicIntegerFieldUpdater<ProductNode> ALERTED =
+            AtomicIntegerFieldUpdater.newUpdater(ProductNode.class, "reorderAlerted");
+
+    private final Queue<ProductNode> pending = new ConcurrentLinkedQueue<>();
+    private ProductNode[] heap = new ProductNode[64];
+    private int[] keys = new int[64]; // stok saat node terakhir digeser
+    private int size;
+    private final int reorderLevel;
+    private final List<ReorderListener> listeners = new CopyOnWriteArrayList<>();
+
+    StockIndex(int reorderLevel) {
+        this.reorderLevel = reorderLevel;
+    }
+
+    public int reorderLevel() {
+        return reorderLevel;
+    }
+
+    public void addListener(ReorderListener listener) {
+        listeners.add(listener);
+    }
+
+    public void add(ProductNode product) {
+        boolean alert;
+        synchronized (this) {
+            if (product.heapIndex >= 0) {
+                return;
+            }
+            if (size == heap.length) {
+                heap = Arrays.copyOf(heap, size * 2);
+                keys = Arrays.copyOf(keys, size * 2);
+            }
+            product.stockIndex = this;
+            product.reorderAlerted = 0;
+            heap[size] = product;
+            keys[size] = product.stock;
+            product.heapIndex = size;
+            siftUp(size++);
+            alert = checkThreshold(product);
+        }
+        fire(alert, product);
+    }
+
+    public synchronized void remove(ProductNode product) {
+        int position = product.heapIndex;
+        if (position < 0 || product.stockIndex != this) {
+            return;
+        }
+        product.heapIndex = -1;
+        product.stockIndex = null;
+        size--;
+        if (position != size) {
+            move(heap[size], keys[size], position);
+            if (!siftUp(position)) {
+                siftDown(position);
+            }
+        }
+        heap[size] = null;
+    }
+
+    // dipanggil ProductNode setelah stok berubah, tanpa lock; stockPending 1 berarti produk sudah di antrean
+    public void changed(ProductNode product) {
+        if (product.stockPending == 0 && PENDING.compareAndSet(product, 0, 1)) {
+            pending.add(product);
+        }
+        fire(checkThreshold(product), product);
+    }
+
+    // N produk dengan stok terkecil, O(N log N) lewat heap kandidat di atas heap utama
+    public synchronized List<ProductNode> lowest(int limit) {
+        drain();
+        return collect(limit, Integer.MAX_VALUE);
+    }
+
+    public synchronized List<ProductNode> atOrBelow(int stock) {
+        drain();
+        return collect(Integer.MAX_VALUE, stock);
+    }
+
+    public synchronized List<ProductNode> belowReorderLevel() {
+        drain();
+        return collect(Integer.MAX_VALUE, reorderLevel);
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    // tanda dilepas sebelum stok dibaca, jadi perubahan sesudahnya mengantre lagi dan tidak ada yang hilang
+    private void drain() {
+        for (ProductNode product; (product = pending.poll()) != null; ) {
+            PENDING.set(product, 0);
+            int position = product.heapIndex;
+            if (position < 0 || product.stockIndex != this) {
+                continue;
+            }
+            int stock = product.stock;
+            int old = keys[position];
+            keys[position] = stock;
+            if (stock < old) {
+                siftUp(position);
+            } else if (stock > old) {
+                siftDown(position);
+            }
+        }
+    }
+
+    private List<ProductNode> collect(int limit, int maxStock) {
+        List<ProductNode> result = new ArrayList<>();
+        if (size == 0) {
+            return result;
+        }
+        PriorityQueue<Integer> candidates = new PriorityQueue<>(Comparator.comparingInt((Integer i) -> keys[i]));
+        candidates.add(0);
+        while (result.size() < limit && !candidates.isEmpty()) {
+            int position = candidates.poll();
+            if (keys[position] > maxStock) {
+                break;
+            }
+            result.add(heap[position]);
+            int child = 2 * position + 1;
+            if (child < size) {
+                candidates.add(child);
+            }
+            if (child + 1 < size) {
+                candidates.add(child + 1);
+            }
+        }
+        return result;
+    }
+
+    // tanpa lock: hanya satu pemanggil yang memenangkan CAS 0 -> 1. Setelah tanda dilepas stok dibaca lagi,
+    // sehingga penurunan yang terjadi bersamaan dengan restock tidak kehilangan event-nya.
+    private boolean checkThreshold(ProductNode product) {
+        while (true) {
+            if (product.stock <= reorderLevel) {
+                return product.reorderAlerted == 0 && ALERTED.compareAndSet(product, 0, 1);
+            }
+            if (product.reorderAlerted == 0 || !ALERTED.compareAndSet(product, 1, 0)) {
+                return false;
+            }
+        }
+    }
+
+    // listener dipanggil di luar lock agar boleh membaca index atau menulis ke konsol
+    private void fire(boolean alert, ProductNode product) {
+        if (!alert) {
+            return;
+        }
+        int stock = product.stock;
+        for (ReorderListener listener : listeners) {
+            listener.reorderNeeded(product, stock);
+        }
+    }
+
+    private boolean siftUp(int position) {
+        ProductNode node = heap[position];
+        int key = keys[position];
+        int start = position;
+        while (position > 0) {
+            int parent = (position - 1) >>> 1;
+            if (keys[parent] <= key) {
+                break;
+            }
+            move(heap[parent], keys[parent], position);
+            position = parent;
+        }
+        move(node, key, position);
+        return position != start;
+    }
+
+    private void siftDown(int position) {
+        ProductNode node = heap[position];
+        int key = keys[position];
+        while (true) {
+            int child = 2 * position + 1;
+            if (child >= size) {
+                break;
+            }
+            if (child + 1 < size && keys[child + 1] < keys[child]) {
+                child++;
+            }
+            if (keys[child] >= key) {
+                break;
+            }
+            move(heap[child], keys[child], position);
+            position = child;
+        }
+        move(node, key, position);
+    }
+
+    private void move(ProductNode node, int key, int position) {
+        heap[position] = node;
+        keys[position] = key;
+        node.heapIndex = position;
+    }
+}
+
+// Daftar produk (urutan tampil tetap) dengan indeks nama dan indeks posisi
+class ProductCatalog {
+    private ProductNode head;
+    private ProductNode tail;
+    private final Map<String, ProductNode> byName = new HashMap<>();
+    private final OrderStatisticTree<ProductNode> byPosition = new OrderStatisticTree<>();
+    private long frontKey = 0;
+    private long backKey = 1;
+    private final StockIndex stockIndex = new StockIndex(StockIndex.DEFAULT_REORDER_LEVEL);
+    private final ProductSearch search = new ProductSearch();
+    private final ProductRangeIndex ranges = new ProductRangeIndex();
+
+    public StockIndex stockIndex() {
+        return stockIndex;
+    }
+
+    public ProductRangeIndex ranges() {
+        return ranges;
+    }
+
+    public ProductSearch search() {
+        return search;
+    }
+
+    public synchronized ProductNode head() {
+        return head;
+    }
+
+    public synchronized int size() {
+        return byPosition.size();
+    }
+
+    public synchronized ProductNode getByName(String name) {
+        return name == null ? null : byName.get(key(name));
+    }
+
+    public boolean containsName(String name) {
+        return getByName(name) != null;
+    }
+
+    // index berbasis 1 seperti nomor di viewProducts
+    public synchronized ProductNode getByIndex(int index) {
+        return byPosition.select(index - 1);
+    }
+
+    public synchronized int indexOf(ProductNode product) {
+        return byPosition.rank(product.orderKey) + 1;
+    }
+
+    public synchronized void addFirst(ProductNode product) {
+        product.orderKey = frontKey--;
+        product.prev = null;
+        product.next = head;
+        if (head != null) {
+            head.prev = product;
+        } else {
+            tail = product;
+        }
+        head = product;
+        index(product);
+        linkKategori(product, true);
+        stockIndex.add(product);
+        search.add(product);
+        ranges.add(product);
+    }
+
+    public synchronized void addLast(ProductNode product) {
+        product.orderKey = backKey++;
+        product.next = null;
+        product.prev = tail;
+        if (tail != null) {
+            tail.next = product;
+        } else {
+            head = product;
+        }
+        tail = product;
+        index(product);
+        linkKategori(product, false);
+        stockIndex.add(product);
+        search.add(product);
+        ranges.add(product);
+    }
+
+    // pindah kategori sekaligus memindahkan produk ke daftar milik kategori baru
+    public synchronized void changeKategori(ProductNode product, KategoriNode kategori) {
+        if (product.kategori == kategori) {
+            return;
+        }
+        boolean listed = byPosition.get(product.orderKey) == product;
+        if (listed) {
+            unlinkKategori(product);
+            search.remove(product);
+            ranges.remove(product);
+        }
+        product.kategori = kategori;
+        if (listed) {
+            linkKategori(product, false);
+            search.add(product);
+            ranges.add(product);
+        }
+    }
+
+    public synchronized void changePrice(ProductNode product, long price) {
+        ranges.changePrice(product, price);
+    }
+
+    public synchronized void rename(ProductNode product, String newName) {
+        byName.remove(key(product.name));
+        search.remove(product);
+        product.name = newName;
+        byName.put(key(newName), product);
+        if (byPosition.get(product.orderKey) == product) {
+            search.add(product);
+        }
+    }
+
+    // token kategori ikut terindeks di setiap produknya, jadi produk kategori ini diindeks ulang;
+    // dari ekor ke kepala agar urutan terbaru di indeks tetap sama
+    public synchronized void updateKategori(KategoriNode kategori, String name, String deskripsi) {
+        for (ProductNode product = kategori.productHead; product != null; product = product.kategoriNext) {
+            search.remove(product);
+        }
+        kategori.name = name;
+        kategori.deskripsi = deskripsi;
+        for (ProductNode product = kategori.productTail; product != null; product = product.kategoriPrev) {
+            search.add(product);
+        }
+    }
+
+    public synchronized boolean remove(ProductNode product) {
+        if (byPosition.get(product.orderKey) != product) {
+            return false;
+        }
+        byPosition.remove(product.orderKey);
+        byName.remove(key(product.name));
+
+        if (product.prev != null) {
+            product.prev.next = product.next;
+        } else {
+            head = product.next;
+        }
+        if (product.next != null) {
+            product.next.prev = product.prev;
+        } else {
+            tail = product.prev;
+        }
+        product.prev = null;
+        product.next = null;
+        unlinkKategori(product);
+        stockIndex.remove(product);
+        search.remove(product);
+        ranges.remove(product);
+        return true;
+    }
+
+    private static void linkKategori(ProductNode product, boolean front) {
+        KategoriNode kategori = product.kategori;
+        if (kategori == null) {
+            return;
+        }
+        if (kategori.productHead == null) {
+            product.kategoriPrev = null;
+            product.kategoriNext = null;
+            kategori.productHead = product;
+            kategori.productTail = product;
+        } else if (front) {
+            product.kategoriPrev = null;
+            product.kategoriNext = kategori.productHead;
+            kategori.productHead.kategoriPrev = product;
+            kategori.productHead = product;
+        } else {
+            product.kategoriNext = null;
+            product.kategoriPrev = kategori.productTail;
+            kategori.productTail.kategoriNext = product;
+            kategori.productTail = product;
+        }
+        kategori.productCount++;
+    }
+
+    private static void unlinkKategori(ProductNode product) {
+        KategoriNode kategori = product.kategori;
+        if (kategori == null) {
+            return;
+        }
+        if (product.kategoriPrev != null) {
+            product.kategoriPrev.kategoriNext = product.kategoriNext;
+        } else {
+            kategori.productHead = product.kategoriNext;
+        }
+        if (product.kategoriNext != null) {
+            product.kategoriNext.kategoriPrev = product.kategoriPrev;
+        } else {
+            kategori.productTail = product.kategoriPrev;
+        }
+        product.kategoriPrev = null;
+        product.kategoriNext = null;
+        kategori.productCount--;
+    }
+
+    private void index(ProductNode product) {
+        byName.put(key(product.name), product);
+        byPosition.insert(product.orderKey, product);
+    }
+
+    private static String key(String name) {
+        return name.toLowerCase(Locale.ROOT);
+    }
+}
+
+// Pencarian produk: indeks terbalik dari token (huruf/angka, huruf kecil) ke id pencarian produk, plus trie
+// token untuk prefix dan autocomplete. Token sebuah produk diambil dari nama produk dan nama/deskripsi
+// kategorinya. Id dibagikan naik setiap kali produk diindeks ulang, jadi daftar posting selalu terurut dan
+// hanya ditambah di ujung; produk yang dihapus atau diindeks ulang meninggalkan id mati yang dibuang saat
+// daftar dipadatkan. Dijaga ProductCatalog pada tambah, ganti nama, pindah kategori, edit kategori, dan hapus.
+class ProductSearch {
+    static final int DEFAULT_LIMIT = 10;
+    private static final char[] NO_KEYS = new char[0];
+    private static final TrieNode[] NO_CHILDREN = new TrieNode[0];
+
+    private static final class Postings {
+        int[] ids = new int[4]; // id << 1 | 1 bila token ada di nama produk, bukan hanya di kategori
+        int size;
+        int dead;
+        int nameLive; // posting hidup yang tokennya ada di nama produk, bukan hanya di kategori
+
+        int live() {
+            return size - dead;
+        }
+    }
+
+    private static final class TrieNode {
+        char[] keys = NO_KEYS; // terurut, children sejajar
+        TrieNode[] children = NO_CHILDREN;
+        int childCount;
+        Postings postings; // token yang berakhir di node ini
+        int live; // posting hidup di subtree: perkiraan kandidat prefix dan batas atas autocomplete
+        int nameLive;
+    }
+
+    private static final class Cursor {
+        final Postings postings;
+        int position;
+
+        Cursor(Postings postings) {
+            this.postings = postings;
+            this.position = postings.size - 1;
+        }
+
+        int posting() {
+            return postings.ids[position];
+        }
+    }
+
+    private static final class Candidate {
+        final TrieNode node; // null bila token lengkap
+        final String term;
+        final int weight;
+
+        Candidate(TrieNode node, String term, int weight) {
+            this.node = node;
+            this.term = term;
+            this.weight = weight;
+        }
+    }
+
+    private ProductNode[] byId = new ProductNode[1024];
+    private int nextId;
+    private int indexed;
+    private final Map<String, Postings> terms = new HashMap<>();
+    private final TrieNode root = new TrieNode();
+
+    public synchronized int size() {
+        return indexed;
+    }
+
+    public synchronized int termCount() {
+        return terms.size();
+    }
+
+    public synchronized void add(ProductNode product) {
+        if (nextId == byId.length) {
+            if (indexed * 2 < nextId) {
+                renumber();
+            } else {
+                byId = Arrays.copyOf(byId, byId.length * 2);
+            }
+        }
+        int id = nextId++;
+        byId[id] = product;
+        product.searchId = id;
+        indexed++;
+        Set<String> name = tokens(product.name);
+        for (String token : name) {
+            post(token, id, true);
+        }
+        for (String token : kategoriTokens(product.kategori)) {
+            if (!name.contains(token)) {
+                post(token, id, false);
+            }
+        }
+    }
+
+    // dipanggil sebelum nama atau kategori produk berubah, karena token lamanya dihitung ulang dari isinya
+    public synchronized void remove(ProductNode product) {
+        int id = product.searchId;
+        if (id < 0) {
+            return;
+        }
+        byId[id] = null;
+        product.searchId = -1;
+        indexed--;
+        Set<String> name = tokens(product.name);
+        for (String token : name) {
+            unpost(token, true);
+        }
+        for (String token : kategoriTokens(product.kategori)) {
+            if (!name.contains(token)) {
+                unpost(token, false);
+            }
+        }
+    }
+
+    // Produk yang cocok dengan semua kata query (di nama atau kategorinya); kata terakhir dianggap prefix
+    // kecuali query diakhiri spasi. Urutan: jumlah kata yang ada di nama, lalu yang terakhir diindeks dulu.
+    // Kandidat diambil dari kata dengan daftar posting terpendek dan dibaca dari id terbesar, jadi
+    // pencarian berhenti begitu limit hasil dengan skor tertinggi yang mungkin sudah terkumpul.
+    public synchronized List<ProductNode> search(String query, int limit) {
+        List<ProductNode> result = new ArrayList<>();
+        List<String> words = new ArrayList<>(tokens(query));
+        if (words.isEmpty() || limit <= 0) {
+            return result;
+        }
+        int prefixWord = Character.isLetterOrDigit(query.charAt(query.length() - 1)) ? words.size() - 1 : -1;
+        int driver = -1;
+        int driverSize = Integer.MAX_VALUE;
+        boolean driverNamed = false;
+        int best = 0; // skor tertinggi yang mungkin: kata yang muncul di nama produk mana pun
+        for (int i = 0; i < words.size(); i++) {
+            int size;
+            int nameLive;
+            if (i == prefixWord) {
+                TrieNode node = find(words.get(i));
+                size = node == null ? 0 : node.live;
+                nameLive = node == null ? 0 : node.nameLive;
+            } else {
+                Postings postings = terms.get(words.get(i));
+                size = postings == null ? 0 : postings.live();
+                nameLive = postings == null ? 0 : postings.nameLive;
+            }
+            if (size == 0) {
+                return result;
+            }
+            if (nameLive > 0) {
+                best++;
+            }
+            if (size < driverSize) {
+                driver = i;
+                driverSize = size;
+                driverNamed = nameLive > 0;
+            }
+        }
+
+        List<Postings> lists = new ArrayList<>();
+        if (driver == prefixWord) {
+            collect(find(words.get(driver)), lists);
+        } else {
+            lists.add(terms.get(words.get(driver)));
+        }
+        List<Postings> filters = new ArrayList<>();
+        for (int i = 0; i < words.size(); i++) {
+            if (i != driver && i != prefixWord) {
+                filters.add(terms.get(words.get(i)));
+            }
+        }
+        String prefix = prefixWord >= 0 && prefixWord != driver ? words.get(prefixWord) : null;
+        // skor tertinggi butuh kata driver di nama: putaran pertama hanya membaca posting dari nama, dan
+        // baru membaca semua posting bila hasil dengan skor itu tidak sampai limit
+        List<List<ProductNode>> byScore = scan(lists, filters, prefix, best, limit, driverNamed);
+        if (driverNamed && byScore.get(best).size() < limit) {
+            byScore = scan(lists, filters, prefix, best, limit, false);
+        }
+        for (int score = best; score >= 0 && result.size() < limit; score--) {
+            List<ProductNode> bucket = byScore.get(score);
+            result.addAll(bucket.subList(0, Math.min(bucket.size(), limit - result.size())));
+        }
+        return result;
+    }
+
+    // Kandidat dari gabungan lists (id menurun), disaring kata persis lewat daftar postingnya: setiap daftar
+    // cukup ditelusuri mundur sekali (galloping), dan bit nama di posting memberi skor tanpa membaca string.
+    // Hanya kata prefix yang bukan driver dicek langsung di nama dan kategori produk.
+    private List<List<ProductNode>> scan(List<Postings> lists, List<Postings> filters, String prefix, int best,
+            int limit, boolean namedOnly) {
+        PriorityQueue<Cursor> cursors = new PriorityQueue<>((a, b) -> Integer.compare(b.posting(), a.posting()));
+        for (Postings postings : lists) {
+            if (postings.size > 0) {
+                cursors.add(new Cursor(postings));
+            }
+        }
+        int[] positions = new int[filters.size()];
+        for (int f = 0; f < filters.size(); f++) {
+            positions[f] = filters.get(f).size - 1;
+        }
+        List<List<ProductNode>> byScore = new ArrayList<>();
+        for (int score = 0; score <= best; score++) {
+            byScore.add(new ArrayList<>());
+        }
+        Cursor only = cursors.size() == 1 ? cursors.poll() : null; // tanpa antrean untuk satu daftar
+        while (byScore.get(best).size() < limit) {
+            int id;
+            int score;
+            if (only != null) {
+                if (only.position < 0) {
+                    break;
+                }
+                id = only.posting() >>> 1;
+                score = only.posting() & 1;
+                only.position--;
+            } else {
+                if (cursors.isEmpty()) {
+                    break;
+                }
+                id = cursors.peek().posting() >>> 1;
+                score = 0;
+                // produk dengan beberapa token berprefiks sama muncul di beberapa daftar sekaligus
+                while (!cursors.isEmpty() && cursors.peek().posting() >>> 1 == id) {
+                    Cursor cursor = cursors.poll();
+                    score |= cursor.posting() & 1;
+                    if (--cursor.position >= 0) {
+                        cursors.add(cursor);
+                    }
+                }
+            }
+            if (namedOnly && score == 0) {
+                continue;
+            }
+            boolean member = true;
+            for (int f = 0; f < positions.length && member; f++) {
+                int[] ids = filters.get(f).ids;
+                positions[f] = seek(ids, positions[f], id);
+                member = positions[f] >= 0 && ids[positions[f]] >>> 1 == id;
+                if (member) {
+                    score += ids[positions[f]] & 1;
+                }
+            }
+            ProductNode product = byId[id];
+            if (!member || product == null) {
+                continue;
+            }
+            if (prefix != null) {
+                if (containsWord(product.name, prefix, true)) {
+                    score++;
+                } else if (product.kategori == null || !containsWord(product.kategori.name, prefix, true)
+                        && !containsWord(product.kategori.deskripsi, prefix, true)) {
+                    continue;
+                }
+            }
+            List<ProductNode> bucket = byScore.get(Math.min(score, best));
+            if (bucket.size() < limit) {
+                bucket.add(product);
+            }
+        }
+        return byScore;
+    }
+
+    // token lengkap berawalan prefix, yang paling banyak produknya dulu. Pencarian best-first: jumlah posting
+    // subtree adalah batas atas setiap token di dalamnya, jadi token keluar dari antrean sudah berurutan.
+    public synchronized List<String> suggest(String prefix, int limit) {
+        List<String> result = new ArrayList<>();
+        String start = prefix.toLowerCase(Locale.ROOT);
+        TrieNode node = find(start);
+        if (node == null || limit <= 0) {
+            return result;
+        }
+        PriorityQueue<Candidate> queue = new PriorityQueue<>((a, b) -> Integer.compare(b.weight, a.weight));
+        queue.add(new Candidate(node, start, node.live));
+        while (!queue.isEmpty() && result.size() < limit) {
+            Candidate candidate = queue.poll();
+            if (candidate.node == null) {
+                result.add(candidate.term);
+                continue;
+            }
+            TrieNode current = candidate.node;
+            if (current.postings != null) {
+                queue.add(new Candidate(null, candidate.term, current.postings.live()));
+            }
+            for (int i = 0; i < current.childCount; i++) {
+                TrieNode child = current.children[i];
+                queue.add(new Candidate(child, candidate.term + current.keys[i], child.live));
+            }
+        }
+        return result;
+    }
+
+    // posisi terakhir di postings[0..position] dengan id <= id, -1 bila tidak ada
+    private static int seek(int[] postings, int position, int id) {
+        if (position < 0 || postings[position] >>> 1 <= id) {
+            return position;
+        }
+        int high = position; // id di high > id
+        int step = 1;
+        int low = high - step;
+        while (low >= 0 && postings[low] >>> 1 > id) {
+            high = low;
+            step <<= 1;
+            low = high - step;
+        }
+        low = Math.max(low, -1); // id di low <= id, atau -1
+        while (high - low > 1) {
+            int middle = (low + high) >>> 1;
+            if (postings[middle] >>> 1 <= id) {
+                low = middle;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private static boolean containsWord(String text, String word, boolean prefix) {
+        if (text == null) {
+            return false;
+        }
+        int i = 0;
+        while (i < text.length()) {
+            while (i < text.length() && !Character.isLetterOrDigit(text.charAt(i))) {
+                i++;
+            }
+            int start = i;
+            while (i < text.length() && Character.isLetterOrDigit(text.charAt(i))) {
+                i++;
+            }
+            int length = i - start;
+            if (length == word.length() || prefix && length > word.length()) {
+                int j = 0;
+                while (j < word.length() && Character.toLowerCase(text.charAt(start + j)) == word.charAt(j)) {
+                    j++;
+                }
+                if (j == word.length()) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    // Kecocokan search tanpa indeks, untuk engine yang memindai produknya sendiri: -1 bila ada kata yang
+    // tidak ada di nama maupun kategori produk, selain itu jumlah kata yang ada di nama
+    static int score(ProductNode product, List<String> words, boolean lastIsPrefix) {
+        Set<String> name = tokens(product.name);
+        Set<String> kategori = kategoriTokens(product.kategori);
+        int score = 0;
+        for (int i = 0; i < words.size(); i++) {
+            boolean prefix = lastIsPrefix && i == words.size() - 1;
+            if (containsToken(name, words.get(i), prefix)) {
+                score++;
+            } else if (!containsToken(kategori, words.get(i), prefix)) {
+                return -1;
+            }
+        }
+        return score;
+    }
+
+    // token yang diindeks untuk satu produk: nama dan kategorinya
+    static Set<String> productTokens(ProductNode product) {
+        Set<String> tokens = tokens(product.name);
+        tokens.addAll(kategoriTokens(product.kategori));
+        return tokens;
+    }
+
+    private static boolean containsToken(Set<String> tokens, String word, boolean prefix) {
+        if (!prefix) {
+            return tokens.contains(word);
+        }
+        for (String token : tokens) {
+            if (token.startsWith(word)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    static Set<String> tokens(String text) {
+        Set<String> tokens = new LinkedHashSet<>();
+        if (text == null) {
+            return tokens;
+        }
+        StringBuilder token = new StringBuilder();
+        for (int i = 0; i <= text.length(); i++) {
+            char c = i < text.length() ? text.charAt(i) : ' ';
+            if (Character.isLetterOrDigit(c)) {
+                token.append(Character.toLowerCase(c));
+            } else if (token.length() > 0) {
+                tokens.add(token.toString());
+                token.setLength(0);
+            }
+        }
+        return tokens;
+    }
+
+    private static Set<String> kategoriTokens(KategoriNode kategori) {
+        if (kategori == null) {
+            return Collections.emptySet();
+        }
+        Set<String> tokens = tokens(kategori.name);
+        tokens.addAll(tokens(kategori.deskripsi));
+        return tokens;
+    }
+
+    private void post(String token, int id, boolean inName) {
+        TrieNode node = root;
+        for (int i = 0; i <= token.length(); i++) {
+            node.live++;
+            if (inName) {
+                node.nameLive++;
+            }
+            if (i < token.length()) {
+                node = child(node, token.charAt(i));
+            }
+        }
+        Postings postings = node.postings;
+        if (postings == null) {
+            postings = new Postings();
+            node.postings = postings;
+            terms.put(token, postings);
+        }
+        if (postings.size == postings.ids.length) {
+            postings.ids = Arrays.copyOf(postings.ids, postings.size * 2);
+        }
+        postings.ids[postings.size++] = id << 1 | (inName ? 1 : 0);
+        if (inName) {
+            postings.nameLive++;
+        }
+    }
+
+    // subtree yang tidak punya posting hidup lagi dilepas dari parent-nya sekaligus
+    private void unpost(String token, boolean inName) {
+        Postings postings = terms.get(token);
+        postings.dead++;
+        if (inName) {
+            postings.nameLive--;
+        }
+        if (postings.live() == 0) {
+            terms.remove(token);
+        } else if (postings.dead > 8 && postings.dead * 2 > postings.size) {
+            compact(postings);
+        }
+        TrieNode node = root;
+        for (int i = 0; i <= token.length(); i++) {
+            node.live--;
+            if (inName) {
+                node.nameLive--;
+            }
+            if (i == token.length()) {
+                if (postings.live() == 0) {
+                    node.postings = null;
+                }
+                break;
+            }
+            int slot = Arrays.binarySearch(node.keys, 0, node.childCount, token.charAt(i));
+            TrieNode next = node.children[slot];
+            if (next.live == 1) {
+                // posting terakhir di subtree ini
+                System.arraycopy(node.keys, slot + 1, node.keys, slot, node.childCount - slot - 1);
+                System.arraycopy(node.children, slot + 1, node.children, slot, node.childCount - slot - 1);
+                node.children[--node.childCount] = null;
+                break;
+            }
+            node = next;
+        }
+    }
+
+    private void compact(Postings postings) {
+        int kept = 0;
+        for (int i = 0; i < postings.size; i++) {
+            if (byId[postings.ids[i] >>> 1] != null) {
+                postings.ids[kept++] = postings.ids[i];
+            }
+        }
+        postings.size = kept;
+        postings.dead = 0;
+        if (postings.ids.length > 16 && kept * 4 < postings.ids.length) {
+            postings.ids = Arrays.copyOf(postings.ids, Math.max(4, kept * 2));
+        }
+    }
+
+    // id mati lebih banyak dari yang hidup: beri nomor ulang dengan urutan yang sama, bukan memperbesar array
+    private void renumber() {
+        int[] mapping = new int[nextId];
+        int count = 0;
+        for (int id = 0; id < nextId; id++) {
+            ProductNode product = byId[id];
+            mapping[id] = product == null ? -1 : count;
+            if (product != null) {
+                byId[count] = product;
+                product.searchId = count++;
+            }
+        }
+        Arrays.fill(byId, count, nextId, null);
+        nextId = count;
+        for (Postings postings : terms.values()) {
+            int kept = 0;
+            for (int i = 0; i < postings.size; i++) {
+                int id = mapping[postings.ids[i] >>> 1];
+                if (id >= 0) {
+                    postings.ids[kept++] = id << 1 | postings.ids[i] & 1;
+                }
+            }
+            postings.size = kept;
+            postings.dead = 0;
+        }
+    }
+
+    private TrieNode find(String prefix) {
+        TrieNode node = root;
+        for (int i = 0; i < prefix.length() && node != null; i++) {
+            int slot = Arrays.binarySearch(node.keys, 0, node.childCount, prefix.charAt(i));
+            node = slot >= 0 ? node.children[slot] : null;
+        }
+        return node;
+    }
+
+    private static TrieNode child(TrieNode node, char key) {
+        int slot = Arrays.binarySearch(node.keys, 0, node.childCount, key);
+        if (slot >= 0) {
+            return node.children[slot];
+        }
+        slot = -slot - 1;
+        if (node.childCount == node.keys.length) {
+            int capacity = Math.max(2, node.childCount * 2);
+            node.keys = Arrays.copyOf(node.keys, capacity);
+            node.children = Arrays.copyOf(node.children, capacity);
+        }
+        System.arraycopy(node.keys, slot, node.keys, slot + 1, node.childCount - slot);
+        System.arraycopy(node.children, slot, node.children, slot + 1, node.childCount - slot);
+        TrieNode child = new TrieNode();
+        node.keys[slot] = key;
+        node.children[slot] = child;
+        node.childCount++;
+        return child;
+    }
+
+    private static void collect(TrieNode node, List<Postings> lists) {
+        if (node.postings != null) {
+            lists.add(node.postings);
+        }
+        for (int i = 0; i < node.childCount; i++) {
+            collect(node.children[i], lists);
+        }
+    }
+}
+
+// Indeks sekunder terurut atas harga dan stok, global dan per kategori, untuk viewProducts terfilter.
+// Setiap indeks adalah treap berkunci (nilai, orderKey) dengan ukuran subtree, jadi jumlah produk dalam
+// rentang dihitung O(log n) dan isi rentang dibaca terurut O(log n + k). Filter dengan rentang harga dan
+// stok membaca salah satu indeks saja, dipilih dari jumlah isi kedua rentang, lalu memeriksa syarat
+// lainnya langsung di produk. Hasil selalu terurut harga. Dijaga ProductCatalog. Perubahan stok ada di jalur
+// reserve/release setiap checkout, jadi ProductNode hanya mengantrekan produknya (sekali sampai diproses)
+// dan posisinya di indeks stok dipindah saat query berikutnya; filter sendiri membaca stok terbaru.
+class ProductRangeIndex {
+    static final int DEFAULT_LIMIT = 20;
+
+    // batas inklusif; Long/Integer MIN dan MAX berarti tanpa batas
+    static final class Filter {
+        final KategoriNode kategori; // null berarti semua kategori
+        final long minPrice;
+        final long maxPrice;
+        final int minStock;
+        final int maxStock;
+
+        Filter(KategoriNode kategori, long minPrice, long maxPrice, int minStock, int maxStock) {
+            this.kategori = kategori;
+            this.minPrice = minPrice;
+            this.maxPrice = maxPrice;
+            this.minStock = minStock;
+            this.maxStock = maxStock;
+        }
+
+        static Filter all() {
+            return new Filter(null, Long.MIN_VALUE, Long.MAX_VALUE, Integer.MIN_VALUE, Integer.MAX_VALUE);
+        }
+
+        boolean matches(ProductNode product) {
+            long price = product.price;
+            int stock = product.stock;
+            return (kategori == null || product.kategori != null && product.kategori.id == kategori.id)
+                    && price >= minPrice && price <= maxPrice && stock >= minStock && stock <= maxStock;
+        }
+    }
+
+    // posisi setelah produk terakhir sebuah halaman; halaman berikutnya mulai tepat sesudahnya
+    static final class Cursor {
+        static final Cursor START = new Cursor(Long.MIN_VALUE, Long.MIN_VALUE);
+
+        final long price;
+        final long orderKey;
+
+        Cursor(long price, long orderKey) {
+            this.price = price;
+            this.orderKey = orderKey;
+        }
+
+        static Cursor after(ProductNode product) {
+            return new Cursor(product.price, product.orderKey);
+        }
+
+        // true bila product jatuh sesudah cursor ini dalam urutan (harga, orderKey)
+        boolean precedes(ProductNode product) {
+            return compare(product.price, product.orderKey, price, orderKey) > 0;
+        }
+
+        // kebalikan toString, untuk parameter "after" di API HTTP
+        static Cursor parse(String text) {
+            int colon = text.indexOf(':');
+            if (colon < 0) {
+                throw new NumberFormatException(text);
+            }
+            return new Cursor(Long.parseLong(text.substring(0, colon)), Long.parseLong(text.substring(colon + 1)));
+        }
+
+        @Override
+        public String toString() {
+            return price + ":" + orderKey;
+        }
+    }
+
+    private static final class Node {
+        long value;
+        final long order;
+        final int priority;
+        final ProductNode product;
+        int size = 1;
+        Node left, right;
+
+        Node(long value, int priority, ProductNode product) {
+            this.value = value;
+            this.order = product.orderKey;
+            this.priority = priority;
+            this.product = product;
+        }
+    }
+
+    // treap (nilai, orderKey); node dipakai ulang saat nilai berubah sehingga perubahan stok tidak alokasi
+    private static final class Tree {
+        Node root;
+
+        int size() {
+            return size(root);
+        }
+
+        void insert(Node node) {
+            node.left = null;
+            node.right = null;
+            node.size = 1;
+            root = insert(root, node);
+        }
+
+        Node remove(long value, long order) {
+            Node[] removed = new Node[1];
+            root = remove(root, value, order, removed);
+            return removed[0];
+        }
+
+        // jumlah node dengan min <= nilai <= max
+        int count(long min, long max) {
+            return min > max ? 0 : below(max, true) - below(min, false);
+        }
+
+        // node sesudah kunci (fromValue, fromOrder) sampai nilai melewati max, terurut naik;
+        // berhenti begitu visitor mengembalikan false
+        void scan(long fromValue, long fromOrder, long max, Predicate<ProductNode> visitor) {
+            ArrayDeque<Node> stack = new ArrayDeque<>();
+            Node node = root;
+            while (node != null) {
+                if (compare(node.value, node.order, fromValue, fromOrder) > 0) {
+                    stack.push(node);
+                    node = node.left;
+                } else {
+                    node = node.right;
+                }
+            }
+            while (!stack.isEmpty()) {
+                node = stack.pop();
+                if (node.value > max || !visitor.test(node.product)) {
+                    return;
+                }
+                for (Node child = node.right; child != null; child = child.left) {
+                    stack.push(child);
+                }
+            }
+        }
+
+        private int below(long value, boolean inclusive) {
+            int count = 0;
+            Node node = root;
+            while (node != null) {
+                if (node.value < value || inclusive && node.value == value) {
+                    count += size(node.left) + 1;
+                    node = node.right;
+                } else {
+                    node = node.left;
+                }
+            }
+            return count;
+        }
+
+        private static Node insert(Node root, Node node) {
+            if (root == null) {
+                return node;
+            }
+            if (node.priority > root.priority) {
+                Node[] parts = split(root, node.value, node.order);
+                node.left = parts[0];
+                node.right = parts[1];
+                update(node);
+                return node;
+            }
+            if (compare(node.value, node.order, root.value, root.order) < 0) {
+                root.left = insert(root.left, node);
+            } else {
+                root.right = insert(root.right, node);
+            }
+            update(root);
+            return root;
+        }
+
+        private static Node remove(Node node, long value, long order, Node[] removed) {
+            if (node == null) {
+                return null;
+            }
+            int c = compare(value, order, node.value, node.order);
+            if (c == 0) {
+                removed[0] = node;
+                return merge(node.left, node.right);
+            }
+            if (c < 0) {
+                node.left = remove(node.left, value, order, removed);
+            } else {
+                node.right = remove(node.right, value, order, removed);
+            }
+            update(node);
+            return node;
+        }
+
+        // memisah menjadi [< kunci] dan [>= kunci]
+        private static Node[] split(Node node, long value, long order) {
+            if (node == null) {
+                return new Node[] { null, null };
+            }
+            if (compare(node.value, node.order, value, order) < 0) {
+                Node[] parts = split(node.right, value, order);
+                node.right = parts[0];
+                update(node);
+                parts[0] = node;
+                return parts;
+            }
+            Node[] parts = split(node.left, value, order);
+            node.left = parts[1];
+            update(node);
+            parts[1] = node;
+            return parts;
+        }
+
+        private static Node merge(Node a, Node b) {
+            if (a == null) {
+                return b;
+            }
+            if (b == null) {
+                return a;
+            }
+            if (a.priority > b.priority) {
+                a.right = merge(a.right, b);
+                update(a);
+                return a;
+            }
+            b.left = merge(a, b.left);
+            update(b);
+            return b;
+        }
+
+        private static int size(Node node) {
+            return node == null ? 0 : node.size;
+        }
+
+        private static void update(Node node) {
+            node.size = 1 + size(node.left) + size(node.right);
+        }
+    }
+
+    // indeks harga dan stok milik satu cakupan (global atau satu kategori)
+    private static final class Indexes {
+        final Tree price = new Tree();
+        final Tree stock = new Tree();
+    }
+
+    private static final AtomicIntegerFieldUpdater<ProductNode> PENDING =
+            AtomicIntegerFieldUpdater.newUpdater(ProductNode.class, "rangePending");
+
+    private final SplittableRandom random = new SplittableRandom(0x7A6EL);
+    private final Queue<ProductNode> pending = new ConcurrentLinkedQueue<>();
+    private final Indexes global = new Indexes();
+    private final Map<KategoriNode, Indexes> byKategori = new IdentityHashMap<>();
+
+    public synchronized int size() {
+        return global.price.size();
+    }
+
+    public synchronized void add(ProductNode product) {
+        if (product.rangeIndex == this) {
+            return;
+        }
+        product.rangeIndex = this;
+        product.indexedStock = product.stock;
+        insert(global, product);
+        if (product.kategori != null) {
+            insert(byKategori.computeIfAbsent(product.kategori, k -> new Indexes()), product);
+        }
+    }
+
+    public synchronized void remove(ProductNode product) {
+        if (product.rangeIndex != this) {
+            return;
+        }
+        product.rangeIndex = null;
+        remove(global, product);
+        Indexes own = product.kategori == null ? null : byKategori.get(product.kategori);
+        if (own != null) {
+            remove(own, product);
+            if (own.price.size() == 0) {
+                byKategori.remove(product.kategori);
+            }
+        }
+    }
+
+    // dipanggil ProductNode setelah stok berubah, tanpa lock; rangePending 1 berarti produk sudah di antrean
+    public void stockChanged(ProductNode product) {
+        if (product.rangePending == 0 && PENDING.compareAndSet(product, 0, 1)) {
+            pending.add(product);
+        }
+    }
+
+    // tanda dilepas sebelum stok dibaca, jadi perubahan sesudahnya mengantre lagi dan tidak ada yang hilang
+    private void drain() {
+        for (ProductNode product; (product = pending.poll()) != null; ) {
+            PENDING.set(product, 0);
+            int stock = product.stock;
+            int old = product.indexedStock;
+            if (product.rangeIndex != this || stock == old) {
+                continue;
+            }
+            product.indexedStock = stock;
+            move(global.stock, old, stock, product);
+            if (product.kategori != null) {
+                move(byKategori.get(product.kategori).stock, old, stock, product);
+            }
+        }
+    }
+
+    // harga hanya berubah lewat sini supaya kunci lama masih diketahui saat node dipindah
+    public synchronized void changePrice(ProductNode product, long price) {
+        long old = product.price;
+        product.price = price;
+        if (product.rangeIndex != this || old == price) {
+            return;
+        }
+        move(global.price, old, price, product);
+        if (product.kategori != null) {
+            move(byKategori.get(product.kategori).price, old, price, product);
+        }
+    }
+
+    // paling banyak limit produk yang cocok dengan filter sesudah cursor, terurut (harga, orderKey).
+    // Membaca indeks harga bila perkiraan produk yang dilewati sebelum limit terpenuhi tidak lebih dari
+    // isi rentang stok (anggapan: harga dan stok tidak saling bergantung); selain itu seluruh rentang
+    // stok dibaca dan limit terkecil menurut harga dipilih lewat heap.
+    public synchronized List<ProductNode> query(Filter filter, Cursor after, int limit) {
+        drain();
+        List<ProductNode> result = new ArrayList<>(Math.min(limit, 64));
+        Indexes scope = scope(filter.kategori);
+        if (scope == null || limit <= 0) {
+            return result;
+        }
+        long fromPrice = filter.minPrice;
+        long fromOrder = Long.MIN_VALUE;
+        if (compare(after.price, after.orderKey, fromPrice, fromOrder) > 0) {
+            fromPrice = after.price;
+            fromOrder = after.orderKey;
+        }
+        int priceCount = scope.price.count(fromPrice, filter.maxPrice);
+        int stockCount = scope.stock.count(filter.minStock, filter.maxStock);
+        if (priceCount == 0 || stockCount == 0) {
+            return result;
+        }
+        double priceVisits = Math.min(priceCount, (double) limit * scope.price.size() / stockCount);
+        if (priceVisits <= stockCount) {
+            scope.price.scan(fromPrice, fromOrder, filter.maxPrice, product -> {
+                if (filter.matches(product)) {
+                    result.add(product);
+                }
+                return result.size() < limit;
+            });
+            return result;
+        }
+
+        Comparator<ProductNode> byPrice = Comparator.<ProductNode>comparingLong(p -> p.price)
+                .thenComparingLong(p -> p.orderKey);
+        PriorityQueue<ProductNode> best = new PriorityQueue<>(byPrice.reversed());
+        long startPrice = fromPrice;
+        long startOrder = fromOrder;
+        scope.stock.scan(filter.minStock, Long.MIN_VALUE, filter.maxStock, product -> {
+            if (filter.matches(product) && compare(product.price, product.orderKey, startPrice, startOrder) > 0) {
+                if (best.size() < limit) {
+                    best.add(product);
+                } else if (byPrice.compare(product, best.peek()) < 0) {
+                    best.poll();
+                    best.add(product);
+                }
+            }
+            return true;
+        });
+        result.addAll(best);
+        result.sort(byPrice);
+        return result;
+    }
+
+    private Indexes scope(KategoriNode kategori) {
+        return kategori == null ? global : byKategori.get(kategori);
+    }
+
+    private void insert(Indexes scope, ProductNode product) {
+        scope.price.insert(new Node(product.price, random.nextInt(), product));
+        scope.stock.insert(new Node(product.indexedStock, random.nextInt(), product));
+    }
+
+    private static void remove(Indexes scope, ProductNode product) {
+        scope.price.remove(product.price, product.orderKey);
+        scope.stock.remove(product.indexedStock, product.orderKey);
+    }
+
+    private static void move(Tree tree, long old, long value, ProductNode product) {
+        Node node = tree.remove(old, product.orderKey);
+        node.value = value;
+        tree.insert(node);
+    }
+
+    private static int compare(long value, long order, long otherValue, long otherOrder) {
+        int c = Long.compare(value, otherValue);
+        return c != 0 ? c : Long.compare(order, otherOrder);
+    }
+}
+
+// Indeks sewa aktif: jumlah baris sewa terbuka per produk dan transaksi sewa yang belum selesai
+class RentalIndex {
+    // kunci jatuh tempo: detik jatuh tempo di bit atas, 30 bit bawah id transaksi agar unik
+    private static final int ID_BITS = 30;
+    private static final long ID_MASK = (1L << ID_BITS) - 1;
+
+    private int[] openLinesByNameId = new int[64]; // indeks = id dari ProductNames
+    private final Map<Long, TransactionNode> openRentals = new LinkedHashMap<>();
+    private final OrderStatisticTree<TransactionNode> byDueDate = new OrderStatisticTree<>();
+
+    public synchronized void rentalCreated(TransactionNode transaction) {
+        for (int line = 0; line < transaction.lineCount(); line++) {
+            if (!transaction.isLineReturned(line)) {
+                int nameId = transaction.lineNameId(line);
+                if (nameId >= openLinesByNameId.length) {
+                    openLinesByNameId = Arrays.copyOf(openLinesByNameId,
+                            Math.max(nameId + 1, openLinesByNameId.length * 2));
+                }
+                openLinesByNameId[nameId]++;
+            }
+        }
+        if (openRentals.put(transaction.id, transaction) == null) {
+            byDueDate.insert(dueKey(transaction), transaction);
+        }
+    }
+
+    public synchronized void itemReturned(TransactionNode transaction, int line) {
+        openLinesByNameId[transaction.lineNameId(line)]--;
+
+        if (transaction.allLinesReturned()) {
+            transaction.isReturned = true;
+            if (openRentals.remove(transaction.id) != null) {
+                byDueDate.remove(dueKey(transaction));
+            }
+        }
+    }
+
+    public synchronized boolean isRented(String productName) {
+        int nameId = ProductNames.idOf(productName);
+        return nameId >= 0 && nameId < openLinesByNameId.length && openLinesByNameId[nameId] > 0;
+    }
+
+    public synchronized TransactionNode get(long transactionId) {
+        return openRentals.get(transactionId);
+    }
+
+    // salinan, aman diiterasi selagi terminal lain mengembalikan barang
+    public synchronized List<TransactionNode> openRentals() {
+        return new ArrayList<>(openRentals.values());
+    }
+
+    // jumlah sewa aktif yang jatuh temponya sudah lewat, O(log n)
+    public synchronized int overdueCount(long now) {
+        return byDueDate.rank(Math.floorDiv(now, 1000) << ID_BITS);
+    }
+
+    // sewa terlambat, paling lama lewat jatuh tempo dulu; O(limit log n) tanpa menyentuh sewa lain
+    public synchronized List<TransactionNode> overdue(long now, int limit) {
+        int count = Math.min(limit, overdueCount(now));
+        List<TransactionNode> result = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            result.add(byDueDate.select(i));
+        }
+        return result;
+    }
+
+    private static long dueKey(TransactionNode transaction) {
+        return (Math.floorDiv(transaction.dueDate(), 1000) << ID_BITS) | (transaction.id & ID_MASK);
+    }
+}
+
+// Analitik penjualan: daftar user dibagi menjadi shard yang diagregasi paralel oleh ForkJoinPool. Setiap
+// shard menulis ke Partial miliknya sendiri (tabel jarang per id nama produk dan peta per hari), lalu partial
+// digabung berpasangan saat task selesai, jadi agregasi tidak menyentuh lock atau counter bersama. Ukuran dan
+// biaya gabung Partial mengikuti produk yang muncul di shard, bukan seluruh tabel nama produk.
+class SalesAnalytics {
+    static final int SHARD_USERS = 4096;
+    private static final long DAY_MILLIS = TimeUnit.DAYS.toMillis(1);
+
+    static final class Report {
+        final int products; // batas id nama produk saat laporan dimulai
+        final long[] revenueByNameId; // dalam sen, pembelian dan sewa
+        final long[] unitsSoldByNameId;
+        final long[] rentedOutByNameId; // unit sewa yang belum dikembalikan
+        final long[] rentalUnitDaysByNameId;
+        final TreeMap<LocalDate, Long> revenueByDay = new TreeMap<>();
+        final TreeMap<LocalDate, Long> transactionsByDay = new TreeMap<>();
+        final long lateFees; // denda keterlambatan, sudah termasuk di revenueByDay pada hari pengembalian
+        final long transactions;
+        final int threads;
+        final long elapsedNanos;
+
+        private Report(Partial total, int threads, long elapsedNanos) {
+            this.products = total.products;
+            this.revenueByNameId = new long[products];
+            this.unitsSoldByNameId = new long[products];
+            this.rentedOutByNameId = new long[products];
+            this.rentalUnitDaysByNameId = new long[products];
+            total.copyTo(this);
+            for (Map.Entry<Long, long[]> day : total.revenueByDay.entrySet()) {
+                revenueByDay.put(LocalDate.ofEpochDay(day.getKey()), day.getValue()[0]);
+                transactionsByDay.put(LocalDate.ofEpochDay(day.getKey()), day.getValue()[1]);
+            }
+            this.lateFees = total.lateFees;
+            this.transactions = total.transactions;
+            this.threads = threads;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        // kategori diambil dari katalog saat ini (satu kunci per id kategori); produk yang sudah dihapus
+        // masuk ke null
+        Map<KategoriNode, Long> revenueByKategori(StorageEngine.Products catalog) {
+            Map<KategoriNode, Long> result = new HashMap<>();
+            Map<Integer, KategoriNode> byId = new HashMap<>();
+            long[] uncategorized = { 0 };
+            boolean[] seen = new boolean[products];
+            catalog.scan(product -> {
+                int nameId = ProductNames.idOf(product.name);
+                if (nameId < 0 || nameId >= products) {
+                    return true;
+                }
+                seen[nameId] = true;
+                if (product.kategori != null) {
+                    KategoriNode kategori = byId.computeIfAbsent(product.kategori.id, id -> product.kategori);
+                    result.merge(kategori, revenueByNameId[nameId], Long::sum);
+                } else {
+                    uncategorized[0] += revenueByNameId[nameId];
+                }
+                return true;
+            });
+            for (int nameId = 0; nameId < products; nameId++) {
+                if (!seen[nameId]) {
+                    uncategorized[0] += revenueByNameId[nameId];
+                }
+            }
+            if (uncategorized[0] > 0) {
+                result.put(null, uncategorized[0]);
+            }
+            return result;
+        }
+
+        // id nama produk dengan nilai positif terbesar, terurut menurun (sama besar: id kecil dulu). Min-heap
+        // sebesar limit, jadi O(products log limit) tanpa mengurutkan atau membungkus seluruh id.
+        int[] top(long[] values, int limit) {
+            int[] heap = new int[Math.max(0, Math.min(limit, products))];
+            int size = 0;
+            for (int nameId = 0; nameId < products; nameId++) {
+                if (values[nameId] <= 0) {
+                    continue;
+                }
+                if (size < heap.length) {
+                    heap[size] = nameId;
+                    siftUp(heap, size++, values);
+                } else if (size > 0 && values[nameId] > values[heap[0]]) {
+                    heap[0] = nameId;
+                    siftDown(heap, size, values);
+                }
+            }
+            int[] result = new int[size];
+            while (size > 0) {
+                result[size - 1] = heap[0];
+                heap[0] = heap[--size];
+                siftDown(heap, size, values);
+            }
+            return result;
+        }
+
+        // urutan heap: nilai lebih kecil, atau id lebih besar bila sama, berada di atas
+        private static boolean worse(long[] values, int a, int b) {
+            return values[a] < values[b] || (values[a] == values[b] && a > b);
+        }
+
+        private static void siftUp(int[] heap, int position, long[] values) {
+            int node = heap[position];
+            while (position > 0) {
+                int parent = (position - 1) >>> 1;
+                if (!worse(values, node, heap[parent])) {
+                    break;
+                }
+                heap[position] = heap[parent];
+                position = parent;
+            }
+            heap[position] = node;
+        }
+
+        private static void siftDown(int[] heap, int size, long[] values) {
+            int position = 0;
+            int node = heap[0];
+            while (true) {
+                int child = 2 * position + 1;
+                if (child >= size) {
+                    break;
+                }
+                if (child + 1 < size && worse(values, heap[child + 1], heap[child])) {
+                    child++;
+                }
+                if (!worse(values, heap[child], node)) {
+                    break;
+                }
+                heap[position] = heap[child];
+                position = child;
+            }
+            heap[position] = node;
+        }
+    }
+
+    private static final class Partial {
+        final int products; // batas id nama produk saat laporan dimulai
+        // open addressing id nama + 1 -> slot (0 berarti kosong), empat kolom angka sejajar dengan slot
+        private int[] ids = new int[16];
+        private long[] revenue = new long[16];
+        private long[] unitsSold = new long[16];
+        private long[] rentedOut = new long[16];
+        private long[] rentalUnitDays = new long[16];
+        private int size;
+        final Map<Long, long[]> revenueByDay = new HashMap<>(); // {pendapatan, jumlah transaksi}
+        long lateFees;
+        long transactions;
+        // hari terakhir yang dipakai; transaksi satu user biasanya berdekatan
+        private long dayStart = 1;
+        private long dayEnd;
+        private long[] dayCell;
+
+        Partial(int products) {
+            this.products = products;
+        }
+
+        void add(TransactionNode transaction, TimeZone zone) {
+            boolean rental = transaction.type.equals("rental");
+            for (int line = 0; line < transaction.lineCount(); line++) {
+                int nameId = transaction.lineNameId(line);
+                if (nameId >= products) {
+                    continue; // produk baru setelah laporan dimulai
+                }
+                int quantity = transaction.lineQuantity(line);
+                int slot = slot(nameId);
+                if (rental) {
+                    revenue[slot] += Money.percent(Money.times(transaction.lineTotal(line),
+                            transaction.duration), 20);
+                    rentalUnitDays[slot] += (long) quantity * transaction.duration;
+                    if (!transaction.isLineReturned(line)) {
+                        rentedOut[slot] += quantity;
+                    }
+                } else {
+                    revenue[slot] += transaction.lineTotal(line);
+                    unitsSold[slot] += quantity;
+                }
+            }
+            long date = transaction.commitDate();
+            if (date < dayStart || date >= dayEnd) {
+                long offset = zone.getOffset(date);
+                long epochDay = Math.floorDiv(date + offset, DAY_MILLIS);
+                dayStart = epochDay * DAY_MILLIS - offset;
+                dayEnd = dayStart + DAY_MILLIS;
+                dayCell = revenueByDay.computeIfAbsent(epochDay, d -> new long[2]);
+            }
+            dayCell[0] += transaction.getTotalAmount();
+            dayCell[1]++;
+            transactions++;
+            if (transaction.lateFees > 0) {
+                // hanya tanggal kembali terakhir yang disimpan, denda semua baris dihitung di hari itu
+                long offset = zone.getOffset(transaction.returnDate);
+                revenueByDay.computeIfAbsent(Math.floorDiv(transaction.returnDate + offset, DAY_MILLIS),
+                        d -> new long[2])[0] += transaction.lateFees;
+                lateFees += transaction.lateFees;
+            }
+        }
+
+        // yang lebih kecil digabung ke yang lebih besar, jadi biayanya sebanding dengan produk di partial kecil
+        Partial merge(Partial other) {
+            if (other.size > size) {
+                return other.merge(this);
+            }
+            for (int i = 0; i < other.ids.length; i++) {
+                if (other.ids[i] != 0) {
+                    int slot = slot(other.ids[i] - 1);
+                    revenue[slot] += other.revenue[i];
+                    unitsSold[slot] += other.unitsSold[i];
+                    rentedOut[slot] += other.rentedOut[i];
+                    rentalUnitDays[slot] += other.rentalUnitDays[i];
+                }
+            }
+            for (Map.Entry<Long, long[]> day : other.revenueByDay.entrySet()) {
+                revenueByDay.merge(day.getKey(), day.getValue(), (a, b) -> {
+                    a[0] += b[0];
+                    a[1] += b[1];
+                    return a;
+                });
+            }
+            lateFees += other.lateFees;
+            transactions += other.transactions;
+            return this;
+        }
+
+        void copyTo(Report report) {
+            for (int i = 0; i < ids.length; i++) {
+                if (ids[i] != 0) {
+                    int nameId = ids[i] - 1;
+                    report.revenueByNameId[nameId] = revenue[i];
+                    report.unitsSoldByNameId[nameId] = unitsSold[i];
+                    report.rentedOutByNameId[nameId] = rentedOut[i];
+                    report.rentalUnitDaysByNameId[nameId] = rentalUnitDays[i];
+                }
+            }
+        }
+
+        private int slot(int nameId) {
+            int mask = ids.length - 1;
+            int hash = nameId * 0x9E3779B9;
+            for (int i = (hash ^ (hash >>> 16)) & mask; ; i = (i + 1) & mask) {
+                if (ids[i] == nameId + 1) {
+                    return i;
+                }
+                if (ids[i] == 0) {
+                    if ((size + 1) * 2 > ids.length) {
+                        grow();
+                        return slot(nameId);
+                    }
+                    ids[i] = nameId + 1;
+                    size++;
+                    return i;
+                }
+            }
+        }
+
+        private void grow() {
+            int[] oldIds = ids;
+            long[] oldRevenue = revenue;
+            long[] oldUnitsSold = unitsSold;
+            long[] oldRentedOut = rentedOut;
+            long[] oldRentalUnitDays = rentalUnitDays;
+            int capacity = oldIds.length * 2;
+            ids = new int[capacity];
+            revenue = new long[capacity];
+            unitsSold = new long[capacity];
+            rentedOut = new long[capacity];
+            rentalUnitDays = new long[capacity];
+            size = 0;
+            for (int i = 0; i < oldIds.length; i++) {
+                if (oldIds[i] != 0) {
+                    int slot = slot(oldIds[i] - 1);
+                    revenue[slot] = oldRevenue[i];
+                    unitsSold[slot] = oldUnitsSold[i];
+                    rentedOut[slot] = oldRentedOut[i];
+                    rentalUnitDays[slot] = oldRentalUnitDays[i];
+                }
+            }
+        }
+    }
+
+    private static final class ShardTask extends RecursiveTask<Partial> {
+        private static final long serialVersionUID = 1L;
+        private final transient UserNode[] users;
+        private final transient StorageEngine.Transactions source;
+        private final int from;
+        private final int to;
+        private final int products;
+        private final transient TimeZone zone;
+
+        ShardTask(UserNode[] users, StorageEngine.Transactions source, int from, int to, int products,
+                TimeZone zone) {
+            this.users = users;
+            this.source = source;
+            this.from = from;
+            this.to = to;
+            this.products = products;
+            this.zone = zone;
+        }
+
+        @Override
+        protected Partial compute() {
+            if (to - from <= SHARD_USERS) {
+                Partial partial = new Partial(products);
+                for (int i = from; i < to; i++) {
+                    source.scan(users[i], t -> {
+                        partial.add(t, zone);
+                        return true;
+                    });
+                }
+                return partial;
+            }
+            int mid = (from + to) >>> 1;
+            ShardTask left = new ShardTask(users, source, from, mid, products, zone);
+            left.fork();
+            Partial right = new ShardTask(users, source, mid, to, products, zone).compute();
+            return left.join().merge(right);
+        }
+    }
+
+    // user lepas dengan daftar transactionHead masing-masing
+    static Report compute(UserNode[] users, int threads) {
+        return compute(users, new MemoryStorageEngine.MemoryTransactions(), threads);
+    }
+
+    // transaksi setiap user dibaca lewat repositori engine
+    static Report compute(UserNode[] users, StorageEngine.Transactions source, int threads) {
+        long start = System.nanoTime();
+        int products = ProductNames.size();
+        TimeZone zone = (TimeZone) TimeZone.getDefault().clone();
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            Partial total = pool.invoke(new ShardTask(users, source, 0, users.length, products, zone));
+            return new Report(total, threads, System.nanoTime() - start);
+        } finally {
+            pool.shutdown();
+        }
+    }
+}
+
+// Agregat dashboard yang dipelihara saat commit: pendapatan hari ini (menurut waktu bayar), unit terjual dan
+// unit yang sedang disewa per produk, serta daftar produk terlaris (stok menipis ada di StockIndex).
+// Penjumlahan memakai LongAdder (sel ter-stripe per thread) sehingga checkout tidak berebut satu counter, dan
+// setiap angka dibaca dalam O(1).
+class Dashboard {
+    static final int TOP_SELLERS = 10;
+
+    private static final class Day {
+        final long epochDay;
+        final long start; // epoch millis awal hari di zona lokal
+        final long end;
+        final LongAdder revenue = new LongAdder();
+        final LongAdder transactions = new LongAdder();
+
+        Day(long epochDay, long start, long end) {
+            this.epochDay = epochDay;
+            this.start = start;
+            this.end = end;
+        }
+    }
+
+    private final TimeZone zone = (TimeZone) TimeZone.getDefault().clone();
+    private volatile Day today = dayOf(System.currentTimeMillis());
+    private volatile LongAdder[] unitsSold = new LongAdder[64]; // indeks = id dari ProductNames
+    private volatile LongAdder[] rentedOut = new LongAdder[64];
+    private final LongAdder totalUnitsSold = new LongAdder();
+    private final LongAdder totalRentedOut = new LongAdder();
+    // jumlah terjual hanya naik, jadi produk di luar daftar terlaris cukup dibandingkan dengan yang terkecil
+    // di dalamnya; lock daftar hanya diambil bila angkanya melewati batas itu
+    private final int[] topIds = new int[TOP_SELLERS];
+    private final long[] topUnits = new long[TOP_SELLERS];
+    private int topSize;
+    private volatile long topFloor = -1; // terjual terkecil di daftar yang sudah penuh, -1 selama belum penuh
+
+    public void transactionCommitted(TransactionNode transaction) {
+        boolean rental = transaction.type.equals("rental");
+        for (int line = 0; line < transaction.lineCount(); line++) {
+            int quantity = transaction.lineQuantity(line);
+            if (rental) {
+                if (!transaction.isLineReturned(line)) {
+                    adder(transaction.lineNameId(line), true).add(quantity);
+                    totalRentedOut.add(quantity);
+                }
+            } else {
+                LongAdder sold = adder(transaction.lineNameId(line), false);
+                sold.add(quantity);
+                totalUnitsSold.add(quantity);
+                offerTopSeller(transaction.lineNameId(line), sold.sum());
+            }
+        }
+        Day day = currentDay(transaction.commitDate());
+        if (day != null) {
+            day.revenue.add(transaction.getTotalAmount());
+            day.transactions.increment();
+        }
+    }
+
+    // denda masuk pendapatan hari pengembalian, bukan hari sewa dimulai
+    public void itemReturned(TransactionNode transaction, int line, long returnDate, long fee) {
+        int quantity = transaction.lineQuantity(line);
+        adder(transaction.lineNameId(line), true).add(-quantity);
+        totalRentedOut.add(-quantity);
+        Day day = fee > 0 ? currentDay(returnDate) : null;
+        if (day != null) {
+            day.revenue.add(fee);
+        }
+    }
+
+    // isi awal dari transaksi snapshot; transaksi journal sesudahnya masuk lewat transactionCommitted
+    public void seed(SalesAnalytics.Report report) {
+        for (int nameId = 0; nameId < report.products; nameId++) {
+            if (report.unitsSoldByNameId[nameId] != 0) {
+                adder(nameId, false).add(report.unitsSoldByNameId[nameId]);
+                totalUnitsSold.add(report.unitsSoldByNameId[nameId]);
+                offerTopSeller(nameId, unitsSold(nameId));
+            }
+            if (report.rentedOutByNameId[nameId] != 0) {
+                adder(nameId, true).add(report.rentedOutByNameId[nameId]);
+                totalRentedOut.add(report.rentedOutByNameId[nameId]);
+            }
+        }
+        Day day = currentDay(System.currentTimeMillis());
+        LocalDate date = LocalDate.ofEpochDay(day.epochDay);
+        day.revenue.add(report.revenueByDay.getOrDefault(date, 0L));
+        day.transactions.add(report.transactionsByDay.getOrDefault(date, 0L));
+    }
+
+    public LocalDate today() {
+        return LocalDate.ofEpochDay(currentDay(System.currentTimeMillis()).epochDay);
+    }
+
+    public long revenueToday() {
+        return currentDay(System.currentTimeMillis()).revenue.sum();
+    }
+
+    public long transactionsToday() {
+        return currentDay(System.currentTimeMillis()).transactions.sum();
+    }
+
+    public long unitsSold(int nameId) {
+        LongAdder[] adders = unitsSold;
+        return nameId >= 0 && nameId < adders.length && adders[nameId] != null ? adders[nameId].sum() : 0;
+    }
+
+    public long rentedOut(int nameId) {
+        LongAdder[] adders = rentedOut;
+        return nameId >= 0 && nameId < adders.length && adders[nameId] != null ? adders[nameId].sum() : 0;
+    }
+
+    public long totalUnitsSold() {
+        return totalUnitsSold.sum();
+    }
+
+    public long totalRentedOut() {
+        return totalRentedOut.sum();
+    }
+
+    // id nama produk terlaris, paling banyak terjual lebih dulu; O(TOP_SELLERS) berapa pun isi katalog
+    public int[] topSellers() {
+        int[] ids;
+        synchronized (topIds) {
+            ids = Arrays.copyOf(topIds, topSize);
+        }
+        long[] units = new long[ids.length];
+        for (int i = 0; i < ids.length; i++) {
+            long sold = unitsSold(ids[i]);
+            int id = ids[i];
+            int j = i;
+            for (; j > 0 && units[j - 1] < sold; j--) {
+                units[j] = units[j - 1];
+                ids[j] = ids[j - 1];
+            }
+            units[j] = sold;
+            ids[j] = id;
+        }
+        return ids;
+    }
+
+    // units dibaca dari LongAdder setelah penambahan; pembacaan yang terlambat dari thread lain tidak
+    // menurunkan angka di daftar karena yang disimpan selalu yang terbesar
+    private void offerTopSeller(int nameId, long units) {
+        if (units <= topFloor) {
+            return;
+        }
+        synchronized (topIds) {
+            int slot = -1;
+            int smallest = 0;
+            for (int i = 0; i < topSize && slot < 0; i++) {
+                if (topIds[i] == nameId) {
+                    slot = i;
+                } else if (topUnits[i] < topUnits[smallest]) {
+                    smallest = i;
+                }
+            }
+            if (slot >= 0) {
+                topUnits[slot] = Math.max(topUnits[slot], units);
+            } else if (topSize < TOP_SELLERS) {
+                topIds[topSize] = nameId;
+                topUnits[topSize++] = units;
+            } else if (units > topUnits[smallest]) {
+                topIds[smallest] = nameId;
+                topUnits[smallest] = units;
+            } else {
+                return;
+            }
+            if (topSize == TOP_SELLERS) {
+                long floor = Long.MAX_VALUE;
+                for (int i = 0; i < topSize; i++) {
+                    floor = Math.min(floor, topUnits[i]);
+                }
+                topFloor = floor;
+            }
+        }
+    }
+
+    // hari berjalan; null bila tanggal transaksi sudah lewat (replay journal dari hari sebelumnya)
+    private Day currentDay(long date) {
+        Day day = today;
+        if (date >= day.start && date < day.end) {
+            return day;
+        }
+        long now = System.currentTimeMillis();
+        if (now >= day.end) {
+            synchronized (this) {
+                if (now >= today.end) {
+                    today = dayOf(now);
+                }
+                day = today;
+            }
+        }
+        return date >= day.start && date < day.end ? day : null;
+    }
+
+    private Day dayOf(long date) {
+        long offset = zone.getOffset(date);
+        long epochDay = Math.floorDiv(date + offset, TimeUnit.DAYS.toMillis(1));
+        long start = epochDay * TimeUnit.DAYS.toMillis(1) - offset;
+        return new Day(epochDay, start, start + TimeUnit.DAYS.toMillis(1));
+    }
+
+    private LongAdder adder(int nameId, boolean rental) {
+        LongAdder[] adders = rental ? rentedOut : unitsSold;
+        if (nameId < adders.length && adders[nameId] != null) {
+            return adders[nameId];
+        }
+        synchronized (this) {
+            adders = rental ? rentedOut : unitsSold;
+            if (nameId >= adders.length) {
+                adders = Arrays.copyOf(adders, Math.max(nameId + 1, adders.length * 2));
+            }
+            if (adders[nameId] == null) {
+                adders[nameId] = new LongAdder();
+            }
+            if (rental) {
+                rentedOut = adders;
+            } else {
+                unitsSold = adders;
+            }
+            return adders[nameId];
+        }
+    }
+}
+
+// Indeks riwayat transaksi berurutan waktu (date, lalu id): satu log global, satu per jenis transaksi dan
+// satu per user. Query dibaca lewat Cursor yang mengambil hasil per batch kecil di bawah lock, mulai dari
+// pencarian biner pada batas waktu, sehingga "50 penjualan terakhir" atau "sewa minggu ini" hanya
+// menyentuh entri hasilnya, bukan seluruh riwayat.
+class TransactionHistory {
+    private static final int BATCH = 64;
+
+    // log terurut (date, id); transaksi yang tanggalnya lebih lama dari ekor (keranjang lama baru dibayar)
+    // disisipkan lewat pencarian biner dan satu arraycopy
+    private static final class TimeLog {
+        private long[] dates;
+        private TransactionNode[] nodes;
+        private int size;
+
+        TimeLog(int capacity) {
+            dates = new long[capacity];
+            nodes = new TransactionNode[capacity];
+        }
+
+        void add(TransactionNode transaction) {
+            if (size == nodes.length) {
+                int capacity = Math.max(4, size * 2);
+                dates = Arrays.copyOf(dates, capacity);
+                nodes = Arrays.copyOf(nodes, capacity);
+            }
+            int position = size;
+            if (size > 0 && compare(size - 1, transaction.date, transaction.id) > 0) {
+                position = lowerBound(transaction.date, transaction.id);
+                System.arraycopy(dates, position, dates, position + 1, size - position);
+                System.arraycopy(nodes, position, nodes, position + 1, size - position);
+            }
+            dates[position] = transaction.date;
+            nodes[position] = transaction;
+            size++;
+        }
+
+        // posisi pertama dengan kunci >= (date, id)
+        int lowerBound(long date, long id) {
+            int low = 0;
+            int high = size;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (compare(mid, date, id) < 0) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+
+        private int compare(int position, long date, long id) {
+            int byDate = Long.compare(dates[position], date);
+            return byDate != 0 ? byDate : Long.compare(nodes[position].id, id);
+        }
+
+        void sortAndTrim() {
+            TransactionNode[] sorted = Arrays.copyOf(nodes, size);
+            Arrays.sort(sorted, Comparator.comparingLong((TransactionNode t) -> t.date)
+                    .thenComparingLong(t -> t.id));
+            nodes = sorted;
+            dates = new long[size];
+            for (int i = 0; i < size; i++) {
+                dates[i] = sorted[i].date;
+            }
+        }
+    }
+
+    // filter query; date range [from, to), status pengembalian hanya berlaku untuk sewa
+    static final class Query {
+        private UserNode user;
+        private String type;
+        private long from = Long.MIN_VALUE;
+        private long to = Long.MAX_VALUE;
+        private Boolean returned;
+        private boolean newestFirst = true;
+        private TransactionNode after;
+
+        Query user(UserNode user) {
+            this.user = user;
+            return this;
+        }
+
+        Query type(String type) {
+            this.type = type;
+            return this;
+        }
+
+        Query between(long from, long to) {
+            this.from = from;
+            this.to = to;
+            return this;
+        }
+
+        Query since(long from) {
+            this.from = from;
+            return this;
+        }
+
+        Query returned(boolean returned) {
+            this.returned = returned;
+            return this;
+        }
+
+        Query oldestFirst() {
+            this.newestFirst = false;
+            return this;
+        }
+
+        // melanjutkan dari transaksi terakhir yang sudah diterima pada query yang sama
+        Query after(TransactionNode last) {
+            this.after = last;
+            return this;
+        }
+
+        private boolean matches(TransactionNode transaction) {
+            if (type != null && !transaction.type.equals(type)) {
+                return false;
+            }
+            if (user != null && !transaction.allUser.username.equals(user.username)) {
+                return false;
+            }
+            return returned == null
+                    || (transaction.type.equals("rental") && transaction.isReturned == returned);
+        }
+    }
+
+    // iterator lazy; posisinya berupa kunci (date, id) entri terakhir, jadi tetap benar walaupun transaksi
+    // baru disisipkan di antara dua batch
+    final class Cursor implements Iterator<TransactionNode> {
+        private final Query query;
+        private final TransactionNode[] batch = new TransactionNode[BATCH];
+        private int batchSize;
+        private int batchPosition;
+        private TransactionNode last;
+        private TransactionNode scanned; // entri terakhir yang diperiksa, termasuk yang tidak lolos filter
+        private boolean exhausted;
+
+        private Cursor(Query query) {
+            this.query = query;
+            this.last = query.after;
+            this.scanned = query.after;
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (batchPosition < batchSize) {
+                return true;
+            }
+            if (exhausted) {
+                return false;
+            }
+            fill();
+            return batchSize > 0;
+        }
+
+        @Override
+        public TransactionNode next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            last = batch[batchPosition];
+            batch[batchPosition++] = null;
+            return last;
+        }
+
+        // hingga limit hasil berikutnya
+        List<TransactionNode> nextPage(int limit) {
+            List<TransactionNode> page = new ArrayList<>(Math.min(limit, BATCH));
+            while (page.size() < limit && hasNext()) {
+                page.add(next());
+            }
+            return page;
+        }
+
+        // transaksi terakhir yang dikembalikan, untuk Query.after pada permintaan berikutnya
+        TransactionNode position() {
+            return last;
+        }
+
+        private void fill() {
+            batchSize = 0;
+            batchPosition = 0;
+            synchronized (TransactionHistory.this) {
+                TimeLog log = logFor(query);
+                if (log == null) {
+                    exhausted = true;
+                    return;
+                }
+                if (query.newestFirst) {
+                    int position = scanned != null ? log.lowerBound(scanned.date, scanned.id)
+                            : log.lowerBound(query.to, Long.MIN_VALUE);
+                    for (position--; position >= 0 && batchSize < BATCH; position--) {
+                        if (log.dates[position] < query.from) {
+                            exhausted = true;
+                            break;
+                        }
+                        collect(log.nodes[position]);
+                    }
+                    exhausted |= position < 0;
+                } else {
+                    int position = scanned != null ? log.lowerBound(scanned.date, scanned.id + 1)
+                            : log.lowerBound(query.from, Long.MIN_VALUE);
+                    for (; position < log.size && batchSize < BATCH; position++) {
+                        if (log.dates[position] >= query.to) {
+                            exhausted = true;
+                            break;
+                        }
+                        collect(log.nodes[position]);
+                    }
+                    exhausted |= position >= log.size;
+                }
+            }
+        }
+
+        private void collect(TransactionNode transaction) {
+            scanned = transaction;
+            if (query.matches(transaction)) {
+                batch[batchSize++] = transaction;
+            }
+        }
+    }
+
+    private final TimeLog all = new TimeLog(1024);
+    private final TimeLog purchases = new TimeLog(1024);
+    private final TimeLog rentals = new TimeLog(256);
+    // per username: engine paged mengembalikan salinan UserNode yang berbeda untuk user yang sama
+    private final Map<String, TimeLog> byUser = new HashMap<>();
+
+    public synchronized void add(TransactionNode transaction) {
+        all.add(transaction);
+        typeLog(transaction.type).add(transaction);
+        byUser.computeIfAbsent(transaction.allUser.username, u -> new TimeLog(2)).add(transaction);
+    }
+
+    // muat massal saat startup: tambahkan tanpa urutan lalu urutkan sekali per log
+    public synchronized void loadAll(Collection<TransactionNode> transactions) {
+        Set<TimeLog> touched = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (TransactionNode t : transactions) {
+            TimeLog userLog = byUser.computeIfAbsent(t.allUser.username, u -> new TimeLog(2));
+            appendUnsorted(all, t);
+            appendUnsorted(typeLog(t.type), t);
+            appendUnsorted(userLog, t);
+            touched.add(userLog);
+        }
+        all.sortAndTrim();
+        purchases.sortAndTrim();
+        rentals.sortAndTrim();
+        for (TimeLog log : touched) {
+            log.sortAndTrim();
+        }
+    }
+
+    public synchronized int size() {
+        return all.size;
+    }
+
+    public Cursor query(Query query) {
+        return new Cursor(query);
+    }
+
+    private TimeLog typeLog(String type) {
+        return type.equals("rental") ? rentals : purchases;
+    }
+
+    // log terkecil yang memuat semua hasil; status pengembalian berarti hanya sewa
+    private TimeLog logFor(Query query) {
+        if (query.user != null) {
+            return byUser.get(query.user.username);
+        }
+        if (query.type != null) {
+            return typeLog(query.type);
+        }
+        return query.returned != null ? rentals : all;
+    }
+
+    private static void appendUnsorted(TimeLog log, TransactionNode transaction) {
+        if (log.size == log.nodes.length) {
+            int capacity = Math.max(4, log.size * 2);
+            log.nodes = Arrays.copyOf(log.nodes, capacity);
+        }
+        log.nodes[log.size++] = transaction;
+    }
+}
+
+// Hashed timing wheel: satu thread daemon melayani semua batas waktu, schedule dan cancel O(1).
+// Timeout baru dan yang dibatalkan masuk lewat antrean lock-free; hanya thread wheel yang menempatkan
+// dan melepasnya dari bucket (doubly linked), jadi timeout batal tidak menunggu bucket-nya dilewati.
+class TimerWheel implements Closeable {
+    private static final int WAITING = 0;
+    private static final int CANCELLED = 1;
+    private static final int EXPIRED = 2;
+    private static final AtomicIntegerFieldUpdater<Timeout> STATE =
+            AtomicIntegerFieldUpdater.newUpdater(Timeout.class, "state");
+
+    final class Timeout {
+        private final Runnable task;
+        private final long deadline; // nanos sejak wheel dibuat
+        private long rounds;
+        private volatile int state = WAITING;
+        private int bucket = -1; // -1 sampai ditempatkan thread wheel
+        private Timeout prev, next;
+
+        private Timeout(Runnable task, long deadline) {
+            this.task = task;
+            this.deadline = deadline;
+        }
+
+        // false bila sudah berjalan atau sudah dibatalkan
+        public boolean cancel() {
+            if (!STATE.compareAndSet(this, WAITING, CANCELLED)) {
+                return false;
+            }
+            pending.decrement();
+            cancelled.add(this);
+            return true;
+        }
+    }
+
+    private final long tickNanos;
+    private final Timeout[] buckets;
+    private final int mask;
+    private final long startNanos = System.nanoTime();
+    private final ConcurrentLinkedQueue<Timeout> incoming = new ConcurrentLinkedQueue<>();
+    private final ConcurrentLinkedQueue<Timeout> cancelled = new ConcurrentLinkedQueue<>();
+    private final LongAdder pending = new LongAdder();
+    private final Thread worker;
+    private volatile boolean closed;
+    private boolean started;
+    private long tick;
+
+    public TimerWheel(long tickDuration, TimeUnit unit, int wheelSize, String name) {
+        this.tickNanos = unit.toNanos(tickDuration);
+        int size = Integer.highestOneBit(Math.max(2, wheelSize - 1) << 1);
+        this.buckets = new Timeout[size];
+        this.mask = size - 1;
+        this.worker = new Thread(this::run, name);
+        this.worker.setDaemon(true);
+    }
+
+    public Timeout schedule(Runnable task, long delay, TimeUnit unit) {
+        if (closed) {
+            throw new IllegalStateException("Timer sudah ditutup");
+        }
+        start();
+        Timeout timeout = new Timeout(task, System.nanoTime() - startNanos + unit.toNanos(delay));
+        pending.increment();
+        incoming.add(timeout);
+        return timeout;
+    }
+
+    // timeout yang belum berjalan dan belum dibatalkan
+    public long pending() {
+        return pending.sum();
+    }
+
+    // thread baru dibuat saat timeout pertama, mode bench tanpa keranjang tidak perlu thread ini
+    private synchronized void start() {
+        if (!started) {
+            started = true;
+            worker.start();
+        }
+    }
+
+    private void run() {
+        while (!closed) {
+            long tickDeadline = (tick + 1) * tickNanos;
+            long sleep;
+            while ((sleep = tickDeadline - (System.nanoTime() - startNanos)) > 0) {
+                LockSupport.parkNanos(sleep);
+                if (closed) {
+                    return;
+                }
+            }
+            removeCancelled();
+            transferIncoming();
+            expireBucket((int) (tick & mask), tickDeadline);
+            tick++;
+        }
+    }
+
+    // yang dibatalkan sebelum ditempatkan cukup dilewati di transferIncoming
+    private void removeCancelled() {
+        Timeout timeout;
+        while ((timeout = cancelled.poll()) != null) {
+            if (timeout.bucket >= 0) {
+                unlink(timeout);
+            }
+        }
+    }
+
+    private void transferIncoming() {
+        Timeout timeout;
+        while ((timeout = incoming.poll()) != null) {
+            if (timeout.state != WAITING) {
+                continue;
+            }
+            long expiresAtTick = timeout.deadline / tickNanos;
+            timeout.rounds = Math.max(0, expiresAtTick - tick) / buckets.length;
+            int bucket = (int) (Math.max(expiresAtTick, tick) & mask);
+            timeout.bucket = bucket;
+            timeout.prev = null;
+            timeout.next = buckets[bucket];
+            if (timeout.next != null) {
+                timeout.next.prev = timeout;
+            }
+            buckets[bucket] = timeout;
+        }
+    }
+
+    private void expireBucket(int bucket, long now) {
+        Timeout timeout = buckets[bucket];
+        while (timeout != null) {
+            Timeout next = timeout.next;
+            if (timeout.rounds > 0 || timeout.deadline > now) {
+                timeout.rounds--;
+            } else {
+                unlink(timeout);
+                if (STATE.compareAndSet(timeout, WAITING, EXPIRED)) {
+                    pending.decrement();
+                    try {
+                        timeout.task.run();
+                    } catch (RuntimeException e) {
+                        System.err.println("Timeout gagal: " + e);
+                    }
+                }
+            }
+            timeout = next;
+        }
+    }
+
+    private void unlink(Timeout timeout) {
+        if (timeout.prev != null) {
+            timeout.prev.next = timeout.next;
+        } else {
+            buckets[timeout.bucket] = timeout.next;
+        }
+        if (timeout.next != null) {
+            timeout.next.prev = timeout.prev;
+        }
+        timeout.prev = null;
+        timeout.next = null;
+        timeout.bucket = -1;
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        LockSupport.unpark(worker);
+    }
+}
+
+// Reservasi stok keranjang: stok dipegang selama keranjang aktif, menjadi terjual saat dibayar,
+// dan otomatis dilepas bila dibatalkan atau tidak ada aktivitas melewati batas waktu.
+class Reservations implements Closeable {
+    private static final int OPEN = 0;
+    private static final int COMMITTED = 1;
+    private static final int RELEASED = 2;
+
+    private final StorageEngine.Products products; // stok dipegang dan dilepas lewat engine
+    private final Lock storeLock; // dipegang saat stok dilepas, sama seperti mutasi kasir lain
+    private final long timeoutNanos;
+    private final TimerWheel wheel = new TimerWheel(100, TimeUnit.MILLISECONDS, 512, "cart-timeouts");
+    private final LongAdder expired = new LongAdder();
+
+    public Reservations(StorageEngine.Products products, Lock storeLock, long timeout, TimeUnit unit) {
+        this.products = products;
+        this.storeLock = storeLock;
+        this.timeoutNanos = unit.toNanos(timeout);
+    }
+
+    public Reservation open() {
+        Reservation reservation = new Reservation();
+        reservation.schedule(timeoutNanos);
+        return reservation;
+    }
+
+    public long expiredCount() {
+        return expired.sum();
+    }
+
+    // batas waktu keranjang yang masih terjadwal; keranjang dibayar/dibatalkan langsung keluar dari wheel
+    public long pendingTimeouts() {
+        return wheel.pending();
+    }
+
+    @Override
+    public void close() {
+        wheel.close();
+    }
+
+    final class Reservation {
+        private final Map<ProductNode, Integer> held = new LinkedHashMap<>();
+        private int state = OPEN;
+        private long deadline = System.nanoTime() + timeoutNanos;
+        private TimerWheel.Timeout timeout;
+
+        private synchronized void schedule(long delayNanos) {
+            timeout = wheel.schedule(this::expire, delayNanos, TimeUnit.NANOSECONDS);
+        }
+
+        // false bila stok tidak cukup atau reservasi sudah kedaluwarsa (cek isOpen)
+        public boolean hold(ProductNode product, int quantity) {
+            storeLock.lock();
+            try {
+                synchronized (this) {
+                    if (state != OPEN || !products.reserve(product, quantity)) {
+                        return false;
+                    }
+                    held.merge(product, quantity, Integer::sum);
+                    deadline = System.nanoTime() + timeoutNanos; // aktivitas memperpanjang keranjang
+                    return true;
+                }
+            } finally {
+                storeLock.unlock();
+            }
+        }
+
+        public synchronized boolean isOpen() {
+            return state == OPEN;
+        }
+
+        public boolean commit() {
+            return commit(() -> { });
+        }
+
+        // stok yang dipegang menjadi terjual; dipanggil di bawah store lock bersama pencatatan transaksi.
+        // record (journal) dijalankan sebelum apa pun berubah: bila melempar, keranjang tetap terbuka dan
+        // stoknya tetap dipegang sampai dibatalkan atau kedaluwarsa
+        public synchronized boolean commit(Runnable record) {
+            if (state != OPEN) {
+                return false;
+            }
+            record.run();
+            for (Map.Entry<ProductNode, Integer> entry : held.entrySet()) {
+                products.confirm(entry.getKey(), entry.getValue());
+            }
+            held.clear();
+            state = COMMITTED;
+            timeout.cancel();
+            return true;
+        }
+
+        // tidak berefek bila sudah dibayar atau sudah dilepas
+        public void cancel() {
+            release(false);
+        }
+
+        private void expire() {
+            release(true);
+        }
+
+        private void release(boolean onTimeout) {
+            storeLock.lock();
+            try {
+                synchronized (this) {
+                    if (state != OPEN) {
+                        return;
+                    }
+                    if (onTimeout) {
+                        long remaining = deadline - System.nanoTime();
+                        if (remaining > 0) {
+                            schedule(remaining); // ada aktivitas sejak dijadwalkan
+                            return;
+                        }
+                        expired.increment();
+                    } else {
+                        timeout.cancel();
+                    }
+                    for (Map.Entry<ProductNode, Integer> entry : held.entrySet()) {
+                        products.release(entry.getKey(), entry.getValue());
+                    }
+                    held.clear();
+                    state = RELEASED;
+                }
+            } finally {
+                storeLock.unlock();
+            }
+        }
+    }
+}
+
+// Batas penyimpanan toko: repositori produk, kategori, user, dan transaksi, plus media tahan crash milik
+// engine. Menu, API, keranjang, dan replay journal memakai toko hanya lewat antarmuka ini, dan engine dipilih
+// saat startup (lihat MultiLinkedListTokoOlahraga.openEngine). MemoryStorageEngine memegang struktur hidup
+// berindeks, jadi node yang dikembalikan adalah node aslinya. PagedStorageEngine menyimpan record di file
+// berhalaman lewat buffer pool sehingga ukuran katalog tidak dibatasi heap; node yang dikembalikannya salinan
+// lepas, jadi setiap perubahan (termasuk stok keranjang) harus lewat repositori. Query yang tidak punya indeks
+// di sebuah engine memakai implementasi bawaan yang memindai page() per SCAN_BATCH produk.
+interface StorageEngine extends Closeable {
+    int SCAN_BATCH = 256;
+
+    Products products();
+
+    Categories categories();
+
+    Users users();
+
+    Transactions transactions();
+
+    // Memuat media engine (snapshot atau file halaman) saat startup. Mengembalikan segmen journal pertama yang
+    // belum tercermin di media, atau 0 bila media masih kosong: toko baru diisi data awal, di-checkpoint di
+    // segmen 1, lalu seluruh journal direplay.
+    long recover() throws IOException;
+
+    // Checkpoint di batas segmen journal, dipanggil di bawah write lock toko tepat setelah rotasi, jadi state
+    // engine saat itu persis hasil semua record sebelum segment; pekerjaan di sini harus sekecil mungkin.
+    // Task yang dikembalikan menulis media di thread latar dan boleh membaca segmen journal sebelum segment,
+    // yang baru dihapus setelah write selesai; sesudahnya recover() mengembalikan segment.
+    Checkpoint checkpoint(long segment) throws IOException;
+
+    interface Checkpoint {
+        void write() throws IOException;
+    }
+
+    // menulis perubahan yang masih di memori ke media, untuk pemakaian tanpa journal (uji dan benchmark)
+    void flush() throws IOException;
+
+    interface Products {
+        int size();
+
+        // nama tidak peka huruf besar/kecil; null bila tidak ada
+        ProductNode get(String name);
+
+        // urutan tampil, produk terbaru dulu; offset berbasis 0
+        List<ProductNode> page(int offset, int limit);
+
+        // false bila nama sudah dipakai
+        boolean insert(ProductNode product);
+
+        // menimpa seluruh isi produk; stock adalah stok fisik (tersedia + dipegang keranjang), jadi stok
+        // tersedia menjadi stock - reserved. false bila produk tidak ada, newName dipakai produk lain, atau
+        // stock lebih kecil dari yang sedang dipegang keranjang
+        boolean update(String name, String newName, long price, int stock, KategoriNode kategori);
+
+        boolean addStock(String name, int amount);
+
+        boolean delete(String name);
+
+        // produk dalam urutan tampil sampai visitor mengembalikan false; perubahan katalog di tengah pemindaian
+        // bisa menggeser satu halaman SCAN_BATCH
+        default void scan(Predicate<ProductNode> visitor) {
+            for (int offset = 0; ; offset += SCAN_BATCH) {
+                List<ProductNode> batch = page(offset, SCAN_BATCH);
+                for (ProductNode product : batch) {
+                    if (!visitor.test(product)) {
+                        return;
+                    }
+                }
+                if (batch.size() < SCAN_BATCH) {
+                    return;
+                }
+            }
+        }
+
+        // nomor urut viewProducts (berbasis 1), 0 bila produk sudah tidak ada
+        default int indexOf(ProductNode product) {
+            int[] index = { 0 };
+            boolean[] found = { false };
+            scan(current -> {
+                index[0]++;
+                found[0] = current.name.equalsIgnoreCase(product.name);
+                return !found[0];
+            });
+            return found[0] ? index[0] : 0;
+        }
+
+        // lihat ProductSearch.search untuk kecocokan dan urutan hasil
+        default List<ProductNode> search(String query, int limit) {
+            List<ProductNode> result = new ArrayList<>();
+            List<String> words = new ArrayList<>(ProductSearch.tokens(query));
+            if (words.isEmpty() || limit <= 0) {
+                return result;
+            }
+            boolean prefix = Character.isLetterOrDigit(query.charAt(query.length() - 1));
+            List<List<ProductNode>> byScore = new ArrayList<>();
+            for (int score = 0; score <= words.size(); score++) {
+                byScore.add(new ArrayList<>());
+            }
+            scan(product -> {
+                int score = ProductSearch.score(product, words, prefix);
+                if (score >= 0 && byScore.get(score).size() < limit) {
+                    byScore.get(score).add(product);
+                }
+                return byScore.get(words.size()).size() < limit;
+            });
+            for (int score = words.size(); score >= 0 && result.size() < limit; score--) {
+                List<ProductNode> bucket = byScore.get(score);
+                result.addAll(bucket.subList(0, Math.min(bucket.size(), limit - result.size())));
+            }
+            return result;
+        }
+
+        // token nama dan kategori berawalan prefix, yang paling banyak produknya dulu
+        default List<String> suggest(String prefix, int limit) {
+            String start = prefix.toLowerCase(Locale.ROOT);
+            Map<String, Integer> counts = new HashMap<>();
+            scan(product -> {
+                for (String token : ProductSearch.productTokens(product)) {
+                    if (token.startsWith(start)) {
+                        counts.merge(token, 1, Integer::sum);
+                    }
+                }
+                return true;
+            });
+            List<Map.Entry<String, Integer>> entries = new ArrayList<>(counts.entrySet());
+            entries.sort(Map.Entry.<String, Integer>comparingByValue().reversed()
+                    .thenComparing(Map.Entry.comparingByKey()));
+            List<String> result = new ArrayList<>();
+            for (int i = 0; i < entries.size() && i < limit; i++) {
+                result.add(entries.get(i).getKey());
+            }
+            return result;
+        }
+
+        // lihat ProductRangeIndex.query; bawaan memilih limit produk terkecil (harga, orderKey) lewat heap
+        default List<ProductNode> filter(ProductRangeIndex.Filter filter, ProductRangeIndex.Cursor after,
+                int limit) {
+            List<ProductNode> result = new ArrayList<>();
+            if (limit <= 0) {
+                return result;
+            }
+            Comparator<ProductNode> byPrice = Comparator.<ProductNode>comparingLong(p -> p.price)
+                    .thenComparingLong(p -> p.orderKey);
+            PriorityQueue<ProductNode> best = new PriorityQueue<>(byPrice.reversed());
+            scan(product -> {
+                if (filter.matches(product) && after.precedes(product)) {
+                    if (best.size() < limit) {
+                        best.add(product);
+                    } else if (byPrice.compare(product, best.peek()) < 0) {
+                        best.poll();
+                        best.add(product);
+                    }
+                }
+                return true;
+            });
+            result.addAll(best);
+            result.sort(byPrice);
+            return result;
+        }
+
+        // paling banyak limit produk kategori ini dalam urutan tampil, mulai sesudah after (null dari awal)
+        default List<ProductNode> inKategori(KategoriNode kategori, ProductNode after, int limit) {
+            List<ProductNode> result = new ArrayList<>();
+            boolean[] started = { after == null };
+            scan(product -> {
+                if (!started[0]) {
+                    started[0] = product.name.equalsIgnoreCase(after.name);
+                } else if (product.kategori != null && product.kategori.id == kategori.id) {
+                    result.add(product);
+                }
+                return result.size() < limit;
+            });
+            return result;
+        }
+
+        default int countInKategori(KategoriNode kategori) {
+            int[] count = { 0 };
+            scan(product -> {
+                if (product.kategori != null && product.kategori.id == kategori.id) {
+                    count[0]++;
+                }
+                return true;
+            });
+            return count[0];
+        }
+
+        default int reorderLevel() {
+            return StockIndex.DEFAULT_REORDER_LEVEL;
+        }
+
+        // limit produk dengan stok tersedia terkecil, terkecil dulu
+        default List<ProductNode> lowest(int limit) {
+            Comparator<ProductNode> byStock = Comparator.comparingInt(product -> product.stock);
+            PriorityQueue<ProductNode> best = new PriorityQueue<>(byStock.reversed());
+            scan(product -> {
+                if (best.size() < limit) {
+                    best.add(product);
+                } else if (limit > 0 && product.stock < best.peek().stock) {
+                    best.poll();
+                    best.add(product);
+                }
+                return true;
+            });
+            List<ProductNode> result = new ArrayList<>(best);
+            result.sort(byStock);
+            return result;
+        }
+
+        // produk dengan stok tersedia <= reorderLevel, terkecil dulu
+        default List<ProductNode> belowReorderLevel() {
+            List<ProductNode> result = new ArrayList<>();
+            scan(product -> {
+                if (product.stock <= reorderLevel()) {
+                    result.add(product);
+                }
+                return true;
+            });
+            result.sort(Comparator.comparingInt(product -> product.stock));
+            return result;
+        }
+
+        // dipanggil sekali setiap stok tersedia turun ke reorderLevel atau di bawahnya; bawaan tanpa peringatan
+        default void addReorderListener(StockIndex.ReorderListener listener) {
+        }
+
+        // Stok keranjang (lihat Reservations). Bawaan mengubah node-nya langsung, jadi hanya benar untuk engine
+        // yang mengembalikan produk hidup; engine dengan salinan menyimpan jumlah yang dipegang sendiri.
+        default boolean reserve(ProductNode product, int quantity) {
+            return product.reserve(quantity);
+        }
+
+        default void confirm(ProductNode product, int quantity) {
+            product.confirm(quantity);
+        }
+
+        default void release(ProductNode product, int quantity) {
+            product.release(quantity);
+        }
+    }
+
+    interface Categories {
+        int size();
+
+        KategoriNode get(int id);
+
+        // urut id
+        List<KategoriNode> all();
+
+        // berbasis 1 dalam urutan all(), seperti nomor di viewKategori; null di luar jangkauan
+        default KategoriNode getByIndex(int index) {
+            List<KategoriNode> all = all();
+            return index >= 1 && index <= all.size() ? all.get(index - 1) : null;
+        }
+
+        // false bila id sudah dipakai
+        boolean insert(KategoriNode kategori);
+
+        boolean update(int id, String name, String deskripsi);
+    }
+
+    interface Users {
+        int size();
+
+        UserNode get(String username);
+
+        // terbaru dulu
+        List<UserNode> all();
+
+        // waktu verifikasi sama untuk username yang ada maupun tidak
+        UserNode authenticate(String username, String password);
+
+        // false bila username sudah dipakai
+        boolean insert(UserNode user);
+    }
+
+    interface Transactions {
+        // id transaksi sudah diisi pemanggil
+        void append(UserNode user, TransactionNode transaction);
+
+        // terbaru dulu
+        List<TransactionNode> recent(UserNode user, int limit);
+
+        // transaksi user terbaru dulu sampai visitor mengembalikan false
+        void scan(UserNode user, Predicate<TransactionNode> visitor);
+
+        // null bila user tidak punya transaksi dengan id ini
+        default TransactionNode get(UserNode user, long id) {
+            TransactionNode[] found = { null };
+            scan(user, transaction -> {
+                if (transaction.id == id) {
+                    found[0] = transaction;
+                }
+                return found[0] == null;
+            });
+            return found[0];
+        }
+
+        // false bila baris ini sudah dikembalikan; fee adalah denda keterlambatan yang dibayar untuk baris ini.
+        // Transaksi yang semua barisnya sudah kembali ditandai isReturned
+        boolean markReturned(TransactionNode transaction, int line, long returnDate, long fee);
+    }
+}
+
+// Menerapkan record journal ke sebuah engine saat pemulihan. Hanya isi engine yang berubah; indeks toko
+// (riwayat, sewa aktif, dashboard) dibangun dari engine setelah replay selesai.
+class JournalReplay implements Journal.Handler {
+    private final StorageEngine engine;
+
+    JournalReplay(StorageEngine engine) {
+        this.engine = engine;
+    }
+
+    @Override
+    public void register(String username, String password, String role) {
+        engine.users().insert(new UserNode(username, password, role));
+    }
+
+    @Override
+    public void addKategori(int id, String name, String deskripsi) {
+        engine.categories().insert(new KategoriNode(id, name, deskripsi));
+    }
+
+    @Override
+    public void editKategori(int id, String name, String deskripsi) {
+        engine.categories().update(id, name, deskripsi);
+    }
+
+    @Override
+    public void addProduct(String name, long price, int stock, int kategoriId) {
+        engine.products().insert(new ProductNode(name, price, stock, engine.categories().get(kategoriId)));
+    }
+
+    @Override
+    public void addStok(String productName, int amount) {
+        engine.products().addStock(productName, amount);
+    }
+
+    @Override
+    public void editProduct(String oldName, String name, long price, int stock, int kategoriId) {
+        ProductNode product = engine.products().get(oldName);
+        if (product == null) {
+            return;
+        }
+        KategoriNode kategori = engine.categories().get(kategoriId);
+        engine.products().update(oldName, name, price, stock, kategori != null ? kategori : product.kategori);
+    }
+
+    @Override
+    public void deleteProduct(String name) {
+        engine.products().delete(name);
+    }
+
+    @Override
+    public void transaction(String username, TransactionNode transaction) {
+        UserNode user = engine.users().get(username);
+        if (user == null) {
+            return;
+        }
+        for (int line = 0; line < transaction.lineCount(); line++) {
+            engine.products().addStock(transaction.lineName(line), -transaction.lineQuantity(line));
+        }
+        transaction.allUser = user;
+        transaction.freeze();
+        engine.transactions().append(user, transaction);
+    }
+
+    @Override
+    public void returnItem(String username, long transactionId, String productName, long returnTime, long fee,
+            long payment) {
+        UserNode user = engine.users().get(username);
+        TransactionNode transaction = user == null ? null : engine.transactions().get(user, transactionId);
+        if (transaction == null || !transaction.type.equals("rental")) {
+            return;
+        }
+        int line = transaction.findLine(productName);
+        if (line >= 0 && !transaction.isLineReturned(line)) {
+            engine.products().addStock(productName, transaction.lineQuantity(line));
+            engine.transactions().markReturned(transaction, line, returnTime, fee);
+        }
+    }
+}
+
+// Engine bawaan: repositori di atas UserRegistry, ProductCatalog, dan CategoryIndex beserta indeks katalognya.
+// Medianya snapshot di direktori data (Snapshot), ditulis setiap checkpoint; tanpa direktori engine ini hanya
+// di memori. Dengan offHeapProducts produk disimpan di OffHeapProductTable, bukan ProductCatalog; snapshotnya
+// sama, jadi data yang sama bisa dibuka dengan kedua bentuk.
+class MemoryStorageEngine implements StorageEngine {
+    private final Path directory;
+    private final boolean offHeapProducts;
+    private final UserRegistry registry = new UserRegistry();
+    private final ProductCatalog catalog = new ProductCatalog();
+    private final CategoryIndex categoryIndex = new CategoryIndex();
+    private final Products products;
+    private final Categories categories = new MemoryCategories();
+    private final Users users = new MemoryUsers();
+    private final MemoryTransactions transactions = new MemoryTransactions();
+    private volatile long snapshotSegment; // segmen snapshot terakhir di directory, 0 bila belum ada
+
+    public MemoryStorageEngine() {
+        this(null);
+    }
+
+    public MemoryStorageEngine(Path directory) {
+        this(directory, false);
+    }
+
+    public MemoryStorageEngine(Path directory, boolean offHeapProducts) {
+        this.directory = directory;
+        this.offHeapProducts = offHeapProducts;
+        this.products = offHeapProducts ? new OffHeapProductTable(categoryIndex::getById) : new MemoryProducts();
+    }
+
+    public UserRegistry registry() {
+        return registry;
+    }
+
+    public ProductCatalog catalog() {
+        return catalog;
+    }
+
+    public CategoryIndex categoryIndex() {
+        return categoryIndex;
+    }
+
+    @Override
+    public Products products() {
+        return products;
+    }
+
+    @Override
+    public Categories categories() {
+        return categories;
+    }
+
+    @Override
+    public Users users() {
+        return users;
+    }
+
+    @Override
+    public Transactions transactions() {
+        return transactions;
+    }
+
+    @Override
+    public long recover() throws IOException {
+        Snapshot.State state = directory == null ? null : Snapshot.read(directory);
+        if (state == null) {
+            return 0;
+        }
+        categoryIndex.loadAll(state.categories);
+        if (offHeapProducts) {
+            for (int i = state.products.size() - 1; i >= 0; i--) { // insert masuk di depan urutan tampil
+                products.insert(state.products.get(i));
+            }
+        } else {
+            for (ProductNode product : state.products) {
+                catalog.addLast(product);
+            }
+        }
+        for (UserNode user : state.users) {
+            registry.register(user);
+            for (TransactionNode t = user.transactionHead; t != null; t = t.next) {
+                transactions.loaded(t);
+            }
+        }
+        snapshotSegment = state.journalSegment;
+        return state.journalSegment;
+    }
+
+    // Di bawah lock toko tidak ada yang disalin: snapshot baru dibangun di thread penulis dari snapshot
+    // sebelumnya ditambah segmen journal [snapshot sebelumnya, segment) di directory yang sama, yang sudah
+    // ditutup rotasi dan tidak berubah lagi. Hanya snapshot pertama (toko baru, sebelum ada operasi lain)
+    // yang disalin dari state hidup.
+    @Override
+    public Checkpoint checkpoint(long segment) {
+        if (directory == null) {
+            return () -> {
+            };
+        }
+        long previous = snapshotSegment;
+        if (previous == 0) {
+            Snapshot.State state = capture(segment);
+            return () -> {
+                Snapshot.write(directory, state);
+                snapshotSegment = segment;
+            };
+        }
+        return () -> {
+            MemoryStorageEngine shadow = new MemoryStorageEngine(directory, offHeapProducts);
+            if (shadow.recover() != previous) {
+                throw new IOException("snapshot berubah di luar engine ini");
+            }
+            JournalReplay replay = new JournalReplay(shadow);
+            for (long closed = previous; closed < segment; closed++) {
+                Journal.replay(Journal.segmentPath(directory, closed), replay, false);
+            }
+            Snapshot.write(directory, shadow.capture(segment));
+            snapshotSegment = segment;
+        };
+    }
+
+    // transaksi lama tidak berubah lagi, jadi cukup kepala daftarnya, kecuali sewa yang masih terbuka
+    private Snapshot.State capture(long segment) {
+        Snapshot.State state = new Snapshot.State();
+        state.journalSegment = segment;
+        state.nextTransactionId = transactions.lastId() + 1;
+        for (KategoriNode k = categoryIndex.head(); k != null; k = k.next) {
+            state.categories.add(new KategoriNode(k.id, k.name, k.deskripsi));
+        }
+        // stok di keranjang yang belum dibayar belum ada di journal, jadi dihitung masih tersedia
+        products.scan(p -> state.products.add(new ProductNode(p.name, p.price, p.stock + p.reserved, p.kategori)));
+        for (UserNode u = registry.head(); u != null; u = u.next) {
+            state.users.add(u);
+            state.transactionHeads.add(u.transactionHead);
+        }
+        Collections.reverse(state.users);
+        Collections.reverse(state.transactionHeads);
+        for (TransactionNode rental : transactions.openRentals()) {
+            state.rentalCopies.put(rental.id, Snapshot.copyRental(rental));
+        }
+        return state;
+    }
+
+    @Override
+    public void flush() {
+    }
+
+    @Override
+    public void close() {
+    }
+
+    private final class MemoryProducts implements Products {
+        @Override
+        public int size() {
+            return catalog.size();
+        }
+
+        @Override
+        public ProductNode get(String name) {
+            return catalog.getByName(name);
+        }
+
+        @Override
+        public List<ProductNode> page(int offset, int limit) {
+            List<ProductNode> page = new ArrayList<>(Math.max(0, Math.min(limit, 64)));
+            if (limit <= 0 || offset < 0 || offset >= catalog.size()) {
+                return page;
+            }
+            for (ProductNode product = catalog.getByIndex(offset + 1); product != null && page.size() < limit;
+                    product = product.next) {
+                page.add(product);
+            }
+            return page;
+        }
+
+        // kategori dipetakan ke node milik engine (seperti update) agar produk masuk daftar kategori yang dipindai
+        // inKategori; kategori yang belum terdaftar dibiarkan
+        @Override
+        public boolean insert(ProductNode product) {
+            synchronized (catalog) {
+                if (catalog.containsName(product.name)) {
+                    return false;
+                }
+                KategoriNode live = product.kategori != null ? categoryIndex.getById(product.kategori.id) : null;
+                if (live != null) {
+                    product.kategori = live;
+                }
+                catalog.addFirst(product);
+                return true;
+            }
+        }
+
+        @Override
+        public boolean update(String name, String newName, long price, int stock, KategoriNode kategori) {
+            synchronized (catalog) {
+                ProductNode product = catalog.getByName(name);
+                if (product == null) {
+                    return false;
+                }
+                ProductNode existing = catalog.getByName(newName);
+                int available = stock - product.reserved;
+                if (existing != null && existing != product || available < 0) {
+                    return false;
+                }
+                if (!product.name.equals(newName)) {
+                    catalog.rename(product, newName);
+                }
+                catalog.changePrice(product, price);
+                if (product.stock != available) {
+                    product.setStock(available);
+                }
+                catalog.changeKategori(product, kategori != null ? categoryIndex.getById(kategori.id) : null);
+                return true;
+            }
+        }
+
+        @Override
+        public boolean addStock(String name, int amount) {
+            ProductNode product = catalog.getByName(name);
+            if (product == null) {
+                return false;
+            }
+            product.addStock(amount);
+            return true;
+        }
+
+        @Override
+        public boolean delete(String name) {
+            ProductNode product = catalog.getByName(name);
+            return product != null && catalog.remove(product);
+        }
+
+        @Override
+        public void scan(Predicate<ProductNode> visitor) {
+            for (ProductNode product = catalog.head(); product != null && visitor.test(product);
+                    product = product.next) {
+            }
+        }
+
+        @Override
+        public int indexOf(ProductNode product) {
+            ProductNode live = catalog.getByName(product.name);
+            return live == null ? 0 : catalog.indexOf(live);
+        }
+
+        @Override
+        public List<ProductNode> search(String query, int limit) {
+            return catalog.search().search(query, limit);
+        }
+
+        @Override
+        public List<String> suggest(String prefix, int limit) {
+            return catalog.search().suggest(prefix, limit);
+        }
+
+        @Override
+        public List<ProductNode> filter(ProductRangeIndex.Filter filter, ProductRangeIndex.Cursor after,
+                int limit) {
+            return catalog.ranges().query(filter, after, limit);
+        }
+
+        // daftar produk milik kategori, jadi setiap halaman O(ukuran halaman) berapa pun isi kategorinya
+        @Override
+        public List<ProductNode> inKategori(KategoriNode kategori, ProductNode after, int limit) {
+            List<ProductNode> result = new ArrayList<>();
+            synchronized (catalog) {
+                KategoriNode live = categoryIndex.getById(kategori.id);
+                ProductNode current = after == null ? (live != null ? live.productHead : null)
+                        : after.kategori == live ? after.kategoriNext : null;
+                for (; current != null && result.size() < limit; current = current.kategoriNext) {
+                    result.add(current);
+                }
+            }
+            return result;
+        }
+
+        @Override
+        public int countInKategori(KategoriNode kategori) {
+            synchronized (catalog) {
+                KategoriNode live = categoryIndex.getById(kategori.id);
+                return live != null ? live.productCount : 0;
+            }
+        }
+
+        @Override
+        public int reorderLevel() {
+            return catalog.stockIndex().reorderLevel();
+        }
+
+        @Override
+        public List<ProductNode> lowest(int limit) {
+            return catalog.stockIndex().lowest(limit);
+        }
+
+        @Override
+        public List<ProductNode> belowReorderLevel() {
+            return catalog.stockIndex().belowReorderLevel();
+        }
+
+        @Override
+        public void addReorderListener(StockIndex.ReorderListener listener) {
+            catalog.stockIndex().addListener(listener);
+        }
+    }
+
+    private final class MemoryCategories implements Categories {
+        @Override
+        public int size() {
+            return categoryIndex.size();
+        }
+
+        @Override
+        public KategoriNode get(int id) {
+            return categoryIndex.getById(id);
+        }
+
+        @Override
+        public List<KategoriNode> all() {
+            synchronized (categoryIndex) {
+                List<KategoriNode> result = new ArrayList<>(categoryIndex.size());
+                for (KategoriNode kategori = categoryIndex.head(); kategori != null; kategori = kategori.next) {
+                    result.add(kategori);
+                }
+                return result;
+            }
+        }
+
+        @Override
+        public KategoriNode getByIndex(int index) {
+            return categoryIndex.getByIndex(index);
+        }
+
+        @Override
+        public boolean insert(KategoriNode kategori) {
+            return categoryIndex.add(kategori);
+        }
+
+        @Override
+        public boolean update(int id, String name, String deskripsi) {
+            KategoriNode kategori = categoryIndex.getById(id);
+            if (kategori == null) {
+                return false;
+            }
+            catalog.updateKategori(kategori, name, deskripsi);
+            return true;
+        }
+    }
+
+    private final class MemoryUsers implements Users {
+        @Override
+        public int size() {
+            return registry.size();
+        }
+
+        @Override
+        public UserNode get(String username) {
+            return registry.get(username);
+        }
+
+        @Override
+        public List<UserNode> all() {
+            return Arrays.asList(registry.toArray());
+        }
+
+        @Override
+        public UserNode authenticate(String username, String password) {
+            return registry.authenticate(username, password);
+        }
+
+        @Override
+        public boolean insert(UserNode user) {
+            return registry.register(user);
+        }
+    }
+
+    // Riwayat per user adalah daftar transactionHead (prepend). Sewa yang masih terbuka juga dipetakan per id,
+    // untuk replay pengembalian dan salinan snapshot. Tanpa engine pun dipakai SalesAnalytics untuk memindai
+    // daftar user lepas.
+    static final class MemoryTransactions implements Transactions {
+        private final Map<Long, TransactionNode> openRentals = new ConcurrentHashMap<>();
+        private final AtomicLong lastId = new AtomicLong();
+
+        long lastId() {
+            return lastId.get();
+        }
+
+        Collection<TransactionNode> openRentals() {
+            return openRentals.values();
+        }
+
+        // transaksi dari snapshot, sudah tertaut ke user-nya
+        void loaded(TransactionNode transaction) {
+            lastId.accumulateAndGet(transaction.id, Math::max);
+            if (transaction.type.equals("rental") && !transaction.isReturned) {
+                openRentals.put(transaction.id, transaction);
+            }
+        }
+
+        @Override
+        public void append(UserNode user, TransactionNode transaction) {
+            synchronized (user) {
+                transaction.next = user.transactionHead;
+                user.transactionHead = transaction;
+            }
+            loaded(transaction);
+        }
+
+        @Override
+        public List<TransactionNode> recent(UserNode user, int limit) {
+            List<TransactionNode> result = new ArrayList<>();
+            scan(user, t -> {
+                result.add(t);
+                return result.size() < limit;
+            });
+            return result;
+        }
+
+        @Override
+        public void scan(UserNode user, Predicate<TransactionNode> visitor) {
+            TransactionNode head;
+            synchronized (user) { // pasangan dari prepend di append
+                head = user.transactionHead;
+            }
+            for (TransactionNode t = head; t != null && visitor.test(t); t = t.next) {
+            }
+        }
+
+        @Override
+        public TransactionNode get(UserNode user, long id) {
+            TransactionNode rental = openRentals.get(id);
+            if (rental != null) {
+                return rental.allUser == user ? rental : null;
+            }
+            return Transactions.super.get(user, id);
+        }
+
+        @Override
+        public boolean markReturned(TransactionNode transaction, int line, long returnDate, long fee) {
+            synchronized (transaction) {
+                if (transaction.isLineReturned(line)) {
+                    return false;
+                }
+                transaction.markLineReturned(line);
+                transaction.returnDate = returnDate;
+                transaction.lateFees += fee;
+                if (transaction.allLinesReturned()) {
+                    transaction.isReturned = true;
+                    openRentals.remove(transaction.id);
+                }
+                return true;
+            }
+        }
+    }
+}
+
+// Buffer pool LRU untuk file berhalaman 4 KiB. Halaman dibaca lewat FileChannel ke frame di heap; buffer frame
+// yang dikeluarkan dipakai ulang, jadi pool tidak menghasilkan sampah. Pemanggil memegang satu lock untuk
+// seluruh operasinya, sehingga frame tidak di-pin: satu operasi hanya memakai beberapa frame yang baru diakses,
+// dan dengan kapasitas minimum MIN_PAGES LRU tidak pernah mengeluarkan frame itu di tengah operasi.
+//
+// File utama hanya ditulis checkpoint (no-steal), jadi isinya selalu state checkpoint terakhir yang utuh.
+// Frame dirty yang dikeluarkan di antara dua checkpoint ditulis ke file spill epoch berjalan. beginCheckpoint
+// membekukan epoch itu: salinan frame dirty (paling banyak sebesar pool) dan isi spill-nya menjadi milik
+// checkpoint, dan epoch berikutnya memakai file spill yang lain. writeCheckpoint, tanpa lock pemanggil,
+// memindahkan halaman beku ke file utama setelah daftarnya dicatat di file redo, jadi crash di tengah
+// penyalinan diselesaikan oleh recover saat file dibuka lagi.
+class BufferPool implements Closeable {
+    static final int PAGE_SIZE = 4096;
+    static final int MIN_PAGES = 16;
+    static final String CHECKPOINT_FILE = "checkpoint";
+    private static final String REDO_FILE = "checkpoint.redo";
+    private static final String SPILL_FILE = "spill.";
+    private static final int CHECKPOINT_MAGIC = 0x544B4350; // "TKCP"
+    private static final int REDO_MAGIC = 0x544B5244; // "TKRD"
+
+    static final class Frame {
+        final int file;
+        final int page;
+        final ByteBuffer data;
+        boolean dirty;
+
+        Frame(int file, int page, ByteBuffer data) {
+            this.file = file;
+            this.page = page;
+            this.data = data;
+        }
+    }
+
+    // halaman satu epoch yang dibekukan checkpoint; tidak berubah lagi setelah beginCheckpoint
+    static final class Frozen {
+        final long segment;
+        final int spill; // file spill milik epoch ini
+        final Map<Long, Integer> spilled; // halaman -> slot di file spill
+        final int spillSlots;
+        final Map<Long, ByteBuffer> images = new HashMap<>(); // frame dirty saat dibekukan
+        int pagesWritten; // diisi writeCheckpoint
+
+        Frozen(long segment, int spill, Map<Long, Integer> spilled, int spillSlots) {
+            this.segment = segment;
+            this.spill = spill;
+            this.spilled = spilled;
+            this.spillSlots = spillSlots;
+        }
+    }
+
+    private final int capacity;
+    private final Path directory;
+    private final LinkedHashMap<Long, Frame> frames;
+    private final List<FileChannel> files = new ArrayList<>();
+    private final FileChannel[] spills = new FileChannel[2];
+    private int epoch; // file spill untuk frame dirty yang dikeluarkan sekarang
+    private Map<Long, Integer> spilled = new HashMap<>();
+    private int spillSlots;
+    private Frozen frozen; // checkpoint yang sedang ditulis, null bila tidak ada
+    private long checkpointSegment;
+    private int[] pageCounts = new int[8];
+    private long hits;
+    private long misses;
+    private long writes;
+
+    // directory menyimpan file spill, redo, dan penanda checkpoint di samping file yang dibuka lewat open
+    public BufferPool(int capacity, Path directory) throws IOException {
+        if (capacity < MIN_PAGES) {
+            throw new IllegalArgumentException("Buffer pool minimal " + MIN_PAGES + " halaman");
+        }
+        this.capacity = capacity;
+        this.directory = directory;
+        this.frames = new LinkedHashMap<>(capacity * 4 / 3 + 1, 0.75f, true);
+        try {
+            for (int i = 0; i < spills.length; i++) {
+                spills[i] = FileChannel.open(directory.resolve(SPILL_FILE + i), StandardOpenOption.CREATE,
+                        StandardOpenOption.READ, StandardOpenOption.WRITE);
+            }
+        } catch (IOException e) {
+            close();
+            throw e;
+        }
+    }
+
+    // mengembalikan nomor file untuk dipakai di page dan allocate; urutan open harus sama setiap kali file
+    // dibuka, karena file redo mencatat nomor ini
+    public int open(Path path) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        int file = files.size();
+        files.add(channel);
+        if (file == pageCounts.length) {
+            pageCounts = Arrays.copyOf(pageCounts, file * 2);
+        }
+        pageCounts[file] = (int) (channel.size() / PAGE_SIZE);
+        return file;
+    }
+
+    // Dipanggil sekali setelah semua file dibuka, sebelum halaman mana pun dibaca: menyelesaikan checkpoint
+    // yang terputus crash, lalu mengosongkan spill (perubahan sesudah checkpoint ada di journal).
+    // Mengembalikan segmen journal checkpoint terakhir, 0 bila file belum pernah di-checkpoint.
+    public long recover() throws IOException {
+        Path redo = directory.resolve(REDO_FILE);
+        if (Files.exists(redo)) {
+            redo(redo);
+        }
+        for (FileChannel spill : spills) {
+            spill.truncate(0);
+        }
+        for (int file = 0; file < files.size(); file++) {
+            pageCounts[file] = (int) (files.get(file).size() / PAGE_SIZE);
+        }
+        Path checkpoint = directory.resolve(CHECKPOINT_FILE);
+        checkpointSegment = 0;
+        if (Files.exists(checkpoint)) {
+            try (DataInputStream in = new DataInputStream(Files.newInputStream(checkpoint))) {
+                if (in.readInt() != CHECKPOINT_MAGIC) {
+                    throw new IOException("Penanda checkpoint tidak dikenal: " + checkpoint);
+                }
+                checkpointSegment = in.readLong();
+            }
+        }
+        return checkpointSegment;
+    }
+
+    public int pageCount(int file) {
+        return pageCounts[file];
+    }
+
+    public Frame page(int file, int page) {
+        Frame frame = frames.get(key(file, page));
+        if (frame != null) {
+            hits++;
+            return frame;
+        }
+        misses++;
+        frame = new Frame(file, page, freeBuffer());
+        load(file, page, frame.data);
+        frames.put(key(file, page), frame);
+        return frame;
+    }
+
+    // halaman kosong baru di akhir file; baru ada di file utama setelah checkpoint
+    public Frame allocate(int file) {
+        int page = pageCounts[file]++;
+        Frame frame = new Frame(file, page, freeBuffer());
+        Arrays.fill(frame.data.array(), (byte) 0);
+        frame.dirty = true;
+        frames.put(key(file, page), frame);
+        return frame;
+    }
+
+    // membaca awal halaman tanpa memasukkannya ke pool, untuk memindai header saat membuka tabel
+    public void readHeader(int file, int page, ByteBuffer header) {
+        header.clear();
+        Frame frame = frames.get(key(file, page));
+        if (frame != null) {
+            header.put(frame.data.array(), 0, header.remaining()).flip();
+            return;
+        }
+        load(file, page, header);
+    }
+
+    public long hits() {
+        return hits;
+    }
+
+    public long misses() {
+        return misses;
+    }
+
+    public long writes() {
+        return writes;
+    }
+
+    // Di bawah lock pemanggil, pada batas segmen journal: menyalin frame dirty ke memori dan berpindah epoch,
+    // tanpa I/O. Gagal bila checkpoint sebelumnya belum selesai ditulis; halamannya tetap dibekukan dan
+    // dipulihkan dari journal saat file dibuka lagi.
+    public Frozen beginCheckpoint(long segment) throws IOException {
+        if (frozen != null) {
+            throw new IOException("checkpoint segmen " + frozen.segment + " belum selesai ditulis");
+        }
+        Frozen checkpoint = new Frozen(segment, epoch, spilled, spillSlots);
+        for (Frame frame : frames.values()) {
+            if (frame.dirty) {
+                checkpoint.images.put(key(frame.file, frame.page), ByteBuffer.wrap(frame.data.array().clone()));
+                frame.dirty = false;
+            }
+        }
+        frozen = checkpoint;
+        epoch ^= 1;
+        spilled = new HashMap<>();
+        spillSlots = 0;
+        return checkpoint;
+    }
+
+    // Tanpa lock pemanggil: hanya membaca checkpoint yang sudah beku dan menulis ke posisi file yang tidak
+    // dibaca operasi lain selama checkpoint itu belum diakhiri. Urutannya: salinan frame ke spill, fsync,
+    // daftar halaman ke file redo, salin ke file utama, fsync, lalu penanda checkpoint baru.
+    public void writeCheckpoint(Frozen checkpoint) throws IOException {
+        FileChannel spill = spills[checkpoint.spill];
+        Map<Long, Integer> slots = new HashMap<>(checkpoint.spilled);
+        int next = checkpoint.spillSlots;
+        for (Map.Entry<Long, ByteBuffer> image : checkpoint.images.entrySet()) {
+            writeFully(spill, image.getValue().duplicate(), (long) next * PAGE_SIZE);
+            slots.put(image.getKey(), next++);
+        }
+        spill.force(false);
+
+        Path redo = directory.resolve(REDO_FILE);
+        Path temp = directory.resolve(REDO_FILE + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+            out.writeInt(REDO_MAGIC);
+            out.writeLong(checkpoint.segment);
+            out.writeInt(checkpoint.spill);
+            out.writeInt(slots.size());
+            for (Map.Entry<Long, Integer> entry : slots.entrySet()) {
+                out.writeLong(entry.getKey());
+                out.writeInt(entry.getValue());
+            }
+        }
+        force(temp);
+        Files.move(temp, redo, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        apply(checkpoint.segment, spill, slots);
+        Files.delete(redo);
+        checkpoint.pagesWritten = slots.size();
+    }
+
+    // di bawah lock pemanggil setelah writeCheckpoint berhasil: halaman beku sekarang dibaca dari file utama
+    public void endCheckpoint(Frozen checkpoint) throws IOException {
+        frozen = null;
+        checkpointSegment = checkpoint.segment;
+        writes += checkpoint.pagesWritten;
+        spills[checkpoint.spill].truncate(0);
+    }
+
+    // checkpoint sinkron tanpa journal: file utama memuat semua perubahan, segmennya tetap
+    public void flush() throws IOException {
+        Frozen checkpoint = beginCheckpoint(checkpointSegment);
+        writeCheckpoint(checkpoint);
+        endCheckpoint(checkpoint);
+    }
+
+    // tidak menulis apa pun: perubahan sesudah checkpoint terakhir dipulihkan dari journal
+    @Override
+    public void close() throws IOException {
+        for (FileChannel channel : files) {
+            channel.close();
+        }
+        for (FileChannel spill : spills) {
+            if (spill != null) {
+                spill.close();
+            }
+        }
+        files.clear();
+        frames.clear();
+    }
+
+    private ByteBuffer freeBuffer() {
+        if (frames.size() < capacity) {
+            return ByteBuffer.allocate(PAGE_SIZE);
+        }
+        Iterator<Frame> eldest = frames.values().iterator();
+        Frame victim = eldest.next();
+        eldest.remove();
+        if (victim.dirty) {
+            spill(victim);
+        }
+        return victim.data;
+    }
+
+    // frame dirty yang dikeluarkan menimpa slot-nya sendiri di spill epoch berjalan, atau mengambil slot baru
+    private void spill(Frame frame) {
+        long key = key(frame.file, frame.page);
+        Integer slot = spilled.get(key);
+        if (slot == null) {
+            slot = spillSlots++;
+            spilled.put(key, slot);
+        }
+        try {
+            writeFully(spills[epoch], frame.data.duplicate(), (long) slot * PAGE_SIZE);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        frame.dirty = false;
+        writes++;
+    }
+
+    // versi terbaru halaman: spill epoch berjalan, lalu checkpoint yang sedang ditulis, lalu file utama
+    private void load(int file, int page, ByteBuffer target) {
+        long key = key(file, page);
+        try {
+            Integer slot = spilled.get(key);
+            if (slot != null) {
+                readFully(spills[epoch], target, (long) slot * PAGE_SIZE);
+                return;
+            }
+            if (frozen != null) {
+                ByteBuffer image = frozen.images.get(key);
+                if (image != null) {
+                    target.clear();
+                    target.put(image.array(), 0, target.remaining()).clear();
+                    return;
+                }
+                slot = frozen.spilled.get(key);
+                if (slot != null) {
+                    readFully(spills[frozen.spill], target, (long) slot * PAGE_SIZE);
+                    return;
+                }
+            }
+            readFully(files.get(file), target, (long) page * PAGE_SIZE);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // checkpoint yang terputus: file redo hanya ada setelah spill-nya di-fsync, jadi penyalinan diulang utuh
+    private void redo(Path redo) throws IOException {
+        long segment;
+        int spill;
+        Map<Long, Integer> slots = new HashMap<>();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(redo)))) {
+            if (in.readInt() != REDO_MAGIC) {
+                throw new IOException("File redo checkpoint tidak dikenal: " + redo);
+            }
+            segment = in.readLong();
+            spill = in.readInt();
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                slots.put(in.readLong(), in.readInt());
+            }
+        }
+        apply(segment, spills[spill], slots);
+        Files.delete(redo);
+    }
+
+    private void apply(long segment, FileChannel spill, Map<Long, Integer> slots) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(PAGE_SIZE);
+        for (Map.Entry<Long, Integer> entry : slots.entrySet()) {
+            long key = entry.getKey();
+            readFully(spill, buffer, (long) entry.getValue() * PAGE_SIZE);
+            writeFully(files.get((int) (key >>> 32)), buffer, (key & 0xFFFFFFFFL) * PAGE_SIZE);
+        }
+        for (FileChannel channel : files) {
+            channel.force(false);
+        }
+        Path checkpoint = directory.resolve(CHECKPOINT_FILE);
+        Path temp = directory.resolve(CHECKPOINT_FILE + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(Files.newOutputStream(temp))) {
+            out.writeInt(CHECKPOINT_MAGIC);
+            out.writeLong(segment);
+        }
+        force(temp);
+        Files.move(temp, checkpoint, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static void force(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+            channel.force(true);
+        }
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer data, long position) throws IOException {
+        data.clear();
+        while (data.hasRemaining()) {
+            position += channel.write(data, position);
+        }
+    }
+
+    // bagian halaman di luar akhir file (halaman baru yang belum pernah ditulis) dibaca sebagai nol
+    private static void readFully(FileChannel channel, ByteBuffer target, long position) throws IOException {
+        target.clear();
+        int limit = target.limit();
+        while (target.hasRemaining()) {
+            int read = channel.read(target, position + target.position());
+            if (read < 0) {
+                Arrays.fill(target.array(), target.position(), limit, (byte) 0);
+                break;
+            }
+        }
+        target.clear();
+    }
+
+    private static long key(int file, int page) {
+        return ((long) file << 32) | page;
+    }
+}
+
+// Tata letak halaman record: header (jumlah slot, awal area record, jumlah record hidup), direktori slot
+// tumbuh dari depan dan isi record dari belakang. Slot yang dihapus tidak dipakai ulang, jadi rid
+// (halaman << 16 | slot) tetap stabil selama record hidup.
+final class SlottedPage {
+    private static final int SLOTS = 0;
+    private static final int FREE_END = 2;
+    private static final int LIVE = 4;
+    private static final int HEADER = 8;
+    private static final int SLOT_SIZE = 4;
+    static final int HEADER_SIZE = HEADER;
+    static final int MAX_RECORD = BufferPool.PAGE_SIZE - HEADER - SLOT_SIZE;
+
+    private SlottedPage() {
+    }
+
+    static int slotCount(ByteBuffer page) {
+        return page.getChar(SLOTS);
+    }
+
+    static int liveCount(ByteBuffer page) {
+        return page.getChar(LIVE);
+    }
+
+    // nomor slot, atau -1 bila ruang halaman tidak cukup
+    static int insert(ByteBuffer page, byte[] record) {
+        int slots = slotCount(page);
+        int start = freeEnd(page) - record.length;
+        if (start < HEADER + (slots + 1) * SLOT_SIZE) {
+            return -1;
+        }
+        page.put(start, record);
+        page.putChar(HEADER + slots * SLOT_SIZE, (char) start);
+        page.putChar(HEADER + slots * SLOT_SIZE + 2, (char) record.length);
+        page.putChar(SLOTS, (char) (slots + 1));
+        page.putChar(FREE_END, (char) start);
+        page.putChar(LIVE, (char) (liveCount(page) + 1));
+        return slots;
+    }
+
+    // -1 bila slot tidak ada atau sudah dihapus
+    static int offset(ByteBuffer page, int slot) {
+        if (slot >= slotCount(page)) {
+            return -1;
+        }
+        int offset = page.getChar(HEADER + slot * SLOT_SIZE);
+        return offset == 0 ? -1 : offset;
+    }
+
+    static int length(ByteBuffer page, int slot) {
+        return page.getChar(HEADER + slot * SLOT_SIZE + 2);
+    }
+
+    // record hanya boleh menyusut di tempat; sisa ruangnya tidak dipakai lagi
+    static void shrink(ByteBuffer page, int slot, int length) {
+        page.putChar(HEADER + slot * SLOT_SIZE + 2, (char) length);
+    }
+
+    static boolean delete(ByteBuffer page, int slot) {
+        if (offset(page, slot) < 0) {
+            return false;
+        }
+        page.putChar(HEADER + slot * SLOT_SIZE, (char) 0);
+        page.putChar(LIVE, (char) (liveCount(page) - 1));
+        return true;
+    }
+
+    private static int freeEnd(ByteBuffer page) {
+        int end = page.getChar(FREE_END);
+        return end == 0 ? BufferPool.PAGE_SIZE : end;
+    }
+}
+
+// Jumlah record hidup per blok (halaman file, potongan tabel) plus Fenwick tree di atasnya, untuk menemukan
+// record hidup ke-n O(log blok) walaupun sebagian isi blok sudah dihapus. 8 byte per blok, tanpa objek.
+final class BlockCounts {
+    private int[] counts;
+    private int[] tree; // Fenwick berbasis 1 atas counts
+    private int total;
+
+    BlockCounts(int blocks) {
+        counts = new int[Math.max(16, blocks)];
+        tree = new int[counts.length + 1];
+    }
+
+    int total() {
+        return total;
+    }
+
+    int count(int block) {
+        return block < counts.length ? counts[block] : 0;
+    }
+
+    void add(int block, int delta) {
+        if (block >= counts.length) {
+            counts = Arrays.copyOf(counts, Math.max(block + 1, counts.length * 2));
+            rebuild();
+        }
+        counts[block] += delta;
+        total += delta;
+        for (int i = block + 1; i < tree.length; i += i & -i) {
+            tree[i] += delta;
+        }
+    }
+
+    // blok yang memuat record hidup ke-index (berbasis 0); pemanggil memastikan index < total
+    int blockOf(int index) {
+        int block = 0; // jumlah blok yang seluruh isinya masih sebelum index
+        for (int step = Integer.highestOneBit(tree.length - 1); step > 0; step >>= 1) {
+            int next = block + step;
+            if (next < tree.length && tree[next] <= index) {
+                block = next;
+                index -= tree[next];
+            }
+        }
+        return block;
+    }
+
+    // jumlah record hidup di semua blok sebelum block
+    int before(int block) {
+        int sum = 0;
+        for (int i = Math.min(block, tree.length - 1); i > 0; i -= i & -i) {
+            sum += tree[i];
+        }
+        return sum;
+    }
+
+    private void rebuild() {
+        tree = new int[counts.length + 1];
+        for (int i = 1; i < tree.length; i++) {
+            tree[i] += counts[i - 1];
+            int parent = i + (i & -i);
+            if (parent < tree.length) {
+                tree[parent] += tree[i];
+            }
+        }
+    }
+}
+
+// Tabel heap di atas BufferPool: record disisipkan ke halaman terakhir dan dihapus dengan menandai slot.
+// Jumlah record hidup per halaman disimpan di BlockCounts, jadi record ke-n dalam urutan fisik ditemukan
+// O(log halaman) dengan membaca satu halaman saja.
+class HeapTable {
+    private final BufferPool pool;
+    private final int file;
+    private int pages;
+    private final BlockCounts live;
+
+    public HeapTable(BufferPool pool, int file) {
+        this.pool = pool;
+        this.file = file;
+        this.pages = pool.pageCount(file);
+        this.live = new BlockCounts(pages);
+        ByteBuffer header = ByteBuffer.allocate(SlottedPage.HEADER_SIZE);
+        for (int page = 0; page < pages; page++) {
+            pool.readHeader(file, page, header);
+            live.add(page, SlottedPage.liveCount(header));
+        }
+    }
+
+    public int size() {
+        return live.total();
+    }
+
+    public long insert(byte[] record) {
+        if (record.length > SlottedPage.MAX_RECORD) {
+            throw new IllegalArgumentException("Record terlalu besar untuk satu halaman: " + record.length + " byte");
+        }
+        if (pages > 0) {
+            BufferPool.Frame last = pool.page(file, pages - 1);
+            int slot = SlottedPage.insert(last.data, record);
+            if (slot >= 0) {
+                last.dirty = true;
+                live.add(pages - 1, 1);
+                return rid(pages - 1, slot);
+            }
+        }
+        BufferPool.Frame frame = pool.allocate(file);
+        pages++;
+        int slot = SlottedPage.insert(frame.data, record);
+        live.add(frame.page, 1);
+        return rid(frame.page, slot);
+    }
+
+    // isi record sebagai slice dari frame (indeks 0 = awal record), null bila sudah dihapus.
+    // Hanya berlaku sampai operasi pool berikutnya yang bisa mengeluarkan frame.
+    public ByteBuffer read(long rid) {
+        return slice(pool.page(file, pageOf(rid)), slotOf(rid));
+    }
+
+    // seperti read, tetapi halaman ditandai dirty karena pemanggil akan menulis ke slice
+    public ByteBuffer update(long rid) {
+        BufferPool.Frame frame = pool.page(file, pageOf(rid));
+        frame.dirty = true;
+        return slice(frame, slotOf(rid));
+    }
+
+    // record ditimpa di tempat bila muat, selain itu dipindah ke akhir tabel; mengembalikan rid barunya
+    public long replace(long rid, byte[] record) {
+        BufferPool.Frame frame = pool.page(file, pageOf(rid));
+        int slot = slotOf(rid);
+        int offset = SlottedPage.offset(frame.data, slot);
+        if (offset >= 0 && record.length <= SlottedPage.length(frame.data, slot)) {
+            frame.data.put(offset, record);
+            SlottedPage.shrink(frame.data, slot, record.length);
+            frame.dirty = true;
+            return rid;
+        }
+        delete(rid);
+        return insert(record);
+    }
+
+    public boolean delete(long rid) {
+        BufferPool.Frame frame = pool.page(file, pageOf(rid));
+        if (!SlottedPage.delete(frame.data, slotOf(rid))) {
+            return false;
+        }
+        frame.dirty = true;
+        live.add(frame.page, -1);
+        return true;
+    }
+
+    // rid record hidup ke-index (berbasis 0) dalam urutan fisik, -1 bila di luar jangkauan
+    public long ridAt(int index) {
+        if (index < 0 || index >= live.total()) {
+            return -1;
+        }
+        int page = live.blockOf(index);
+        int remaining = index - live.before(page);
+        ByteBuffer data = pool.page(file, page).data;
+        int slots = SlottedPage.slotCount(data);
+        for (int slot = 0; slot < slots; slot++) {
+            if (SlottedPage.offset(data, slot) >= 0 && remaining-- == 0) {
+                return rid(page, slot);
+            }
+        }
+        throw new IllegalStateException("Hitungan record halaman " + page + " tidak cocok");
+    }
+
+    // posisi record hidup rid dalam urutan fisik (berbasis 0), kebalikan ridAt
+    public int rank(long rid) {
+        int page = pageOf(rid);
+        ByteBuffer data = pool.page(file, page).data;
+        int rank = live.before(page);
+        for (int slot = 0; slot < slotOf(rid); slot++) {
+            if (SlottedPage.offset(data, slot) >= 0) {
+                rank++;
+            }
+        }
+        return rank;
+    }
+
+    // record hidup berikutnya dalam urutan fisik, -1 bila sudah yang terakhir
+    public long next(long rid) {
+        int page = pageOf(rid);
+        int slot = slotOf(rid) + 1;
+        while (page < pages) {
+            if (live.count(page) > 0) {
+                ByteBuffer data = pool.page(file, page).data;
+                int slots = SlottedPage.slotCount(data);
+                for (; slot < slots; slot++) {
+                    if (SlottedPage.offset(data, slot) >= 0) {
+                        return rid(page, slot);
+                    }
+                }
+            }
+            page++;
+            slot = 0;
+        }
+        return -1;
+    }
+
+    // record hidup sebelumnya dalam urutan fisik, -1 bila sudah yang pertama
+    public long previous(long rid) {
+        int page = pageOf(rid);
+        int slot = slotOf(rid) - 1;
+        while (page >= 0) {
+            if (live.count(page) > 0) {
+                ByteBuffer data = pool.page(file, page).data;
+                for (slot = Math.min(slot, SlottedPage.slotCount(data) - 1); slot >= 0; slot--) {
+                    if (SlottedPage.offset(data, slot) >= 0) {
+                        return rid(page, slot);
+                    }
+                }
+            }
+            page--;
+            slot = Integer.MAX_VALUE;
+        }
+        return -1;
+    }
+
+    private ByteBuffer slice(BufferPool.Frame frame, int slot) {
+        int offset = SlottedPage.offset(frame.data, slot);
+        if (offset < 0) {
+            return null;
+        }
+        return frame.data.slice(offset, SlottedPage.length(frame.data, slot));
+    }
+
+    static long rid(int page, int slot) {
+        return ((long) page << 16) | slot;
+    }
+
+    static int pageOf(long rid) {
+        return (int) (rid >>> 16);
+    }
+
+    static int slotOf(long rid) {
+        return (int) rid & 0xFFFF;
+    }
+}
+
+// Indeks hash extendible di file berhalaman: direktori (4 byte per entri) hanya di heap, bucket berupa halaman
+// berisi pasangan (hash 64-bit, rid). Bucket penuh dipecah menurut bit hash berikutnya; direktori hanya
+// digandakan bila bucket itu sudah sedalam direktori. Header bucket mencatat kedalaman dan pola bit bawahnya,
+// jadi direktori dibangun ulang dari header saat file dibuka dan selalu cocok dengan bucket di checkpoint
+// yang sama. Kunci asli tidak disimpan, jadi pemanggil mencocokkan kandidat dengan isi record.
+class HashIndex {
+    private static final int COUNT = 0;
+    private static final int DEPTH = 2;
+    private static final int PATTERN = 4; // bit hash bawah (sebanyak DEPTH) yang dimiliki bucket ini
+    private static final int ENTRIES = 8;
+    private static final int ENTRY = 16;
+    private static final int MAX_DEPTH = 30;
+    static final int BUCKET_CAPACITY = (BufferPool.PAGE_SIZE - ENTRIES) / ENTRY;
+
+    private final BufferPool pool;
+    private final int file;
+    private int globalDepth;
+    private int[] directory;
+
+    public HashIndex(BufferPool pool, int file) {
+        this.pool = pool;
+        this.file = file;
+        int pages = pool.pageCount(file);
+        if (pages == 0) {
+            globalDepth = 0;
+            directory = new int[] { pool.allocate(file).page };
+            return;
+        }
+        ByteBuffer header = ByteBuffer.allocate(ENTRIES);
+        int[] depths = new int[pages];
+        int[] patterns = new int[pages];
+        for (int page = 0; page < pages; page++) {
+            pool.readHeader(file, page, header);
+            depths[page] = header.get(DEPTH);
+            patterns[page] = header.getInt(PATTERN);
+            globalDepth = Math.max(globalDepth, depths[page]);
+        }
+        directory = new int[1 << globalDepth];
+        for (int page = 0; page < pages; page++) {
+            for (int i = patterns[page]; i < directory.length; i += 1 << depths[page]) {
+                directory[i] = page;
+            }
+        }
+    }
+
+    // rid pertama dengan hash ini yang diterima matches, -1 bila tidak ada
+    public long find(long hash, LongPredicate matches) {
+        ByteBuffer bucket = pool.page(file, directory[slot(hash)]).data;
+        int count = bucket.getChar(COUNT);
+        for (int i = 0; i < count; i++) {
+            int at = ENTRIES + i * ENTRY;
+            if (bucket.getLong(at) == hash) {
+                long rid = bucket.getLong(at + 8);
+                if (matches.test(rid)) {
+                    return rid;
+                }
+            }
+        }
+        return -1;
+    }
+
+    public void put(long hash, long rid) {
+        while (true) {
+            BufferPool.Frame frame = pool.page(file, directory[slot(hash)]);
+            int count = frame.data.getChar(COUNT);
+            if (count < BUCKET_CAPACITY) {
+                int at = ENTRIES + count * ENTRY;
+                frame.data.putLong(at, hash);
+                frame.data.putLong(at + 8, rid);
+                frame.data.putChar(COUNT, (char) (count + 1));
+                frame.dirty = true;
+                return;
+            }
+            split(frame, slot(hash));
+        }
+    }
+
+    public boolean remove(long hash, long rid) {
+        BufferPool.Frame frame = pool.page(file, directory[slot(hash)]);
+        ByteBuffer bucket = frame.data;
+        int count = bucket.getChar(COUNT);
+        for (int i = 0; i < count; i++) {
+            int at = ENTRIES + i * ENTRY;
+            if (bucket.getLong(at) == hash && bucket.getLong(at + 8) == rid) {
+                int last = ENTRIES + (count - 1) * ENTRY;
+                bucket.putLong(at, bucket.getLong(last));
+                bucket.putLong(at + 8, bucket.getLong(last + 8));
+                bucket.putChar(COUNT, (char) (count - 1));
+                frame.dirty = true;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public int directorySize() {
+        return directory.length;
+    }
+
+    private void split(BufferPool.Frame frame, int slot) {
+        ByteBuffer bucket = frame.data;
+        int depth = bucket.get(DEPTH);
+        if (depth == globalDepth) {
+            if (globalDepth == MAX_DEPTH) {
+                throw new IllegalStateException("Bucket hash tidak dapat dipecah lagi");
+            }
+            int half = directory.length;
+            directory = Arrays.copyOf(directory, half * 2);
+            System.arraycopy(directory, 0, directory, half, half);
+            globalDepth++;
+        }
+
+        BufferPool.Frame sibling = pool.allocate(file);
+        ByteBuffer other = sibling.data;
+        long bit = 1L << depth;
+        int count = bucket.getChar(COUNT);
+        int kept = 0;
+        int moved = 0;
+        for (int i = 0; i < count; i++) {
+            int at = ENTRIES + i * ENTRY;
+            long hash = bucket.getLong(at);
+            long rid = bucket.getLong(at + 8);
+            if ((hash & bit) == 0) {
+                int to = ENTRIES + kept++ * ENTRY;
+                bucket.putLong(to, hash);
+                bucket.putLong(to + 8, rid);
+            } else {
+                int to = ENTRIES + moved++ * ENTRY;
+                other.putLong(to, hash);
+                other.putLong(to + 8, rid);
+            }
+        }
+        // entri direktori yang menunjuk bucket lama: bit bawah sama dengan slot sampai kedalaman lamanya
+        int pattern = slot & (int) (bit - 1);
+        bucket.putChar(COUNT, (char) kept);
+        bucket.put(DEPTH, (byte) (depth + 1));
+        bucket.putInt(PATTERN, pattern);
+        other.putChar(COUNT, (char) moved);
+        other.put(DEPTH, (byte) (depth + 1));
+        other.putInt(PATTERN, pattern | (int) bit);
+        frame.dirty = true;
+
+        for (int i = pattern; i < directory.length; i += (int) bit) {
+            if ((i & bit) != 0) {
+                directory[i] = sibling.page;
+            }
+        }
+    }
+
+    private int slot(long hash) {
+        return (int) hash & ((1 << globalDepth) - 1);
+    }
+
+    static long hash(String key) {
+        long h = 0xcbf29ce484222325L; // FNV-1a 64-bit
+        for (int i = 0; i < key.length(); i++) {
+            h = (h ^ key.charAt(i)) * 0x100000001b3L;
+        }
+        return mix(h);
+    }
+
+    static long hash(long key) {
+        return mix(key);
+    }
+
+    private static long mix(long z) {
+        z = (z ^ (z >>> 33)) * 0xff51afd7ed558ccdL;
+        z = (z ^ (z >>> 33)) * 0xc4ceb9fe1a85ec53L;
+        return z ^ (z >>> 33);
+    }
+}
+
+// Engine berbasis file untuk katalog yang lebih besar dari heap. Setiap repositori adalah HeapTable dengan
+// HashIndex di file sendiri (products.dat + products.idx, ...) lewat satu BufferPool; yang tinggal di heap
+// hanya frame pool, direktori hash, dan hitungan record per halaman (ditambah nama produk dari baris
+// transaksi yang pernah dibaca, karena TransactionNode meng-intern-nya ke ProductNames). Semua operasi
+// memegang lock engine. File utama hanya berubah lewat checkpoint BufferPool, jadi setelah crash isinya state
+// checkpoint terakhir dan sisanya direplay dari journal; close tidak menulis apa pun.
+// Stok di keranjang tidak ditulis ke record (record menyimpan stok fisik): jumlah yang dipegang per produk ada
+// di heap, dan salinan produk melaporkan stok tersedia = stok fisik - reserved.
+class PagedStorageEngine implements StorageEngine {
+    static final int DEFAULT_POOL_PAGES = 2048; // 8 MiB
+    private static final UserNode MISSING = new UserNode("", PasswordHash.UNKNOWN_USER, "");
+    // record transaksi: field yang bisa berubah di depan dengan offset tetap (rid transaksi sebelumnya milik
+    // user yang sama, tanggal kembali, status kembali, bit baris yang sudah kembali), lalu isi yang tetap
+    private static final int TX_PREVIOUS = 0;
+    private static final int TX_RETURN_DATE = 8;
+    private static final int TX_RETURNED = 16;
+    private static final int TX_TYPE = 17;
+    private static final int TX_LINES = 18;
+    private static final int TX_ID = 20;
+    private static final int TX_DATE = 28;
+    private static final int TX_PAID = 36;
+    private static final int TX_CHANGE = 44;
+    private static final int TX_DURATION = 52;
+    private static final int TX_LATE_FEES = 56;
+    private static final int TX_COMMITTED_AT = 64;
+    private static final int TX_RETURNED_BITS = 72;
+
+    private final BufferPool pool;
+    private final HeapTable productTable;
+    private final HashIndex productIndex;
+    private final HeapTable categoryTable;
+    private final HashIndex categoryIndex;
+    private final HeapTable userTable;
+    private final HashIndex userIndex;
+    private final HeapTable transactionTable;
+    private final HashIndex transactionIndex;
+    private final long checkpointSegment;
+    private final Map<String, Integer> reserved = new HashMap<>(); // nama huruf kecil -> unit di keranjang
+    private final List<StockIndex.ReorderListener> reorderListeners = new CopyOnWriteArrayList<>();
+    private final Products products = new PagedProducts();
+    private final Categories categories = new PagedCategories();
+    private final Users users = new PagedUsers();
+    private final Transactions transactions = new PagedTransactions();
+
+    public PagedStorageEngine(Path directory, int poolPages) throws IOException {
+        Files.createDirectories(directory);
+        pool = new BufferPool(poolPages, directory);
+        try {
+            int[] files = new int[8];
+            String[] names = { "products", "categories", "users", "transactions" };
+            for (int i = 0; i < names.length; i++) {
+                files[2 * i] = pool.open(directory.resolve(names[i] + ".dat"));
+                files[2 * i + 1] = pool.open(directory.resolve(names[i] + ".idx"));
+            }
+            checkpointSegment = pool.recover();
+            productTable = new HeapTable(pool, files[0]);
+            productIndex = new HashIndex(pool, files[1]);
+            categoryTable = new HeapTable(pool, files[2]);
+            categoryIndex = new HashIndex(pool, files[3]);
+            userTable = new HeapTable(pool, files[4]);
+            userIndex = new HashIndex(pool, files[5]);
+            transactionTable = new HeapTable(pool, files[6]);
+            transactionIndex = new HashIndex(pool, files[7]);
+        } catch (IOException | RuntimeException e) {
+            pool.close();
+            throw e;
+        }
+    }
+
+    @Override
+    public Products products() {
+        return products;
+    }
+
+    @Override
+    public Categories categories() {
+        return categories;
+    }
+
+    @Override
+    public Users users() {
+        return users;
+    }
+
+    @Override
+    public Transactions transactions() {
+        return transactions;
+    }
+
+    public synchronized long cacheHits() {
+        return pool.hits();
+    }
+
+    public synchronized long cacheMisses() {
+        return pool.misses();
+    }
+
+    public synchronized long pageWrites() {
+        return pool.writes();
+    }
+
+    public synchronized long transactionCount() {
+        return transactionTable.size();
+    }
+
+    // file sudah dipulihkan di konstruktor; yang tersisa hanya segmen checkpoint-nya
+    @Override
+    public long recover() {
+        return checkpointSegment;
+    }
+
+    // di bawah lock hanya salinan frame dirty; file ditulis oleh task tanpa memegang lock engine
+    @Override
+    public synchronized Checkpoint checkpoint(long segment) throws IOException {
+        BufferPool.Frozen frozen = pool.beginCheckpoint(segment);
+        return () -> {
+            pool.writeCheckpoint(frozen);
+            synchronized (this) {
+                pool.endCheckpoint(frozen);
+            }
+        };
+    }
+
+    @Override
+    public synchronized void flush() throws IOException {
+        pool.flush();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        pool.close();
+    }
+
+    // record produk: stok, harga, id kategori (-1 tanpa kategori), nama
+    private static byte[] encodeProduct(String name, long price, int stock, KategoriNode kategori) {
+        byte[] nameBytes = name.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer record = ByteBuffer.allocate(18 + nameBytes.length);
+        record.putInt(stock).putLong(price).putInt(kategori != null ? kategori.id : -1);
+        putString(record, nameBytes);
+        return record.array();
+    }
+
+    private long findProduct(String name) {
+        String key = name.toLowerCase(Locale.ROOT);
+        return productIndex.find(HashIndex.hash(key),
+                rid -> getString(productTable.read(rid), 16).toLowerCase(Locale.ROOT).equals(key));
+    }
+
+    // salinan dengan stok tersedia; orderKey adalah rid, urutan yang stabil selama record tidak pindah
+    private ProductNode readProduct(long rid) {
+        ByteBuffer record = productTable.read(rid);
+        int stock = record.getInt(0);
+        long price = record.getLong(4);
+        int kategoriId = record.getInt(12);
+        String name = getString(record, 16);
+        int held = reserved.getOrDefault(name.toLowerCase(Locale.ROOT), 0);
+        ProductNode product = new ProductNode(name, price, stock - held,
+                kategoriId >= 0 ? categories.get(kategoriId) : null);
+        product.reserved = held;
+        product.orderKey = rid;
+        return product;
+    }
+
+    // stok fisik record diubah delta, stok tersedia dari before menjadi before + delta; mengembalikan produk
+    // untuk peringatan reorder bila stok tersedia baru saja turun ke ambang, null bila tidak
+    private ProductNode stockChanged(long rid, int before, int after) {
+        int level = StockIndex.DEFAULT_REORDER_LEVEL;
+        return before > level && after <= level && !reorderListeners.isEmpty() ? readProduct(rid) : null;
+    }
+
+    // di luar lock engine, seperti StockIndex
+    private void fireReorder(ProductNode product) {
+        if (product == null) {
+            return;
+        }
+        for (StockIndex.ReorderListener listener : reorderListeners) {
+            listener.reorderNeeded(product, product.stock);
+        }
+    }
+
+    private int held(String name) {
+        return reserved.getOrDefault(name.toLowerCase(Locale.ROOT), 0);
+    }
+
+    private void unhold(String name, int quantity) {
+        reserved.computeIfPresent(name.toLowerCase(Locale.ROOT), (key, held) -> held > quantity ? held - quantity
+                : null);
+    }
+
+    // record kategori: id, nama, deskripsi
+    private static byte[] encodeKategori(int id, String name, String deskripsi) {
+        byte[] nameBytes = name.getBytes(StandardCharsets.UTF_8);
+        byte[] deskripsiBytes = deskripsi.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer record = ByteBuffer.allocate(8 + nameBytes.length + deskripsiBytes.length);
+        record.putInt(id);
+        putString(record, nameBytes);
+        putString(record, deskripsiBytes);
+        return record.array();
+    }
+
+    private long findKategori(int id) {
+        return categoryIndex.find(HashIndex.hash(id), rid -> categoryTable.read(rid).getInt(0) == id);
+    }
+
+    private KategoriNode readKategori(long rid) {
+        ByteBuffer record = categoryTable.read(rid);
+        String name = getString(record, 4);
+        return new KategoriNode(record.getInt(0), name, getString(record, 6 + record.getChar(4)));
+    }
+
+    // record user: rid transaksi terakhir (-1 bila belum ada), username, password, role
+    private static byte[] encodeUser(UserNode user, long lastTransaction) {
+        byte[] username = user.username.getBytes(StandardCharsets.UTF_8);
+        byte[] password = user.password.getBytes(StandardCharsets.UTF_8);
+        byte[] role = user.role.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer record = ByteBuffer.allocate(14 + username.length + password.length + role.length);
+        record.putLong(lastTransaction);
+        putString(record, username);
+        putString(record, password);
+        putString(record, role);
+        return record.array();
+    }
+
+    private long findUser(String username) {
+        return userIndex.find(HashIndex.hash(username), rid -> getString(userTable.read(rid), 8).equals(username));
+    }
+
+    private UserNode readUser(long rid) {
+        ByteBuffer record = userTable.read(rid);
+        int at = 8;
+        String username = getString(record, at);
+        at += 2 + record.getChar(at);
+        String password = getString(record, at);
+        at += 2 + record.getChar(at);
+        return new UserNode(username, password, getString(record, at));
+    }
+
+    private static byte[] encodeTransaction(TransactionNode transaction, long previous) {
+        int lines = transaction.lineCount();
+        byte[][] names = new byte[lines][];
+        int size = TX_RETURNED_BITS + (lines + 7) / 8;
+        for (int line = 0; line < lines; line++) {
+            names[line] = transaction.lineName(line).getBytes(StandardCharsets.UTF_8);
+            size += 14 + names[line].length;
+        }
+        ByteBuffer record = ByteBuffer.allocate(size);
+        record.putLong(previous).putLong(transaction.returnDate).put((byte) (transaction.isReturned ? 1 : 0))
+                .put((byte) (transaction.type.equals("rental") ? 1 : 0)).putChar((char) lines)
+                .putLong(transaction.id).putLong(transaction.date).putLong(transaction.paidAmount)
+                .putLong(transaction.change).putInt(transaction.duration).putLong(transaction.lateFees)
+                .putLong(transaction.committedAt);
+        for (int line = 0; line < lines; line++) {
+            if (transaction.isLineReturned(line)) {
+                record.put(TX_RETURNED_BITS + line / 8,
+                        (byte) (record.get(TX_RETURNED_BITS + line / 8) | (1 << (line % 8))));
+            }
+        }
+        record.position(TX_RETURNED_BITS + (lines + 7) / 8);
+        for (int line = 0; line < lines; line++) {
+            putString(record, names[line]);
+            record.putInt(transaction.lineQuantity(line)).putLong(transaction.linePrice(line));
+        }
+        return record.array();
+    }
+
+    private long findTransaction(long id) {
+        return transactionIndex.find(HashIndex.hash(id), rid -> transactionTable.read(rid).getLong(TX_ID) == id);
+    }
+
+    private TransactionNode readTransaction(ByteBuffer record, UserNode user) {
+        TransactionNode transaction = new TransactionNode(record.get(TX_TYPE) != 0 ? "rental" : "purchase");
+        transaction.id = record.getLong(TX_ID);
+        transaction.date = record.getLong(TX_DATE);
+        transaction.paidAmount = record.getLong(TX_PAID);
+        transaction.change = record.getLong(TX_CHANGE);
+        transaction.duration = record.getInt(TX_DURATION);
+        transaction.returnDate = record.getLong(TX_RETURN_DATE);
+        transaction.lateFees = record.getLong(TX_LATE_FEES);
+        transaction.committedAt = record.getLong(TX_COMMITTED_AT);
+        transaction.isReturned = record.get(TX_RETURNED) != 0;
+        transaction.allUser = user;
+        int lines = record.getChar(TX_LINES);
+        int at = TX_RETURNED_BITS + (lines + 7) / 8;
+        for (int line = 0; line < lines; line++) {
+            String name = getString(record, at);
+            at += 2 + record.getChar(at);
+            transaction.addItem(name, record.getLong(at + 4), record.getInt(at));
+            at += 12;
+            if ((record.get(TX_RETURNED_BITS + line / 8) & (1 << (line % 8))) != 0) {
+                transaction.markLineReturned(line);
+            }
+        }
+        transaction.freeze();
+        return transaction;
+    }
+
+    private static void putString(ByteBuffer record, byte[] bytes) {
+        if (bytes.length > Character.MAX_VALUE) {
+            throw new IllegalArgumentException("Teks terlalu panjang untuk disimpan");
+        }
+        record.putChar((char) bytes.length).put(bytes);
+    }
+
+    private static String getString(ByteBuffer record, int at) {
+        int length = record.getChar(at);
+        byte[] bytes = new byte[length];
+        record.get(at + 2, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private final class PagedProducts implements Products {
+        @Override
+        public int size() {
+            synchronized (PagedStorageEngine.this) {
+                return productTable.size();
+            }
+        }
+
+        @Override
+        public ProductNode get(String name) {
+            synchronized (PagedStorageEngine.this) {
+                long rid = findProduct(name);
+                return rid < 0 ? null : readProduct(rid);
+            }
+        }
+
+        // produk terbaru ada di akhir file, jadi halaman tampil dibaca mundur dari akhir
+        @Override
+        public List<ProductNode> page(int offset, int limit) {
+            synchronized (PagedStorageEngine.this) {
+                List<ProductNode> page = new ArrayList<>(Math.max(0, Math.min(limit, 64)));
+                if (limit <= 0 || offset < 0) {
+                    return page;
+                }
+                for (long rid = productTable.ridAt(productTable.size() - 1 - offset); rid >= 0
+                        && page.size() < limit; rid = productTable.previous(rid)) {
+                    page.add(readProduct(rid));
+                }
+                return page;
+            }
+        }
+
+        @Override
+        public int indexOf(ProductNode product) {
+            synchronized (PagedStorageEngine.this) {
+                long rid = findProduct(product.name);
+                return rid < 0 ? 0 : productTable.size() - productTable.rank(rid);
+            }
+        }
+
+        @Override
+        public boolean insert(ProductNode product) {
+            synchronized (PagedStorageEngine.this) {
+                if (findProduct(product.name) >= 0) {
+                    return false;
+                }
+                long rid = productTable.insert(encodeProduct(product.name, product.price, product.stock,
+                        product.kategori));
+                productIndex.put(HashIndex.hash(product.name.toLowerCase(Locale.ROOT)), rid);
+                return true;
+            }
+        }
+
+        // nama yang lebih panjang tidak muat di slot lama, produknya pindah ke depan urutan tampil
+        @Override
+        public boolean update(String name, String newName, long price, int stock, KategoriNode kategori) {
+            ProductNode alert;
+            synchronized (PagedStorageEngine.this) {
+                long rid = findProduct(name);
+                if (rid < 0) {
+                    return false;
+                }
+                long existing = findProduct(newName);
+                if (existing >= 0 && existing != rid) {
+                    return false;
+                }
+                String oldName = getString(productTable.read(rid), 16);
+                int held = held(oldName);
+                if (stock < held) {
+                    return false;
+                }
+                int before = productTable.read(rid).getInt(0) - held;
+                long oldHash = HashIndex.hash(oldName.toLowerCase(Locale.ROOT));
+                long moved = productTable.replace(rid, encodeProduct(newName, price, stock, kategori));
+                long newHash = HashIndex.hash(newName.toLowerCase(Locale.ROOT));
+                if (moved != rid || newHash != oldHash) {
+                    productIndex.remove(oldHash, rid);
+                    productIndex.put(newHash, moved);
+                }
+                if (held > 0) {
+                    reserved.remove(oldName.toLowerCase(Locale.ROOT));
+                    reserved.put(newName.toLowerCase(Locale.ROOT), held);
+                }
+                alert = stockChanged(moved, before, stock - held);
+            }
+            fireReorder(alert);
+            return true;
+        }
+
+        @Override
+        public boolean addStock(String name, int amount) {
+            ProductNode alert;
+            synchronized (PagedStorageEngine.this) {
+                long rid = findProduct(name);
+                if (rid < 0) {
+                    return false;
+                }
+                ByteBuffer record = productTable.update(rid);
+                int before = record.getInt(0) - held(name);
+                record.putInt(0, record.getInt(0) + amount);
+                alert = stockChanged(rid, before, before + amount);
+            }
+            fireReorder(alert);
+            return true;
+        }
+
+        @Override
+        public boolean delete(String name) {
+            synchronized (PagedStorageEngine.this) {
+                long rid = findProduct(name);
+                if (rid < 0) {
+                    return false;
+                }
+                productIndex.remove(HashIndex.hash(getString(productTable.read(rid), 16).toLowerCase(Locale.ROOT)),
+                        rid);
+                reserved.remove(name.toLowerCase(Locale.ROOT));
+                return productTable.delete(rid);
+            }
+        }
+
+        @Override
+        public void addReorderListener(StockIndex.ReorderListener listener) {
+            reorderListeners.add(listener);
+        }
+
+        // stok fisik di file tidak berubah sampai keranjang dibayar
+        @Override
+        public boolean reserve(ProductNode product, int quantity) {
+            ProductNode alert;
+            synchronized (PagedStorageEngine.this) {
+                long rid = findProduct(product.name);
+                if (rid < 0 || quantity <= 0) {
+                    return false;
+                }
+                int available = productTable.read(rid).getInt(0) - held(product.name);
+                if (available < quantity) {
+                    return false;
+                }
+                reserved.merge(product.name.toLowerCase(Locale.ROOT), quantity, Integer::sum);
+                alert = stockChanged(rid, available, available - quantity);
+            }
+            fireReorder(alert);
+            return true;
+        }
+
+        @Override
+        public void confirm(ProductNode product, int quantity) {
+            synchronized (PagedStorageEngine.this) {
+                long rid = findProduct(product.name);
+                if (rid >= 0) {
+                    ByteBuffer record = productTable.update(rid);
+                    record.putInt(0, record.getInt(0) - quantity);
+                }
+                unhold(product.name, quantity);
+            }
+        }
+
+        @Override
+        public void release(ProductNode product, int quantity) {
+            synchronized (PagedStorageEngine.this) {
+                unhold(product.name, quantity);
+            }
+        }
+    }
+
+    private final class PagedCategories implements Categories {
+        @Override
+        public int size() {
+            synchronized (PagedStorageEngine.this) {
+                return categoryTable.size();
+            }
+        }
+
+        @Override
+        public KategoriNode get(int id) {
+            synchronized (PagedStorageEngine.this) {
+                long rid = findKategori(id);
+                return rid < 0 ? null : readKategori(rid);
+            }
+        }
+
+        @Override
+        public List<KategoriNode> all() {
+            synchronized (PagedStorageEngine.this) {
+                List<KategoriNode> result = new ArrayList<>(categoryTable.size());
+                for (long rid = categoryTable.ridAt(0); rid >= 0; rid = categoryTable.next(rid)) {
+                    result.add(readKategori(rid));
+                }
+                result.sort(Comparator.comparingInt(kategori -> kategori.id));
+                return result;
+            }
+        }
+
+        @Override
+        public boolean insert(KategoriNode kategori) {
+            synchronized (PagedStorageEngine.this) {
+                if (findKategori(kategori.id) >= 0) {
+                    return false;
+                }
+                long rid = categoryTable.insert(encodeKategori(kategori.id, kategori.name, kategori.deskripsi));
+                categoryIndex.put(HashIndex.hash(kategori.id), rid);
+                return true;
+            }
+        }
+
+        @Override
+        public boolean update(int id, String name, String deskripsi) {
+            synchronized (PagedStorageEngine.this) {
+                long rid = findKategori(id);
+                if (rid < 0) {
+                    return false;
+                }
+                long moved = categoryTable.replace(rid, encodeKategori(id, name, deskripsi));
+                if (moved != rid) {
+                    categoryIndex.remove(HashIndex.hash(id), rid);
+                    categoryIndex.put(HashIndex.hash(id), moved);
+                }
+                return true;
+            }
+        }
+    }
+
+    private final class PagedUsers implements Users {
+        @Override
+        public int size() {
+            synchronized (PagedStorageEngine.this) {
+                return userTable.size();
+            }
+        }
+
+        @Override
+        public UserNode get(String username) {
+            synchronized (PagedStorageEngine.this) {
+                long rid = findUser(username);
+                return rid < 0 ? null : readUser(rid);
+            }
+        }
+
+        // perbandingan hash dilakukan di luar lock
+        @Override
+        public UserNode authenticate(String username, String password) {
+            UserNode user = get(username);
+            if (user == null) {
+                MISSING.authenticate(password); // samakan biaya dengan username yang ada
+                return null;
+            }
+            return user.authenticate(password) ? user : null;
+        }
+
+        @Override
+        public boolean insert(UserNode user) {
+            synchronized (PagedStorageEngine.this) {
+                if (findUser(user.username) >= 0) {
+                    return false;
+                }
+                userIndex.put(HashIndex.hash(user.username), userTable.insert(encodeUser(user, -1)));
+                return true;
+            }
+        }
+
+        // user baru ditambahkan di akhir file dan recordnya tidak pernah pindah
+        @Override
+        public List<UserNode> all() {
+            synchronized (PagedStorageEngine.this) {
+                List<UserNode> result = new ArrayList<>(userTable.size());
+                for (long rid = userTable.ridAt(userTable.size() - 1); rid >= 0; rid = userTable.previous(rid)) {
+                    result.add(readUser(rid));
+                }
+                return result;
+            }
+        }
+    }
+
+    private final class PagedTransactions implements Transactions {
+        @Override
+        public void append(UserNode user, TransactionNode transaction) {
+            synchronized (PagedStorageEngine.this) {
+                long userRid = findUser(user.username);
+                if (userRid < 0) {
+                    throw new IllegalArgumentException("User tidak terdaftar: " + user.username);
+                }
+                long previous = userTable.read(userRid).getLong(0);
+                long rid = transactionTable.insert(encodeTransaction(transaction, previous));
+                transactionIndex.put(HashIndex.hash(transaction.id), rid);
+                userTable.update(userRid).putLong(0, rid);
+            }
+        }
+
+        // mengikuti rantai transaksi milik user di file, tanpa memindai transaksi user lain
+        @Override
+        public List<TransactionNode> recent(UserNode user, int limit) {
+            synchronized (PagedStorageEngine.this) {
+                List<TransactionNode> result = new ArrayList<>();
+                long userRid = findUser(user.username);
+                long rid = userRid < 0 ? -1 : userTable.read(userRid).getLong(0);
+                while (rid >= 0 && result.size() < limit) {
+                    ByteBuffer record = transactionTable.read(rid);
+                    result.add(readTransaction(record, user));
+                    rid = record.getLong(TX_PREVIOUS);
+                }
+                return result;
+            }
+        }
+
+        // visitor dipanggil di luar lock; rantai dibaca per SCAN_BATCH transaksi
+        @Override
+        public void scan(UserNode user, Predicate<TransactionNode> visitor) {
+            long rid;
+            synchronized (PagedStorageEngine.this) {
+                long userRid = findUser(user.username);
+                rid = userRid < 0 ? -1 : userTable.read(userRid).getLong(0);
+            }
+            List<TransactionNode> batch = new ArrayList<>();
+            while (rid >= 0) {
+                batch.clear();
+                synchronized (PagedStorageEngine.this) {
+                    while (rid >= 0 && batch.size() < SCAN_BATCH) {
+                        ByteBuffer record = transactionTable.read(rid);
+                        batch.add(readTransaction(record, user));
+                        rid = record.getLong(TX_PREVIOUS);
+                    }
+                }
+                for (TransactionNode transaction : batch) {
+                    if (!visitor.test(transaction)) {
+                        return;
+                    }
+                }
+            }
+        }
+
+        @Override
+        public boolean markReturned(TransactionNode transaction, int line, long returnDate, long fee) {
+            synchronized (PagedStorageEngine.this) {
+                long rid = findTransaction(transaction.id);
+                if (rid < 0) {
+                    return false;
+                }
+                ByteBuffer record = transactionTable.update(rid);
+                int at = TX_RETURNED_BITS + line / 8;
+                byte bits = record.get(at);
+                if ((bits & (1 << (line % 8))) != 0) {
+                    return false;
+                }
+                record.put(at, (byte) (bits | (1 << (line % 8))));
+                record.putLong(TX_RETURN_DATE, returnDate);
+                record.putLong(TX_LATE_FEES, record.getLong(TX_LATE_FEES) + fee);
+                transaction.markLineReturned(line);
+                transaction.returnDate = returnDate;
+                transaction.lateFees += fee;
+                if (transaction.allLinesReturned()) {
+                    record.put(TX_RETURNED, (byte) 1);
+                    transaction.isReturned = true;
+                }
+                return true;
+            }
+        }
+    }
+}
+
+// Tabel produk di luar heap untuk katalog jutaan SKU. Setiap produk adalah record 32 byte di potongan
+// direct ByteBuffer, nama disimpan di pool string off-heap (Latin-1 bila bisa), dan indeks nama adalah
+// tabel hash linear probing berisi long, juga off-heap. Yang tinggal di heap hanya array potongan dan
+// hitungan record hidup per blok, jadi GC tidak perlu menelusuri satu objek pun per produk.
+// Record dipanggil lewat handle (nomor record): stok dan reserved diubah dengan CAS tanpa lock seperti
+// ProductNode, perubahan struktur (insert, update, delete) memegang lock tabel. get dan page mengembalikan
+// salinan ProductNode, bukan produk yang hidup di tabel; keranjang memegang stok lewat reserve(ProductNode)
+// yang mencari handle dari nama. Tidak ada indeks sekunder: pencarian, filter, dan laporan stok memakai
+// pemindaian bawaan StorageEngine.Products.
+class OffHeapProductTable implements StorageEngine.Products {
+    static final int RECORD_SIZE = 32;
+    private static final int STOCK = 0;
+    private static final int RESERVED = 4;
+    private static final int PRICE = 8;
+    private static final int NAME = 16; // chunk pool << 32 | offset
+    private static final int KATEGORI = 24; // id, -1 tanpa kategori
+    private static final int FLAGS = 28;
+    private static final int LIVE = 1;
+    private static final int CHUNK_SHIFT = 16;
+    private static final int CHUNK_RECORDS = 1 << CHUNK_SHIFT;
+    private static final int BLOCK_SHIFT = 6; // hitungan hidup per 64 record untuk page
+    private static final int NAME_CHUNK_SIZE = 4 << 20;
+    private static final int LATIN1 = 0x8000; // bit di header panjang nama
+    private static final int MAX_NAME_LENGTH = 0x7fff;
+    private static final int MAX_INDEX_SLOTS = 1 << 27; // satu direct buffer maksimal 2 GiB
+    private static final VarHandle INT =
+            MethodHandles.byteBufferViewVarHandle(int[].class, ByteOrder.nativeOrder());
+
+    private final IntFunction<KategoriNode> kategoriById;
+    private final List<StockIndex.ReorderListener> reorderListeners = new CopyOnWriteArrayList<>();
+    private volatile ByteBuffer[] chunks = new ByteBuffer[16];
+    private int records; // jumlah record yang pernah dipakai, termasuk yang sudah dihapus
+    private final BlockCounts live = new BlockCounts(0);
+    private ByteBuffer[] names = new ByteBuffer[16];
+    private int nameChunks;
+    private int nameOffset = NAME_CHUNK_SIZE;
+    private ByteBuffer index; // slot: hash 32 bit atas << 32 | (record + 1), 0 = kosong
+    private int indexMask;
+    private int indexUsed;
+
+    public OffHeapProductTable(IntFunction<KategoriNode> kategoriById) {
+        this.kategoriById = kategoriById;
+        this.index = allocate(1024 * 8);
+        this.indexMask = 1023;
+    }
+
+    private static ByteBuffer allocate(int bytes) {
+        return ByteBuffer.allocateDirect(bytes + 7).alignedSlice(8).order(ByteOrder.nativeOrder());
+    }
+
+    // handle produk, -1 bila tidak ada; berlaku sampai produknya dihapus
+    public synchronized int find(String name) {
+        return name == null ? -1 : lookup(name, hash(name));
+    }
+
+    public int stock(int handle) {
+        return (int) INT.getVolatile(chunk(handle), offset(handle) + STOCK);
+    }
+
+    public int reserved(int handle) {
+        return (int) INT.getVolatile(chunk(handle), offset(handle) + RESERVED);
+    }
+
+    public long price(int handle) {
+        return chunk(handle).getLong(offset(handle) + PRICE);
+    }
+
+    public synchronized String name(int handle) {
+        return readName(chunk(handle).getLong(offset(handle) + NAME));
+    }
+
+    public KategoriNode kategori(int handle) {
+        int id = chunk(handle).getInt(offset(handle) + KATEGORI);
+        return id < 0 ? null : kategoriById.apply(id);
+    }
+
+    // sama dengan ProductNode.reserve: gagal tanpa efek bila stok tidak cukup
+    public boolean reserve(int handle, int quantity) {
+        if (quantity <= 0) {
+            return false;
+        }
+        ByteBuffer chunk = chunk(handle);
+        int offset = offset(handle);
+        while (true) {
+            int available = (int) INT.getVolatile(chunk, offset + STOCK);
+            if (available < quantity) {
+                return false;
+            }
+            if (INT.compareAndSet(chunk, offset + STOCK, available, available - quantity)) {
+                INT.getAndAdd(chunk, offset + RESERVED, quantity);
+                stockChanged(handle, available, available - quantity);
+                return true;
+            }
+        }
+    }
+
+    public void confirm(int handle, int quantity) {
+        INT.getAndAdd(chunk(handle), offset(handle) + RESERVED, -quantity);
+    }
+
+    public void release(int handle, int quantity) {
+        ByteBuffer chunk = chunk(handle);
+        int offset = offset(handle);
+        INT.getAndAdd(chunk, offset + RESERVED, -quantity);
+        INT.getAndAdd(chunk, offset + STOCK, quantity);
+    }
+
+    public void addStock(int handle, int amount) {
+        int before = (int) INT.getAndAdd(chunk(handle), offset(handle) + STOCK, amount);
+        stockChanged(handle, before, before + amount);
+    }
+
+    // seperti StockIndex: satu peringatan setiap stok tersedia turun melewati ambang, dikirim oleh thread yang
+    // mengubah stoknya
+    private void stockChanged(int handle, int before, int after) {
+        int level = StockIndex.DEFAULT_REORDER_LEVEL;
+        if (before > level && after <= level && !reorderListeners.isEmpty()) {
+            ProductNode product;
+            synchronized (this) {
+                product = product(handle);
+            }
+            for (StockIndex.ReorderListener listener : reorderListeners) {
+                listener.reorderNeeded(product, after);
+            }
+        }
+    }
+
+    // byte di luar heap: record, pool nama, dan tabel indeks
+    public synchronized long offHeapBytes() {
+        long bytes = (long) index.capacity() + (long) nameChunks * NAME_CHUNK_SIZE;
+        for (ByteBuffer chunk : chunks) {
+            if (chunk != null) {
+                bytes += chunk.capacity();
+            }
+        }
+        return bytes;
+    }
+
+    @Override
+    public synchronized int size() {
+        return live.total();
+    }
+
+    @Override
+    public synchronized ProductNode get(String name) {
+        int handle = find(name);
+        return handle < 0 ? null : product(handle);
+    }
+
+    // produk terbaru ada di record terakhir, jadi halaman tampil dibaca mundur dari akhir
+    @Override
+    public synchronized List<ProductNode> page(int offset, int limit) {
+        List<ProductNode> page = new ArrayList<>(Math.max(0, Math.min(limit, 64)));
+        if (limit <= 0 || offset < 0 || offset >= live.total()) {
+            return page;
+        }
+        int position = live.total() - 1 - offset;
+        int block = live.blockOf(position);
+        int remaining = position - live.before(block);
+        int handle = block << BLOCK_SHIFT;
+        while (true) {
+            if (isLive(handle) && remaining-- == 0) {
+                break;
+            }
+            handle++;
+        }
+        for (; handle >= 0 && page.size() < limit; handle--) {
+            if ((handle & ((1 << BLOCK_SHIFT) - 1)) == (1 << BLOCK_SHIFT) - 1
+                    && live.count(handle >> BLOCK_SHIFT) == 0) {
+                handle -= (1 << BLOCK_SHIFT) - 1; // blok kosong dilompati
+                continue;
+            }
+            if (isLive(handle)) {
+                page.add(product(handle));
+            }
+        }
+        return page;
+    }
+
+    @Override
+    public synchronized boolean insert(ProductNode product) {
+        long hash = hash(product.name);
+        if (lookup(product.name, hash) >= 0) {
+            return false;
+        }
+        long nameRef = writeName(product.name);
+        if (records == chunks.length << CHUNK_SHIFT) {
+            chunks = Arrays.copyOf(chunks, chunks.length * 2);
+        }
+        int chunkIndex = records >>> CHUNK_SHIFT;
+        if (chunks[chunkIndex] == null) {
+            ByteBuffer[] grown = chunks.clone();
+            grown[chunkIndex] = allocate(CHUNK_RECORDS * RECORD_SIZE);
+            chunks = grown;
+        }
+        int handle = records++;
+        ByteBuffer chunk = chunk(handle);
+        int offset = offset(handle);
+        chunk.putLong(offset + PRICE, product.price);
+        chunk.putLong(offset + NAME, nameRef);
+        chunk.putInt(offset + KATEGORI, product.kategori == null ? -1 : product.kategori.id);
+        chunk.putInt(offset + RESERVED, 0);
+        chunk.putInt(offset + FLAGS, LIVE);
+        INT.setVolatile(chunk, offset + STOCK, product.stock);
+        live.add(handle >> BLOCK_SHIFT, 1);
+        put(hash, handle);
+        return true;
+    }
+
+    // diubah di tempat, posisi urutan tampil tetap; nama baru ditulis ulang ke pool bila berbeda
+    @Override
+    public synchronized boolean update(String name, String newName, long price, int stock, KategoriNode kategori) {
+        int handle = find(name);
+        if (handle < 0) {
+            return false;
+        }
+        long newHash = hash(newName);
+        int existing = lookup(newName, newHash);
+        if (existing >= 0 && existing != handle) {
+            return false;
+        }
+        ByteBuffer chunk = chunk(handle);
+        int offset = offset(handle);
+        int available = stock - (int) INT.getVolatile(chunk, offset + RESERVED);
+        if (available < 0) {
+            return false;
+        }
+        String oldName = readName(chunk.getLong(offset + NAME));
+        if (!oldName.equals(newName)) {
+            if (existing < 0) {
+                remove(hash(oldName), handle);
+            }
+            // nama ditimpa sebelum put karena resize indeks menghitung slot dari nama record
+            chunk.putLong(offset + NAME, writeName(newName));
+            if (existing < 0) {
+                put(newHash, handle);
+            }
+        }
+        chunk.putLong(offset + PRICE, price);
+        chunk.putInt(offset + KATEGORI, kategori == null ? -1 : kategori.id);
+        int before = (int) INT.getAndSet(chunk, offset + STOCK, available);
+        stockChanged(handle, before, available);
+        return true;
+    }
+
+    @Override
+    public boolean addStock(String name, int amount) {
+        int handle = find(name);
+        if (handle < 0) {
+            return false;
+        }
+        addStock(handle, amount);
+        return true;
+    }
+
+    // nomor urut dari hitungan record hidup per blok, tanpa memindai produk sebelumnya
+    @Override
+    public synchronized int indexOf(ProductNode product) {
+        int handle = find(product.name);
+        if (handle < 0) {
+            return 0;
+        }
+        int position = live.before(handle >> BLOCK_SHIFT);
+        for (int before = handle & ~((1 << BLOCK_SHIFT) - 1); before < handle; before++) {
+            if (isLive(before)) {
+                position++;
+            }
+        }
+        return live.total() - position;
+    }
+
+    @Override
+    public void addReorderListener(StockIndex.ReorderListener listener) {
+        reorderListeners.add(listener);
+    }
+
+    // product adalah salinan, jadi stoknya dipegang lewat handle produk dengan nama yang sama
+    @Override
+    public boolean reserve(ProductNode product, int quantity) {
+        int handle = find(product.name);
+        return handle >= 0 && reserve(handle, quantity);
+    }
+
+    @Override
+    public void confirm(ProductNode product, int quantity) {
+        int handle = find(product.name);
+        if (handle >= 0) {
+            confirm(handle, quantity);
+        }
+    }
+
+    @Override
+    public void release(ProductNode product, int quantity) {
+        int handle = find(product.name);
+        if (handle >= 0) {
+            release(handle, quantity);
+        }
+    }
+
+    // slot record dan byte namanya tidak dipakai ulang; urutan tampil hanya bergantung pada nomor record
+    @Override
+    public synchronized boolean delete(String name) {
+        int handle = find(name);
+        if (handle < 0) {
+            return false;
+        }
+        remove(hash(name), handle);
+        chunk(handle).putInt(offset(handle) + FLAGS, 0);
+        live.add(handle >> BLOCK_SHIFT, -1);
+        return true;
+    }
+
+    // orderKey adalah handle, urutan yang tetap selama produknya ada
+    private ProductNode product(int handle) {
+        ByteBuffer chunk = chunk(handle);
+        int offset = offset(handle);
+        ProductNode product = new ProductNode(readName(chunk.getLong(offset + NAME)), chunk.getLong(offset + PRICE),
+                (int) INT.getVolatile(chunk, offset + STOCK), kategori(handle));
+        product.reserved = (int) INT.getVolatile(chunk, offset + RESERVED);
+        product.orderKey = handle;
+        return product;
+    }
+
+    private boolean isLive(int handle) {
+        return (chunk(handle).getInt(offset(handle) + FLAGS) & LIVE) != 0;
+    }
+
+    private ByteBuffer chunk(int handle) {
+        return chunks[handle >>> CHUNK_SHIFT];
+    }
+
+    private static int offset(int handle) {
+        return (handle & (CHUNK_RECORDS - 1)) * RECORD_SIZE;
+    }
+
+    // nama dibandingkan tanpa membedakan huruf besar/kecil, per karakter agar lookup tidak membuat String
+    private static long hash(String name) {
+        long h = 0xcbf29ce484222325L; // FNV-1a 64-bit seperti HashIndex
+        for (int i = 0; i < name.length(); i++) {
+            h = (h ^ Character.toLowerCase(name.charAt(i))) * 0x100000001b3L;
+        }
+        return HashIndex.hash(h);
+    }
+
+    private int lookup(String name, long hash) {
+        long tag = hash & 0xffffffff00000000L;
+        for (int slot = (int) hash & indexMask;; slot = (slot + 1) & indexMask) {
+            long entry = index.getLong(slot * 8);
+            if (entry == 0) {
+                return -1;
+            }
+            if ((entry & 0xffffffff00000000L) == tag) {
+                int handle = (int) entry - 1;
+                if (nameMatches(chunk(handle).getLong(offset(handle) + NAME), name)) {
+                    return handle;
+                }
+            }
+        }
+    }
+
+    private void put(long hash, int handle) {
+        if ((indexUsed + 1) * 2L > indexMask + 1) {
+            resizeIndex();
+        }
+        insertEntry(index, indexMask, (hash & 0xffffffff00000000L) | (handle + 1L), hash);
+        indexUsed++;
+    }
+
+    private static void insertEntry(ByteBuffer table, int mask, long entry, long hash) {
+        int slot = (int) hash & mask;
+        while (table.getLong(slot * 8) != 0) {
+            slot = (slot + 1) & mask;
+        }
+        table.putLong(slot * 8, entry);
+    }
+
+    // hapus dengan backward shift supaya rantai probing tetap utuh tanpa tombstone
+    private void remove(long hash, int handle) {
+        long entry = (hash & 0xffffffff00000000L) | (handle + 1L);
+        int slot = (int) hash & indexMask;
+        while (index.getLong(slot * 8) != entry) {
+            slot = (slot + 1) & indexMask;
+        }
+        int hole = slot;
+        for (int next = (hole + 1) & indexMask;; next = (next + 1) & indexMask) {
+            long moved = index.getLong(next * 8);
+            if (moved == 0) {
+                break;
+            }
+            int home = (int) rehash(moved) & indexMask;
+            // entry boleh mengisi lubang bila lubang berada di antara slot asalnya dan posisinya sekarang
+            if (((next - home) & indexMask) >= ((next - hole) & indexMask)) {
+                index.putLong(hole * 8, moved);
+                hole = next;
+            }
+        }
+        index.putLong(hole * 8, 0);
+        indexUsed--;
+    }
+
+    // slot asal entry: hash disimpan hanya 32 bit atasnya, jadi dihitung ulang dari nama di pool
+    private long rehash(long entry) {
+        int handle = (int) entry - 1;
+        long ref = chunk(handle).getLong(offset(handle) + NAME);
+        ByteBuffer pool = names[(int) (ref >>> 32)];
+        int start = (int) ref;
+        int header = pool.getShort(start) & 0xffff;
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < (header & MAX_NAME_LENGTH); i++) {
+            char c = (header & LATIN1) != 0 ? (char) (pool.get(start + 2 + i) & 0xff)
+                    : pool.getChar(start + 2 + i * 2);
+            h = (h ^ Character.toLowerCase(c)) * 0x100000001b3L;
+        }
+        return HashIndex.hash(h);
+    }
+
+    private void resizeIndex() {
+        int slots = (indexMask + 1) * 2;
+        if (slots > MAX_INDEX_SLOTS) {
+            throw new IllegalStateException("Indeks produk off-heap penuh");
+        }
+        ByteBuffer grown = allocate(slots * 8);
+        int mask = slots - 1;
+        for (int slot = 0; slot <= indexMask; slot++) {
+            long entry = index.getLong(slot * 8);
+            if (entry != 0) {
+                insertEntry(grown, mask, entry, rehash(entry));
+            }
+        }
+        index = grown;
+        indexMask = mask;
+    }
+
+    private long writeName(String name) {
+        if (name.length() > MAX_NAME_LENGTH) {
+            throw new IllegalArgumentException("Nama produk terlalu panjang");
+        }
+        boolean latin1 = true;
+        for (int i = 0; i < name.length() && latin1; i++) {
+            latin1 = name.charAt(i) < 0x100;
+        }
+        int bytes = 2 + (latin1 ? name.length() : name.length() * 2);
+        if (nameOffset + bytes > NAME_CHUNK_SIZE) {
+            if (nameChunks == names.length) {
+                names = Arrays.copyOf(names, names.length * 2);
+            }
+            names[nameChunks++] = ByteBuffer.allocateDirect(NAME_CHUNK_SIZE);
+            nameOffset = 0;
+        }
+        ByteBuffer pool = names[nameChunks - 1];
+        int start = nameOffset;
+        pool.putShort(start, (short) (name.length() | (latin1 ? LATIN1 : 0)));
+        for (int i = 0; i < name.length(); i++) {
+            if (latin1) {
+                pool.put(start + 2 + i, (byte) name.charAt(i));
+            } else {
+                pool.putChar(start + 2 + i * 2, name.charAt(i));
+            }
+        }
+        nameOffset += bytes;
+        return (long) (nameChunks - 1) << 32 | start;
+    }
+
+    private String readName(long ref) {
+        ByteBuffer pool = names[(int) (ref >>> 32)];
+        int start = (int) ref;
+        int header = pool.getShort(start) & 0xffff;
+        int length = header & MAX_NAME_LENGTH;
+        char[] chars = new char[length];
+        for (int i = 0; i < length; i++) {
+            chars[i] = (header & LATIN1) != 0 ? (char) (pool.get(start + 2 + i) & 0xff)
+                    : pool.getChar(start + 2 + i * 2);
+        }
+        return new String(chars);
+    }
+
+    private boolean nameMatches(long ref, String name) {
+        ByteBuffer pool = names[(int) (ref >>> 32)];
+        int start = (int) ref;
+        int header = pool.getShort(start) & 0xffff;
+        if ((header & MAX_NAME_LENGTH) != name.length()) {
+            return false;
+        }
+        for (int i = 0; i < name.length(); i++) {
+            char c = (header & LATIN1) != 0 ? (char) (pool.get(start + 2 + i) & 0xff)
+                    : pool.getChar(start + 2 + i * 2);
+            if (c != name.charAt(i) && Character.toLowerCase(c) != Character.toLowerCase(name.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
+
+// Write-ahead journal: setiap mutasi ditulis sebagai record biner, fsync dikelompokkan (group commit).
+// File dibagi per segmen (toko.journal.000001, ...) agar segmen lama bisa dibuang setelah snapshot.
+// Pemanggil menulis record sebelum mengubah memori; bila log* melempar, memori tidak boleh diubah.
+class Journal implements Closeable {
+    static final byte CANCELLED = 0; // pemanggil terputus sebelum record ikut fsync; dilewati saat replay
+    static final byte REGISTER = 1;
+    static final byte ADD_KATEGORI = 2;
+    static final byte EDIT_KATEGORI = 3;
+    static final byte ADD_PRODUCT = 4;
+    static final byte ADD_STOK = 5;
+    static final byte EDIT_PRODUCT = 6;
+    static final byte DELETE_PRODUCT = 7;
+    static final byte TRANSACTION = 8;
+    static final byte RETURN = 9; // format lama tanpa denda, hanya dibaca saat replay
+    static final byte RETURN_PAID = 10;
+    static final byte TRANSACTION_PAID = 11; // TRANSACTION ditambah waktu commit
+
+    // format record: [int panjang payload][byte tipe][payload][int crc32 tipe+payload]
+    private static final int HEADER_BYTES = 5;
+    private static final int TRAILER_BYTES = 4;
+    private static final int MAX_RECORD_BYTES = 64 << 20;
+
+    interface Handler {
+        void register(String username, String password, String role);
+
+        void addKategori(int id, String name, String deskripsi);
+
+        void editKategori(int id, String name, String deskripsi);
+
+        void addProduct(String name, long price, int stock, int kategoriId);
+
+        void addStok(String productName, int amount);
+
+        void editProduct(String oldName, String name, long price, int stock, int kategoriId);
+
+        void deleteProduct(String name);
+
+        void transaction(String username, TransactionNode transaction);
+
+        // fee dan payment 0 untuk record RETURN lama
+        void returnItem(String username, long transactionId, String productName, long returnTime, long fee,
+                long payment);
+    }
+
+    private static final String SEGMENT_PREFIX = "toko.journal.";
+
+    private final Path directory;
+    private long segment;
+    private FileChannel channel;
+    private long recordsInSegment;
+    private final long groupCommitNanos;
+    private final Object lock = new Object();
+    private RecordBuffer pending = new RecordBuffer(1 << 16);
+    private RecordBuffer flushing = new RecordBuffer(1 << 16);
+    private long appendedSeq;
+    private long takenSeq; // record sampai nomor ini sudah diambil flusher, tidak bisa dibatalkan lagi
+    private long durableSeq;
+    private boolean closed;
+    private IOException failure;
+    private final Thread flusher;
+
+    public Journal(Path directory, long segment, long groupCommitMillis) throws IOException {
+        this.directory = directory;
+        this.segment = segment;
+        this.channel = openSegment(directory, segment);
+        this.groupCommitNanos = TimeUnit.MILLISECONDS.toNanos(groupCommitMillis);
+        this.flusher = new Thread(this::flushLoop, "journal-flusher");
+        this.flusher.setDaemon(true);
+        this.flusher.start();
+    }
+
+    public static Path segmentPath(Path directory, long segment) {
+        return directory.resolve(String.format("%s%06d", SEGMENT_PREFIX, segment));
+    }
+
+    // nomor segmen yang ada di direktori, urut naik
+    public static List<Long> segments(Path directory) throws IOException {
+        List<Long> segments = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, SEGMENT_PREFIX + "*")) {
+            for (Path file : files) {
+                String suffix = file.getFileName().toString().substring(SEGMENT_PREFIX.length());
+                if (suffix.matches("\\d+")) {
+                    segments.add(Long.parseLong(suffix));
+                }
+            }
+        }
+        Collections.sort(segments);
+        return segments;
+    }
+
+    // hapus segmen yang seluruh isinya sudah tercakup snapshot
+    public static void deleteSegmentsBefore(Path directory, long segment) throws IOException {
+        for (long existing : segments(directory)) {
+            if (existing < segment) {
+                Files.deleteIfExists(segmentPath(directory, existing));
+            }
+        }
+    }
+
+    private static FileChannel openSegment(Path directory, long segment) throws IOException {
+        FileChannel channel = FileChannel.open(segmentPath(directory, segment),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        channel.position(channel.size());
+        return channel;
+    }
+
+    public long segment() {
+        synchronized (lock) {
+            return segment;
+        }
+    }
+
+    public long recordsInSegment() {
+        synchronized (lock) {
+            return recordsInSegment;
+        }
+    }
+
+    // menutup segmen aktif setelah semua record di dalamnya durable, lalu mulai segmen baru
+    public long rotate() throws IOException {
+        synchronized (lock) {
+            while (durableSeq < appendedSeq && failure == null) {
+                try {
+                    lock.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Rotasi journal terputus");
+                }
+            }
+            if (failure != null) {
+                throw failure;
+            }
+            channel.close();
+            segment++;
+            channel = openSegment(directory, segment);
+            recordsInSegment = 0;
+            return segment;
+        }
+    }
+
+    // baca ulang semua record utuh; ekor yang rusak (crash saat menulis) dipotong
+    public static long replay(Path path, Handler handler) throws IOException {
+        return replay(path, handler, true);
+    }
+
+    // tornTailAllowed false untuk segmen yang sudah dirotasi: rotate menunggu isinya durable, jadi ekor rusak
+    // di sana berarti kerusakan disk. Segmen itu tidak dipotong dan IOException menghentikan pemulihan.
+    public static long replay(Path path, Handler handler, boolean tornTailAllowed) throws IOException {
+        if (!Files.exists(path)) {
+            return 0;
+        }
+        long records = 0;
+        long validBytes = 0;
+        CRC32 crc = new CRC32();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path), 1 << 16))) {
+            byte[] body = new byte[256];
+            while (true) {
+                int length;
+                try {
+                    length = in.readInt();
+                } catch (EOFException e) {
+                    break;
+                }
+                if (length < 0 || length > MAX_RECORD_BYTES) {
+                    break;
+                }
+                if (body.length < length + 1) {
+                    body = new byte[Math.max(length + 1, body.length * 2)];
+                }
+                int expectedCrc;
+                try {
+                    in.readFully(body, 0, length + 1);
+                    expectedCrc = in.readInt();
+                } catch (EOFException e) {
+                    break;
+                }
+                crc.reset();
+                crc.update(body, 0, length + 1);
+                if ((int) crc.getValue() != expectedCrc) {
+                    break;
+                }
+                decode(body[0], new DataInputStream(new ByteArrayInputStream(body, 1, length)), handler);
+                validBytes += HEADER_BYTES + length + TRAILER_BYTES;
+                records++;
+            }
+        }
+        long size = Files.size(path);
+        if (validBytes < size && !tornTailAllowed) {
+            throw new IOException(String.format("segmen journal %s rusak setelah %d record (byte %d dari %d); "
+                    + "segmen sesudahnya tidak diterapkan", path.getFileName(), records, validBytes, size));
+        }
+        if (validBytes < size) {
+            try (FileChannel truncate = FileChannel.open(path, StandardOpenOption.WRITE)) {
+                truncate.truncate(validBytes);
+            }
+        }
+        return records;
+    }
+
+    private static void decode(byte type, DataInputStream in, Handler handler) throws IOException {
+        switch (type) {
+            case CANCELLED:
+                break;
+            case REGISTER:
+                handler.register(in.readUTF(), in.readUTF(), in.readUTF());
+                break;
+            case ADD_KATEGORI:
+                handler.addKategori(in.readInt(), in.readUTF(), in.readUTF());
+                break;
+            case EDIT_KATEGORI:
+                handler.editKategori(in.readInt(), in.readUTF(), in.readUTF());
+                break;
+            case ADD_PRODUCT:
+                handler.addProduct(in.readUTF(), in.readLong(), in.readInt(), in.readInt());
+                break;
+            case ADD_STOK:
+                handler.addStok(in.readUTF(), in.readInt());
+                break;
+            case EDIT_PRODUCT:
+                handler.editProduct(in.readUTF(), in.readUTF(), in.readLong(), in.readInt(), in.readInt());
+                break;
+            case DELETE_PRODUCT:
+                handler.deleteProduct(in.readUTF());
+                break;
+            case TRANSACTION: {
+                String username = in.readUTF();
+                handler.transaction(username, readTransaction(in));
+                break;
+            }
+            case TRANSACTION_PAID: {
+                String username = in.readUTF();
+                TransactionNode transaction = readTransaction(in);
+                transaction.committedAt = in.readLong();
+                handler.transaction(username, transaction);
+                break;
+            }
+            case RETURN:
+                handler.returnItem(in.readUTF(), in.readLong(), in.readUTF(), in.readLong(), 0, 0);
+                break;
+            case RETURN_PAID:
+                handler.returnItem(in.readUTF(), in.readLong(), in.readUTF(), in.readLong(), in.readLong(),
+                        in.readLong());
+                break;
+            default:
+                throw new IOException("Tipe record journal tidak dikenal: " + type);
+        }
+    }
+
+    public void logRegister(UserNode user) {
+        append(REGISTER, out -> {
+            out.writeUTF(user.username);
+            out.writeUTF(user.password);
+            out.writeUTF(user.role);
+        });
+    }
+
+    public void logAddKategori(KategoriNode kategori) {
+        append(ADD_KATEGORI, out -> writeKategori(out, kategori));
+    }
+
+    // nilai baru ditulis sebelum kategori diubah
+    public void logEditKategori(int id, String name, String deskripsi) {
+        append(EDIT_KATEGORI, out -> {
+            out.writeInt(id);
+            out.writeUTF(name);
+            out.writeUTF(deskripsi);
+        });
+    }
+
+    public void logAddProduct(ProductNode product) {
+        append(ADD_PRODUCT, out -> {
+            out.writeUTF(product.name);
+            out.writeLong(product.price);
+            out.writeInt(product.stock);
+            out.writeInt(product.kategori != null ? product.kategori.id : 0);
+        });
+    }
+
+    public void logAddStok(ProductNode product, int amount) {
+        append(ADD_STOK, out -> {
+            out.writeUTF(product.name);
+            out.writeInt(amount);
+        });
+    }
+
+    // nilai baru ditulis sebelum produk diubah. stock adalah stok fisik seperti Products.update: unit di
+    // keranjang yang nanti dibayar dikurangi lagi oleh record TRANSACTION-nya saat replay, sama seperti snapshot
+    public void logEditProduct(String oldName, String name, long price, int stock, KategoriNode kategori) {
+        append(EDIT_PRODUCT, out -> {
+            out.writeUTF(oldName);
+            out.writeUTF(name);
+            out.writeLong(price);
+            out.writeInt(stock);
+            out.writeInt(kategori != null ? kategori.id : 0);
+        });
+    }
+
+    public void logDeleteProduct(ProductNode product) {
+        append(DELETE_PRODUCT, out -> out.writeUTF(product.name));
+    }
+
+    public void logTransaction(UserNode user, TransactionNode transaction) {
+        append(TRANSACTION_PAID, out -> {
+            out.writeUTF(user.username);
+            writeTransaction(out, transaction);
+            out.writeLong(transaction.committedAt);
+        });
+    }
+
+    // denda dan pembayarannya ikut record pengembalian, jadi keduanya tercatat atau tidak sama sekali
+    public void logReturn(UserNode user, TransactionNode transaction, String productName, long returnDate, long fee,
+            long payment) {
+        append(RETURN_PAID, out -> {
+            out.writeUTF(user.username);
+            out.writeLong(transaction.id);
+            out.writeUTF(productName);
+            out.writeLong(returnDate);
+            out.writeLong(fee);
+            out.writeLong(payment);
+        });
+    }
+
+    private static void writeKategori(DataOutputStream out, KategoriNode kategori) throws IOException {
+        out.writeInt(kategori.id);
+        out.writeUTF(kategori.name);
+        out.writeUTF(kategori.deskripsi);
+    }
+
+    static void writeTransaction(DataOutputStream out, TransactionNode transaction) throws IOException {
+        out.writeLong(transaction.id);
+        out.writeLong(transaction.date);
+        out.writeBoolean(transaction.type.equals("rental"));
+        out.writeInt(transaction.duration);
+        out.writeLong(transaction.paidAmount);
+        out.writeLong(transaction.change);
+        out.writeInt(transaction.lineCount());
+        for (int line = 0; line < transaction.lineCount(); line++) {
+            out.writeUTF(transaction.lineName(line));
+            out.writeInt(transaction.lineQuantity(line));
+            out.writeLong(transaction.linePrice(line));
+        }
+    }
+
+    static TransactionNode readTransaction(DataInputStream in) throws IOException {
+        long id = in.readLong();
+        long date = in.readLong();
+        TransactionNode transaction = new TransactionNode(in.readBoolean() ? "rental" : "purchase");
+        transaction.id = id;
+        transaction.date = date;
+        transaction.duration = in.readInt();
+        transaction.paidAmount = in.readLong();
+        transaction.change = in.readLong();
+        int lines = in.readInt();
+        for (int i = 0; i < lines; i++) {
+            String name = in.readUTF();
+            int quantity = in.readInt();
+            transaction.addItem(name, in.readLong(), quantity);
+        }
+        return transaction;
+    }
+
+    interface RecordWriter {
+        void write(DataOutputStream out) throws IOException;
+    }
+
+    // record lengkap dengan header dan crc, siap ditulis ke file
+    static byte[] frame(byte type, RecordWriter writer) {
+        ByteArrayOutputStream record = new ByteArrayOutputStream(64);
+        DataOutputStream out = new DataOutputStream(record);
+        try {
+            out.writeInt(0); // diisi setelah panjang payload diketahui
+            out.writeByte(type);
+            writer.write(out);
+            out.writeInt(0);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        byte[] bytes = record.toByteArray();
+        int length = bytes.length - HEADER_BYTES - TRAILER_BYTES;
+        CRC32 crc = new CRC32();
+        crc.update(bytes, 4, length + 1);
+        putInt(bytes, 0, length);
+        putInt(bytes, bytes.length - TRAILER_BYTES, (int) crc.getValue());
+        return bytes;
+    }
+
+    // menambah record lalu menunggu sampai ikut ter-fsync bersama record lain. Melempar UncheckedIOException
+    // bila record tidak durable: fsync gagal (juga untuk semua record sesudahnya) atau thread diinterupsi
+    // sebelum record diambil flusher, yang membuat record dibatalkan.
+    private void append(byte type, RecordWriter writer) {
+        byte[] bytes = frame(type, writer);
+        long seq;
+        int offset;
+        synchronized (lock) {
+            if (closed) {
+                throw new IllegalStateException("Journal sudah ditutup");
+            }
+            if (failure != null) {
+                throw new UncheckedIOException(failure);
+            }
+            offset = pending.size();
+            pending.write(bytes, 0, bytes.length);
+            seq = ++appendedSeq;
+            recordsInSegment++;
+            lock.notifyAll();
+        }
+        awaitDurable(seq, offset);
+    }
+
+    // record yang sudah diambil flusher tetap ditunggu hasil fsync-nya walau thread diinterupsi, karena
+    // bisa saja sudah sampai di disk; status interupsi dipasang lagi sebelum kembali
+    private void awaitDurable(long seq, int offset) {
+        boolean interrupted = false;
+        try {
+            synchronized (lock) {
+                while (durableSeq < seq && failure == null) {
+                    try {
+                        lock.wait();
+                    } catch (InterruptedException e) {
+                        interrupted = true;
+                        if (seq > takenSeq) {
+                            pending.cancel(offset);
+                            recordsInSegment--;
+                            throw new UncheckedIOException(new InterruptedIOException(
+                                    "Menunggu fsync journal terputus, record dibatalkan"));
+                        }
+                    }
+                }
+                if (durableSeq < seq) {
+                    throw new UncheckedIOException(failure);
+                }
+            }
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private void flushLoop() {
+        while (true) {
+            long batchSeq;
+            RecordBuffer batch;
+            FileChannel target;
+            synchronized (lock) {
+                while (pending.size() == 0 && !closed) {
+                    try {
+                        lock.wait();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+                if (pending.size() == 0 && closed) {
+                    return;
+                }
+            }
+            // beri waktu singkat agar record lain ikut dalam satu fsync
+            if (groupCommitNanos > 0) {
+                LockSupport.parkNanos(groupCommitNanos);
+            }
+            synchronized (lock) {
+                batch = pending;
+                pending = flushing;
+                flushing = batch;
+                batchSeq = appendedSeq;
+                takenSeq = batchSeq;
+                target = channel;
+            }
+            try {
+                ByteBuffer buffer = ByteBuffer.wrap(batch.toByteArray());
+                while (buffer.hasRemaining()) {
+                    target.write(buffer);
+                }
+                target.force(false);
+            } catch (IOException e) {
+                synchronized (lock) {
+                    failure = e;
+                    lock.notifyAll();
+                }
+                return;
+            }
+            batch.reset();
+            synchronized (lock) {
+                durableSeq = batchSeq;
+                lock.notifyAll();
+            }
+        }
+    }
+
+    private static void putInt(byte[] bytes, int offset, int value) {
+        bytes[offset] = (byte) (value >>> 24);
+        bytes[offset + 1] = (byte) (value >>> 16);
+        bytes[offset + 2] = (byte) (value >>> 8);
+        bytes[offset + 3] = (byte) value;
+    }
+
+    // record yang menunggu fsync. Pembatalan mengganti tipe record di tempat (crc dihitung ulang), jadi
+    // offset record lain di buffer tidak bergeser
+    private static final class RecordBuffer extends ByteArrayOutputStream {
+        RecordBuffer(int size) {
+            super(size);
+        }
+
+        void cancel(int offset) {
+            int length = (buf[offset] & 0xff) << 24 | (buf[offset + 1] & 0xff) << 16
+                    | (buf[offset + 2] & 0xff) << 8 | (buf[offset + 3] & 0xff);
+            buf[offset + 4] = CANCELLED;
+            CRC32 crc = new CRC32();
+            crc.update(buf, offset + 4, length + 1);
+            putInt(buf, offset + HEADER_BYTES + length, (int) crc.getValue());
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        synchronized (lock) {
+            closed = true;
+            lock.notifyAll();
+        }
+        try {
+            flusher.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (lock) {
+            channel.close();
+        }
+    }
+}
+
+// Snapshot seluruh state toko. Ditulis di thread latar dari salinan state, dibaca kembali lewat memory-map.
+class Snapshot {
+    private static final int MAGIC = 0x544B534E; // "TKSN"
+    private static final int VERSION = 5;
+    static final String FILE_NAME = "toko.snapshot";
+
+    static final class State {
+        long journalSegment; // segmen pertama yang harus direplay setelah snapshot ini
+        long nextTransactionId;
+        final List<KategoriNode> categories = new ArrayList<>(); // urutan list
+        final List<ProductNode> products = new ArrayList<>(); // urutan tampil
+        final List<UserNode> users = new ArrayList<>(); // terlama lebih dulu
+        final List<TransactionNode> transactionHeads = new ArrayList<>(); // sejajar dengan users saat capture
+        final Map<Long, TransactionNode> rentalCopies = new HashMap<>(); // salinan sewa yang masih berubah
+    }
+
+    // salinan bagian transaksi sewa yang masih bisa berubah setelah commit
+    static TransactionNode copyRental(TransactionNode rental) {
+        TransactionNode copy = new TransactionNode(rental.type);
+        copy.id = rental.id;
+        copy.date = rental.date;
+        copy.committedAt = rental.committedAt;
+        for (int line = 0; line < rental.lineCount(); line++) {
+            copy.addItem(rental.lineName(line), rental.linePrice(line), rental.lineQuantity(line));
+            if (rental.isLineReturned(line)) {
+                copy.markLineReturned(line);
+            }
+        }
+        copy.paidAmount = rental.paidAmount;
+        copy.change = rental.change;
+        copy.returnDate = rental.returnDate;
+        copy.lateFees = rental.lateFees;
+        copy.duration = rental.duration;
+        copy.isReturned = rental.isReturned;
+        copy.freeze();
+        return copy;
+    }
+
+    public static void write(Path directory, State state) throws IOException {
+        Path target = directory.resolve(FILE_NAME);
+        Path temp = directory.resolve(FILE_NAME + ".tmp");
+        CRC32 crc = new CRC32();
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                    new CheckedOutputStream(Channels.newOutputStream(channel), crc), 1 << 16));
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(state.journalSegment);
+            out.writeLong(state.nextTransactionId);
+
+            out.writeInt(state.categories.size());
+            for (KategoriNode kategori : state.categories) {
+                out.writeInt(kategori.id);
+                writeString(out, kategori.name);
+                writeString(out, kategori.deskripsi);
+            }
+
+            out.writeInt(state.products.size());
+            for (ProductNode product : state.products) {
+                writeString(out, product.name);
+                out.writeLong(product.price);
+                out.writeInt(product.stock);
+                out.writeInt(product.kategori != null ? product.kategori.id : 0);
+            }
+
+            out.writeInt(state.users.size());
+            List<TransactionNode> history = new ArrayList<>();
+            for (int i = 0; i < state.users.size(); i++) {
+                UserNode user = state.users.get(i);
+                writeString(out, user.username);
+                writeString(out, user.password);
+                writeString(out, user.role);
+
+                history.clear();
+                for (TransactionNode t = state.transactionHeads.get(i); t != null; t = t.next) {
+                    history.add(t);
+                }
+                out.writeInt(history.size());
+                for (int j = history.size() - 1; j >= 0; j--) { // terlama lebih dulu
+                    TransactionNode transaction = history.get(j);
+                    writeTransaction(out, state.rentalCopies.getOrDefault(transaction.id, transaction));
+                }
+            }
+            out.flush();
+            out.writeInt((int) crc.getValue());
+            out.flush();
+            channel.force(true);
+        }
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static void writeTransaction(DataOutputStream out, TransactionNode transaction) throws IOException {
+        out.writeLong(transaction.id);
+        out.writeLong(transaction.date);
+        out.writeLong(transaction.committedAt);
+        out.writeBoolean(transaction.type.equals("rental"));
+        out.writeInt(transaction.duration);
+        out.writeLong(transaction.paidAmount);
+        out.writeLong(transaction.change);
+        out.writeBoolean(transaction.isReturned);
+        out.writeLong(transaction.returnDate);
+        out.writeLong(transaction.lateFees);
+        out.writeInt(transaction.lineCount());
+        for (int line = 0; line < transaction.lineCount(); line++) {
+            writeString(out, transaction.lineName(line));
+            out.writeInt(transaction.lineQuantity(line));
+            out.writeLong(transaction.linePrice(line));
+            out.writeBoolean(transaction.isLineReturned(line));
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    // null jika belum ada snapshot; state hasil load sudah saling terhubung (kategori, user, transaksi)
+    public static State read(Path directory) throws IOException {
+        Path file = directory.resolve(FILE_NAME);
+        if (!Files.exists(file)) {
+            return null;
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.limit() < 4) {
+                throw new IOException("Snapshot rusak: file terlalu pendek");
+            }
+            CRC32 crc = new CRC32();
+            ByteBuffer body = buffer.duplicate();
+            body.limit(buffer.limit() - 4);
+            crc.update(body);
+            if ((int) crc.getValue() != buffer.getInt(buffer.limit() - 4)) {
+                throw new IOException("Snapshot rusak: checksum tidak cocok");
+            }
+            if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+                throw new IOException("Format snapshot tidak dikenal");
+            }
+
+            State state = new State();
+            state.journalSegment = buffer.getLong();
+            state.nextTransactionId = buffer.getLong();
+            byte[] scratch = new byte[256];
+
+            int categoryCount = buffer.getInt();
+            Map<Integer, KategoriNode> categoriesById = new HashMap<>();
+            for (int i = 0; i < categoryCount; i++) {
+                int id = buffer.getInt();
+                KategoriNode kategori = new KategoriNode(id, readString(buffer, scratch), readString(buffer, scratch));
+                state.categories.add(kategori);
+                categoriesById.put(id, kategori);
+            }
+
+            int productCount = buffer.getInt();
+            for (int i = 0; i < productCount; i++) {
+                String name = readString(buffer, scratch);
+                long price = buffer.getLong();
+                int stock = buffer.getInt();
+                state.products.add(new ProductNode(name, price, stock, categoriesById.get(buffer.getInt())));
+            }
+
+            int userCount = buffer.getInt();
+            for (int i = 0; i < userCount; i++) {
+                UserNode user = new UserNode(readString(buffer, scratch), readString(buffer, scratch),
+                        readString(buffer, scratch));
+                int transactionCount = buffer.getInt();
+                for (int j = 0; j < transactionCount; j++) {
+                    TransactionNode transaction = readTransaction(buffer, scratch);
+                    transaction.allUser = user;
+                    transaction.next = user.transactionHead;
+                    user.transactionHead = transaction;
+                }
+                state.users.add(user);
+            }
+            return state;
+        }
+    }
+
+    private static TransactionNode readTransaction(ByteBuffer buffer, byte[] scratch) {
+        long id = buffer.getLong();
+        long date = buffer.getLong();
+        long committedAt = buffer.getLong();
+        TransactionNode transaction = new TransactionNode(buffer.get() != 0 ? "rental" : "purchase");
+        transaction.id = id;
+        transaction.date = date;
+        transaction.committedAt = committedAt;
+        transaction.duration = buffer.getInt();
+        transaction.paidAmount = buffer.getLong();
+        transaction.change = buffer.getLong();
+        transaction.isReturned = buffer.get() != 0;
+        transaction.returnDate = buffer.getLong();
+        transaction.lateFees = buffer.getLong();
+
+        int lines = buffer.getInt();
+        for (int i = 0; i < lines; i++) {
+            String name = readString(buffer, scratch);
+            int quantity = buffer.getInt();
+            transaction.addItem(name, buffer.getLong(), quantity);
+            if (buffer.get() != 0) {
+                transaction.markLineReturned(i);
+            }
+        }
+        transaction.freeze();
+        return transaction;
+    }
+
+    private static String readString(ByteBuffer buffer, byte[] scratch) {
+        int length = buffer.getInt();
+        byte[] bytes = length <= scratch.length ? scratch : new byte[length];
+        buffer.get(bytes, 0, length);
+        return new String(bytes, 0, length, StandardCharsets.UTF_8);
+    }
+}
+
+// Server terminal kasir: setiap koneksi TCP menjalankan loop menu sendiri di thread sesi
+// (virtual thread bila JDK mendukung). System.out dialihkan per thread ke socket sesi tersebut.
+class TerminalServer implements Closeable {
+    static final int DEFAULT_PORT = 7070;
+
+    private final ServerSocket serverSocket;
+    private final Consumer<Scanner> menu;
+    private final ExecutorService sessions = newSessionExecutor();
+    private final Set<Socket> open = ConcurrentHashMap.newKeySet();
+    private final Thread acceptor;
+
+    public TerminalServer(int port, Consumer<Scanner> menu) throws IOException {
+        this.serverSocket = new ServerSocket(port);
+        this.menu = menu;
+        this.acceptor = new Thread(this::acceptLoop, "terminal-acceptor");
+        this.acceptor.setDaemon(true);
+    }
+
+    // virtual thread per sesi pada JDK 21+, platform thread per sesi pada JDK lama
+    static ExecutorService newSessionExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newCachedThreadPool(task -> {
+                Thread thread = new Thread(task, "terminal-session");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    public void start() {
+        SessionOutput.install();
+        acceptor.start();
+    }
+
+    public int port() {
+        return serverSocket.getLocalPort();
+    }
+
+    private void acceptLoop() {
+        while (!serverSocket.isClosed()) {
+            try {
+                Socket socket = serverSocket.accept();
+                open.add(socket);
+                sessions.execute(() -> runSession(socket));
+            } catch (IOException e) {
+                // server ditutup
+            } catch (RejectedExecutionException e) {
+                return;
+            }
+        }
+    }
+
+    private void runSession(Socket socket) {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(8192);
+        try {
+            OutputStream out = socket.getOutputStream();
+            SessionOutput.bind(buffer);
+            // keluaran yang tertahan dikirim setiap kali sesi menunggu input
+            InputStream in = new FilterInputStream(socket.getInputStream()) {
+                @Override
+                public int read() throws IOException {
+                    flush(buffer, out);
+                    return super.read();
+                }
+
+                @Override
+                public int read(byte[] b, int off, int len) throws IOException {
+                    flush(buffer, out);
+                    return super.read(b, off, len);
+                }
+            };
+            try {
+                menu.accept(new Scanner(in, StandardCharsets.UTF_8));
+            } catch (NoSuchElementException | IllegalStateException e) {
+                // terminal terputus di tengah input
+            }
+            flush(buffer, out);
+        } catch (IOException e) {
+            // koneksi sudah putus, tidak ada yang bisa dikirim
+        } finally {
+            SessionOutput.unbind();
+            open.remove(socket);
+            try {
+                socket.close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+
+    private static void flush(ByteArrayOutputStream buffer, OutputStream out) throws IOException {
+        if (buffer.size() > 0) {
+            buffer.writeTo(out);
+            buffer.reset();
+            out.flush();
+        }
+    }
+
+    @Override
+    public void close() {
+        try {
+            serverSocket.close();
+        } catch (IOException ignored) {
+        }
+        for (Socket socket : open) {
+            try {
+                socket.close();
+            } catch (IOException ignored) {
+            }
+        }
+        sessions.shutdown();
+        try {
+            sessions.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // OutputStream di balik System.out: tulis ke buffer sesi milik thread ini, atau ke konsol asli
+    private static final class SessionOutput extends OutputStream {
+        private static final ThreadLocal<OutputStream> target = new ThreadLocal<>();
+        private static SessionOutput installed;
+
+        private final OutputStream console;
+
+        private SessionOutput(OutputStream console) {
+            this.console = console;
+        }
+
+        static synchronized void install() {
+            if (installed == null) {
+                installed = new SessionOutput(System.out);
+                System.setOut(new PrintStream(installed, true));
+            }
+        }
+
+        static void bind(OutputStream out) {
+            target.set(out);
+        }
+
+        static void unbind() {
+            target.remove();
+        }
+
+        private OutputStream current() {
+            OutputStream out = target.get();
+            return out != null ? out : console;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            current().write(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            current().write(b, off, len);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            OutputStream out = target.get();
+            if (out == null) {
+                console.flush();
+            }
+        }
+    }
+}
+
+// JSON minimal untuk API HTTP: parse ke Map/List/String/Long/Double/Boolean/null, dan penulisan string
+// dengan escape. Cukup untuk body request kecil; input yang rusak menghasilkan IllegalArgumentException.
+final class Json {
+    private final String text;
+    private int position;
+
+    private Json(String text) {
+        this.text = text;
+    }
+
+    static Object parse(String text) {
+        Json parser = new Json(text);
+        Object value = parser.value();
+        parser.skipWhitespace();
+        if (parser.position != text.length()) {
+            throw parser.error("karakter sisa");
+        }
+        return value;
+    }
+
+    static StringBuilder quote(StringBuilder out, String value) {
+        out.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"':
+                    out.append("\\\"");
+                    break;
+                case '\\':
+                    out.append("\\\\");
+                    break;
+                case '\n':
+                    out.append("\\n");
+                    break;
+                case '\r':
+                    out.append("\\r");
+                    break;
+                case '\t':
+                    out.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        out.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        out.append(c);
+                    }
+            }
+        }
+        return out.append('"');
+    }
+
+    private Object value() {
+        skipWhitespace();
+        if (position >= text.length()) {
+            throw error("nilai kosong");
+        }
+        char c = text.charAt(position);
+        switch (c) {
+            case '{':
+                return object();
+            case '[':
+                return array();
+            case '"':
+                return string();
+            case 't':
+                return literal("true", Boolean.TRUE);
+            case 'f':
+                return literal("false", Boolean.FALSE);
+            case 'n':
+                return literal("null", null);
+            default:
+                return number();
+        }
+    }
+
+    private Map<String, Object> object() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        position++;
+        skipWhitespace();
+        if (peek('}')) {
+            position++;
+            return result;
+        }
+        while (true) {
+            skipWhitespace();
+            if (!peek('"')) {
+                throw error("nama field");
+            }
+            String key = string();
+            skipWhitespace();
+            expect(':');
+            result.put(key, value());
+            skipWhitespace();
+            if (peek(',')) {
+                position++;
+            } else {
+                expect('}');
+                return result;
+            }
+        }
+    }
+
+    private List<Object> array() {
+        List<Object> result = new ArrayList<>();
+        position++;
+        skipWhitespace();
+        if (peek(']')) {
+            position++;
+            return result;
+        }
+        while (true) {
+            result.add(value());
+            skipWhitespace();
+            if (peek(',')) {
+                position++;
+            } else {
+                expect(']');
+                return result;
+            }
+        }
+    }
+
+    private String string() {
+        StringBuilder out = new StringBuilder();
+        position++;
+        while (position < text.length()) {
+            char c = text.charAt(position++);
+            if (c == '"') {
+                return out.toString();
+            }
+            if (c != '\\') {
+                out.append(c);
+                continue;
+            }
+            if (position >= text.length()) {
+                break;
+            }
+            char escaped = text.charAt(position++);
+            switch (escaped) {
+                case 'n':
+                    out.append('\n');
+                    break;
+                case 'r':
+                    out.append('\r');
+                    break;
+                case 't':
+                    out.append('\t');
+                    break;
+                case 'b':
+                    out.append('\b');
+                    break;
+                case 'f':
+                    out.append('\f');
+                    break;
+                case 'u':
+                    if (position + 4 > text.length()) {
+                        throw error("escape unicode");
+                    }
+                    out.append((char) Integer.parseInt(text.substring(position, position + 4), 16));
+                    position += 4;
+                    break;
+                default:
+                    out.append(escaped);
+            }
+        }
+        throw error("string tidak ditutup");
+    }
+
+    private Object number() {
+        int start = position;
+        while (position < text.length() && "+-0123456789.eE".indexOf(text.charAt(position)) >= 0) {
+            position++;
+        }
+        String token = text.substring(start, position);
+        if (token.isEmpty()) {
+            throw error("nilai tidak dikenal");
+        }
+        try {
+            return token.matches("-?\\d+") ? (Object) Long.parseLong(token) : (Object) Double.parseDouble(token);
+        } catch (NumberFormatException e) {
+            throw error("angka " + token);
+        }
+    }
+
+    private Object literal(String word, Object value) {
+        if (!text.startsWith(word, position)) {
+            throw error("nilai tidak dikenal");
+        }
+        position += word.length();
+        return value;
+    }
+
+    private boolean peek(char c) {
+        return position < text.length() && text.charAt(position) == c;
+    }
+
+    private void expect(char c) {
+        if (!peek(c)) {
+            throw error("diharapkan '" + c + "'");
+        }
+        position++;
+    }
+
+    private void skipWhitespace() {
+        while (position < text.length() && Character.isWhitespace(text.charAt(position))) {
+            position++;
+        }
+    }
+
+    private IllegalArgumentException error(String what) {
+        return new IllegalArgumentException("JSON tidak valid (" + what + ") pada posisi " + position);
+    }
+}
+
+// API HTTP/JSON di atas toko yang sama dengan menu, lewat com.sun.net.httpserver dengan executor virtual
+// thread per request (platform thread pada JDK lama). Login mengembalikan token untuk header
+// "gradle run --args='http [port]'" di samping menu konsol.
+// "java MultiLinkedListTokoOlahraga http [port]" di samping menu konsol.
+//   GET  /api/products?offset=0&limit=50 | /api/products?q=sepatu+lari&limit=10
+//   GET  /api/products?kategori=2&minPrice=..&maxPrice=..&minStock=1&after=..   terurut harga, "next" untuk after
+//   GET  /api/suggest?q=sep                                           -> {"suggestions": [..]}
+//   POST /api/register   {"username": .., "password": ..}
+//   POST /api/login      {"username": .., "password": ..}             -> {"token": ..}
+//   POST /api/logout     token dicabut; token yang menganggur SESSION_IDLE_MINUTES juga kedaluwarsa
+//   POST /api/purchase   {"items": [{"name": .., "quantity": ..}], "payment": ..}
+//   POST /api/rent       {"items": [...], "days": .., "payment": ..}
+//   POST /api/return     {"transactionId": .., "name": .., "payment": ..}   payment wajib >= denda bila terlambat
+//   GET  /api/rentals    sewa aktif milik user
+//   GET  /api/reports/dashboard | /api/reports/sales | /api/reports/overdue   (admin)
+class HttpApiServer implements Closeable {
+    static final int DEFAULT_PORT = 8080;
+    private static final int MAX_PAGE = 500;
+    private static final int MAX_BODY = 1 << 16;
+    private static final int TOP_PRODUCTS = 10;
+    private static final long SESSION_IDLE_MINUTES = 30;
+
+    static {
+        // tanpa TCP_NODELAY, header dan body yang ditulis terpisah tertahan delayed ACK (~40 ms per respons)
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+    }
+
+    static final class ApiException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+        final int status;
+
+        ApiException(int status, String message) {
+            super(message);
+            this.status = status;
+        }
+    }
+
+    private interface Endpoint {
+        void handle(Request request, StringBuilder out);
+    }
+
+    private static final class Request {
+        final Map<String, String> query;
+        final Map<String, Object> body;
+        final Session session;
+        final UserNode user;
+
+        Request(Map<String, String> query, Map<String, Object> body, Session session) {
+            this.query = query;
+            this.body = body;
+            this.session = session;
+            this.user = session == null ? null : session.user;
+        }
+
+        // null bila parameter tidak ada
+        String query(String name) {
+            return query.get(name);
+        }
+
+        int queryInt(String name, int fallback) {
+            String value = query.get(name);
+            try {
+                return value == null ? fallback : Integer.parseInt(value);
+            } catch (NumberFormatException e) {
+                throw new ApiException(400, "Parameter " + name + " harus angka");
+            }
+        }
+
+        long queryLong(String name, long fallback) {
+            String value = query.get(name);
+            try {
+                return value == null ? fallback : Long.parseLong(value);
+            } catch (NumberFormatException e) {
+                throw new ApiException(400, "Parameter " + name + " harus angka");
+            }
+        }
+
+        String string(String field) {
+            Object value = body.get(field);
+            if (!(value instanceof String)) {
+                throw new ApiException(400, "Field " + field + " wajib berupa string");
+            }
+            return (String) value;
+        }
+
+        long number(String field) {
+            Object value = body.get(field);
+            if (!(value instanceof Long)) {
+                throw new ApiException(400, "Field " + field + " wajib berupa bilangan bulat");
+            }
+            return (Long) value;
+        }
+
+        long number(String field, long fallback) {
+            return body.get(field) == null ? fallback : number(field);
+        }
+
+        List<?> list(String field) {
+            Object value = body.get(field);
+            if (!(value instanceof List)) {
+                throw new ApiException(400, "Field " + field + " wajib berupa array");
+            }
+            return (List<?>) value;
+        }
+    }
+
+    private final HttpServer server;
+    private final ExecutorService requests = TerminalServer.newSessionExecutor();
+    private final Map<String, Session> sessions = new ConcurrentHashMap<>();
+    private final TimerWheel sessionTimeouts = new TimerWheel(1, TimeUnit.SECONDS, 512, "session-timeouts");
+    private final long sessionIdleNanos;
+    private final SecureRandom random = new SecureRandom();
+
+    // token login; setiap request memperpanjang batas waktunya. Seperti keranjang di Reservations, timeout
+    // tidak dijadwal ulang per request: saat jatuh tempo ia memeriksa deadline dan menjadwal sisa waktunya
+    private final class Session {
+        final String token;
+        final UserNode user;
+        private volatile long deadline = System.nanoTime() + sessionIdleNanos;
+        private volatile TimerWheel.Timeout timeout;
+
+        Session(String token, UserNode user) {
+            this.token = token;
+            this.user = user;
+        }
+
+        void touch() {
+            deadline = System.nanoTime() + sessionIdleNanos;
+        }
+
+        void schedule(long delayNanos) {
+            timeout = sessionTimeouts.schedule(this::expire, delayNanos, TimeUnit.NANOSECONDS);
+        }
+
+        private void expire() {
+            long remaining = deadline - System.nanoTime();
+            if (remaining > 0) {
+                schedule(remaining);
+            } else {
+                sessions.remove(token, this);
+            }
+        }
+
+        void end() {
+            if (sessions.remove(token, this)) {
+                timeout.cancel();
+            }
+        }
+    }
+
+    public HttpApiServer(int port) throws IOException {
+        this(port, SESSION_IDLE_MINUTES, TimeUnit.MINUTES);
+    }
+
+    public HttpApiServer(int port, long sessionIdle, TimeUnit unit) throws IOException {
+        sessionIdleNanos = unit.toNanos(sessionIdle);
+        server = HttpServer.create(new InetSocketAddress(port), 1024);
+        server.setExecutor(requests);
+        route("GET", "/api/products", false, false, this::products);
+        route("GET", "/api/suggest", false, false, this::suggest);
+        route("POST", "/api/register", false, false, this::register);
+        route("POST", "/api/login", false, false, this::login);
+        route("POST", "/api/logout", true, false, (request, out) -> {
+            request.session.end();
+            out.append("{\"loggedOut\":true}");
+        });
+        route("POST", "/api/purchase", true, false, (request, out) -> checkout(request, out, false));
+        route("POST", "/api/rent", true, false, (request, out) -> checkout(request, out, true));
+        route("POST", "/api/return", true, false, this::returnRental);
+        route("GET", "/api/rentals", true, false, this::rentals);
+        route("GET", "/api/reports/dashboard", true, true, this::dashboard);
+        route("GET", "/api/reports/sales", true, true, this::sales);
+        route("GET", "/api/reports/overdue", true, true, this::overdue);
+        server.createContext("/", exchange -> {
+            StringBuilder out = new StringBuilder();
+            error(out, "Endpoint tidak ditemukan");
+            send(exchange, 404, out);
+        });
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    public int port() {
+        return server.getAddress().getPort();
+    }
+
+    @Override
+    public void close() {
+        server.stop(1);
+        requests.shutdown();
+        sessionTimeouts.close();
+    }
+
+    // token yang masih berlaku
+    public int sessionCount() {
+        return sessions.size();
+    }
+
+    private void route(String method, String path, boolean needsLogin, boolean adminOnly, Endpoint endpoint) {
+        server.createContext(path, exchange -> {
+            int status = 200;
+            StringBuilder out = new StringBuilder(256);
+            try {
+                if (!exchange.getRequestURI().getPath().equals(path)) {
+                    throw new ApiException(404, "Endpoint tidak ditemukan");
+                }
+                if (!exchange.getRequestMethod().equals(method)) {
+                    throw new ApiException(405, "Gunakan " + method);
+                }
+                Session session = authenticate(exchange);
+                if (needsLogin && session == null) {
+                    throw new ApiException(401, "Login diperlukan");
+                }
+                if (adminOnly && !session.user.role.equals("admin")) {
+                    throw new ApiException(403, "Khusus admin");
+                }
+                endpoint.handle(new Request(query(exchange), body(exchange), session), out);
+            } catch (ApiException e) {
+                status = e.status;
+                error(out, e.getMessage());
+            } catch (UncheckedIOException e) {
+                status = 503; // journal gagal sebelum data diubah
+                error(out, "Journal gagal ditulis, perubahan tidak tersimpan");
+            } catch (IllegalArgumentException e) {
+                status = 400;
+                error(out, e.getMessage());
+            } catch (RuntimeException e) {
+                status = 500;
+                error(out, "Kesalahan server");
+            }
+            send(exchange, status, out);
+        });
+    }
+
+    private static void send(HttpExchange exchange, int status, StringBuilder out) throws IOException {
+        byte[] bytes = out.toString().getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream body = exchange.getResponseBody()) {
+            body.write(bytes);
+        }
+    }
+
+    private static void error(StringBuilder out, String message) {
+        out.setLength(0);
+        Json.quote(out.append("{\"error\":"), message).append('}');
+    }
+
+    private Session authenticate(HttpExchange exchange) {
+        String header = exchange.getRequestHeaders().getFirst("Authorization");
+        if (header == null || !header.startsWith("Bearer ")) {
+            return null;
+        }
+        Session session = sessions.get(header.substring(7).trim());
+        if (session == null) {
+            throw new ApiException(401, "Token tidak valid");
+        }
+        session.touch();
+        return session;
+    }
+
+    private static Map<String, String> query(HttpExchange exchange) {
+        Map<String, String> result = new HashMap<>();
+        String raw = exchange.getRequestURI().getRawQuery();
+        if (raw == null) {
+            return result;
+        }
+        for (String pair : raw.split("&")) {
+            int eq = pair.indexOf('=');
+            if (eq > 0) {
+                result.put(URLDecoder.decode(pair.substring(0, eq), StandardCharsets.UTF_8),
+                        URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8));
+            }
+        }
+        return result;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> body(HttpExchange exchange) throws IOException {
+        byte[] bytes = exchange.getRequestBody().readNBytes(MAX_BODY + 1);
+        if (bytes.length > MAX_BODY) {
+            throw new ApiException(413, "Body terlalu besar");
+        }
+        if (bytes.length == 0) {
+            return Collections.emptyMap();
+        }
+        Object parsed = Json.parse(new String(bytes, StandardCharsets.UTF_8));
+        if (!(parsed instanceof Map)) {
+            throw new ApiException(400, "Body harus berupa objek JSON");
+        }
+        return (Map<String, Object>) parsed;
+    }
+
+    // dengan q: hasil pencarian (total = jumlah hasil), tanpa q: halaman katalog
+    private void products(Request request, StringBuilder out) {
+        String query = request.query("q");
+        ProductRangeIndex.Filter filter = filter(request);
+        List<ProductNode> page;
+        String next = null;
+        if (query != null) {
+            int limit = Math.max(0, Math.min(MAX_PAGE, request.queryInt("limit", ProductSearch.DEFAULT_LIMIT)));
+            page = MultiLinkedListTokoOlahraga.searchProducts(query, limit);
+            out.append("{\"total\":").append(page.size());
+        } else if (filter != null) {
+            int limit = Math.max(0, Math.min(MAX_PAGE, request.queryInt("limit", ProductRangeIndex.DEFAULT_LIMIT)));
+            String after = request.query("after");
+            ProductRangeIndex.Cursor cursor;
+            try {
+                cursor = after == null ? ProductRangeIndex.Cursor.START : ProductRangeIndex.Cursor.parse(after);
+            } catch (NumberFormatException e) {
+                throw new ApiException(400, "Parameter after tidak valid");
+            }
+            page = MultiLinkedListTokoOlahraga.filterProducts(filter, cursor, limit);
+            if (limit > 0 && page.size() == limit) {
+                next = ProductRangeIndex.Cursor.after(page.get(limit - 1)).toString();
+            }
+            out.append("{\"total\":").append(page.size());
+        } else {
+            int offset = Math.max(0, request.queryInt("offset", 0));
+            int limit = Math.max(0, Math.min(MAX_PAGE, request.queryInt("limit", 50)));
+            page = MultiLinkedListTokoOlahraga.productPage(offset, limit);
+            out.append("{\"total\":").append(MultiLinkedListTokoOlahraga.productCount());
+        }
+        out.append(",\"products\":[");
+        for (int i = 0; i < page.size(); i++) {
+            ProductNode product = page.get(i);
+            Json.quote(out.append(i > 0 ? ",{\"name\":" : "{\"name\":"), product.name);
+            out.append(",\"price\":").append(product.price).append(",\"stock\":").append(product.stock)
+                    .append(",\"kategori\":");
+            if (product.kategori != null) {
+                Json.quote(out, product.kategori.name);
+            } else {
+                out.append("null");
+            }
+            out.append('}');
+        }
+        out.append(']');
+        if (next != null) {
+            Json.quote(out.append(",\"next\":"), next);
+        }
+        out.append('}');
+    }
+
+    // null bila tidak ada parameter filter; harga dalam sen, batas inklusif
+    private static ProductRangeIndex.Filter filter(Request request) {
+        String kategoriId = request.query("kategori");
+        if (kategoriId == null && request.query("minPrice") == null && request.query("maxPrice") == null
+                && request.query("minStock") == null && request.query("maxStock") == null) {
+            return null;
+        }
+        KategoriNode kategori = null;
+        if (kategoriId != null) {
+            kategori = MultiLinkedListTokoOlahraga.findKategori(request.queryInt("kategori", 0));
+            if (kategori == null) {
+                throw new ApiException(404, "Kategori tidak ditemukan");
+            }
+        }
+        return new ProductRangeIndex.Filter(kategori, request.queryLong("minPrice", Long.MIN_VALUE),
+                request.queryLong("maxPrice", Long.MAX_VALUE), request.queryInt("minStock", Integer.MIN_VALUE),
+                request.queryInt("maxStock", Integer.MAX_VALUE));
+    }
+
+    private void suggest(Request request, StringBuilder out) {
+        String prefix = request.query("q");
+        int limit = Math.max(0, Math.min(MAX_PAGE, request.queryInt("limit", ProductSearch.DEFAULT_LIMIT)));
+        List<String> suggestions = prefix == null ? List.of()
+                : MultiLinkedListTokoOlahraga.suggestWords(prefix, limit);
+        out.append("{\"suggestions\":[");
+        for (int i = 0; i < suggestions.size(); i++) {
+            Json.quote(i > 0 ? out.append(',') : out, suggestions.get(i));
+        }
+        out.append("]}");
+    }
+
+    private void register(Request request, StringBuilder out) {
+        String username = request.string("username");
+        String password = request.string("password");
+        if (username.isBlank() || password.isEmpty()) {
+            throw new ApiException(400, "Username dan password wajib diisi");
+        }
+        if (MultiLinkedListTokoOlahraga.registerUser(username, password) == null) {
+            throw new ApiException(409, "Username sudah digunakan");
+        }
+        Json.quote(out.append("{\"username\":"), username).append('}');
+    }
+
+    private void login(Request request, StringBuilder out) {
+        UserNode user = MultiLinkedListTokoOlahraga.login(request.string("username"), request.string("password"));
+        if (user == null) {
+            throw new ApiException(401, "Username atau password salah");
+        }
+        byte[] bytes = new byte[16];
+        random.nextBytes(bytes);
+        StringBuilder token = new StringBuilder(32);
+        for (byte b : bytes) {
+            token.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        Session session = new Session(token.toString(), user);
+        sessions.put(session.token, session);
+        session.schedule(sessionIdleNanos);
+        out.append("{\"token\":\"").append(token).append("\",\"role\":");
+        Json.quote(out, user.role).append('}');
+    }
+
+    private void checkout(Request request, StringBuilder out, boolean rental) {
+        List<?> items = request.list("items");
+        if (items.isEmpty()) {
+            throw new ApiException(400, "Keranjang kosong");
+        }
+        ProductNode[] products = new ProductNode[items.size()];
+        int[] quantities = new int[items.size()];
+        for (int i = 0; i < items.size(); i++) {
+            if (!(items.get(i) instanceof Map)) {
+                throw new ApiException(400, "Item harus berupa objek {name, quantity}");
+            }
+            Map<?, ?> item = (Map<?, ?>) items.get(i);
+            Object name = item.get("name");
+            Object quantity = item.get("quantity");
+            if (!(name instanceof String) || !(quantity instanceof Long) || (Long) quantity <= 0
+                    || (Long) quantity > Integer.MAX_VALUE) {
+                throw new ApiException(400, "Item harus berupa objek {name, quantity}");
+            }
+            products[i] = MultiLinkedListTokoOlahraga.findProduct((String) name);
+            if (products[i] == null) {
+                throw new ApiException(404, "Produk tidak ditemukan: " + name);
+            }
+            quantities[i] = (int) (long) (Long) quantity;
+        }
+        long payment = request.number("payment");
+        TransactionNode transaction;
+        if (rental) {
+            long days = request.number("days");
+            if (days <= 0 || days > 365) {
+                throw new ApiException(400, "Durasi sewa harus 1-365 hari");
+            }
+            transaction = MultiLinkedListTokoOlahraga.rent(request.user, products, quantities, (int) days, payment);
+        } else {
+            transaction = MultiLinkedListTokoOlahraga.purchase(request.user, products, quantities, payment);
+        }
+        if (transaction == null) {
+            throw new ApiException(409, "Stok tidak cukup atau pembayaran kurang");
+        }
+        MultiLinkedListTokoOlahraga.maybeSnapshot();
+        transaction(out, transaction);
+    }
+
+    private void returnRental(Request request, StringBuilder out) {
+        TransactionNode rental = MultiLinkedListTokoOlahraga.openRental(request.user, request.number("transactionId"));
+        if (rental == null) {
+            throw new ApiException(404, "Sewa aktif tidak ditemukan");
+        }
+        int line = rental.findLine(request.string("name"));
+        if (line < 0) {
+            throw new ApiException(404, "Produk tidak ada di transaksi ini");
+        }
+        MultiLinkedListTokoOlahraga.ReturnReceipt receipt =
+                MultiLinkedListTokoOlahraga.returnRental(request.user, rental, line, request.number("payment", 0));
+        if (!receipt.paid) {
+            throw new ApiException(402, "Denda keterlambatan " + receipt.fee + " sen harus dibayar lewat payment");
+        }
+        if (receipt.quantity == 0) {
+            throw new ApiException(409, "Barang ini sudah dikembalikan");
+        }
+        MultiLinkedListTokoOlahraga.maybeSnapshot();
+        out.append("{\"returned\":").append(receipt.quantity).append(",\"lateDays\":").append(receipt.lateDays)
+                .append(",\"lateFee\":").append(receipt.fee).append(",\"change\":").append(receipt.change)
+                .append('}');
+    }
+
+    private void rentals(Request request, StringBuilder out) {
+        int limit = Math.max(0, Math.min(MAX_PAGE, request.queryInt("limit", 50)));
+        out.append("{\"rentals\":[");
+        List<TransactionNode> rentals = MultiLinkedListTokoOlahraga.openRentals(request.user, limit);
+        for (int i = 0; i < rentals.size(); i++) {
+            if (i > 0) {
+                out.append(',');
+            }
+            transaction(out, rentals.get(i));
+        }
+        out.append("]}");
+    }
+
+    private void dashboard(Request request, StringBuilder out) {
+        Dashboard dashboard = MultiLinkedListTokoOlahraga.dashboard();
+        out.append("{\"date\":\"").append(dashboard.today()).append("\",\"revenueToday\":")
+                .append(dashboard.revenueToday()).append(",\"transactionsToday\":")
+                .append(dashboard.transactionsToday()).append(",\"unitsSold\":").append(dashboard.totalUnitsSold())
+                .append(",\"rentedOut\":").append(dashboard.totalRentedOut()).append(",\"overdue\":")
+                .append(MultiLinkedListTokoOlahraga.overdueCount(System.currentTimeMillis()))
+                .append(",\"lowStock\":[");
+        List<ProductNode> lowStock = MultiLinkedListTokoOlahraga.lowStock();
+        for (int i = 0; i < lowStock.size(); i++) {
+            Json.quote(out.append(i > 0 ? ",{\"name\":" : "{\"name\":"), lowStock.get(i).name)
+                    .append(",\"stock\":").append(lowStock.get(i).stock).append('}');
+        }
+        out.append("],\"topSellers\":[");
+        int[] topSellers = dashboard.topSellers();
+        for (int i = 0; i < topSellers.length; i++) {
+            Json.quote(out.append(i > 0 ? ",{\"name\":" : "{\"name\":"), ProductNames.name(topSellers[i]))
+                    .append(",\"unitsSold\":").append(dashboard.unitsSold(topSellers[i])).append('}');
+        }
+        out.append("]}");
+    }
+
+    private void sales(Request request, StringBuilder out) {
+        SalesAnalytics.Report report = MultiLinkedListTokoOlahraga.salesReport();
+        out.append("{\"transactions\":").append(report.transactions).append(",\"lateFees\":").append(report.lateFees)
+                .append(",\"revenueByKategori\":[");
+        boolean first = true;
+        for (Map.Entry<KategoriNode, Long> entry : MultiLinkedListTokoOlahraga.revenueByKategori(report).entrySet()) {
+            out.append(first ? "{\"kategori\":" : ",{\"kategori\":");
+            if (entry.getKey() != null) {
+                Json.quote(out, entry.getKey().name);
+            } else {
+                out.append("null");
+            }
+            out.append(",\"revenue\":").append(entry.getValue()).append('}');
+            first = false;
+        }
+        out.append("],\"topProducts\":[");
+        first = true;
+        for (int nameId : report.top(report.unitsSoldByNameId, TOP_PRODUCTS)) {
+            Json.quote(out.append(first ? "{\"name\":" : ",{\"name\":"), ProductNames.name(nameId))
+                    .append(",\"unitsSold\":").append(report.unitsSoldByNameId[nameId]).append(",\"revenue\":")
+                    .append(report.revenueByNameId[nameId]).append('}');
+            first = false;
+        }
+        out.append("],\"revenueByDay\":[");
+        first = true;
+        for (Map.Entry<LocalDate, Long> day : report.revenueByDay.descendingMap().entrySet()) {
+            out.append(first ? "{\"date\":\"" : ",{\"date\":\"").append(day.getKey()).append("\",\"revenue\":")
+                    .append(day.getValue()).append('}');
+            first = false;
+        }
+        out.append("]}");
+    }
+
+    private void overdue(Request request, StringBuilder out) {
+        long now = System.currentTimeMillis();
+        int limit = Math.max(0, Math.min(MAX_PAGE, request.queryInt("limit", 50)));
+        out.append("{\"count\":").append(MultiLinkedListTokoOlahraga.overdueCount(now)).append(",\"rentals\":[");
+        List<TransactionNode> rentals = MultiLinkedListTokoOlahraga.overdueRentals(now, limit);
+        for (int i = 0; i < rentals.size(); i++) {
+            TransactionNode rental = rentals.get(i);
+            Json.quote(out.append(i > 0 ? ",{\"username\":" : "{\"username\":"), rental.allUser.username)
+                    .append(",\"transactionId\":").append(rental.id).append(",\"dueDate\":")
+                    .append(rental.dueDate()).append(",\"lateDays\":").append(rental.lateDays(now)).append('}');
+        }
+        out.append("]}");
+    }
+
+    // Uji beban lokal lewat HTTP sungguhan: N klien (virtual thread) memakai java.net.http.HttpClient terhadap
+    // server di port acak selama durasi tetap, campuran 50% katalog, 30% beli, 15% sewa, 5% login.
+    //   gradle run --args='httptest [klien] [detik]'
+    private static final String[] LOAD_OPERATIONS = { "produk", "beli", "sewa", "login" };
+    private static final int[] LOAD_WEIGHTS = { 50, 30, 15, 5 };
+    private static final int LOAD_PRODUCTS = 200;
+    private static final int LOAD_USERS = 1_000;
+
+    static void loadTest(String[] args) {
+        int clients = args.length > 1 ? Integer.parseInt(args[1]) : 32;
+        int seconds = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+        MultiLinkedListTokoOlahraga.openMemoryStore();
+        for (int i = 0; i < LOAD_PRODUCTS; i++) {
+            MultiLinkedListTokoOlahraga.createProduct("Produk Uji " + i, Money.ofRupiah(50_000 + 1_000 * i),
+                    100_000_000, null);
+        }
+        for (int u = 0; u < LOAD_USERS; u++) {
+            MultiLinkedListTokoOlahraga.registerUser("http" + u, "pw" + u);
+        }
+
+        ExecutorService workers = TerminalServer.newSessionExecutor();
+        try (HttpApiServer server = new HttpApiServer(0)) {
+            server.start();
+            HttpClient client = HttpClient.newBuilder().executor(workers).build();
+            URI base = URI.create("http://127.0.0.1:" + server.port());
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+            List<Future<LoadGenerator.Samples>> results = new ArrayList<>();
+            long start = System.nanoTime();
+            for (int c = 0; c < clients; c++) {
+                int worker = c;
+                results.add(workers.submit(() -> loadClient(worker, client, base, deadline)));
+            }
+            LoadGenerator.Samples[] samples = new LoadGenerator.Samples[clients];
+            for (int c = 0; c < clients; c++) {
+                samples[c] = results.get(c).get();
+            }
+            double elapsed = (System.nanoTime() - start) / 1e9;
+            System.out.printf("Uji beban HTTP: %d klien, %d user, %d produk, %.2f s%n", clients, LOAD_USERS,
+                    LOAD_PRODUCTS, elapsed);
+            LoadGenerator.printTable(LOAD_OPERATIONS, samples, elapsed);
+        } catch (IOException e) {
+            System.out.println("API HTTP tidak dapat dibuka: " + e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            workers.shutdown();
+            MultiLinkedListTokoOlahraga.closeStore();
+        }
+    }
+
+    private static LoadGenerator.Samples loadClient(int worker, HttpClient client, URI base, long deadline)
+            throws IOException, InterruptedException {
+        SplittableRandom random = new SplittableRandom(worker);
+        LoadGenerator.Samples samples = new LoadGenerator.Samples(LOAD_OPERATIONS.length);
+        String token = null;
+        int total = Arrays.stream(LOAD_WEIGHTS).sum();
+        while (System.nanoTime() < deadline) {
+            int roll = random.nextInt(total);
+            int operation = 0;
+            while (roll >= LOAD_WEIGHTS[operation]) {
+                roll -= LOAD_WEIGHTS[operation++];
+            }
+            if (token == null && operation != 0) {
+                operation = 3; // belum punya token
+            }
+
+            HttpRequest request;
+            switch (operation) {
+                case 0:
+                    request = HttpRequest.newBuilder(base.resolve("/api/products?offset="
+                            + random.nextInt(LOAD_PRODUCTS) + "&limit=20")).GET().build();
+                    break;
+                case 3: {
+                    int u = random.nextInt(LOAD_USERS);
+                    request = post(base, "/api/login", null,
+                            "{\"username\":\"http" + u + "\",\"password\":\"pw" + u + "\"}");
+                    break;
+                }
+                default: {
+                    StringBuilder body = new StringBuilder("{\"items\":[");
+                    long payment = 0;
+                    int lines = 1 + random.nextInt(3);
+                    for (int line = 0; line < lines; line++) {
+                        int product = random.nextInt(LOAD_PRODUCTS);
+                        int quantity = 1 + random.nextInt(2);
+                        body.append(line > 0 ? "," : "").append("{\"name\":\"Produk Uji ").append(product)
+                                .append("\",\"quantity\":").append(quantity).append('}');
+                        payment += Money.times(Money.ofRupiah(50_000 + 1_000 * product), quantity);
+                    }
+                    body.append("],\"payment\":").append(payment * 2);
+                    if (operation == 2) {
+                        body.append(",\"days\":").append(1 + random.nextInt(7));
+                    }
+                    request = post(base, operation == 1 ? "/api/purchase" : "/api/rent", token,
+                            body.append('}').toString());
+                }
+            }
+
+            long begin = System.nanoTime();
+            HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+            samples.add(operation, System.nanoTime() - begin);
+            if (response.statusCode() != 200) {
+                samples.failures[operation]++;
+            } else if (operation == 3) {
+                token = (String) ((Map<?, ?>) Json.parse(response.body())).get("token");
+            }
+        }
+        return samples;
+    }
+
+    private static HttpRequest post(URI base, String path, String token, String body) {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(base.resolve(path))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body));
+        if (token != null) {
+            builder.header("Authorization", "Bearer " + token);
+        }
+        return builder.build();
+    }
+
+    private static void transaction(StringBuilder out, TransactionNode transaction) {
+        out.append("{\"id\":").append(transaction.id).append(",\"type\":\"").append(transaction.type)
+                .append("\",\"date\":").append(transaction.date).append(",\"total\":")
+                .append(transaction.getTotalAmount()).append(",\"paid\":").append(transaction.paidAmount)
+                .append(",\"change\":").append(transaction.change);
+        if (transaction.type.equals("rental")) {
+            out.append(",\"days\":").append(transaction.duration).append(",\"dueDate\":").append(transaction.dueDate());
+        }
+        out.append(",\"items\":[");
+        for (int line = 0; line < transaction.lineCount(); line++) {
+            Json.quote(out.append(line > 0 ? ",{\"name\":" : "{\"name\":"), transaction.lineName(line))
+                    .append(",\"quantity\":").append(transaction.lineQuantity(line)).append(",\"price\":")
+                    .append(transaction.linePrice(line)).append(",\"returned\":")
+                    .append(transaction.isLineReturned(line)).append('}');
+        }
+        out.append("]}");
+    }
+}
+
+// Generator beban tanpa Scanner: user simulasi menjalankan campuran login, beli, sewa dan kembalikan
+// lewat API bisnis yang sama dengan menu, lalu throughput dan latensi p50/p99/p999 per operasi dilaporkan.
+// Toko dibuka di direktori sementara (journal + snapshot aktif) kecuali diberi opsi "memory".
+//   gradle run --args='loadtest [user] [operasi] [thread] [login:beli:sewa:kembali] [memory]'
+class LoadGenerator {
+    private static final String[] OPERATIONS = { "login", "beli", "sewa", "kembali" };
+    private static final int LOGIN = 0;
+    private static final int PURCHASE = 1;
+    private static final int RENT = 2;
+    private static final int RETURN = 3;
+    private static final int PRODUCTS = 200;
+    private static final int SNAPSHOT_CHECK_EVERY = 1024; // operasi per worker di antara cek snapshot
+
+    // latensi mentah per jenis operasi milik satu worker, digabung dan diurutkan di akhir
+    static final class Samples {
+        final long[][] nanos;
+        final int[] counts;
+        final int[] failures;
+
+        Samples(int operations) {
+            nanos = new long[operations][1024];
+            counts = new int[operations];
+            failures = new int[operations];
+        }
+
+        void add(int operation, long latency) {
+            if (counts[operation] == nanos[operation].length) {
+                nanos[operation] = Arrays.copyOf(nanos[operation], counts[operation] * 2);
+            }
+            nanos[operation][counts[operation]++] = latency;
+        }
+    }
+
+    static void run(String[] args) {
+        int userCount = args.length > 1 ? Integer.parseInt(args[1]) : 1_000;
+        int operations = args.length > 2 ? Integer.parseInt(args[2]) : 100_000;
+        int threads = args.length > 3 ? Integer.parseInt(args[3]) : 8;
+        int[] weights = args.length > 4
+                ? Arrays.stream(args[4].split(":")).mapToInt(Integer::parseInt).toArray()
+                : new int[] { 20, 50, 20, 10 };
+        boolean persistent = !(args.length > 5 && args[5].equals("memory"));
+        if (weights.length != OPERATIONS.length) {
+            System.out.println("Campuran operasi harus 4 bobot, contoh 20:50:20:10");
+            return;
+        }
+
+        Path directory = null;
+        try {
+            if (persistent) {
+                directory = Files.createTempDirectory("toko-load");
+                if (!MultiLinkedListTokoOlahraga.openStore(directory)) {
+                    return;
+                }
+            } else {
+                MultiLinkedListTokoOlahraga.openMemoryStore();
+            }
+            drive(userCount, operations, threads, weights, persistent);
+        } catch (IOException e) {
+            System.out.println("Direktori uji beban tidak dapat dibuat: " + e.getMessage());
+        } finally {
+            MultiLinkedListTokoOlahraga.closeStore();
+            deleteDirectory(directory);
+        }
+    }
+
+    private static void drive(int userCount, int operations, int threads, int[] weights, boolean persistent) {
+        ProductNode[] products = new ProductNode[PRODUCTS];
+        for (int i = 0; i < PRODUCTS; i++) {
+            products[i] = MultiLinkedListTokoOlahraga.createProduct("Produk Uji " + i,
+                    Money.ofRupiah(50_000 + 1_000 * i), 10_000_000, null);
+        }
+
+        ExecutorService workers = TerminalServer.newSessionExecutor();
+        try {
+            // registrasi paralel supaya ikut group commit seperti pendaftaran sungguhan
+            UserNode[] users = new UserNode[userCount];
+            String[] passwords = new String[userCount];
+            List<Future<?>> registrations = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                int worker = t;
+                registrations.add(workers.submit(() -> {
+                    for (int u = worker; u < userCount; u += threads) {
+                        passwords[u] = "pw" + u;
+                        users[u] = MultiLinkedListTokoOlahraga.registerUser("beban" + u, passwords[u]);
+                    }
+                }));
+            }
+            await(registrations);
+
+            int total = Arrays.stream(weights).sum();
+            List<Future<Samples>> results = new ArrayList<>();
+            long start = System.nanoTime();
+            for (int t = 0; t < threads; t++) {
+                int worker = t;
+                int share = operations / threads + (t < operations % threads ? 1 : 0);
+                results.add(workers.submit(() -> work(worker, share, users, passwords, products, weights, total)));
+            }
+
+            Samples[] samples = new Samples[threads];
+            for (int t = 0; t < threads; t++) {
+                samples[t] = results.get(t).get();
+            }
+            long elapsed = System.nanoTime() - start;
+            report(samples, elapsed, userCount, operations, threads, persistent);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            workers.shutdown();
+        }
+    }
+
+    private static Samples work(int worker, int operations, UserNode[] users, String[] passwords,
+            ProductNode[] products, int[] weights, int totalWeight) {
+        SplittableRandom random = new SplittableRandom(worker);
+        Samples samples = new Samples(OPERATIONS.length);
+        ArrayDeque<TransactionNode> openRentals = new ArrayDeque<>();
+        for (int i = 0; i < operations; i++) {
+            if (i % SNAPSHOT_CHECK_EVERY == 0) {
+                MultiLinkedListTokoOlahraga.maybeSnapshot();
+            }
+            int operation = pick(random.nextInt(totalWeight), weights);
+            if (operation == RETURN && openRentals.isEmpty()) {
+                operation = RENT; // belum ada yang bisa dikembalikan
+            }
+            int u = random.nextInt(users.length);
+            UserNode user = users[u];
+
+            long begin = System.nanoTime();
+            boolean ok;
+            switch (operation) {
+                case LOGIN:
+                    ok = MultiLinkedListTokoOlahraga.login(user.username, passwords[u]) != null;
+                    break;
+                case PURCHASE:
+                case RENT: {
+                    int lines = 1 + random.nextInt(3);
+                    ProductNode[] cart = new ProductNode[lines];
+                    int[] quantities = new int[lines];
+                    long payment = 0;
+                    for (int line = 0; line < lines; line++) {
+                        cart[line] = products[random.nextInt(products.length)];
+                        quantities[line] = 1 + random.nextInt(2);
+                        payment += Money.times(cart[line].price, quantities[line]);
+                    }
+                    TransactionNode transaction;
+                    if (operation == PURCHASE) {
+                        transaction = MultiLinkedListTokoOlahraga.purchase(user, cart, quantities, payment);
+                    } else {
+                        transaction = MultiLinkedListTokoOlahraga.rent(user, cart, quantities, 1 + random.nextInt(7),
+                                payment * 2);
+                        if (transaction != null) {
+                            openRentals.add(transaction);
+                        }
+                    }
+                    ok = transaction != null;
+                    break;
+                }
+                default: {
+                    TransactionNode rental = openRentals.peek();
+                    int line = 0;
+                    while (rental.isLineReturned(line)) {
+                        line++;
+                    }
+                    long fee = MultiLinkedListTokoOlahraga.lateFee(rental, line, System.currentTimeMillis());
+                    ok = MultiLinkedListTokoOlahraga.returnRental(rental.allUser, rental, line, fee).quantity > 0;
+                    if (rental.isReturned) {
+                        openRentals.poll();
+                    }
+                }
+            }
+            samples.add(operation, System.nanoTime() - begin);
+            if (!ok) {
+                samples.failures[operation]++;
+            }
+        }
+        return samples;
+    }
+
+    private static int pick(int roll, int[] weights) {
+        for (int i = 0; i < weights.length; i++) {
+            roll -= weights[i];
+            if (roll < 0) {
+                return i;
+            }
+        }
+        return weights.length - 1;
+    }
+
+    private static void report(Samples[] samples, long elapsedNanos, int userCount, int operations, int threads,
+            boolean persistent) {
+        double seconds = elapsedNanos / 1e9;
+        System.out.printf("Uji beban: %d user, %d operasi, %d thread, journal %s, %.2f s%n",
+                userCount, operations, threads, persistent ? "aktif" : "mati", seconds);
+        printTable(OPERATIONS, samples, seconds);
+    }
+
+    // satu baris per jenis operasi ditambah baris total; dipakai juga oleh uji beban HTTP
+    static void printTable(String[] names, Samples[] samples, double seconds) {
+        System.out.printf("%-8s %9s %7s %10s %10s %10s %10s %10s%n",
+                "operasi", "jumlah", "gagal", "ops/s", "p50 us", "p99 us", "p999 us", "max us");
+        long[] all = new long[0];
+        int allFailures = 0;
+        for (int operation = 0; operation < names.length; operation++) {
+            int count = 0;
+            int failures = 0;
+            for (Samples s : samples) {
+                count += s.counts[operation];
+                failures += s.failures[operation];
+            }
+            long[] merged = new long[count];
+            int offset = 0;
+            for (Samples s : samples) {
+                System.arraycopy(s.nanos[operation], 0, merged, offset, s.counts[operation]);
+                offset += s.counts[operation];
+            }
+            printRow(names[operation], merged, failures, seconds);
+
+            long[] grown = Arrays.copyOf(all, all.length + merged.length);
+            System.arraycopy(merged, 0, grown, all.length, merged.length);
+            all = grown;
+            allFailures += failures;
+        }
+        printRow("total", all, allFailures, seconds);
+    }
+
+    private static void printRow(String name, long[] latencies, int failures, double seconds) {
+        if (latencies.length == 0) {
+            System.out.printf("%-8s %9d%n", name, 0);
+            return;
+        }
+        Arrays.sort(latencies);
+        System.out.printf("%-8s %9d %7d %10.0f %10.1f %10.1f %10.1f %10.1f%n", name, latencies.length, failures,
+                latencies.length / seconds, percentile(latencies, 0.50) / 1e3, percentile(latencies, 0.99) / 1e3,
+                percentile(latencies, 0.999) / 1e3, latencies[latencies.length - 1] / 1e3);
+    }
+
+    private static long percentile(long[] sorted, double p) {
+        int index = (int) Math.ceil(p * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(sorted.length - 1, index))];
+    }
+
+    private static void await(List<Future<?>> futures) throws InterruptedException, ExecutionException {
+        for (Future<?> future : futures) {
+            future.get();
+        }
+    }
+
+    static void deleteDirectory(Path directory) {
+        if (directory == null) {
+            return;
+        }
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+            for (Path file : files) {
+                Files.deleteIfExists(file);
+            }
+            Files.deleteIfExists(directory);
+        } catch (IOException e) {
+            System.out.println("Direktori uji beban tidak dapat dihapus: " + directory);
+        }
+    }
+}
+
+public class MultiLinkedListTokoOlahraga {
+    // semua data toko lewat engine ini; indeks di bawahnya dibangun dari engine saat toko dibuka
+    private static StorageEngine storage;
+    private static RentalIndex rentalIndex;
+    private static TransactionHistory history;
+    private static Dashboard dashboard;
+    private static final int REORDER_ALERTS_KEPT = 20;
+    private static final ConcurrentLinkedDeque<String> reorderAlerts = new ConcurrentLinkedDeque<>();
+
+    private static final Path DATA_DIR = Paths.get(".");
+    private static Path dataDir = DATA_DIR;
+    private static final String PAGED_DIR = "paged"; // media engine paged di bawah dataDir
+    private static final int SNAPSHOT_EVERY = 10_000; // record journal per snapshot
+    private static ExecutorService snapshotWriter;
+    private static Future<?> pendingSnapshot;
+    private static Journal journal;
+    private static final AtomicLong nextTransactionId = new AtomicLong(1);
+    // operasi kasir (read lock) boleh berjalan bersamaan; perubahan katalog admin dan batas checkpoint
+    // (write lock) eksklusif, sehingga mutasi dan record journal-nya selalu jatuh di sisi rotasi yang sama
+    private static final ReentrantReadWriteLock storeLock = new ReentrantReadWriteLock();
+    private static final Object registration = new Object();
+    private static final long CART_TIMEOUT_MINUTES = 15; // keranjang tanpa aktivitas dilepas setelah ini
+    private static Reservations reservations;
+
+    public static void main(String[] args) {
+        if (args.length > 0 && args[0].equals("loadtest")) {
+            LoadGenerator.run(args);
+            return;
+        }
+
+        if (args.length > 0 && args[0].equals("httptest")) {
+            HttpApiServer.loadTest(args);
+            return;
+        }
+
+        if (!openStore(DATA_DIR)) {
+            return;
+        }
+        Scanner scanner = new Scanner(System.in);
+
+        // mode multi-terminal: konsol ini tetap jadi satu terminal, kasir lain terhubung lewat TCP
+        TerminalServer terminals = null;
+        if (args.length > 0 && args[0].equals("terminals")) {
+            int port = args.length > 1 ? Integer.parseInt(args[1]) : TerminalServer.DEFAULT_PORT;
+            try {
+                terminals = new TerminalServer(port, MultiLinkedListTokoOlahraga::runMenu);
+                terminals.start();
+                System.out.println("Terminal kasir menerima koneksi di port " + terminals.port());
+            } catch (IOException e) {
+                System.out.println("Terminal kasir tidak dapat dibuka: " + e.getMessage());
+            }
+        }
+
+        // mode API: klien HTTP memakai toko yang sama dengan menu konsol
+        HttpApiServer api = null;
+        if (args.length > 0 && args[0].equals("http")) {
+            int port = args.length > 1 ? Integer.parseInt(args[1]) : HttpApiServer.DEFAULT_PORT;
+            try {
+                api = new HttpApiServer(port);
+                api.start();
+                System.out.println("API HTTP berjalan di port " + api.port());
+            } catch (IOException e) {
+                System.out.println("API HTTP tidak dapat dibuka: " + e.getMessage());
+            }
+        }
+
+        runMenu(scanner);
+        scanner.close();
+        if (terminals != null) {
+            terminals.close();
+        }
+        if (api != null) {
+            api.close();
+        }
+        closeStore();
+    }
+
+    // loop menu utama untuk satu terminal (konsol atau sesi TCP)
+    static void runMenu(Scanner scanner) {
+        System.out.println("=== Toko Olahraga ===");
+        boolean running = true;
+
+        while (running) {
+            maybeSnapshot();
+            System.out.println("\nMenu:");
+            System.out.println("1. Login");
+            System.out.println("2. Daftar");
+            System.out.println("3. Keluar");
+            System.out.print("Pilih menu: ");
+
+            if (!scanner.hasNextInt()) {
+                System.out.println("Input tidak valid. Harap masukkan angka.");
+                scanner.nextLine();
+                continue;
+            }
+
+            int choice = scanner.nextInt();
+            scanner.nextLine();
+
+            switch (choice) {
+                case 1:
+                    login(scanner);
+                    break;
+                case 2:
+                    journaled(() -> register(scanner));
+                    break;
+                case 3:
+                    running = false;
+                    System.out.println("Terima kasih telah menggunakan aplikasi Toko Olahraga!");
+                    break;
+                default:
+                    System.out.println("Pilihan tidak valid.");
+            }
+        }
+    }
+
+    // produk baru masuk di depan urutan tampil, jadi disisipkan dari yang terakhir tampil
+    private static void initializeData() {
+        storage.users().insert(new UserNode("admin", PasswordHash.hash("1234"), "admin"));
+
+        storage.categories().insert(new KategoriNode(1, "Sepatu", "Berbagai macam sepatu olahraga"));
+        storage.categories().insert(new KategoriNode(2, "Pakaian", "Jersey, kaos, dan lainnya"));
+        storage.categories().insert(new KategoriNode(3, "Perlengkapan", "Bola, raket, dll"));
+
+        KategoriNode sepatuCategory = getKategoriByIndex(1);
+        KategoriNode pakaianCategory = getKategoriByIndex(2);
+        KategoriNode perlengkapanCategory = getKategoriByIndex(3);
+
+        storage.products().insert(new ProductNode("Jersey", Money.ofRupiah(200000), 20, pakaianCategory));
+        storage.products().insert(new ProductNode("Bola Basket", Money.ofRupiah(300000), 5, perlengkapanCategory));
+        storage.products().insert(new ProductNode("Sepatu Olahraga", Money.ofRupiah(500000), 10, sepatuCategory));
+    }
+
+    // -Dtoko.storage=memory (bawaan, snapshot di directory), offheap (seperti memory, produk di luar heap dan
+    // snapshot yang sama) atau paged (file halaman di directory/paged, ukuran buffer pool lewat
+    // -Dtoko.pagedPoolPages)
+    static StorageEngine openEngine(Path directory) throws IOException {
+        String kind = System.getProperty("toko.storage", "memory");
+        switch (kind) {
+            case "memory":
+                return new MemoryStorageEngine(directory);
+            case "offheap":
+                return new MemoryStorageEngine(directory, true);
+            case "paged":
+                return new PagedStorageEngine(directory.resolve(PAGED_DIR),
+                        Integer.getInteger("toko.pagedPoolPages", PagedStorageEngine.DEFAULT_POOL_PAGES));
+            default:
+                throw new IOException("toko.storage tidak dikenal: " + kind + " (pilih memory, offheap, atau paged)");
+        }
+    }
+
+    // pulihkan media engine (atau data awal), lalu replay hanya segmen journal sesudah checkpoint-nya
+    static boolean openStore(Path directory) {
+        dataDir = directory;
+        try {
+            storage = openEngine(dataDir);
+        } catch (IOException e) {
+            System.out.println("Data toko tidak dapat dimuat: " + e.getMessage());
+            return false;
+        }
+        try {
+            long firstSegment = storage.recover();
+            if (firstSegment == 0) {
+                // journal yang ada milik engine lain; replay dari awal di atas data awal akan salah
+                if (Files.exists(dataDir.resolve(Snapshot.FILE_NAME))
+                        || Files.exists(dataDir.resolve(PAGED_DIR).resolve(BufferPool.CHECKPOINT_FILE))) {
+                    throw new IOException("data toko ditulis engine lain; jalankan dengan -Dtoko.storage yang sama");
+                }
+                initializeData();
+                // data awal tidak ada di journal, jadi checkpoint pertama dibuat sebelum replay
+                storage.checkpoint(1).write();
+                firstSegment = 1;
+            }
+
+            List<Long> segments = new ArrayList<>();
+            for (long segment : Journal.segments(dataDir)) {
+                if (segment >= firstSegment) {
+                    segments.add(segment);
+                }
+            }
+            // segmen harus bersambung, dan hanya ekor segmen terakhir yang boleh sobek (crash saat menulis).
+            // Selain itu pemulihan berhenti: record sesudah celah bergantung pada record yang hilang.
+            long records = 0;
+            long lastSegment = firstSegment;
+            JournalReplay handler = new JournalReplay(storage);
+            for (int i = 0; i < segments.size(); i++) {
+                long segment = segments.get(i);
+                if (segment != firstSegment + i) {
+                    throw new IOException("segmen journal " + Journal.segmentPath(dataDir, firstSegment + i)
+                            .getFileName() + " hilang; segmen sesudahnya tidak diterapkan");
+                }
+                records += Journal.replay(Journal.segmentPath(dataDir, segment), handler, i == segments.size() - 1);
+                lastSegment = segment;
+            }
+            if (records > 0) {
+                System.out.println("Memulihkan " + records + " perubahan dari journal.");
+            }
+            loadIndexes();
+            journal = new Journal(dataDir, lastSegment, 2);
+            snapshotWriter = Executors.newSingleThreadExecutor(task -> {
+                Thread thread = new Thread(task, "snapshot-writer");
+                thread.setDaemon(true);
+                return thread;
+            });
+            return true;
+        } catch (IOException e) {
+            System.out.println("Data toko tidak dapat dimuat: " + e.getMessage());
+            try {
+                storage.close();
+            } catch (IOException suppressed) {
+                e.addSuppressed(suppressed);
+            }
+            return false;
+        }
+    }
+
+    // sewa aktif, riwayat, dan dashboard dibangun dari transaksi di engine, lalu keranjang dan peringatan stok
+    private static void loadIndexes() {
+        rentalIndex = new RentalIndex();
+        history = new TransactionHistory();
+        dashboard = new Dashboard();
+        List<UserNode> owners = storage.users().all();
+        List<TransactionNode> transactions = new ArrayList<>();
+        long lastId = 0;
+        for (UserNode user : owners) {
+            storage.transactions().scan(user, transactions::add);
+        }
+        for (TransactionNode transaction : transactions) {
+            if (transaction.type.equals("rental") && !transaction.isReturned) {
+                rentalIndex.rentalCreated(transaction);
+            }
+            lastId = Math.max(lastId, transaction.id);
+        }
+        history.loadAll(transactions);
+        dashboard.seed(SalesAnalytics.compute(owners.toArray(new UserNode[0]), storage.transactions(),
+                Runtime.getRuntime().availableProcessors()));
+        nextTransactionId.set(lastId + 1);
+        reservations = new Reservations(storage.products(), storeLock.readLock(), CART_TIMEOUT_MINUTES,
+                TimeUnit.MINUTES);
+        storage.products().addReorderListener(MultiLinkedListTokoOlahraga::recordReorderAlert);
+    }
+
+    // toko hanya di memori tanpa journal, untuk uji beban tanpa biaya fsync
+    static void openMemoryStore() {
+        storage = new MemoryStorageEngine();
+        initializeData();
+        loadIndexes();
+    }
+
+    static void maybeSnapshot() {
+        if (journal != null && journal.recordsInSegment() >= SNAPSHOT_EVERY) {
+            startSnapshot();
+        }
+    }
+
+    // di bawah write lock hanya rotasi journal dan batas checkpoint engine; media ditulis dan journal
+    // dipadatkan di thread latar
+    private static synchronized Future<?> startSnapshot() {
+        if (pendingSnapshot != null && !pendingSnapshot.isDone()) {
+            return pendingSnapshot;
+        }
+        long segment;
+        StorageEngine.Checkpoint checkpoint;
+        storeLock.writeLock().lock();
+        try {
+            segment = journal.rotate();
+            checkpoint = storage.checkpoint(segment);
+        } catch (IOException e) {
+            System.out.println("Gagal membuat snapshot: " + e.getMessage());
+            return null;
+        } finally {
+            storeLock.writeLock().unlock();
+        }
+        pendingSnapshot = snapshotWriter.submit(() -> {
+            try {
+                checkpoint.write();
+                Journal.deleteSegmentsBefore(dataDir, segment);
+            } catch (IOException e) {
+                System.out.println("Gagal menulis snapshot: " + e.getMessage());
+            }
+        });
+        return pendingSnapshot;
+    }
+
+    static void closeStore() {
+        if (reservations != null) {
+            reservations.close();
+        }
+        if (journal == null) {
+            return;
+        }
+        Future<?> snapshot = journal.recordsInSegment() > 0 ? startSnapshot() : pendingSnapshot;
+        try {
+            if (snapshot != null) {
+                snapshot.get();
+            }
+            journal.close();
+            storage.close();
+        } catch (IOException | ExecutionException e) {
+            System.out.println("Gagal menutup data toko: " + e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        snapshotWriter.shutdown();
+        journal = null;
+    }
+
+    // Operasi bisnis tanpa Scanner. Menu memanggil operasi yang sama, LoadGenerator memanggilnya langsung.
+
+    static UserNode login(String username, String password) {
+        return authenticateUser(username, password);
+    }
+
+    // null bila username sudah dipakai
+    static UserNode registerUser(String username, String password) {
+        // PBKDF2 sengaja mahal, jadi dihitung sebelum lock
+        UserNode user = new UserNode(username, PasswordHash.hash(password), "user");
+        storeLock.readLock().lock();
+        try {
+            // cek, record journal, lalu insert tanpa disela registrasi lain untuk username yang sama
+            synchronized (registration) {
+                if (storage.users().get(username) != null) {
+                    return null;
+                }
+                if (journal != null) {
+                    journal.logRegister(user);
+                }
+                storage.users().insert(user);
+                return user;
+            }
+        } finally {
+            storeLock.readLock().unlock();
+        }
+    }
+
+    // null bila nama produk sudah ada
+    static ProductNode createProduct(String name, long price, int stock, KategoriNode kategori) {
+        ProductNode product = new ProductNode(name, price, stock, kategori);
+        storeLock.writeLock().lock();
+        try {
+            if (storage.products().get(name) != null) {
+                return null;
+            }
+            if (journal != null) {
+                journal.logAddProduct(product);
+            }
+            storage.products().insert(product);
+            return product;
+        } finally {
+            storeLock.writeLock().unlock();
+        }
+    }
+
+    static TransactionNode purchase(UserNode user, ProductNode[] products, int[] quantities, long payment) {
+        return checkout(user, new TransactionNode("purchase"), products, quantities, payment);
+    }
+
+    static TransactionNode rent(UserNode user, ProductNode[] products, int[] quantities, int days, long payment) {
+        TransactionNode transaction = new TransactionNode("rental");
+        transaction.duration = days;
+        return checkout(user, transaction, products, quantities, payment);
+    }
+
+    // satu keranjang utuh; null (dan stok dilepas) bila stok tidak cukup atau pembayaran kurang
+    private static TransactionNode checkout(UserNode user, TransactionNode transaction, ProductNode[] products,
+            int[] quantities, long payment) {
+        Reservations.Reservation cart = reservations.open();
+        try {
+            for (int i = 0; i < products.length; i++) {
+                if (!cart.hold(products[i], quantities[i])) {
+                    return null;
+                }
+                transaction.addItem(products[i].name, products[i].price, quantities[i]);
+            }
+            if (transaction.isEmpty() || payment < transaction.getTotalAmount()) {
+                return null;
+            }
+            transaction.paidAmount = payment;
+            transaction.change = payment - transaction.getTotalAmount();
+            return commitTransaction(user, transaction, cart) ? transaction : null;
+        } finally {
+            cart.cancel();
+        }
+    }
+
+    // hasil returnRental, dengan tanggal kembali dan denda yang benar-benar dipakai
+    static final class ReturnReceipt {
+        final int quantity; // 0 bila baris ini sudah dikembalikan atau pembayaran kurang
+        final long returnDate;
+        final int lateDays;
+        final long fee;
+        final long change;
+        final boolean paid; // false bila pembayaran kurang dari denda; tidak ada yang berubah
+
+        ReturnReceipt(int quantity, long returnDate, int lateDays, long fee, long change, boolean paid) {
+            this.quantity = quantity;
+            this.returnDate = returnDate;
+            this.lateDays = lateDays;
+            this.fee = fee;
+            this.change = change;
+            this.paid = paid;
+        }
+    }
+
+    // denda dihitung dari waktu kembali yang dipakai di sini; pengembalian, denda, dan pembayarannya masuk
+    // satu record journal sehingga tidak ada pengembalian tercatat tanpa dendanya
+    static ReturnReceipt returnRental(UserNode user, TransactionNode rental, int line, long payment) {
+        storeLock.readLock().lock();
+        try {
+            long returnDate = System.currentTimeMillis();
+            long fee = lateFee(rental, line, returnDate);
+            int lateDays = rental.lateDays(returnDate);
+            if (payment < fee) {
+                return new ReturnReceipt(0, returnDate, lateDays, fee, 0, false);
+            }
+            // monitor yang sama dengan applyReturn: record journal ditulis sebelum baris ditandai kembali
+            synchronized (rental) {
+                if (rental.isLineReturned(line)) {
+                    return new ReturnReceipt(0, returnDate, lateDays, 0, 0, true);
+                }
+                if (journal != null) {
+                    journal.logReturn(user, rental, rental.lineName(line), returnDate, fee, payment);
+                }
+                int quantity = applyReturn(rental, line, returnDate, fee);
+                return new ReturnReceipt(quantity, returnDate, lateDays, fee, payment - fee, true);
+            }
+        } finally {
+            storeLock.readLock().unlock();
+        }
+    }
+
+    // Baca-saja untuk API HTTP: halaman katalog, sewa aktif, dan laporan yang juga dipakai menu admin.
+
+    static int productCount() {
+        return storage.products().size();
+    }
+
+    // urutan sama dengan viewProducts; offset berbasis 0
+    static List<ProductNode> productPage(int offset, int limit) {
+        return storage.products().page(offset, limit);
+    }
+
+    static ProductNode findProduct(String name) {
+        return getProductByName(name);
+    }
+
+    // lihat ProductSearch.search untuk kecocokan dan urutan hasil
+    static List<ProductNode> searchProducts(String query, int limit) {
+        return storage.products().search(query, limit);
+    }
+
+    static List<String> suggestWords(String prefix, int limit) {
+        return storage.products().suggest(prefix, limit);
+    }
+
+    // lihat ProductRangeIndex.query; hasil terurut harga, halaman berikutnya mulai dari Cursor.after(terakhir)
+    static List<ProductNode> filterProducts(ProductRangeIndex.Filter filter, ProductRangeIndex.Cursor after,
+            int limit) {
+        return storage.products().filter(filter, after, limit);
+    }
+
+    static KategoriNode findKategori(int id) {
+        return getKategoriById(id);
+    }
+
+    // null bila transaksi bukan sewa aktif milik user ini
+    static TransactionNode openRental(UserNode user, long transactionId) {
+        TransactionNode rental = rentalIndex.get(transactionId);
+        return rental != null && rental.allUser.username.equals(user.username) ? rental : null;
+    }
+
+    static List<TransactionNode> openRentals(UserNode user, int limit) {
+        return history.query(new TransactionHistory.Query().user(user).type("rental").returned(false))
+                .nextPage(limit);
+    }
+
+    static SalesAnalytics.Report salesReport() {
+        List<UserNode> owners = storage.users().all();
+        return SalesAnalytics.compute(owners.toArray(new UserNode[0]), storage.transactions(),
+                Runtime.getRuntime().availableProcessors());
+    }
+
+    static Map<KategoriNode, Long> revenueByKategori(SalesAnalytics.Report report) {
+        return report.revenueByKategori(storage.products());
+    }
+
+    static Dashboard dashboard() {
+        return dashboard;
+    }
+
+    static int overdueCount(long now) {
+        return rentalIndex.overdueCount(now);
+    }
+
+    static List<TransactionNode> overdueRentals(long now, int limit) {
+        return rentalIndex.overdue(now, limit);
+    }
+
+    static List<ProductNode> lowStock() {
+        return storage.products().belowReorderLevel();
+    }
+
+    private static void login(Scanner scanner) {
+        System.out.print("Masukkan username: ");
+        String username = scanner.nextLine();
+
+        System.out.print("Masukkan password: ");
+        String password = scanner.nextLine();
+
+        UserNode user = authenticateUser(username, password);
+
+        if (user != null) {
+            System.out.println("Login berhasil! Selamat datang, " + user.username + " (" + user.role + ")");
+            if (user.role.equals("admin")) {
+                adminMenu(scanner, user);
+            } else {
+                userMenu(scanner, user);
+            }
+        } else {
+            System.out.println("Login gagal. Username atau password salah.");
+        }
+    }
+
+    private static void register(Scanner scanner) {
+        while (true) {
+            System.out.print("Masukkan username baru: ");
+            String username = scanner.nextLine();
+
+            if (isUsernameExists(username)) {
+                System.out.println("Username sudah ada. Silakan coba username lain.");
+                continue;
+            }
+
+            System.out.print("Masukkan password baru: ");
+            String password = scanner.nextLine();
+
+            if (registerUser(username, password) == null) {
+                System.out.println("Username sudah ada. Silakan coba username lain.");
+                continue;
+            }
+
+            System.out.println("Registrasi berhasil! Silakan login dengan akun baru Anda.");
+            break;
+        }
+    }
+
+    private static boolean isUsernameExists(String username) {
+        return storage.users().get(username) != null;
+    }
+
+    private static UserNode authenticateUser(String username, String password) {
+        return storage.users().authenticate(username, password);
+    }
+
+    private static void adminMenu(Scanner scanner, UserNode users) {
+        boolean running = true;
+
+        while (running) {
+            maybeSnapshot();
+            System.out.println("\nMenu Admin:");
+            System.out.println("1. Lihat Semua User");
+            System.out.println("2. Lihat Semua Kategori");
+            System.out.println("3. Lihat Semua Produk");
+            System.out.println("4. Lihat Daftar Sewa Produk");
+            System.out.println("5. Lihat Semua Transaksi");
+            System.out.println("6. Cari Riwayat Transaksi");
+            System.out.println("7. Laporan Penjualan");
+            System.out.println("8. Dashboard Hari Ini");
+            System.out.println("9. Keluar");
+            System.out.print("Pilih menu: ");
+
+            if (!scanner.hasNextInt()) {
+                System.out.println("Input tidak valid. Harap masukkan angka.");
+                scanner.nextLine();
+                continue;
+            }
+
+            int choice = scanner.nextInt();
+            scanner.nextLine();
+
+            switch (choice) {
+                case 1:
+                    viewAllUsers();
+                    break;
+                case 2:
+                    viewKategori();
+                    menuKategori(scanner);
+                    break;
+                case 3:
+                    viewProducts(false, scanner);
+                    menuProducts(scanner);
+                    break;
+                case 4:
+                    manageAllRentals(scanner);
+                    break;
+                case 5:
+                    viewAllTransactions(scanner);
+                    break;
+                case 6:
+                    searchTransactions(scanner);
+                    break;
+                case 7:
+                    viewSalesReport();
+                    break;
+                case 8:
+                    viewDashboard();
+                    break;
+                case 9:
+                    running = false;
+                    break;
+                default:
+                    System.out.println("Pilihan tidak valid.");
+            }
+        }
+    }
+
+    private static void userMenu(Scanner scanner, UserNode user) {
+        boolean running = true;
+
+        while (running) {
+            maybeSnapshot();
+            System.out.println("\nMenu User:");
+            System.out.println("1. Lihat Produk");
+            System.out.println("2. Beli Produk");
+            System.out.println("3. Sewa Produk");
+            System.out.println("4. Daftar Sewa Produk");
+            System.out.println("5. Lihat Transaksi Saya");
+            System.out.println("6. Lihat Produk per Kategori");
+            System.out.println("7. Filter Produk");
+            System.out.println("8. Keluar");
+            System.out.print("Pilih menu: ");
+
+            if (!scanner.hasNextInt()) {
+                System.out.println("Input tidak valid. Harap masukkan angka.");
+                scanner.nextLine();
+                continue;
+            }
+
+            int choice = scanner.nextInt();
+            scanner.nextLine();
+
+            switch (choice) {
+                case 1:
+                    viewProducts(false);
+                    break;
+                case 2:
+                    journaled(() -> purchaseProducts(scanner, user));
+                    break;
+                case 3:
+                    journaled(() -> rentProducts(scanner, user));
+                    break;
+                case 4:
+                    journaled(() -> returnRentedProducts(scanner, user));
+                    break;
+                case 5:
+                    viewTransactions(user, scanner);
+                    break;
+                case 6:
+                    browseByKategori(scanner);
+                    break;
+                case 7:
+                    filterProducts(scanner);
+                    break;
+                case 8:
+                    running = false;
+                    break;
+                default:
+                    System.out.println("Pilihan tidak valid.");
+            }
+        }
+    }
+
+    // batas aksi menu yang mengubah data. Record journal ditulis sebelum memori diubah, jadi bila journal
+    // gagal (disk penuh, I/O error) tidak ada yang berubah: cukup dilaporkan, sesi konsol/terminal tetap jalan
+    private static void journaled(Runnable action) {
+        try {
+            action.run();
+        } catch (UncheckedIOException e) {
+            System.out.println("Journal gagal ditulis, perubahan tidak tersimpan: " + e.getCause().getMessage());
+        }
+    }
+
+    private static KategoriNode getKategoriByIndex(int index) {
+        return storage.categories().getByIndex(index);
+    }
+
+    private static KategoriNode getKategoriById(int id) {
+        return storage.categories().get(id);
+    }
+
+    private static void insertKategori(KategoriNode kategori) {
+        storage.categories().insert(kategori);
+    }
+
+    private static boolean isCategoryIdExists(int id) {
+        return storage.categories().get(id) != null;
+    }
+
+    private static void addKategori(Scanner scanner) {
+        System.out.print("Masukkan ID kategori: ");
+        String idInp = scanner.nextLine();
+
+        if (!idInp.matches("\\d+")) {
+            System.out.println("ID Kategori harus berupa angka.");
+            return;
+        }
+
+        int id = Integer.parseInt(idInp);
+
+        if (isCategoryIdExists(id)) {
+            System.out.println("ID Kategori sudah ada, Coba yang lain");
+            return;
+        }
+
+        System.out.print("Masukkan nama kategori: ");
+        String name = scanner.nextLine();
+        if (name.isEmpty()) {
+            System.out.println("Nama Kategori tidak boleh kosong");
+            return;
+        }
+
+        System.out.print("Masukkan deskripsi kategori: ");
+        String description = scanner.nextLine();
+
+        KategoriNode newCategory = new KategoriNode(id, name, description);
+        storeLock.writeLock().lock();
+        try {
+            if (isCategoryIdExists(id)) {
+                System.out.println("ID Kategori sudah ada, Coba yang lain");
+                return;
+            }
+            if (journal != null) {
+                journal.logAddKategori(newCategory);
+            }
+            insertKategori(newCategory);
+        } finally {
+            storeLock.writeLock().unlock();
+        }
+
+        System.out.println("Kategori berhasil ditambahkan.");
+    }
+
+    static boolean isKategoryLinkedToProduct(KategoriNode kategori) {
+        return storage.products().countInKategori(kategori) > 0;
+    }
+
+    private static void editKategori(Scanner scanner) {
+        System.out.println("\n=== Edit Kategori ===");
+        viewKategori();
+
+        System.out.print("Pilih nomor Kategori yang ingin diedit: ");
+        int index = scanner.nextInt();
+        scanner.nextLine();
+
+        KategoriNode kategori = getKategoriByIndex(index);
+        if (kategori == null) {
+            System.out.println("Kategori tidak ditemukan.");
+            return;
+        }
+        if (isKategoryLinkedToProduct(kategori)) {
+            System.out.println("Kategori ini terkait dengan produk. Tidak dapat diedit");
+            return;
+        }
+
+        System.out.print("Masukkan nama baru kategori (kosong untuk tidak mengubah): ");
+        String newName = scanner.nextLine();
+
+        System.out.print("Masukkan deskripsi baru kategori (kosong untuk tidak mengubah): ");
+        String newDescription = scanner.nextLine();
+
+        storeLock.writeLock().lock();
+        try {
+            String name = newName.isEmpty() ? kategori.name : newName;
+            String deskripsi = newDescription.isEmpty() ? kategori.deskripsi : newDescription;
+            if (journal != null) {
+                journal.logEditKategori(kategori.id, name, deskripsi);
+            }
+            storage.categories().update(kategori.id, name, deskripsi);
+        } finally {
+            storeLock.writeLock().unlock();
+        }
+
+        System.out.println("Kategori berhasil diperbarui.");
+    }
+
+    private static void viewKategori() {
+        System.out.println("\nDaftar Kategori:");
+
+        List<KategoriNode> all = storage.categories().all(); // sudah terurut menurut id
+        if (all.isEmpty()) {
+            System.out.println("Tidak ada kategori yang tersedia.");
+            return;
+        }
+
+        int index = 1;
+        for (KategoriNode current : all) {
+            System.out.println(index + ". " + current);
+            index++;
+        }
+    }
+
+    private static final int BROWSE_PAGE_SIZE = 10;
+
+    // telusuri produk satu kategori per halaman; setiap halaman dilanjutkan dari produk terakhir halaman
+    // sebelumnya, jadi tidak bergantung pada jumlah produk di kategori itu
+    private static void browseByKategori(Scanner scanner) {
+        viewKategori();
+        System.out.print("Pilih nomor kategori: ");
+        if (!scanner.hasNextInt()) {
+            System.out.println("Input harus berupa angka!");
+            scanner.nextLine();
+            return;
+        }
+        KategoriNode kategori = getKategoriByIndex(scanner.nextInt());
+        scanner.nextLine();
+        if (kategori == null) {
+            System.out.println("Kategori tidak ditemukan.");
+            return;
+        }
+        int count = storage.products().countInKategori(kategori);
+        if (count == 0) {
+            System.out.println("Belum ada produk di kategori " + kategori.name + ".");
+            return;
+        }
+
+        int pages = (count + BROWSE_PAGE_SIZE - 1) / BROWSE_PAGE_SIZE;
+        // produk terakhir sebelum setiap halaman yang sudah dibuka, null untuk halaman pertama
+        List<ProductNode> starts = new ArrayList<>();
+        starts.add(null);
+        while (true) {
+            List<ProductNode> products = storage.products().inKategori(kategori, starts.get(starts.size() - 1),
+                    BROWSE_PAGE_SIZE);
+            printKategoriPage(storage.products(), kategori, products, starts.size(), pages, count);
+            System.out.print("1. Berikutnya  2. Sebelumnya  0. Kembali: ");
+            if (!scanner.hasNextInt()) {
+                scanner.nextLine();
+                continue;
+            }
+            int choice = scanner.nextInt();
+            scanner.nextLine();
+            if (choice == 0) {
+                return;
+            } else if (choice == 1 && products.size() == BROWSE_PAGE_SIZE && starts.size() < pages) {
+                starts.add(products.get(products.size() - 1));
+            } else if (choice == 2 && starts.size() > 1) {
+                starts.remove(starts.size() - 1);
+            } else {
+                System.out.println("Tidak ada halaman lain ke arah itu.");
+            }
+        }
+    }
+
+    // Seperti filterProducts, nomornya nomor viewProducts sehingga bisa langsung dipakai di menu beli/sewa.
+    static void printKategoriPage(StorageEngine.Products catalog, KategoriNode kategori, List<ProductNode> products,
+            int page, int pages, int count) {
+        ConsoleRenderer out = ConsoleRenderer.open();
+        out.blankLine().line("Kategori " + kategori.name + " - halaman " + page + " dari " + pages + " ("
+                + count + " produk):");
+        for (ProductNode product : products) {
+            productRow(out, catalog.indexOf(product), product, false);
+        }
+        out.close();
+    }
+
+    // viewProducts terfilter: kategori, rentang harga, dan rentang stok lewat ProductRangeIndex, terurut harga.
+    // Nomor yang tampil adalah nomor viewProducts sehingga bisa langsung dipakai di menu beli/sewa; setiap
+    // halaman O(log n + ukuran halaman) karena dilanjutkan dari cursor produk terakhir, bukan dari offset.
+    private static void filterProducts(Scanner scanner) {
+        viewKategori();
+        System.out.print("Pilih nomor kategori (0 untuk semua): ");
+        if (!scanner.hasNextInt()) {
+            System.out.println("Input harus berupa angka!");
+            scanner.nextLine();
+            return;
+        }
+        int kategoriIndex = scanner.nextInt();
+        scanner.nextLine();
+        KategoriNode kategori = kategoriIndex == 0 ? null : getKategoriByIndex(kategoriIndex);
+        if (kategoriIndex != 0 && kategori == null) {
+            System.out.println("Kategori tidak ditemukan.");
+            return;
+        }
+
+        ProductRangeIndex.Filter filter;
+        System.out.println("Kosongkan batas yang tidak dipakai.");
+        try {
+            long minPrice = readBound(scanner, "Harga minimum: ", Long.MIN_VALUE, true);
+            long maxPrice = readBound(scanner, "Harga maksimum: ", Long.MAX_VALUE, true);
+            int minStock = (int) readBound(scanner, "Stok minimum: ", Integer.MIN_VALUE, false);
+            int maxStock = (int) readBound(scanner, "Stok maksimum: ", Integer.MAX_VALUE, false);
+            filter = new ProductRangeIndex.Filter(kategori, minPrice, maxPrice, minStock, maxStock);
+        } catch (NumberFormatException e) {
+            System.out.println("Input harus berupa angka!");
+            return;
+        }
+
+        Deque<ProductRangeIndex.Cursor> previous = new ArrayDeque<>();
+        ProductRangeIndex.Cursor cursor = ProductRangeIndex.Cursor.START;
+        while (true) {
+            List<ProductNode> page = filterProducts(filter, cursor, BROWSE_PAGE_SIZE + 1);
+            boolean more = page.size() > BROWSE_PAGE_SIZE;
+            if (more) {
+                page = page.subList(0, BROWSE_PAGE_SIZE);
+            }
+            ConsoleRenderer out = ConsoleRenderer.open();
+            out.blankLine().line("Hasil filter - halaman " + (previous.size() + 1) + " (urut harga):");
+            if (page.isEmpty()) {
+                out.line("Tidak ada produk yang cocok.");
+            }
+            for (ProductNode product : page) {
+                productRow(out, storage.products().indexOf(product), product, false);
+            }
+            out.close();
+            if (!more && previous.isEmpty()) {
+                return;
+            }
+
+            System.out.print("1. Berikutnya  2. Sebelumnya  0. Kembali: ");
+            if (!scanner.hasNextInt()) {
+                scanner.nextLine();
+                continue;
+            }
+            int choice = scanner.nextInt();
+            scanner.nextLine();
+            if (choice == 0) {
+                return;
+            } else if (choice == 1 && more) {
+                previous.push(cursor);
+                cursor = ProductRangeIndex.Cursor.after(page.get(page.size() - 1));
+            } else if (choice == 2 && !previous.isEmpty()) {
+                cursor = previous.pop();
+            } else {
+                System.out.println("Tidak ada halaman lain ke arah itu.");
+            }
+        }
+    }
+
+    // batas opsional satu baris: kosong berarti fallback (tanpa batas), selain angka NumberFormatException
+    private static long readBound(Scanner scanner, String prompt, long fallback, boolean money) {
+        System.out.print(prompt);
+        String text = scanner.nextLine().trim();
+        if (text.isEmpty()) {
+            return fallback;
+        }
+        Scanner value = new Scanner(text);
+        if (money ? !value.hasNextBigDecimal() : !value.hasNextInt()) {
+            throw new NumberFormatException(text);
+        }
+        return money ? Money.of(value.nextBigDecimal()) : value.nextInt();
+    }
+
+    private static final int LISTING_PAGE_SIZE = 50; // record per halaman pada listing admin
+    private static final int HISTORY_PAGE_SIZE = 10;
+    private static final int TOP_PRODUCTS = 10;
+    private static final int RESTOCK_SUGGESTIONS = 5;
+    private static final int LATE_FEE_PERCENT = 20; // denda per hari = tarif sewa harian
+    private static final int OVERDUE_SHOWN = 20;
+    private static final int SEARCH_SUGGESTIONS = 5;
+    private static final int REPORT_DAYS = 30; // hari terbaru yang ditampilkan di laporan
+    private static final ConsoleRenderer.Template PRODUCT_ROW =
+            ConsoleRenderer.Template.compile("{}. Nama: {}, Harga: Rp{}, Stok: {}, Kategori: {}");
+    private static final ConsoleRenderer.Template TX_TYPE = ConsoleRenderer.Template.compile("Jenis Transaksi: {}");
+    private static final ConsoleRenderer.Template TX_DATE = ConsoleRenderer.Template.compile("Tanggal Transaksi: {}");
+    private static final ConsoleRenderer.Template TX_LINE = ConsoleRenderer.Template.compile(
+            "Produk: {}, Jumlah: {}, Harga Satuan: Rp{}, Total: Rp{}, Status: {}");
+    private static final ConsoleRenderer.Template TX_TOTAL = ConsoleRenderer.Template.compile("Total Transaksi: Rp{}");
+    private static final ConsoleRenderer.Template TX_SUMMARY =
+            ConsoleRenderer.Template.compile("Total: Rp{}, Dibayar: Rp{}, Kembalian: Rp{}");
+    private static final ConsoleRenderer.Template TX_PAID =
+            ConsoleRenderer.Template.compile("Dibayar: Rp{}, Kembalian: Rp{}");
+    private static final ConsoleRenderer.Template TX_DURATION = ConsoleRenderer.Template.compile("Durasi Sewa: {} hari");
+    private static final ConsoleRenderer.Template TX_STATUS = ConsoleRenderer.Template.compile("Status: {}");
+    private static final ConsoleRenderer.Template TX_RETURNED =
+            ConsoleRenderer.Template.compile("Tanggal Pengembalian: {}");
+    private static final ConsoleRenderer.Template TX_OWNER = ConsoleRenderer.Template.compile("Transaksi untuk: {}");
+
+    private static void viewProducts(boolean isRental) {
+        printProducts(storage.products(), isRental, null);
+    }
+
+    // listing admin: berhenti setiap LISTING_PAGE_SIZE produk
+    private static void viewProducts(boolean isRental, Scanner pager) {
+        printProducts(storage.products(), isRental, pager);
+    }
+
+    static void printProducts(StorageEngine.Products products, boolean isRental, Scanner pager) {
+        ConsoleRenderer out = ConsoleRenderer.open(pager, LISTING_PAGE_SIZE);
+        out.blankLine().line("Daftar Produk:");
+
+        if (products.size() == 0) {
+            out.line("Tidak ada produk yang tersedia.");
+            out.close();
+            return;
+        }
+
+        int[] index = { 1 };
+        products.scan(product -> {
+            if (!out.record()) {
+                return false;
+            }
+            productRow(out, index[0]++, product, isRental);
+            return true;
+        });
+        out.close();
+    }
+
+    private static void productRow(ConsoleRenderer out, int index, ProductNode product, boolean isRental) {
+        String kategoriInfo = (product.kategori != null)
+                ? product.kategori.name
+                : "Tidak ada kategori";
+        long displayPrice = isRental ? Money.percent(product.price, 20) : product.price;
+
+        out.row(PRODUCT_ROW).number(index).text(product.name).money(displayPrice).number(product.stock)
+                .text(kategoriInfo);
+    }
+
+    // Katalog yang muat satu halaman listing tetap ditampilkan utuh sebelum setiap pilihan. Katalog yang
+    // lebih besar tidak dicetak lagi: pembeli mengetik kata kunci lalu memilih nomor dari hasil pencarian.
+    // Nomor yang dikembalikan selalu nomor urut viewProducts.
+    private static int chooseProduct(Scanner scanner, boolean isRental, String prompt) {
+        boolean list = true;
+        while (true) {
+            if (list && storage.products().size() <= LISTING_PAGE_SIZE) {
+                viewProducts(isRental);
+            } else if (list) {
+                System.out.printf("%nKatalog berisi %d produk. Ketik nama atau kata kunci untuk mencari.%n",
+                        storage.products().size());
+            }
+            System.out.print(prompt);
+            if (scanner.hasNextInt()) {
+                int index = scanner.nextInt();
+                scanner.nextLine();
+                return index;
+            }
+            printSearchResults(scanner.nextLine().trim(), isRental);
+            list = false;
+        }
+    }
+
+    private static void printSearchResults(String query, boolean isRental) {
+        List<ProductNode> found = searchProducts(query, ProductSearch.DEFAULT_LIMIT);
+        ConsoleRenderer out = ConsoleRenderer.open();
+        out.blankLine().line("Hasil pencarian \"" + query + "\":");
+        if (found.isEmpty()) {
+            out.line("Tidak ada produk yang cocok.");
+        }
+        for (ProductNode product : found) {
+            productRow(out, storage.products().indexOf(product), product, isRental);
+        }
+        List<String> words = new ArrayList<>(ProductSearch.tokens(query));
+        if (!words.isEmpty() && Character.isLetterOrDigit(query.charAt(query.length() - 1))) {
+            List<String> suggestions = suggestWords(words.get(words.size() - 1), SEARCH_SUGGESTIONS);
+            if (suggestions.size() > 1) {
+                out.line("Saran kata: " + String.join(", ", suggestions));
+            }
+        }
+        out.close();
+    }
+
+    private static void menuKategori(Scanner scanner) {
+        boolean running = true;
+        while (running) {
+            System.out.println("\nMenu Kategori:");
+            System.out.println("1. Tambah Kategori");
+            System.out.println("2. Edit Kategori");
+            System.out.println("3. Keluar");
+            System.out.print("Pilih menu: ");
+
+            if (!scanner.hasNextInt()) {
+                System.out.println("Input tidak valid. Harap masukkan angka.");
+                scanner.nextLine();
+                continue;
+            }
+
+            int choice = scanner.nextInt();
+            scanner.nextLine();
+
+            switch (choice) {
+                case 1:
+                    journaled(() -> addKategori(scanner));
+                    break;
+                case 2:
+                    journaled(() -> editKategori(scanner));
+                    break;
+                case 3:
+                    running = false;
+                    break;
+                default:
+                    System.out.println("Pilihan tidak valid.");
+            }
+        }
+    }
+
+    private static void menuProducts(Scanner scanner) {
+        boolean running = true;
+        while (running) {
+            System.out.println("\nMenu Produk:");
+            System.out.println("1. Tambah Produk");
+            System.out.println("2. Tambah Stok Produk");
+            System.out.println("3. Edit Produk");
+            System.out.println("4. Delete Produk");
+            System.out.println("5. Keluar");
+            System.out.print("Pilih menu: ");
+
+            if (!scanner.hasNextInt()) {
+                System.out.println("Input tidak valid. Harap masukkan angka.");
+                scanner.nextLine();
+                continue;
+            }
+
+            int choice = scanner.nextInt();
+            scanner.nextLine();
+
+            switch (choice) {
+                case 1:
+                    journaled(() -> addProduct(scanner));
+                    break;
+                case 2:
+                    journaled(() -> addStokProduct(scanner));
+                    break;
+                case 3:
+                    journaled(() -> editProduct(scanner));
+                    break;
+                case 4:
+                    journaled(() -> deleteProduct(scanner));
+                    break;
+                case 5:
+                    running = false;
+                    break;
+                default:
+                    System.out.println("Pilihan tidak valid.");
+            }
+        }
+    }
+
+    private static void addProduct(Scanner scanner) {
+        System.out.println("\n=== Tambah Produk Baru ===");
+
+        System.out.print("Masukkan nama produk: ");
+        String name = scanner.nextLine();
+        if (name.isEmpty()) {
+            System.out.println("Nama produk tidak boleh kosong");
+            return;
+        }
+        if (getProductByName(name) != null) {
+            System.out.println("Nama produk sudah ada, Coba yang lain");
+            return;
+        }
+
+        System.out.print("Masukkan harga produk: ");
+        long price = readMoney(scanner);
+
+        System.out.print("Masukkan stok produk: ");
+        int stock = scanner.nextInt();
+        scanner.nextLine();
+
+        System.out.println("Pilih Kategori untuk Produk: ");
+        viewKategori();
+
+        int kategoriIndex = -1;
+        KategoriNode kategori = null;
+
+        while (kategori == null) {
+            System.out.print("Masukkan ID Kategori: ");
+            if (scanner.hasNextInt()) {
+                kategoriIndex = scanner.nextInt();
+                scanner.nextLine();
+                kategori = getKategoriByIndex(kategoriIndex);
+
+                if (kategori == null) {
+                    System.out.println("Kategori tidak ditemukan. Silakan masukkan ID yang valid.");
+                }
+            } else {
+                System.out.println("Input harus berupa angka! Silakan coba lagi.");
+                scanner.nextLine();
+            }
+        }
+
+        if (createProduct(name, price, stock, kategori) == null) {
+            System.out.println("Nama produk sudah ada, Coba yang lain");
+            return;
+        }
+
+        System.out.println("Produk berhasil ditambahkan.");
+
+    }
+
+    private static void addStokProduct(Scanner scanner) {
+        System.out.println("\n=== Tambah Stok Produk ===");
+        List<ProductNode> lowest = storage.products().lowest(RESTOCK_SUGGESTIONS);
+        if (!lowest.isEmpty()) {
+            System.out.println("Stok terendah:");
+            for (ProductNode product : lowest) {
+                System.out.println("- " + product.name + ": " + product.stock);
+            }
+        }
+        viewProducts(false);
+
+        int index = -1;
+        ProductNode product = null;
+
+        while (product == null) {
+            System.out.print("Pilih nomor produk untuk menambahkan stok: ");
+            if (scanner.hasNextInt()) {
+                index = scanner.nextInt();
+                scanner.nextLine();
+
+                if (index < 1) {
+                    System.out.println("Indeks tidak valid. Masukkan nomor produk yang benar.");
+                } else {
+                    product = getProductByIndex(index);
+                    if (product == null) {
+                        System.out.println("Produk tidak ditemukan. Masukkan nomor produk yang valid.");
+                    }
+                }
+            } else {
+                System.out.println("Input harus berupa angka! Silakan coba lagi.");
+                scanner.nextLine();
+            }
+        }
+
+        System.out.println("Produk terpilih: " + product.name + " (Stok saat ini: " + product.stock + ")");
+
+        int stokTambah = -1;
+
+        while (stokTambah <= 0) {
+            System.out.print("Masukkan jumlah stok yang ingin ditambahkan: ");
+            if (scanner.hasNextInt()) {
+                stokTambah = scanner.nextInt();
+                scanner.nextLine();
+
+                if (stokTambah <= 0) {
+                    System.out.println("Jumlah stok harus lebih dari 0. Silakan coba lagi.");
+                }
+            } else {
+                System.out.println("Input harus berupa angka! Silakan coba lagi.");
+                scanner.nextLine();
+            }
+        }
+
+        int stokBaru;
+        storeLock.readLock().lock();
+        try {
+            if (journal != null) {
+                journal.logAddStok(product, stokTambah);
+            }
+            storage.products().addStock(product.name, stokTambah);
+            stokBaru = getProductByName(product.name).stock;
+        } finally {
+            storeLock.readLock().unlock();
+        }
+        System.out.println("Stok berhasil ditambahkan.");
+        System.out.println("Stok awal: " + (stokBaru - stokTambah));
+        System.out.println("Jumlah ditambahkan: " + stokTambah);
+        System.out.println("Stok baru: " + stokBaru);
+    }
+
+    private static void editProduct(Scanner scanner) {
+        System.out.println("\n=== Edit Produk ===");
+        viewProducts(false);
+
+        ProductNode product = null;
+        int index = -1;
+
+        while (product == null) {
+            System.out.print("Pilih nomor produk yang ingin diedit: ");
+            if (scanner.hasNextInt()) {
+                index = scanner.nextInt();
+                scanner.nextLine();
+
+                if (index < 1) {
+                    System.out.println("Nomor produk tidak valid. Masukkan nomor produk yang benar.");
+                } else {
+                    product = getProductByIndex(index);
+                    if (product == null) {
+                        System.out.println("Produk tidak ditemukan. Masukkan nomor produk yang valid.");
+                    }
+                }
+            } else {
+                System.out.println("Input harus berupa angka! Silakan coba lagi.");
+                scanner.nextLine();
+            }
+        }
+
+        System.out.println("Produk yang dipilih: " + product);
+        if (product.reserved > 0) {
+            System.out.println("Stok fisik " + (product.stock + product.reserved) + ", " + product.reserved
+                    + " di antaranya sedang dipegang keranjang.");
+        }
+        String oldName = product.name;
+
+        // perubahan dikumpulkan dulu, lalu diterapkan dan dicatat sekaligus
+        System.out.print("Masukkan nama baru produk (kosong untuk tidak mengubah): ");
+        String name = scanner.nextLine();
+
+        long price = -1;
+        while (price < 0) {
+            System.out.print("Masukkan harga baru produk (0 untuk tidak mengubah): ");
+            if (scanner.hasNextBigDecimal()) {
+                price = Money.of(scanner.nextBigDecimal());
+                scanner.nextLine();
+                if (price < 0) {
+                    System.out.println("Harga tidak boleh negatif. Silakan coba lagi.");
+                }
+            } else {
+                System.out.println("Input harus berupa angka! Silakan coba lagi.");
+                scanner.nextLine();
+            }
+        }
+
+        int stock = -2;
+        while (stock < -1) {
+            System.out.print("Masukkan stok fisik baru produk (-1 untuk tidak mengubah): ");
+            if (scanner.hasNextInt()) {
+                stock = scanner.nextInt();
+                scanner.nextLine();
+                if (stock < -1) {
+                    System.out.println("Stok tidak boleh kurang dari -1. Silakan coba lagi.");
+                }
+            } else {
+                System.out.println("Input harus berupa angka! Silakan coba lagi.");
+                scanner.nextLine();
+            }
+        }
+
+        int kategoriIndex = -1;
+        KategoriNode kategori = null;
+        while (kategoriIndex < 0) {
+            System.out.println("Pilih kategori baru untuk produk (0 untuk tidak mengubah):");
+            viewKategori();
+            System.out.print("Masukkan nomor kategori: ");
+            if (scanner.hasNextInt()) {
+                kategoriIndex = scanner.nextInt();
+                scanner.nextLine();
+                if (kategoriIndex == 0) {
+                    break;
+                } else {
+                    kategori = getKategoriByIndex(kategoriIndex);
+                    if (kategori == null) {
+                        System.out.println("Kategori tidak valid. Silakan coba lagi.");
+                        kategoriIndex = -1;
+                    }
+                }
+            } else {
+                System.out.println("Input harus berupa angka! Silakan coba lagi.");
+                scanner.nextLine();
+            }
+        }
+
+        storeLock.writeLock().lock();
+        try {
+            // keranjang memegang stok lewat read lock, jadi stok dan reserved tetap selama write lock ini
+            product = getProductByName(oldName);
+            if (product == null) {
+                System.out.println("Produk tidak ditemukan.");
+                return;
+            }
+            String newName = oldName;
+            if (!name.isEmpty()) {
+                ProductNode existing = getProductByName(name);
+                if (existing != null && !existing.name.equalsIgnoreCase(oldName)) {
+                    System.out.println("Nama produk sudah ada, nama tidak diubah.");
+                } else if (rentalIndex.isRented(product.name)) {
+                    System.out.println("Produk sedang disewa, nama tidak diubah.");
+                } else if (product.reserved > 0) {
+                    // keranjang melepas atau membayar stoknya lewat nama produk
+                    System.out.println("Produk sedang ada di keranjang, nama tidak diubah.");
+                } else {
+                    newName = name;
+                }
+            }
+            int onHand = stock >= 0 ? stock : product.stock + product.reserved;
+            if (onHand < product.reserved) {
+                System.out.println("Stok tidak boleh kurang dari " + product.reserved
+                        + " unit yang sedang dipegang keranjang.");
+                return;
+            }
+            long newPrice = price > 0 ? price : product.price;
+            KategoriNode newKategori = kategori != null ? kategori : product.kategori;
+            if (journal != null) {
+                journal.logEditProduct(oldName, newName, newPrice, onHand, newKategori);
+            }
+            if (!storage.products().update(oldName, newName, newPrice, onHand, newKategori)) {
+                // tidak terjadi setelah cek di atas; replay record-nya gagal dengan cara yang sama
+                System.out.println("Produk gagal diperbarui.");
+                return;
+            }
+        } finally {
+            storeLock.writeLock().unlock();
+        }
+        System.out.println("Produk berhasil diperbarui.");
+    }
+
+    // membaca nominal rupiah (boleh desimal) sebagai fixed-point sen
+    private static long readMoney(Scanner scanner) {
+        while (!scanner.hasNextBigDecimal()) {
+            System.out.println("Input harus berupa angka! Silakan coba lagi.");
+            scanner.nextLine();
+        }
+        return Money.of(scanner.nextBigDecimal());
+    }
+
+    private static ProductNode getProductByIndex(int index) {
+        List<ProductNode> page = storage.products().page(index - 1, 1);
+        return page.isEmpty() ? null : page.get(0);
+    }
+
+    private static ProductNode getProductByName(String productName) {
+        return storage.products().get(productName);
+    }
+
+    // private static double getProductPriceByName(String productName) {
+    // ProductNode current = productHead;
+    // while (current != null) {
+    // if (current.name.equals(productName)) {
+    // return current.price;
+    // }
+    // current = current.next;
+    // }
+    // return 0;
+    // }
+
+    private static void deleteProduct(Scanner scanner) {
+        System.out.println("\n=== Hapus Produk ===");
+        viewProducts(false);
+
+        System.out.print("Pilih nomor produk yang ingin dihapus: ");
+        int index = scanner.nextInt();
+        scanner.nextLine();
+
+        if (index < 1) {
+            System.out.println("Indeks tidak valid. Masukkan nomor produk yang benar.");
+            return;
+        }
+
+        ProductNode productToDelete = getProductByIndex(index);
+        if (productToDelete == null) {
+            System.out.println("Produk tidak ditemukan.");
+            return;
+        }
+
+        storeLock.writeLock().lock();
+        try {
+            // Validasi apakah produk sedang disewa
+            if (isProductRented(productToDelete.name)) {
+                System.out.println("Produk sedang disewa oleh pengguna dan tidak dapat dihapus.");
+                return;
+            }
+
+            if (getProductByName(productToDelete.name) == null) {
+                System.out.println("Produk tidak ditemukan.");
+                return;
+            }
+            if (journal != null) {
+                journal.logDeleteProduct(productToDelete);
+            }
+            storage.products().delete(productToDelete.name);
+        } finally {
+            storeLock.writeLock().unlock();
+        }
+
+        System.out.println("Produk berhasil dihapus.");
+    }
+
+    private static boolean isProductRented(String productName) {
+        return rentalIndex.isRented(productName);
+    }
+
+    private static void purchaseProducts(Scanner scanner, UserNode user) {
+        TransactionNode transaction = new TransactionNode("purchase");
+        Reservations.Reservation cart = reservations.open();
+        try {
+            purchaseProducts(scanner, user, transaction, cart);
+        } finally {
+            cart.cancel(); // tidak berefek bila sudah dibayar
+        }
+    }
+
+    private static void purchaseProducts(Scanner scanner, UserNode user, TransactionNode transaction,
+            Reservations.Reservation cart) {
+        boolean shopping = true;
+        long bayar, kembalian;
+        while (shopping) {
+            int index = chooseProduct(scanner, false, "Pilih nomor produk atau ketik kata kunci (0 untuk selesai): ");
+
+            if (index == 0) {
+                shopping = false;
+            } else {
+                ProductNode product = getProductByIndex(index);
+                if (product != null && product.stock > 0) {
+                    System.out.print("Masukkan jumlah: ");
+                    int quantity = scanner.nextInt();
+                    scanner.nextLine();
+
+                    if (!cart.hold(product, quantity)) {
+                        if (!cart.isOpen()) {
+                            System.out.println("Waktu keranjang habis, stok dilepas. Transaksi dibatalkan.");
+                            return;
+                        }
+                        System.out.println("Stok tidak cukup!");
+                    } else {
+                        transaction.addItem(product.name, product.price, quantity);
+                        System.out.println(product.name + " x" + quantity + " berhasil ditambahkan ke keranjang.");
+                    }
+                } else {
+                    System.out.println("Produk tidak ditemukan atau stok habis.");
+                }
+            }
+        }
+
+        if (!transaction.isEmpty()) {
+            System.out.printf("\nTotal: Rp%s%n", Money.format(transaction.getTotalAmount()));
+
+            while (true) {
+                System.out.print("Masukkan Pembayaran: ");
+                bayar = readMoney(scanner);
+                scanner.nextLine();
+
+                if (bayar < transaction.getTotalAmount()) {
+                    System.out.printf("Pembayaran Masih Kurang!");
+                    System.out.println("Silakan masukkan pembayaran lagi.");
+                } else {
+                    kembalian = bayar - transaction.getTotalAmount();
+                    transaction.paidAmount = bayar;
+                    transaction.change = kembalian;
+                    if (!commitTransaction(user, transaction, cart)) {
+                        System.out.println("Waktu keranjang habis, stok dilepas. Transaksi dibatalkan.");
+                        break;
+                    }
+                    System.out.printf("Kembalian: Rp%s%n", Money.format(kembalian));
+                    System.out.println("Transaksi Berhasil - Pembayaran Berhasil!");
+                    break;
+                }
+            }
+        } else {
+            System.out.println("Keranjang kosong, transaksi dibatalkan.");
+        }
+    }
+
+    private static void rentProducts(Scanner scanner, UserNode user) {
+        TransactionNode transaction = new TransactionNode("rental");
+        Reservations.Reservation cart = reservations.open();
+        try {
+            rentProducts(scanner, user, transaction, cart);
+        } finally {
+            cart.cancel();
+        }
+    }
+
+    private static void rentProducts(Scanner scanner, UserNode user, TransactionNode transaction,
+            Reservations.Reservation cart) {
+        boolean renting = true;
+        long bayar, kembalian;
+        int days = 0;
+
+        while (renting) {
+            int index = chooseProduct(scanner, true,
+                    "Pilih nomor produk untuk disewa atau ketik kata kunci (0 untuk selesai): ");
+
+            if (index == 0) {
+                renting = false;
+            } else {
+                ProductNode product = getProductByIndex(index);
+                if (product != null && product.stock > 0) {
+                    System.out.print("Masukkan jumlah: ");
+                    int quantity = scanner.nextInt();
+                    scanner.nextLine();
+
+                    System.out.print("Masukkan durasi sewa (dalam hari): ");
+                    days = scanner.nextInt();
+                    scanner.nextLine();
+
+                    if (!cart.hold(product, quantity)) {
+                        if (!cart.isOpen()) {
+                            System.out.println("Waktu keranjang habis, stok dilepas. Penyewaan dibatalkan.");
+                            return;
+                        }
+                        System.out.println("Stok tidak cukup!");
+                    } else {
+                        long totalRentalPrice = Money.percent(Money.times(product.price, (long) days * quantity), 20);
+
+                        transaction.addItem(product.name, product.price, quantity);
+                        System.out.printf(
+                                "%s x%d selama %d hari berhasil ditambahkan ke keranjang sewa (Harga: Rp%s).%n",
+                                product.name, quantity, days, Money.format(totalRentalPrice));
+                    }
+                } else {
+                    System.out.println("Produk tidak ditemukan atau stok habis.");
+                }
+            }
+        }
+
+        transaction.duration = days;
+
+        if (!transaction.isEmpty()) {
+            System.out.printf("Total Sewa: Rp%s%n", Money.format(transaction.getTotalAmount()));
+            System.out.print("Masukkan Pembayaran: ");
+            bayar = readMoney(scanner);
+            scanner.nextLine();
+
+            while (bayar < transaction.getTotalAmount()) {
+                System.out.println("Pembayaran kurang, silakan masukkan kembali:");
+                System.out.printf("Kurang: Rp%s%n", Money.format(transaction.getTotalAmount() - bayar));
+                bayar += readMoney(scanner);
+                scanner.nextLine();
+            }
+
+            kembalian = bayar - transaction.getTotalAmount();
+            transaction.paidAmount = bayar;
+            transaction.change = kembalian;
+            if (!commitTransaction(user, transaction, cart)) {
+                System.out.println("Waktu keranjang habis, stok dilepas. Penyewaan dibatalkan.");
+                return;
+            }
+
+            System.out.printf("Kembalian: Rp%s%n", Money.format(kembalian));
+            System.out.println("Transaksi Berhasil - Pembayaran Berhasil!");
+        } else {
+            System.out.println("Keranjang kosong, penyewaan dibatalkan.");
+        }
+    }
+
+    // transaksi baru tercatat di riwayat user (dan journal) setelah pembayaran berhasil.
+    // Reservasi keranjang di-commit di bawah lock yang sama; false bila sudah kedaluwarsa.
+    // Saat replay tidak ada reservasi (cart null), stok sudah dikurangi oleh handler dan waktu commit dibawa
+    // record journal-nya.
+    private static boolean commitTransaction(UserNode user, TransactionNode transaction,
+            Reservations.Reservation cart) {
+        storeLock.readLock().lock();
+        try {
+            if (cart != null && !cart.isOpen()) {
+                return false; // kedaluwarsa, jangan memakai nomor transaksi
+            }
+            if (transaction.id == 0) {
+                transaction.id = nextTransactionId.getAndIncrement();
+            }
+            if (transaction.committedAt == 0 && cart != null) {
+                transaction.committedAt = System.currentTimeMillis();
+            }
+            transaction.freeze();
+            transaction.allUser = user;
+            // record journal ditulis sebelum stok keranjang menjadi terjual dan sebelum transaksi tercatat
+            Runnable record = () -> {
+                if (journal != null) {
+                    journal.logTransaction(user, transaction);
+                }
+            };
+            if (cart == null) {
+                record.run();
+            } else if (!cart.commit(record)) {
+                return false;
+            }
+            storage.transactions().append(user, transaction);
+            if (transaction.type.equals("rental")) {
+                rentalIndex.rentalCreated(transaction);
+            }
+            history.add(transaction);
+            dashboard.transactionCommitted(transaction);
+            return true;
+        } finally {
+            storeLock.readLock().unlock();
+        }
+    }
+
+    // mengembalikan 0 bila baris ini sudah dikembalikan lewat terminal lain
+    private static int applyReturn(TransactionNode transaction, int line, long returnDate, long fee) {
+        synchronized (transaction) {
+            if (transaction.isLineReturned(line)) {
+                return 0;
+            }
+            int quantity = transaction.lineQuantity(line);
+
+            // mengembalikan stok produk
+            storage.products().addStock(transaction.lineName(line), quantity);
+
+            // merubah status barang
+            storage.transactions().markReturned(transaction, line, returnDate, fee);
+            rentalIndex.itemReturned(transaction, line);
+            dashboard.itemReturned(transaction, line, returnDate, fee);
+            return quantity;
+        }
+    }
+
+    private static void returnRentedProducts(Scanner scanner, UserNode user) {
+        System.out.println("\nDaftar Penyewaan:");
+        List<TransactionNode> rentedTransactions = new ArrayList<>();
+        List<Integer> rentedLines = new ArrayList<>();
+
+        // mengumpulkan barang yang masih disewa (transaksi + nomor baris)
+        for (TransactionNode rental : openRentals(user, Integer.MAX_VALUE)) {
+            for (int line = 0; line < rental.lineCount(); line++) {
+                if (!rental.isLineReturned(line)) {
+                    rentedTransactions.add(rental);
+                    rentedLines.add(line);
+                }
+            }
+        }
+
+        if (rentedTransactions.isEmpty()) {
+            System.out.println("Tidak ada barang yang sedang disewa.");
+            return;
+        }
+
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < rentedTransactions.size(); i++) {
+            TransactionNode rental = rentedTransactions.get(i);
+            int line = rentedLines.get(i);
+            int lateDays = rental.lateDays(now);
+            if (lateDays > 0) {
+                System.out.printf("%d. %s x%d (terlambat %d hari)%n", i + 1, rental.lineName(line),
+                        rental.lineQuantity(line), lateDays);
+            } else {
+                System.out.printf("%d. %s x%d%n", i + 1, rental.lineName(line), rental.lineQuantity(line));
+            }
+        }
+
+        System.out.print("Pilih nomor produk yang ingin dikembalikan: ");
+        int productIndex = scanner.nextInt();
+        scanner.nextLine();
+
+        if (productIndex < 1 || productIndex > rentedTransactions.size()) {
+            System.out.println("Pilihan tidak valid.");
+            return;
+        }
+
+        TransactionNode transaction = rentedTransactions.get(productIndex - 1);
+        int line = rentedLines.get(productIndex - 1);
+        String selectedProductName = transaction.lineName(line);
+
+        // denda dibayar sebelum pengembalian dicatat; bila denda bertambah selama menunggu (lewat tengah
+        // malam), pembayaran diminta lagi dengan denda baru
+        now = System.currentTimeMillis();
+        long fee = lateFee(transaction, line, now);
+        int lateDays = transaction.lateDays(now);
+        ReturnReceipt receipt;
+        while (true) {
+            long bayar = 0;
+            if (fee > 0) {
+                System.out.printf("Terlambat %d hari. Denda: Rp%s%n", lateDays, Money.format(fee));
+                while (true) {
+                    System.out.print("Masukkan Pembayaran Denda: ");
+                    bayar = readMoney(scanner);
+                    scanner.nextLine();
+                    if (bayar >= fee) {
+                        break;
+                    }
+                    System.out.println("Pembayaran Masih Kurang! Silakan masukkan pembayaran lagi.");
+                }
+            }
+            receipt = returnRental(user, transaction, line, bayar);
+            if (receipt.paid) {
+                break;
+            }
+            fee = receipt.fee;
+            lateDays = receipt.lateDays;
+        }
+        if (receipt.quantity == 0) {
+            System.out.println("Barang ini sudah dikembalikan.");
+            return;
+        }
+
+        System.out.printf("%s x%d berhasil dikembalikan.%n", selectedProductName, receipt.quantity);
+        if (receipt.fee > 0) {
+            System.out.printf("Denda: Rp%s, Kembalian: Rp%s%n", Money.format(receipt.fee),
+                    Money.format(receipt.change));
+        }
+    }
+
+    // denda satu baris sewa: tarif sewa harian x jumlah x hari terlambat. Dihitung ulang dari tanggal sewa,
+    // durasi dan tanggal kembali, jadi tidak perlu disimpan di journal maupun snapshot.
+    static long lateFee(TransactionNode rental, int line, long returnDate) {
+        int lateDays = rental.lateDays(returnDate);
+        if (lateDays == 0) {
+            return 0;
+        }
+        return Money.times(Money.percent(rental.linePrice(line), LATE_FEE_PERCENT),
+                (long) rental.lineQuantity(line) * lateDays);
+    }
+
+    private static void manageAllRentals(Scanner scanner) {
+        long now = System.currentTimeMillis();
+        int overdueCount = rentalIndex.overdueCount(now);
+        System.out.println("\nSewa Terlambat: " + overdueCount);
+        for (TransactionNode rental : rentalIndex.overdue(now, OVERDUE_SHOWN)) {
+            long fee = 0;
+            for (int line = 0; line < rental.lineCount(); line++) {
+                if (!rental.isLineReturned(line)) {
+                    fee += lateFee(rental, line, now);
+                }
+            }
+            System.out.printf("- %s: jatuh tempo %tF, terlambat %d hari, denda berjalan Rp%s%n",
+                    rental.allUser.username, rental.dueDate(), rental.lateDays(now), Money.format(fee));
+        }
+        if (overdueCount > OVERDUE_SHOWN) {
+            System.out.println("  ... dan " + (overdueCount - OVERDUE_SHOWN) + " lainnya");
+        }
+
+        System.out.println("\nDaftar Semua Penyewaan:");
+        boolean hasRentals = false;
+
+        for (TransactionNode rental : rentalIndex.openRentals()) { // hanya sewa yang masih aktif
+            System.out.printf("User: %s\n", rental.allUser.username);
+            for (int line = 0; line < rental.lineCount(); line++) {
+                if (!rental.isLineReturned(line)) {
+                    System.out.printf("   - %s x%d\n", rental.lineName(line), rental.lineQuantity(line));
+                }
+            }
+            hasRentals = true;
+        }
+
+        if (!hasRentals) {
+            System.out.println("Tidak ada barang yang sedang disewa.");
+        }
+    }
+
+    private static void viewAllUsers() {
+        System.out.println("\nDaftar User:");
+        for (UserNode user : storage.users().all()) {
+            System.out.println("- " + user);
+        }
+    }
+
+    private static void viewTransactions(UserNode user, Scanner pager) {
+        ConsoleRenderer out = ConsoleRenderer.open(pager, LISTING_PAGE_SIZE);
+        out.blankLine().line("Daftar Transaksi Anda:");
+        storage.transactions().scan(user, current -> {
+            if (!out.record()) {
+                return false;
+            }
+            out.row(TX_TYPE).text(current.type);
+
+            for (int line = 0; line < current.lineCount(); line++) {
+                String status = current.isLineReturned(line) ? "Sudah Dikembalikan" : "Belum Dikembalikan";
+                out.row(TX_LINE).text(current.lineName(line)).number(current.lineQuantity(line))
+                        .money(current.linePrice(line)).money(current.lineTotal(line)).text(status);
+            }
+
+            long totalAmount = current.getTotalAmount();
+            out.row(TX_SUMMARY).money(totalAmount).money(current.paidAmount).money(current.change);
+
+            // if (current.type.equals("rental")) {
+            // String status = current.isReturned ? "Sudah Dikembalikan" : "Belum
+            // Dikembalikan";
+            // System.out.println("Status: " + status);
+            // if (current.returnDate != null) {
+            // System.out.println("Tanggal Pengembalian: " + current.returnDate);
+            // }
+            // }
+
+            out.line("________________________________________");
+            out.blankLine();
+            return true;
+        });
+        out.close();
+    }
+
+    private static void viewAllTransactions(Scanner pager) {
+        printAllTransactions(storage.users().all(), storage.transactions(), pager);
+    }
+
+    static void printAllTransactions(List<UserNode> owners, StorageEngine.Transactions transactions,
+            Scanner pager) {
+        ConsoleRenderer out = ConsoleRenderer.open(pager, LISTING_PAGE_SIZE);
+        out.blankLine().line("Daftar Semua Transaksi:");
+        boolean[] stopped = { false };
+
+        for (UserNode user : owners) {
+            out.row(TX_OWNER).text(user.username);
+            transactions.scan(user, transaction -> {
+                if (!out.record()) {
+                    stopped[0] = true;
+                    return false;
+                }
+                renderTransaction(out, transaction);
+                return true;
+            });
+            if (stopped[0]) {
+                break;
+            }
+            out.blankLine();
+        }
+        out.close();
+    }
+
+    private static void renderTransaction(ConsoleRenderer out, TransactionNode transaction) {
+        out.line("====================================");
+        out.row(TX_TYPE).text(transaction.type);
+        out.row(TX_DATE).date(transaction.date);
+
+        for (int line = 0; line < transaction.lineCount(); line++) {
+            String status = transaction.isLineReturned(line) ? "Sudah Dikembalikan" : "Belum Dikembalikan";
+
+            out.row(TX_LINE).text(transaction.lineName(line)).number(transaction.lineQuantity(line))
+                    .money(transaction.linePrice(line)).money(transaction.lineTotal(line)).text(status);
+        }
+
+        out.row(TX_TOTAL).money(transaction.getTotalAmount());
+
+        if (transaction.type.equals("purchase")) {
+            out.row(TX_PAID).money(transaction.paidAmount).money(transaction.change);
+        } else if (transaction.type.equals("rental")) {
+            String status = transaction.isReturned ? "Sudah Dikembalikan" : "Belum Dikembalikan";
+            out.row(TX_DURATION).number(transaction.duration);
+            out.row(TX_STATUS).text(status);
+            if (transaction.returnDate != 0) {
+                out.row(TX_RETURNED).date(transaction.returnDate);
+            }
+        }
+
+        out.line("====================================");
+    }
+
+    // listener bawaan: peringatan terbaru disimpan untuk dashboard admin
+    private static void recordReorderAlert(ProductNode product, int stock) {
+        reorderAlerts.addFirst(String.format("%tT %s tinggal %d, perlu reorder", System.currentTimeMillis(),
+                product.name, stock));
+        while (reorderAlerts.size() > REORDER_ALERTS_KEPT) {
+            reorderAlerts.pollLast();
+        }
+    }
+
+    // angka dibaca dari agregat yang dipelihara saat commit, tanpa memindai transaksi
+    private static void viewDashboard() {
+        System.out.println("\n=== Dashboard " + dashboard.today() + " ===");
+        System.out.println("Pendapatan hari ini: Rp" + Money.format(dashboard.revenueToday()));
+        System.out.println("Transaksi hari ini: " + dashboard.transactionsToday());
+        System.out.println("Total unit terjual: " + dashboard.totalUnitsSold());
+        System.out.println("Unit sedang disewa: " + dashboard.totalRentedOut());
+        System.out.println("Sewa terlambat: " + rentalIndex.overdueCount(System.currentTimeMillis()));
+
+        System.out.println("\nStok menipis (<= " + storage.products().reorderLevel() + "):");
+        List<ProductNode> lowStock = lowStock();
+        for (ProductNode product : lowStock) {
+            System.out.println("- " + product.name + ": " + product.stock);
+        }
+        if (lowStock.isEmpty()) {
+            System.out.println("Tidak ada.");
+        }
+
+        System.out.println("\nPeringatan reorder terbaru:");
+        for (String alert : reorderAlerts) {
+            System.out.println("- " + alert);
+        }
+        if (reorderAlerts.isEmpty()) {
+            System.out.println("Tidak ada.");
+        }
+
+        System.out.println("\nTerlaris (terjual / sedang disewa / stok):");
+        int[] topSellers = dashboard.topSellers();
+        for (int nameId : topSellers) {
+            String name = ProductNames.name(nameId);
+            ProductNode product = getProductByName(name);
+            System.out.printf("- %s: %d / %d / %s%n", name, dashboard.unitsSold(nameId), dashboard.rentedOut(nameId),
+                    product != null ? String.valueOf(product.stock) : "produk dihapus");
+        }
+        if (topSellers.length == 0) {
+            System.out.println("Tidak ada.");
+        }
+    }
+
+    private static void viewSalesReport() {
+        SalesAnalytics.Report report = salesReport();
+        System.out.printf("%nLaporan Penjualan (%d transaksi, %d thread, %d ms)%n", report.transactions,
+                report.threads, TimeUnit.NANOSECONDS.toMillis(report.elapsedNanos));
+        System.out.printf("Denda keterlambatan: Rp%s%n", Money.format(report.lateFees));
+
+        System.out.println("\nPendapatan per Kategori:");
+        List<Map.Entry<KategoriNode, Long>> byKategori = new ArrayList<>(revenueByKategori(report).entrySet());
+        byKategori.sort(Map.Entry.<KategoriNode, Long>comparingByValue().reversed());
+        for (Map.Entry<KategoriNode, Long> entry : byKategori) {
+            String name = entry.getKey() != null ? entry.getKey().name : "Tanpa kategori";
+            System.out.printf("- %s: Rp%s%n", name, Money.format(entry.getValue()));
+        }
+
+        System.out.println("\nProduk Terlaris:");
+        int rank = 1;
+        for (int nameId : report.top(report.unitsSoldByNameId, TOP_PRODUCTS)) {
+            System.out.printf("%d. %s - %d unit, Rp%s%n", rank++, ProductNames.name(nameId),
+                    report.unitsSoldByNameId[nameId], Money.format(report.revenueByNameId[nameId]));
+        }
+
+        System.out.println("\nUtilisasi Sewa:");
+        long[] rentedOut = { 0 };
+        long[] capacity = { 0 };
+        storage.products().scan(product -> {
+            int nameId = ProductNames.idOf(product.name);
+            long out = nameId >= 0 && nameId < report.products ? report.rentedOutByNameId[nameId] : 0;
+            rentedOut[0] += out;
+            capacity[0] += out + product.stock + product.reserved;
+            return true;
+        });
+        System.out.printf("Unit sedang disewa: %d dari %d unit (%.2f%%)%n", rentedOut[0], capacity[0],
+                capacity[0] > 0 ? 100.0 * rentedOut[0] / capacity[0] : 0.0);
+        rank = 1;
+        for (int nameId : report.top(report.rentalUnitDaysByNameId, TOP_PRODUCTS)) {
+            ProductNode product = getProductByName(ProductNames.name(nameId));
+            long out = report.rentedOutByNameId[nameId];
+            long units = out + (product != null ? product.stock + product.reserved : 0);
+            System.out.printf("%d. %s - %d unit-hari, %d unit disewa (%.2f%%)%n", rank++, ProductNames.name(nameId),
+                    report.rentalUnitDaysByNameId[nameId], out, units > 0 ? 100.0 * out / units : 0.0);
+        }
+
+        System.out.println("\nPendapatan per Hari:");
+        Map<LocalDate, Long> recentDays = report.revenueByDay.descendingMap();
+        int shown = 0;
+        for (Map.Entry<LocalDate, Long> day : recentDays.entrySet()) {
+            if (shown++ == REPORT_DAYS) {
+                break;
+            }
+            System.out.printf("%s: Rp%s%n", day.getKey(), Money.format(day.getValue()));
+        }
+        if (recentDays.isEmpty()) {
+            System.out.println("Belum ada transaksi.");
+        }
+    }
+
+    // riwayat terbaru dulu dengan filter; hasil dibaca lazy dari cursor sambil dipaging
+    private static void searchTransactions(Scanner scanner) {
+        TransactionHistory.Query query = new TransactionHistory.Query();
+
+        System.out.print("Username (kosongkan untuk semua user): ");
+        String username = scanner.nextLine().trim();
+        if (!username.isEmpty()) {
+            UserNode user = storage.users().get(username);
+            if (user == null) {
+                System.out.println("User tidak ditemukan.");
+                return;
+            }
+            query.user(user);
+        }
+
+        System.out.print("Jenis transaksi (1 = pembelian, 2 = sewa, kosongkan untuk semua): ");
+        String type = scanner.nextLine().trim();
+        if (type.equals("1")) {
+            query.type("purchase");
+        } else if (type.equals("2")) {
+            query.type("rental");
+        }
+
+        System.out.print("Berapa hari terakhir (kosongkan untuk semua): ");
+        String days = scanner.nextLine().trim();
+        if (!days.isEmpty()) {
+            try {
+                query.since(System.currentTimeMillis() - TimeUnit.DAYS.toMillis(Integer.parseInt(days)));
+            } catch (NumberFormatException e) {
+                System.out.println("Input tidak valid. Harap masukkan angka.");
+                return;
+            }
+        }
+
+        System.out.print("Status sewa (1 = belum dikembalikan, 2 = sudah, kosongkan untuk semua): ");
+        String status = scanner.nextLine().trim();
+        if (status.equals("1")) {
+            query.returned(false);
+        } else if (status.equals("2")) {
+            query.returned(true);
+        }
+
+        TransactionHistory.Cursor cursor = history.query(query);
+        ConsoleRenderer out = ConsoleRenderer.open(scanner, HISTORY_PAGE_SIZE);
+        out.blankLine().line("Riwayat Transaksi:");
+        int found = 0;
+        while (cursor.hasNext() && out.record()) {
+            TransactionNode transaction = cursor.next();
+            out.row(TX_OWNER).text(transaction.allUser.username);
+            renderTransaction(out, transaction);
+            found++;
+        }
+        if (found == 0) {
+            out.line("Tidak ada transaksi yang cocok.");
+        }
+        out.close();
+    }
+}
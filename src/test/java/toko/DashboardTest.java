@@ -0,0 +1,82 @@
+package toko;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class DashboardTest {
+    @TempDir
+    Path dir;
+
+    private static TransactionNode openedTwoDaysAgoPaidNow() {
+        TransactionNode purchase = new TransactionNode("purchase");
+        purchase.id = 1;
+        purchase.date -= TimeUnit.DAYS.toMillis(2);
+        purchase.committedAt = System.currentTimeMillis();
+        purchase.addItem("Sepatu Lari", Money.ofRupiah(750_000), 1);
+        purchase.freeze();
+        return purchase;
+    }
+
+    @Test
+    void revenueCountsOnCommitDay() {
+        TransactionNode purchase = openedTwoDaysAgoPaidNow();
+        Dashboard dashboard = new Dashboard();
+        dashboard.transactionCommitted(purchase);
+        assertEquals(purchase.getTotalAmount(), dashboard.revenueToday());
+        assertEquals(1, dashboard.transactionsToday());
+    }
+
+    @Test
+    void commitTimeSurvivesReplay() throws IOException {
+        TransactionNode purchase = openedTwoDaysAgoPaidNow();
+        Journal journal = new Journal(dir, 1, 0);
+        journal.logTransaction(new UserNode("member", "pw", "user"), purchase);
+        journal.close();
+
+        long[] replayed = new long[1];
+        Journal.replay(Journal.segmentPath(dir, 1), new EmptyJournalHandler() {
+            @Override
+            public void transaction(String username, TransactionNode transaction) {
+                replayed[0] = transaction.committedAt;
+            }
+        });
+        assertEquals(purchase.committedAt, replayed[0]);
+    }
+
+    // pilihan berbobot acak: produk i rata-rata terjual i+1 kali, urutannya bercampur
+    @Test
+    void topSellersMatchUnitsSold() {
+        Dashboard dashboard = new Dashboard();
+        int products = 200;
+        SplittableRandom random = new SplittableRandom(18);
+        for (int sale = 0; sale < products * (products + 1) / 2; sale++) {
+            int product = (int) ((Math.sqrt(8.0 * random.nextInt(products * (products + 1) / 2) + 1) - 1) / 2);
+            TransactionNode t = new TransactionNode("purchase");
+            t.addItem("Terlaris " + product, Money.ofRupiah(1_000), 1);
+            t.freeze();
+            dashboard.transactionCommitted(t);
+        }
+
+        int[] top = dashboard.topSellers();
+        assertEquals(Dashboard.TOP_SELLERS, top.length);
+        for (int i = 1; i < top.length; i++) {
+            assertTrue(dashboard.unitsSold(top[i - 1]) >= dashboard.unitsSold(top[i]), "urutan pada posisi " + i);
+        }
+        long bestOutside = 0;
+        for (int product = 0; product < products; product++) {
+            int nameId = ProductNames.idOf("Terlaris " + product);
+            if (Arrays.stream(top).noneMatch(id -> id == nameId)) {
+                bestOutside = Math.max(bestOutside, dashboard.unitsSold(nameId));
+            }
+        }
+        assertTrue(dashboard.unitsSold(top[top.length - 1]) >= bestOutside);
+    }
+}
@@ -0,0 +1,41 @@
+package toko;
+
+// Handler replay yang mengabaikan semua record; uji menimpa hanya record yang diperiksanya.
+class EmptyJournalHandler implements Journal.Handler {
+    @Override
+    public void register(String username, String password, String role) {
+    }
+
+    @Override
+    public void addKategori(int id, String name, String deskripsi) {
+    }
+
+    @Override
+    public void editKategori(int id, String name, String deskripsi) {
+    }
+
+    @Override
+    public void addProduct(String name, long price, int stock, int kategoriId) {
+    }
+
+    @Override
+    public void addStok(String productName, int amount) {
+    }
+
+    @Override
+    public void editProduct(String oldName, String name, long price, int stock, int kategoriId) {
+    }
+
+    @Override
+    public void deleteProduct(String name) {
+    }
+
+    @Override
+    public void transaction(String username, TransactionNode transaction) {
+    }
+
+    @Override
+    public void returnItem(String username, long transactionId, String productName, long returnTime, long fee,
+            long payment) {
+    }
+}
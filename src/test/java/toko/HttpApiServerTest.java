@@ -0,0 +1,94 @@
+package toko;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+class HttpApiServerTest {
+    private static final String USERNAME = "http-uji";
+    private static final String PASSWORD = "pw-uji";
+
+    private final HttpClient client = HttpClient.newHttpClient();
+
+    @BeforeAll
+    static void openStore() {
+        MultiLinkedListTokoOlahraga.openMemoryStore();
+        MultiLinkedListTokoOlahraga.registerUser(USERNAME, PASSWORD);
+    }
+
+    private HttpResponse<String> post(HttpApiServer server, String path, String token, String body)
+            throws IOException, InterruptedException {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create("http://localhost:" + server.port() + path))
+                .POST(HttpRequest.BodyPublishers.ofString(body));
+        if (token != null) {
+            builder.header("Authorization", "Bearer " + token);
+        }
+        return client.send(builder.build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    private HttpResponse<String> rentals(HttpApiServer server, String token) throws IOException, InterruptedException {
+        return client.send(HttpRequest.newBuilder(URI.create("http://localhost:" + server.port() + "/api/rentals"))
+                .header("Authorization", "Bearer " + token).build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    private String login(HttpApiServer server) throws IOException, InterruptedException {
+        HttpResponse<String> response = post(server, "/api/login", null,
+                "{\"username\":\"" + USERNAME + "\",\"password\":\"" + PASSWORD + "\"}");
+        assertEquals(200, response.statusCode(), response.body());
+        return (String) ((Map<?, ?>) Json.parse(response.body())).get("token");
+    }
+
+    @Test
+    void logoutRevokesToken() throws IOException, InterruptedException {
+        try (HttpApiServer server = new HttpApiServer(0)) {
+            server.start();
+            String token = login(server);
+            assertEquals(200, rentals(server, token).statusCode());
+            assertEquals(1, server.sessionCount());
+
+            HttpResponse<String> logout = post(server, "/api/logout", token, "{}");
+            assertEquals(200, logout.statusCode());
+            assertEquals("{\"loggedOut\":true}", logout.body());
+            assertEquals(0, server.sessionCount());
+            assertEquals(401, rentals(server, token).statusCode());
+        }
+    }
+
+    @Test
+    void idleSessionExpires() throws IOException, InterruptedException {
+        try (HttpApiServer server = new HttpApiServer(0, 1, TimeUnit.SECONDS)) {
+            server.start();
+            String token = login(server);
+            long limit = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+            while (server.sessionCount() > 0 && System.nanoTime() < limit) {
+                LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(50));
+            }
+            assertEquals(0, server.sessionCount());
+            assertEquals(401, rentals(server, token).statusCode());
+        }
+    }
+
+    @Test
+    void activityExtendsSession() throws IOException, InterruptedException {
+        try (HttpApiServer server = new HttpApiServer(0, 2, TimeUnit.SECONDS)) {
+            server.start();
+            String token = login(server);
+            long end = System.nanoTime() + TimeUnit.SECONDS.toNanos(4);
+            while (System.nanoTime() < end) {
+                assertEquals(200, rentals(server, token).statusCode(), "sesi aktif tidak boleh kedaluwarsa");
+                LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(300));
+            }
+            assertTrue(server.sessionCount() > 0);
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package toko;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class JournalTest {
+    @TempDir
+    Path dir;
+
+    private static List<Integer> replayStock(Path segment, boolean tornTailAllowed) throws IOException {
+        List<Integer> amounts = new ArrayList<>();
+        Journal.replay(segment, new EmptyJournalHandler() {
+            @Override
+            public void addStok(String productName, int amount) {
+                amounts.add(amount);
+            }
+        }, tornTailAllowed);
+        return amounts;
+    }
+
+    private static void appendGarbage(Path segment) throws IOException {
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.APPEND)) {
+            channel.write(ByteBuffer.wrap(new byte[] { 0, 0, 0, 40, Journal.ADD_STOK, 1, 2 }));
+        }
+    }
+
+    @Test
+    void replayAppliesEveryRecordInOrder() throws IOException {
+        ProductNode product = new ProductNode("Kok", Money.ofRupiah(5_000), 10, null);
+        Journal journal = new Journal(dir, 1, 0);
+        for (int amount = 1; amount <= 100; amount++) {
+            journal.logAddStok(product, amount);
+        }
+        journal.close();
+
+        List<Integer> amounts = replayStock(Journal.segmentPath(dir, 1), true);
+        assertEquals(100, amounts.size());
+        for (int i = 0; i < amounts.size(); i++) {
+            assertEquals(i + 1, amounts.get(i));
+        }
+    }
+
+    @Test
+    void interruptedAppendIsReportedAndNotReplayed() throws IOException, InterruptedException {
+        ProductNode product = new ProductNode("Kok", Money.ofRupiah(5_000), 10, null);
+        Journal journal = new Journal(dir, 1, 500); // jeda group commit panjang agar interupsi sempat
+        boolean[] result = new boolean[2];
+        Thread writer = new Thread(() -> {
+            try {
+                journal.logAddStok(product, 1);
+            } catch (UncheckedIOException e) {
+                result[0] = e.getCause() instanceof InterruptedIOException;
+                result[1] = Thread.currentThread().isInterrupted();
+            }
+        });
+        writer.start();
+        LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(50));
+        writer.interrupt();
+        writer.join();
+        journal.logAddStok(product, 2);
+        journal.close();
+
+        assertTrue(result[0], "penulis mendapat InterruptedIOException");
+        assertTrue(result[1], "status interupsi dipasang lagi");
+        assertEquals(List.of(2), replayStock(Journal.segmentPath(dir, 1), true));
+    }
+
+    @Test
+    void tornTailOfNewestSegmentIsTruncated() throws IOException {
+        ProductNode product = new ProductNode("Kok", Money.ofRupiah(5_000), 10, null);
+        Journal journal = new Journal(dir, 1, 0);
+        journal.logAddStok(product, 3);
+        journal.close();
+        Path segment = Journal.segmentPath(dir, 1);
+        long clean = Files.size(segment);
+        appendGarbage(segment);
+
+        assertEquals(List.of(3), replayStock(segment, true));
+        assertEquals(clean, Files.size(segment));
+    }
+
+    @Test
+    void damagedRotatedSegmentStopsRecovery() throws IOException {
+        ProductNode product = new ProductNode("Kok", Money.ofRupiah(5_000), 10, null);
+        Journal journal = new Journal(dir, 1, 0);
+        journal.logAddStok(product, 3);
+        journal.close();
+        Path segment = Journal.segmentPath(dir, 1);
+        appendGarbage(segment);
+        long damaged = Files.size(segment);
+
+        IOException e = assertThrows(IOException.class, () -> replayStock(segment, false));
+        assertTrue(e.getMessage().contains("rusak setelah 1 record"), e.getMessage());
+        assertEquals(damaged, Files.size(segment), "segmen rusak tidak dipotong");
+    }
+}
@@ -0,0 +1,143 @@
+package toko;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class OffHeapProductTableTest {
+    private static final int PRODUCTS = 1_000;
+    private static final int KATEGORI = 20;
+
+    private final KategoriNode[] kategori = new KategoriNode[KATEGORI];
+    private OffHeapProductTable table;
+
+    @BeforeEach
+    void fill() {
+        for (int k = 0; k < KATEGORI; k++) {
+            kategori[k] = new KategoriNode(k + 1, "Kategori " + (k + 1), "Deskripsi " + (k + 1));
+        }
+        table = new OffHeapProductTable(id -> id >= 1 && id <= KATEGORI ? kategori[id - 1] : null);
+        for (int i = 0; i < PRODUCTS; i++) {
+            assertTrue(table.insert(new ProductNode("Produk " + i, Money.ofRupiah(10_000 + i), i % 500,
+                    kategori[i % KATEGORI])));
+        }
+    }
+
+    @Test
+    void getReturnsInsertedValues() {
+        assertEquals(PRODUCTS, table.size());
+        assertTrue(table.offHeapBytes() > 0);
+        for (int i = 0; i < PRODUCTS; i++) {
+            ProductNode product = table.get("PRODUK " + i);
+            assertNotNull(product, "Produk " + i);
+            assertEquals("Produk " + i, product.name);
+            assertEquals(i % 500, product.stock);
+            assertEquals(Money.ofRupiah(10_000 + i), product.price);
+            assertSame(kategori[i % KATEGORI], product.kategori);
+        }
+        assertNull(table.get("Produk " + PRODUCTS));
+        assertFalse(table.insert(new ProductNode("produk 7", 1, 1, null)), "nama tidak peka huruf besar/kecil");
+    }
+
+    @Test
+    void updateRenamesAndRejectsTakenName() {
+        assertTrue(table.update("Produk 0", "Produk Nol Ganti Nama Panjang", Money.ofRupiah(1), 7, null));
+        assertFalse(table.update("Produk 2", "produk 3", 1, 1, null));
+        assertNull(table.get("Produk 0"));
+        ProductNode renamed = table.get("produk nol ganti nama panjang");
+        assertNotNull(renamed);
+        assertEquals(7, renamed.stock);
+        assertNull(renamed.kategori);
+    }
+
+    // hapus satu produk, produk kedua terbaru, dan satu blok penuh agar page harus melompati blok kosong
+    @Test
+    void pageSkipsDeletedRowsNewestFirst() {
+        boolean[] deleted = new boolean[PRODUCTS];
+        deleted[1] = true;
+        deleted[PRODUCTS - 2] = true;
+        for (int product = 128; product < 256; product++) {
+            deleted[product] = true;
+        }
+        int remaining = PRODUCTS;
+        for (int product = 0; product < PRODUCTS; product++) {
+            if (deleted[product]) {
+                assertTrue(table.delete("Produk " + product));
+                assertFalse(table.delete("Produk " + product));
+                remaining--;
+            }
+        }
+        assertEquals(remaining, table.size());
+
+        int[] newestFirst = new int[remaining];
+        for (int product = PRODUCTS - 1, position = 0; product >= 0; product--) {
+            if (!deleted[product]) {
+                newestFirst[position++] = product;
+            }
+        }
+        for (int offset : new int[] { 0, remaining - 200, remaining - 130, remaining - 3, 300 }) {
+            List<ProductNode> page = table.page(offset, 100);
+            assertEquals(Math.min(100, remaining - offset), page.size(), "offset " + offset);
+            for (int i = 0; i < page.size(); i++) {
+                assertEquals("Produk " + newestFirst[offset + i], page.get(i).name, "offset " + offset);
+            }
+        }
+    }
+
+    @Test
+    void concurrentReservesNeverOversell() throws InterruptedException {
+        int hot = table.find("Produk " + (PRODUCTS - 1));
+        table.addStock(hot, 10_000 - table.stock(hot));
+        LongAdder reserved = new LongAdder();
+        Thread[] workers = new Thread[8];
+        for (int t = 0; t < workers.length; t++) {
+            workers[t] = new Thread(() -> {
+                while (table.reserve(hot, 1)) {
+                    reserved.increment();
+                }
+            });
+            workers[t].start();
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        assertEquals(10_000, reserved.sum());
+        assertEquals(0, table.stock(hot));
+        assertEquals(10_000, table.reserved(hot));
+        table.confirm(hot, 10_000);
+        assertEquals(0, table.reserved(hot));
+    }
+
+    // produk dari get adalah salinan: stoknya dipegang lewat nama, urutan tampil terbaru dulu, dan alert reorder
+    // dikirim sekali saat stok turun melewati batas
+    @Test
+    void copiesHoldStockByNameAndAlertOnReorder() {
+        List<Integer> alerts = new ArrayList<>();
+        table.addReorderListener((product, stock) -> alerts.add(stock));
+        ProductNode copy = table.get("Produk 10");
+        assertEquals(PRODUCTS - 10, table.indexOf(copy));
+        assertEquals(1, table.indexOf(table.get("Produk " + (PRODUCTS - 1))));
+
+        assertTrue(table.reserve(copy, 6));
+        assertFalse(table.reserve(copy, 5), "stok tersisa 4");
+        assertEquals(4, table.get("Produk 10").stock);
+        assertEquals(6, table.get("Produk 10").reserved);
+        assertEquals(List.of(4), alerts);
+        table.release(copy, 2);
+        table.confirm(copy, 4);
+        ProductNode after = table.get("Produk 10");
+        assertEquals(6, after.stock);
+        assertEquals(0, after.reserved);
+        assertTrue(table.reserve(copy, 2));
+        assertEquals(List.of(4, 4), alerts);
+    }
+}
@@ -0,0 +1,208 @@
+package toko;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class PagedStorageEngineTest {
+    private static final int PRODUCTS = 5_000;
+    private static final int KATEGORI = 20;
+    private static final int USERS = 100;
+    private static final int TRANSACTIONS = 500;
+    private static final int POOL_PAGES = 16; // jauh lebih kecil dari isi agar halaman benar-benar dikeluarkan
+
+    @TempDir
+    Path dir;
+
+    private final KategoriNode[] kategori = new KategoriNode[KATEGORI];
+
+    @BeforeEach
+    void fill() throws IOException {
+        try (PagedStorageEngine engine = new PagedStorageEngine(dir, POOL_PAGES)) {
+            for (int k = 0; k < KATEGORI; k++) {
+                kategori[k] = new KategoriNode(k + 1, "Kategori " + (k + 1), "Deskripsi " + (k + 1));
+                engine.categories().insert(kategori[k]);
+            }
+            for (int i = 0; i < PRODUCTS; i++) {
+                engine.products().insert(new ProductNode("Produk " + i, Money.ofRupiah(10_000 + i), i % 500,
+                        kategori[i % KATEGORI]));
+            }
+            for (int u = 0; u < USERS; u++) {
+                engine.users().insert(new UserNode("user" + u, PasswordHash.hash("pw" + u), "user"));
+            }
+            for (int t = 0; t < TRANSACTIONS; t++) {
+                TransactionNode transaction = new TransactionNode(t % 4 == 0 ? "rental" : "purchase");
+                transaction.id = t + 1;
+                transaction.duration = 3;
+                for (int line = 0; line <= t % 3; line++) {
+                    transaction.addItem("Produk " + (t + line), Money.ofRupiah(10_000 + t + line), 1 + line);
+                }
+                transaction.freeze();
+                engine.transactions().append(new UserNode("user" + t % USERS, "", "user"), transaction);
+            }
+            engine.flush();
+        }
+    }
+
+    @Test
+    void reopenKeepsEveryRecord() throws IOException {
+        try (PagedStorageEngine engine = new PagedStorageEngine(dir, POOL_PAGES)) {
+            assertEquals(PRODUCTS, engine.products().size());
+            assertEquals(KATEGORI, engine.categories().size());
+            assertEquals(USERS, engine.users().size());
+            assertEquals(TRANSACTIONS, engine.transactionCount());
+            for (int i = 0; i < PRODUCTS; i += 7) {
+                ProductNode product = engine.products().get("produk " + i);
+                assertNotNull(product, "Produk " + i);
+                assertEquals("Produk " + i, product.name);
+                assertEquals(i % 500, product.stock);
+                assertEquals(Money.ofRupiah(10_000 + i), product.price);
+                assertEquals(i % KATEGORI + 1, product.kategori.id);
+            }
+            List<ProductNode> page = engine.products().page(1, 3);
+            assertEquals(3, page.size());
+            assertEquals("Produk " + (PRODUCTS - 2), page.get(0).name);
+        }
+    }
+
+    @Test
+    void editsSurviveReopen() throws IOException {
+        TransactionNode rental;
+        try (PagedStorageEngine engine = new PagedStorageEngine(dir, POOL_PAGES)) {
+            assertTrue(engine.products().addStock("Produk 42", 1_000));
+            assertTrue(engine.products().update("Produk 0", "Produk Nol Ganti Nama Panjang", Money.ofRupiah(1), 7,
+                    kategori[3]));
+            assertTrue(engine.products().delete("Produk 1"));
+            assertFalse(engine.products().delete("Produk 1"));
+            rental = engine.transactions().recent(engine.users().get("user0"), 1).get(0);
+            assertTrue(engine.transactions().markReturned(rental, 0, 42, 500));
+            assertFalse(engine.transactions().markReturned(rental, 0, 43, 500));
+            engine.flush();
+        }
+
+        try (PagedStorageEngine engine = new PagedStorageEngine(dir, POOL_PAGES)) {
+            assertEquals(PRODUCTS - 1, engine.products().size());
+            assertNull(engine.products().get("Produk 0"));
+            assertNull(engine.products().get("Produk 1"));
+            assertEquals(42 % 500 + 1_000, engine.products().get("Produk 42").stock);
+            ProductNode renamed = engine.products().get("produk nol ganti nama panjang");
+            assertNotNull(renamed);
+            assertEquals(7, renamed.stock);
+            assertEquals(4, renamed.kategori.id);
+
+            TransactionNode returned = engine.transactions().recent(engine.users().get("user0"), 1).get(0);
+            assertEquals(rental.id, returned.id);
+            assertTrue(returned.isLineReturned(0));
+            assertEquals(42, returned.returnDate);
+            assertEquals(500, returned.lateFees);
+            assertEquals(rental.getTotalAmount(), returned.getTotalAmount());
+        }
+    }
+
+    @Test
+    void authenticateAfterReopen() throws IOException {
+        try (PagedStorageEngine engine = new PagedStorageEngine(dir, POOL_PAGES)) {
+            assertNotNull(engine.users().authenticate("user" + (USERS - 1), "pw" + (USERS - 1)));
+            assertNull(engine.users().authenticate("user0", "salah"));
+            assertNull(engine.users().authenticate("tidakada", "pw0"));
+        }
+    }
+
+    // close tidak menulis: tanpa checkpoint file tetap berisi checkpoint terakhir, sisanya ada di journal
+    @Test
+    void closeKeepsLastCheckpoint() throws IOException {
+        try (PagedStorageEngine engine = new PagedStorageEngine(dir, POOL_PAGES)) {
+            assertTrue(engine.products().addStock("Produk 42", 1_000));
+            engine.checkpoint(7).write();
+            assertTrue(engine.products().addStock("Produk 42", 1_000));
+            for (int i = 0; i < PRODUCTS; i += 3) { // dirty lebih banyak dari pool, sebagian dikeluarkan ke spill
+                assertTrue(engine.products().addStock("Produk " + i, 1));
+            }
+        }
+
+        try (PagedStorageEngine engine = new PagedStorageEngine(dir, POOL_PAGES)) {
+            assertEquals(7, engine.recover());
+            assertEquals(42 % 500 + 1_000, engine.products().get("Produk 42").stock);
+            assertEquals(0, engine.products().get("Produk 0").stock);
+        }
+    }
+
+    // checkpoint yang ditulis sementara engine terus diubah hanya memuat state saat checkpoint dimulai
+    @Test
+    void checkpointWritesStateAtItsBoundary() throws IOException {
+        try (PagedStorageEngine engine = new PagedStorageEngine(dir, POOL_PAGES)) {
+            for (int i = 0; i < PRODUCTS; i += 3) {
+                assertTrue(engine.products().addStock("Produk " + i, 10));
+            }
+            StorageEngine.Checkpoint checkpoint = engine.checkpoint(3);
+            for (int i = 0; i < PRODUCTS; i += 2) {
+                assertTrue(engine.products().addStock("Produk " + i, 100));
+            }
+            checkpoint.write();
+            assertEquals(100 + 10, engine.products().get("Produk 0").stock);
+        }
+
+        try (PagedStorageEngine engine = new PagedStorageEngine(dir, POOL_PAGES)) {
+            assertEquals(3, engine.recover());
+            for (int i = 0; i < PRODUCTS; i++) {
+                assertEquals(i % 500 + (i % 3 == 0 ? 10 : 0), engine.products().get("Produk " + i).stock,
+                        "Produk " + i);
+            }
+        }
+    }
+
+    // keranjang memegang stok di heap engine: salinan melaporkan stok tersedia, file hanya berubah saat dibayar
+    @Test
+    void reservationsHoldAvailableStock() throws IOException {
+        try (PagedStorageEngine engine = new PagedStorageEngine(dir, POOL_PAGES)) {
+            List<ProductNode> alerts = new ArrayList<>();
+            engine.products().addReorderListener((product, stock) -> alerts.add(product));
+            ProductNode product = engine.products().get("Produk 8"); // stok 8
+            assertTrue(engine.products().reserve(product, 3));
+            assertFalse(engine.products().reserve(product, 6));
+            ProductNode held = engine.products().get("Produk 8");
+            assertEquals(5, held.stock);
+            assertEquals(3, held.reserved);
+            assertEquals(1, alerts.size());
+            assertFalse(engine.products().update("Produk 8", "Produk 8", product.price, 2, product.kategori));
+
+            engine.products().confirm(product, 2);
+            engine.products().release(product, 1);
+            ProductNode after = engine.products().get("Produk 8");
+            assertEquals(6, after.stock);
+            assertEquals(0, after.reserved);
+            assertEquals(1, alerts.size());
+            engine.flush();
+        }
+
+        try (PagedStorageEngine engine = new PagedStorageEngine(dir, POOL_PAGES)) {
+            assertEquals(6, engine.products().get("Produk 8").stock);
+        }
+    }
+
+    @Test
+    void scansFollowDisplayOrder() throws IOException {
+        try (PagedStorageEngine engine = new PagedStorageEngine(dir, POOL_PAGES)) {
+            List<ProductNode> page = engine.products().page(100, 5);
+            for (int i = 0; i < page.size(); i++) {
+                assertEquals(101 + i, engine.products().indexOf(page.get(i)));
+            }
+            assertEquals("user" + (USERS - 1), engine.users().all().get(0).username);
+            List<Long> ids = new ArrayList<>();
+            engine.transactions().scan(engine.users().get("user0"), transaction -> ids.add(transaction.id));
+            assertEquals(TRANSACTIONS / USERS, ids.size());
+            assertEquals(TRANSACTIONS - USERS + 1, ids.get(0));
+            assertEquals(1, engine.transactions().get(engine.users().get("user0"), 1).id);
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package toko;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class PasswordHashTest {
+    @Test
+    void hashVerifiesOnlyItsPassword() {
+        String stored = PasswordHash.hash("rahasia");
+        assertFalse(stored.contains("rahasia"));
+        assertTrue(PasswordHash.verify(stored, "rahasia"));
+        assertFalse(PasswordHash.verify(stored, "Rahasia"));
+        assertFalse(PasswordHash.verify(stored, ""));
+    }
+
+    @Test
+    void sameInputGetsFreshSalt() {
+        assertNotEquals(PasswordHash.hash("1234"), PasswordHash.hash("1234"));
+    }
+
+    @Test
+    void legacyPlaintextStillVerifies() {
+        assertTrue(PasswordHash.verify("pw", "pw"));
+        assertFalse(PasswordHash.verify("pw", "pw2"));
+    }
+
+    // username yang tidak ada ikut menjalankan verifikasi dummy, tetapi tidak pernah lolos login
+    @Test
+    void unknownUsernameNeverAuthenticates() {
+        UserRegistry registry = new UserRegistry();
+        registry.importAll(List.of(new UserNode("member", PasswordHash.hash("pw"), "user")));
+        assertNotNull(registry.authenticate("member", "pw"));
+        assertNull(registry.authenticate("member", "salah"));
+        assertNull(registry.authenticate("tamu", ""));
+        assertNull(registry.authenticate("", ""));
+    }
+}
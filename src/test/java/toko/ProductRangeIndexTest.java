@@ -0,0 +1,150 @@
+package toko;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.SplittableRandom;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+// setiap halaman dan rangkaian halaman ProductRangeIndex dibandingkan dengan pemindaian seluruh katalog
+class ProductRangeIndexTest {
+    private static final int PRODUCTS = 5_000;
+    private static final int KATEGORI = 10;
+    private static final int LIMIT = ProductRangeIndex.DEFAULT_LIMIT;
+
+    private final KategoriNode[] kategori = new KategoriNode[KATEGORI];
+    private final SplittableRandom random = new SplittableRandom(25);
+    private ProductCatalog catalog;
+    private ProductRangeIndex.Filter[] filters;
+
+    @BeforeEach
+    void fill() {
+        for (int k = 0; k < KATEGORI; k++) {
+            kategori[k] = new KategoriNode(k + 1, "Kategori " + (k + 1), "Deskripsi " + (k + 1));
+        }
+        catalog = new ProductCatalog();
+        for (int i = 0; i < PRODUCTS; i++) {
+            catalog.addLast(new ProductNode("Produk " + i, Money.ofRupiah(10_000 + random.nextInt(990_000)),
+                    random.nextInt(10) == 0 ? 0 : random.nextInt(1, 100), kategori[i % KATEGORI]));
+        }
+        long low = Money.ofRupiah(300_000);
+        filters = new ProductRangeIndex.Filter[] {
+                ProductRangeIndex.Filter.all(),
+                new ProductRangeIndex.Filter(null, low, low + Money.ofRupiah(10_000), Integer.MIN_VALUE,
+                        Integer.MAX_VALUE),
+                new ProductRangeIndex.Filter(kategori[3], low, low + Money.ofRupiah(300_000), 1, Integer.MAX_VALUE),
+                new ProductRangeIndex.Filter(null, low, Long.MAX_VALUE, 0, 0),
+                new ProductRangeIndex.Filter(kategori[5], Long.MIN_VALUE, low, 97, Integer.MAX_VALUE),
+                new ProductRangeIndex.Filter(null, Money.ofRupiah(900_000), Long.MAX_VALUE, 90, 98),
+                new ProductRangeIndex.Filter(kategori[0], Money.ofRupiah(2_000_000), Long.MAX_VALUE, 1,
+                        Integer.MAX_VALUE) };
+    }
+
+    private static List<ProductNode> scanFilter(ProductCatalog catalog, ProductRangeIndex.Filter filter,
+            ProductRangeIndex.Cursor after, int limit) {
+        List<ProductNode> matches = new ArrayList<>();
+        for (ProductNode product = catalog.head(); product != null; product = product.next) {
+            if (filter.matches(product) && (product.price > after.price
+                    || product.price == after.price && product.orderKey > after.orderKey)) {
+                matches.add(product);
+            }
+        }
+        matches.sort(Comparator.comparingLong((ProductNode product) -> product.price)
+                .thenComparingLong(product -> product.orderKey));
+        return new ArrayList<>(matches.subList(0, Math.min(limit, matches.size())));
+    }
+
+    private void assertSameAsScan() {
+        ProductRangeIndex ranges = catalog.ranges();
+        assertEquals(catalog.size(), ranges.size());
+        for (int f = 0; f < filters.length; f++) {
+            ProductRangeIndex.Filter filter = filters[f];
+            assertEquals(scanFilter(catalog, filter, ProductRangeIndex.Cursor.START, LIMIT),
+                    ranges.query(filter, ProductRangeIndex.Cursor.START, LIMIT), "halaman pertama filter " + f);
+            List<ProductNode> pages = new ArrayList<>();
+            ProductRangeIndex.Cursor cursor = ProductRangeIndex.Cursor.START;
+            for (List<ProductNode> page; !(page = ranges.query(filter, cursor, 97)).isEmpty(); ) {
+                pages.addAll(page);
+                cursor = ProductRangeIndex.Cursor.after(page.get(page.size() - 1));
+            }
+            assertEquals(scanFilter(catalog, filter, ProductRangeIndex.Cursor.START, Integer.MAX_VALUE), pages,
+                    "semua halaman filter " + f);
+        }
+    }
+
+    @Test
+    void pagesMatchScan() {
+        assertSameAsScan();
+    }
+
+    @Test
+    void cursorFromTextResumesAfterLastRow() {
+        ProductRangeIndex ranges = catalog.ranges();
+        List<ProductNode> first = ranges.query(filters[0], ProductRangeIndex.Cursor.START, LIMIT);
+        ProductRangeIndex.Cursor cursor = ProductRangeIndex.Cursor.parse(
+                ProductRangeIndex.Cursor.after(first.get(first.size() - 1)).toString());
+        assertEquals(scanFilter(catalog, filters[0], cursor, LIMIT), ranges.query(filters[0], cursor, LIMIT));
+    }
+
+    // harga, stok (reserve/release/timpa), pindah kategori, hapus, tambah
+    @Test
+    void pagesFollowMutations() {
+        for (int i = 0; i < 3_000; i++) {
+            ProductNode product = catalog.getByIndex(1 + random.nextInt(catalog.size()));
+            switch (i % 6) {
+                case 0:
+                    catalog.changePrice(product, Money.ofRupiah(10_000 + random.nextInt(990_000)));
+                    break;
+                case 1:
+                    if (product.reserve(1) && random.nextBoolean()) {
+                        product.release(1);
+                    }
+                    break;
+                case 2:
+                    product.setStock(random.nextInt(3));
+                    break;
+                case 3:
+                    catalog.changeKategori(product, kategori[random.nextInt(KATEGORI)]);
+                    break;
+                case 4:
+                    catalog.remove(product);
+                    break;
+                default:
+                    catalog.addFirst(new ProductNode("Produk baru " + i, Money.ofRupiah(random.nextInt(1, 999_999)),
+                            random.nextInt(100), random.nextBoolean() ? null : kategori[0]));
+            }
+        }
+        assertSameAsScan();
+    }
+
+    // reserve/release dari beberapa thread sementara query berjalan; sesudahnya tidak ada posisi stok basi
+    @Test
+    void concurrentReservesLeaveNoStalePositions() throws InterruptedException {
+        ProductRangeIndex ranges = catalog.ranges();
+        ProductNode[] hot = ranges.query(filters[2], ProductRangeIndex.Cursor.START, 64).toArray(new ProductNode[0]);
+        Thread[] workers = new Thread[4];
+        for (int t = 0; t < workers.length; t++) {
+            int seed = t;
+            workers[t] = new Thread(() -> {
+                SplittableRandom own = new SplittableRandom(seed);
+                for (int i = 0; i < 20_000; i++) {
+                    ProductNode product = hot[own.nextInt(hot.length)];
+                    if (product.reserve(1 + own.nextInt(3)) && own.nextInt(4) == 0) {
+                        product.release(1);
+                    }
+                }
+            });
+            workers[t].start();
+        }
+        for (Thread worker : workers) {
+            while (worker.isAlive()) {
+                ranges.query(filters[2], ProductRangeIndex.Cursor.START, LIMIT);
+            }
+            worker.join();
+        }
+        assertSameAsScan();
+    }
+}
@@ -0,0 +1,151 @@
+package toko;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SplittableRandom;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+// hasil ProductSearch dibandingkan dengan pemindaian seluruh katalog memakai aturan cocok dan urutan yang sama
+class ProductSearchTest {
+    private static final String[] TYPES = { "Sepatu", "Bola", "Raket", "Jersey", "Tas", "Sarung Tangan" };
+    private static final String[] SPORTS = { "Lari", "Futsal", "Basket", "Badminton", "Tenis" };
+    private static final String[] BRANDS = { "Nike", "Adidas", "Puma", "Yonex", "Specs", "Li-Ning" };
+    private static final String[] COLORS = { "Merah", "Hitam", "Putih", "Biru" };
+    private static final int PRODUCTS = 3_000;
+    private static final int KATEGORI = 10;
+    private static final int[] LIMITS = { 1, ProductSearch.DEFAULT_LIMIT, 200 };
+
+    private final KategoriNode[] kategori = new KategoriNode[KATEGORI];
+    private ProductCatalog catalog;
+
+    @BeforeEach
+    void fill() {
+        for (int k = 0; k < KATEGORI; k++) {
+            kategori[k] = new KategoriNode(k + 1, "Kategori " + (k + 1), "Perlengkapan olahraga kelompok " + (k + 1));
+        }
+        int combinations = TYPES.length * SPORTS.length * BRANDS.length * COLORS.length;
+        catalog = new ProductCatalog();
+        for (int i = 0; i < PRODUCTS; i++) {
+            int c = i % combinations;
+            String name = TYPES[c % TYPES.length] + " " + SPORTS[c / TYPES.length % SPORTS.length] + " "
+                    + BRANDS[c / (TYPES.length * SPORTS.length) % BRANDS.length] + " "
+                    + COLORS[c / (TYPES.length * SPORTS.length * BRANDS.length)] + " Seri " + i / combinations
+                    + " M" + i % 500;
+            catalog.addFirst(new ProductNode(name, Money.ofRupiah(10_000 + i), i % 50, kategori[i % KATEGORI]));
+        }
+    }
+
+    // aturan ProductSearch.search dihitung langsung dari token setiap produk
+    private static List<ProductNode> scanSearch(ProductCatalog catalog, String query, int limit) {
+        List<String> words = new ArrayList<>(ProductSearch.tokens(query));
+        boolean prefixLast = Character.isLetterOrDigit(query.charAt(query.length() - 1));
+        List<ProductNode> matches = new ArrayList<>();
+        Map<ProductNode, Integer> scores = new IdentityHashMap<>();
+        for (ProductNode product = catalog.head(); product != null; product = product.next) {
+            Set<String> name = ProductSearch.tokens(product.name);
+            Set<String> other = product.kategori == null ? Set.of()
+                    : ProductSearch.tokens(product.kategori.name + " " + product.kategori.deskripsi);
+            int score = 0;
+            for (int i = 0; i < words.size() && score >= 0; i++) {
+                String word = words.get(i);
+                boolean prefix = prefixLast && i == words.size() - 1;
+                if (name.stream().anyMatch(token -> prefix ? token.startsWith(word) : token.equals(word))) {
+                    score++;
+                } else if (other.stream().noneMatch(token -> prefix ? token.startsWith(word) : token.equals(word))) {
+                    score = -1;
+                }
+            }
+            if (score >= 0 && !words.isEmpty()) {
+                matches.add(product);
+                scores.put(product, score);
+            }
+        }
+        matches.sort(Comparator.comparing((ProductNode product) -> scores.get(product)).reversed()
+                .thenComparing(Comparator.comparingInt((ProductNode product) -> product.searchId).reversed()));
+        return new ArrayList<>(matches.subList(0, Math.min(limit, matches.size())));
+    }
+
+    private void assertSameAsScan(String... queries) {
+        assertEquals(catalog.size(), catalog.search().size());
+        for (String query : queries) {
+            for (int limit : LIMITS) {
+                assertEquals(scanSearch(catalog, query, limit), catalog.search().search(query, limit),
+                        "\"" + query + "\" limit " + limit);
+            }
+        }
+    }
+
+    // frekuensi token saran sama dengan frekuensi token berprefiks tertinggi hasil pemindaian
+    private void assertSuggestionsAsScan(String... prefixes) {
+        Map<String, Integer> frequency = new HashMap<>();
+        for (ProductNode product = catalog.head(); product != null; product = product.next) {
+            Set<String> tokens = ProductSearch.tokens(product.name);
+            if (product.kategori != null) {
+                tokens.addAll(ProductSearch.tokens(product.kategori.name + " " + product.kategori.deskripsi));
+            }
+            for (String token : tokens) {
+                frequency.merge(token, 1, Integer::sum);
+            }
+        }
+        for (String prefix : prefixes) {
+            List<Integer> expected = new ArrayList<>();
+            for (Map.Entry<String, Integer> entry : frequency.entrySet()) {
+                if (entry.getKey().startsWith(prefix)) {
+                    expected.add(entry.getValue());
+                }
+            }
+            expected.sort(Comparator.reverseOrder());
+            List<Integer> actual = new ArrayList<>();
+            for (String term : catalog.search().suggest(prefix, 8)) {
+                actual.add(frequency.getOrDefault(term, -1));
+            }
+            assertEquals(expected.subList(0, Math.min(8, expected.size())), actual, "saran \"" + prefix + "\"");
+        }
+    }
+
+    @Test
+    void searchMatchesScan() {
+        assertSameAsScan("m17 ", "lari ", "Sepatu Lari Nike", "ad", "perlengkapan kelompok 3 ", "zz9", "sepatu m1",
+                "hitam kelompok 3 ", "kategori 1", "merah seri 0 m7", "Sepatu  LARI,nike");
+    }
+
+    @Test
+    void suggestMatchesScan() {
+        assertSuggestionsAsScan("s", "sep", "m1", "b");
+    }
+
+    // ganti nama, pindah kategori, edit kategori, hapus, dan tambah produk
+    @Test
+    void searchFollowsMutations() {
+        SplittableRandom random = new SplittableRandom(24);
+        for (int i = 0; i < 400; i++) {
+            ProductNode product = catalog.getByIndex(1 + random.nextInt(catalog.size()));
+            switch (i % 4) {
+                case 0:
+                    catalog.rename(product, "Raket Squash Zeta Ungu " + i);
+                    break;
+                case 1:
+                    catalog.changeKategori(product, kategori[random.nextInt(KATEGORI)]);
+                    break;
+                case 2:
+                    catalog.remove(product);
+                    break;
+                default:
+                    catalog.addLast(new ProductNode("Bola Squash Zeta Emas " + i, 1, 1, kategori[0]));
+            }
+        }
+        catalog.updateKategori(kategori[2], "Raket dan Squash", "Peralatan olahraga raket");
+
+        assertSameAsScan("zeta", "squash", "raket squash", "squash kelompok 1 ", "peralatan", "ungu ",
+                "emas zeta b", "sepatu lari nike", "kelompok 3 ");
+        assertSuggestionsAsScan("s", "ze", "r", "p");
+    }
+}
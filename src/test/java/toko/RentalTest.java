@@ -0,0 +1,130 @@
+package toko;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.TimeZone;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class RentalTest {
+    @TempDir
+    Path dir;
+
+    // sewa dikembalikan 3 hari terlambat: denda dan pembayaran kembali utuh dari replay journal, tercatat di
+    // transaksi, dan masuk laporan penjualan pada hari pengembalian
+    @Test
+    void lateFeeSurvivesReplayAndReachesReport() throws IOException {
+        UserNode user = new UserNode("member", "pw", "user");
+        TransactionNode rental = new TransactionNode("rental");
+        rental.id = 7;
+        rental.duration = 2;
+        rental.date -= TimeUnit.DAYS.toMillis(5);
+        rental.addItem("Raket", Money.ofRupiah(100_000), 2);
+        rental.freeze();
+        rental.allUser = user;
+        user.transactionHead = rental;
+
+        long returnDate = rental.date + TimeUnit.DAYS.toMillis(5);
+        long fee = MultiLinkedListTokoOlahraga.lateFee(rental, 0, returnDate);
+        assertEquals(Money.ofRupiah(120_000), fee);
+        assertTrue(new MemoryStorageEngine().transactions().markReturned(rental, 0, returnDate, fee));
+        Journal journal = new Journal(dir, 1, 0);
+        journal.logReturn(user, rental, "Raket", returnDate, fee, Money.ofRupiah(150_000));
+        journal.close();
+
+        long[] replayed = new long[3];
+        Journal.replay(Journal.segmentPath(dir, 1), new EmptyJournalHandler() {
+            @Override
+            public void returnItem(String username, long transactionId, String productName, long returnTime,
+                    long replayedFee, long payment) {
+                replayed[0] = returnTime;
+                replayed[1] = replayedFee;
+                replayed[2] = payment;
+            }
+        });
+        assertEquals(returnDate, replayed[0]);
+        assertEquals(fee, replayed[1]);
+        assertEquals(Money.ofRupiah(150_000), replayed[2]);
+
+        SalesAnalytics.Report report = SalesAnalytics.compute(new UserNode[] { user }, 1);
+        LocalDate returnDay = LocalDate.ofEpochDay(Math.floorDiv(
+                returnDate + TimeZone.getDefault().getOffset(returnDate), TimeUnit.DAYS.toMillis(1)));
+        assertEquals(fee, rental.lateFees);
+        assertEquals(fee, report.lateFees);
+        assertEquals(fee, report.revenueByDay.getOrDefault(returnDay, 0L));
+    }
+
+    // jumlah dan daftar sewa terlambat dari indeks jatuh tempo sama dengan hasil pemindaian semua sewa
+    @Test
+    void overdueIndexMatchesScan() {
+        SplittableRandom random = new SplittableRandom(20);
+        long now = System.currentTimeMillis();
+        RentalIndex index = new RentalIndex();
+        TransactionNode[] all = new TransactionNode[2_000];
+        for (int i = 0; i < all.length; i++) {
+            TransactionNode rental = new TransactionNode("rental");
+            rental.id = i + 1;
+            rental.date = now - random.nextLong(TimeUnit.DAYS.toMillis(30));
+            rental.duration = 1 + random.nextInt(14);
+            rental.addItem("Sewa " + (i % 100), Money.ofRupiah(50_000), 1);
+            rental.freeze();
+            all[i] = rental;
+            index.rentalCreated(rental);
+        }
+        for (int i = 0; i < all.length; i += 2) {
+            all[i].markLineReturned(0);
+            index.itemReturned(all[i], 0);
+        }
+
+        int expected = 0;
+        for (int i = 1; i < all.length; i += 2) {
+            if (Math.floorDiv(all[i].dueDate(), 1000) < Math.floorDiv(now, 1000)) {
+                expected++;
+            }
+        }
+        assertEquals(expected, index.overdueCount(now));
+        assertEquals(all.length / 2, index.openRentals().size());
+        List<TransactionNode> oldest = index.overdue(now, 100);
+        assertEquals(Math.min(100, expected), oldest.size());
+        for (int i = 0; i < oldest.size(); i++) {
+            TransactionNode rental = oldest.get(i);
+            assertFalse(rental.isReturned);
+            assertTrue(rental.dueDate() < now);
+            assertTrue(i == 0 || oldest.get(i - 1).dueDate() / 1000 <= rental.dueDate() / 1000);
+        }
+    }
+
+    // sewa dengan lebih dari 64 baris, ditandai selagi baris ditambahkan seperti loader snapshot
+    @Test
+    void copyRentalKeepsReturnedLinesPast64() {
+        int lines = 200;
+        TransactionNode rental = new TransactionNode("rental");
+        rental.duration = 3;
+        for (int line = 0; line < lines; line++) {
+            rental.addItem("Produk " + line, Money.ofRupiah(10_000), 1);
+            if (line % 3 == 1) {
+                rental.markLineReturned(line);
+            }
+        }
+        rental.freeze();
+        TransactionNode copy = Snapshot.copyRental(rental);
+        assertEquals(lines, copy.lineCount());
+        assertFalse(copy.allLinesReturned());
+        for (int line = 0; line < lines; line++) {
+            assertEquals(line % 3 == 1, rental.isLineReturned(line), "asli baris " + line);
+            assertEquals(line % 3 == 1, copy.isLineReturned(line), "salinan baris " + line);
+        }
+        for (int line = 0; line < lines; line++) {
+            copy.markLineReturned(line);
+        }
+        assertTrue(copy.allLinesReturned());
+    }
+}
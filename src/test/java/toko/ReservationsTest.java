@@ -0,0 +1,142 @@
+package toko;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class ReservationsTest {
+    @TempDir
+    Path dir;
+
+    @Test
+    void failedCommitKeepsCartOpen() {
+        ProductNode product = new ProductNode("Kok", Money.ofRupiah(5_000), 10, null);
+        try (Reservations reservations = new Reservations(new MemoryStorageEngine().products(), new ReentrantLock(), 1,
+                TimeUnit.HOURS)) {
+            Reservations.Reservation cart = reservations.open();
+            assertTrue(cart.hold(product, 4));
+            assertThrows(UncheckedIOException.class, () -> cart.commit(() -> {
+                throw new UncheckedIOException(new IOException("disk penuh"));
+            }));
+            assertTrue(cart.isOpen());
+            assertEquals(4, product.reserved);
+            assertEquals(6, product.stock);
+
+            cart.cancel();
+            assertEquals(0, product.reserved);
+            assertEquals(10, product.stock);
+        }
+    }
+
+    @Test
+    void abandonedCartsReturnTheirStock() {
+        int carts = 1_000;
+        ProductNode product = new ProductNode("Jersey", Money.ofRupiah(200_000), carts, null);
+        int paid = 0;
+        try (Reservations reservations = new Reservations(new MemoryStorageEngine().products(), new ReentrantLock(),
+                200, TimeUnit.MILLISECONDS)) {
+            for (int i = 0; i < carts; i++) {
+                Reservations.Reservation cart = reservations.open();
+                cart.hold(product, 1);
+                if (i % 2 == 0) {
+                    cart.cancel();
+                } else if (i % 4 == 1 && cart.commit()) {
+                    paid++;
+                }
+            }
+            long limit = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+            while (product.reserved > 0 && System.nanoTime() < limit) {
+                LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(10));
+            }
+            assertEquals(0, product.reserved);
+            assertEquals(carts - paid, product.stock);
+            assertEquals(carts / 4, reservations.expiredCount());
+            assertEquals(0, reservations.pendingTimeouts());
+        }
+    }
+
+    @Test
+    void paidAndCancelledCartsLeaveTheWheel() {
+        try (Reservations reservations = new Reservations(new MemoryStorageEngine().products(), new ReentrantLock(), 1,
+                TimeUnit.HOURS)) {
+            List<Reservations.Reservation> open = new ArrayList<>();
+            for (int i = 0; i < 100; i++) {
+                open.add(reservations.open());
+            }
+            assertEquals(100, reservations.pendingTimeouts());
+            for (int i = 0; i < open.size(); i++) {
+                if (i % 2 == 0) {
+                    open.get(i).commit();
+                } else {
+                    open.get(i).cancel();
+                }
+            }
+            assertEquals(0, reservations.pendingTimeouts());
+        }
+    }
+
+    // admin mengubah stok saat keranjang memegang unit: stok hidup sama dengan stok fisik baru dikurangi yang
+    // terjual, dan replay journal menghasilkan stok yang sama
+    @Test
+    void stockEditDuringCartReplaysToSameStock() throws IOException {
+        MemoryStorageEngine live = new MemoryStorageEngine();
+        UserNode user = new UserNode("member", "pw", "user");
+        ProductNode product = new ProductNode("Jersey", Money.ofRupiah(200_000), 10, null);
+        live.products().insert(product);
+        Journal journal = new Journal(dir, 1, 0);
+        journal.logAddProduct(product);
+        try (Reservations reservations = new Reservations(live.products(), new ReentrantLock(), 1, TimeUnit.HOURS)) {
+            Reservations.Reservation paid = reservations.open();
+            Reservations.Reservation abandoned = reservations.open();
+            paid.hold(product, 3);
+            abandoned.hold(product, 2);
+            assertFalse(live.products().update("Jersey", "Jersey", product.price, 4, null), "< 5 dipegang");
+            journal.logEditProduct("Jersey", "Jersey", product.price, 20, null);
+            assertTrue(live.products().update("Jersey", "Jersey", product.price, 20, null));
+            assertEquals(15, product.stock);
+            assertEquals(5, product.reserved);
+
+            TransactionNode transaction = new TransactionNode("purchase");
+            transaction.id = 1;
+            transaction.addItem("Jersey", product.price, 3);
+            paid.commit(() -> journal.logTransaction(user, transaction));
+            abandoned.cancel();
+        }
+        journal.close();
+        assertEquals(17, product.stock);
+        assertEquals(0, product.reserved);
+
+        MemoryStorageEngine replayed = new MemoryStorageEngine();
+        Journal.replay(Journal.segmentPath(dir, 1), new EmptyJournalHandler() {
+            @Override
+            public void addProduct(String name, long price, int stock, int kategoriId) {
+                replayed.products().insert(new ProductNode(name, price, stock, null));
+            }
+
+            @Override
+            public void editProduct(String oldName, String name, long price, int stock, int kategoriId) {
+                replayed.products().update(oldName, name, price, stock, null);
+            }
+
+            @Override
+            public void transaction(String username, TransactionNode transaction) {
+                for (int line = 0; line < transaction.lineCount(); line++) {
+                    replayed.products().addStock(transaction.lineName(line), -transaction.lineQuantity(line));
+                }
+            }
+        });
+        assertEquals(product.stock, replayed.products().get("Jersey").stock);
+    }
+}
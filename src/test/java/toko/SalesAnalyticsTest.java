@@ -0,0 +1,80 @@
+package toko;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+class SalesAnalyticsTest {
+    // lebih dari satu shard agar penggabungan antar shard ikut teruji
+    private static final int USERS = SalesAnalytics.SHARD_USERS * 3 + 17;
+    private static UserNode[] users;
+
+    @BeforeAll
+    static void fill() {
+        SplittableRandom random = new SplittableRandom(17);
+        String[] names = new String[100];
+        long[] prices = new long[names.length];
+        for (int p = 0; p < names.length; p++) {
+            names[p] = "Analitik " + p;
+            prices[p] = Money.ofRupiah(10_000 + random.nextInt(990_000));
+        }
+        long now = System.currentTimeMillis();
+        users = new UserNode[USERS];
+        for (int u = 0; u < USERS; u++) {
+            UserNode user = new UserNode("pelanggan" + u, "pw", "user");
+            for (int t = 0; t < 2; t++) {
+                TransactionNode transaction = new TransactionNode(random.nextInt(4) == 0 ? "rental" : "purchase");
+                transaction.date = now - random.nextLong(TimeUnit.DAYS.toMillis(90));
+                transaction.duration = transaction.type.equals("rental") ? 1 + random.nextInt(7) : 0;
+                for (int line = 0; line < 3; line++) {
+                    int p = random.nextInt(names.length);
+                    transaction.addItem(names[p], prices[p], 1 + random.nextInt(3));
+                }
+                transaction.freeze();
+                transaction.allUser = user;
+                transaction.next = user.transactionHead;
+                user.transactionHead = transaction;
+            }
+            users[u] = user;
+        }
+    }
+
+    @Test
+    void poolSizeDoesNotChangeReport() {
+        SalesAnalytics.Report single = SalesAnalytics.compute(users, 1);
+        assertEquals(USERS * 2L, single.transactions);
+        for (int threads : new int[] { 4, 16 }) {
+            SalesAnalytics.Report report = SalesAnalytics.compute(users, threads);
+            assertArrayEquals(single.revenueByNameId, report.revenueByNameId);
+            assertArrayEquals(single.unitsSoldByNameId, report.unitsSoldByNameId);
+            assertArrayEquals(single.rentalUnitDaysByNameId, report.rentalUnitDaysByNameId);
+            assertEquals(single.revenueByDay, report.revenueByDay);
+            assertEquals(single.transactions, report.transactions);
+        }
+    }
+
+    @Test
+    void topMatchesFullSort() {
+        SalesAnalytics.Report report = SalesAnalytics.compute(users, 4);
+        long[] sold = report.unitsSoldByNameId;
+        List<Integer> sorted = new ArrayList<>();
+        for (int id = 0; id < report.products; id++) {
+            if (sold[id] > 0) {
+                sorted.add(id);
+            }
+        }
+        sorted.sort((a, b) -> sold[a] != sold[b] ? Long.compare(sold[b], sold[a]) : Integer.compare(a, b));
+
+        int[] top = report.top(sold, 20);
+        assertEquals(Math.min(20, sorted.size()), top.length);
+        for (int i = 0; i < top.length; i++) {
+            assertEquals(sorted.get(i), top[i], "posisi " + i);
+        }
+    }
+}
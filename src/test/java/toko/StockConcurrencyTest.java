@@ -0,0 +1,112 @@
+package toko;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import org.junit.jupiter.api.Test;
+
+class StockConcurrencyTest {
+    private static final int TERMINALS = 16;
+
+    private static void runTerminals(Terminal terminal) throws Exception {
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService terminals = TerminalServer.newSessionExecutor();
+        List<Future<?>> done = new ArrayList<>();
+        try {
+            for (int t = 0; t < TERMINALS; t++) {
+                int id = t;
+                done.add(terminals.submit(() -> {
+                    start.await();
+                    terminal.run(id);
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : done) {
+                future.get();
+            }
+        } finally {
+            terminals.shutdown();
+        }
+    }
+
+    private interface Terminal {
+        void run(int id);
+    }
+
+    // banyak terminal berebut satu SKU; sebagian keranjang dibatalkan dan stoknya dikembalikan
+    @Test
+    void contendedCheckoutNeverOversells() throws Exception {
+        int initialStock = 10_000;
+        ProductNode product = new ProductNode("Bola Basket", Money.ofRupiah(300_000), initialStock, null);
+        long[] sold = new long[TERMINALS];
+        runTerminals(terminal -> {
+            Random random = new Random(terminal);
+            while (product.stock > 0 || product.reserved > 0) {
+                int quantity = 1 + random.nextInt(3);
+                if (!product.reserve(quantity)) {
+                    Thread.yield();
+                } else if (random.nextInt(4) == 0) {
+                    product.release(quantity);
+                } else {
+                    product.confirm(quantity);
+                    sold[terminal] += quantity;
+                }
+            }
+        });
+
+        long totalSold = 0;
+        for (long units : sold) {
+            totalSold += units;
+        }
+        assertEquals(initialStock, totalSold);
+        assertEquals(0, product.stock);
+        assertEquals(0, product.reserved);
+    }
+
+    // sesudah reserve/release acak, lowest() sama dengan urutan stok sebenarnya dan setiap produk di bawah
+    // ambang reorder sudah memicu event
+    @Test
+    void stockIndexStaysOrderedAndAlertsFire() throws Exception {
+        int products = 64;
+        StockIndex index = new StockIndex(StockIndex.DEFAULT_REORDER_LEVEL);
+        Set<ProductNode> alerted = ConcurrentHashMap.newKeySet();
+        index.addListener((product, stock) -> alerted.add(product));
+        ProductNode[] catalog = new ProductNode[products];
+        for (int i = 0; i < products; i++) {
+            catalog[i] = new ProductNode("Produk " + i, Money.ofRupiah(10_000), 50, null);
+            index.add(catalog[i]);
+        }
+        runTerminals(terminal -> {
+            SplittableRandom random = new SplittableRandom(terminal);
+            for (int i = 0; i < 20_000; i++) {
+                ProductNode product = catalog[random.nextInt(products)];
+                if (!product.reserve(1)) {
+                    product.addStock(10);
+                } else if (random.nextInt(3) == 0) {
+                    product.release(1);
+                } else {
+                    product.confirm(1);
+                }
+            }
+        });
+
+        List<ProductNode> lowest = index.lowest(products);
+        assertEquals(products, lowest.size());
+        for (int i = 1; i < lowest.size(); i++) {
+            assertTrue(lowest.get(i - 1).stock <= lowest.get(i).stock, "urutan stok pada posisi " + i);
+        }
+        for (ProductNode product : catalog) {
+            assertTrue(product.stock > index.reorderLevel() || alerted.contains(product), product.name);
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package toko;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+// Toko dibuka lewat openStore dengan engine pilihan -Dtoko.storage: checkpoint saat ditutup, lalu perubahan
+// sesudah checkpoint yang hanya ada di journal (toko dibuka lagi tanpa closeStore, seperti setelah crash).
+class StoreRecoveryTest {
+    private static final long PAYMENT = Money.ofRupiah(10_000_000);
+
+    @TempDir
+    Path dir;
+
+    @AfterEach
+    void reset() {
+        MultiLinkedListTokoOlahraga.closeStore();
+        System.clearProperty("toko.storage");
+    }
+
+    @Test
+    void memoryStoreSurvivesCheckpointAndCrash() {
+        reopenKeepsStore("memory");
+    }
+
+    @Test
+    void pagedStoreSurvivesCheckpointAndCrash() {
+        reopenKeepsStore("paged");
+    }
+
+    @Test
+    void offHeapStoreSurvivesCheckpointAndCrash() {
+        reopenKeepsStore("offheap");
+    }
+
+    private void reopenKeepsStore(String engine) {
+        System.setProperty("toko.storage", engine);
+        assertTrue(MultiLinkedListTokoOlahraga.openStore(dir));
+        UserNode user = MultiLinkedListTokoOlahraga.registerUser("pembeli", "pw");
+        assertNotNull(MultiLinkedListTokoOlahraga.purchase(user, products("Jersey"), new int[] { 2 }, PAYMENT));
+        TransactionNode rental = MultiLinkedListTokoOlahraga.rent(user, products("Bola Basket"), new int[] { 1 }, 3,
+                PAYMENT);
+        assertNotNull(rental);
+        MultiLinkedListTokoOlahraga.closeStore();
+
+        assertTrue(MultiLinkedListTokoOlahraga.openStore(dir));
+        assertEquals(18, MultiLinkedListTokoOlahraga.findProduct("Jersey").stock);
+        assertEquals(4, MultiLinkedListTokoOlahraga.findProduct("Bola Basket").stock);
+        user = MultiLinkedListTokoOlahraga.login("pembeli", "pw");
+        assertNotNull(user);
+        TransactionNode open = MultiLinkedListTokoOlahraga.openRental(user, rental.id);
+        assertNotNull(open);
+        assertTrue(MultiLinkedListTokoOlahraga.returnRental(user, open, 0, PAYMENT).paid);
+        TransactionNode second = MultiLinkedListTokoOlahraga.purchase(user, products("Sepatu Olahraga"),
+                new int[] { 3 }, PAYMENT);
+        assertEquals(rental.id + 1, second.id);
+
+        // tanpa closeStore: tidak ada checkpoint baru, perubahan terakhir dipulihkan dari journal
+        assertTrue(MultiLinkedListTokoOlahraga.openStore(dir));
+        assertEquals(5, MultiLinkedListTokoOlahraga.findProduct("Bola Basket").stock);
+        assertEquals(7, MultiLinkedListTokoOlahraga.findProduct("Sepatu Olahraga").stock);
+        user = MultiLinkedListTokoOlahraga.login("pembeli", "pw");
+        assertNull(MultiLinkedListTokoOlahraga.openRental(user, rental.id));
+        assertTrue(MultiLinkedListTokoOlahraga.openRentals(user, 10).isEmpty());
+        assertEquals(3, MultiLinkedListTokoOlahraga.salesReport().transactions);
+        TransactionNode third = MultiLinkedListTokoOlahraga.purchase(user, products("Jersey"), new int[] { 1 },
+                PAYMENT);
+        assertEquals(second.id + 1, third.id);
+    }
+
+    private static ProductNode[] products(String name) {
+        return new ProductNode[] { MultiLinkedListTokoOlahraga.findProduct(name) };
+    }
+
+    // journal yang dimulai dari checkpoint engine lain tidak boleh direplay di atas data awal
+    @Test
+    void otherEnginesDataIsRefused() {
+        System.setProperty("toko.storage", "paged");
+        assertTrue(MultiLinkedListTokoOlahraga.openStore(dir));
+        MultiLinkedListTokoOlahraga.registerUser("pembeli", "pw");
+        MultiLinkedListTokoOlahraga.closeStore();
+
+        System.setProperty("toko.storage", "memory");
+        assertFalse(MultiLinkedListTokoOlahraga.openStore(dir));
+        System.setProperty("toko.storage", "paged");
+        assertTrue(MultiLinkedListTokoOlahraga.openStore(dir));
+        assertNotNull(MultiLinkedListTokoOlahraga.login("pembeli", "pw"));
+    }
+
+    @Test
+    void missingSegmentStopsRecovery() throws IOException {
+        assertTrue(MultiLinkedListTokoOlahraga.openStore(dir));
+        MultiLinkedListTokoOlahraga.registerUser("pembeli", "pw");
+        MultiLinkedListTokoOlahraga.closeStore();
+        // segmen 2 dibuat rotasi checkpoint; segmen 3 sesudah celah tidak boleh diterapkan
+        Files.move(Journal.segmentPath(dir, 2), Journal.segmentPath(dir, 3));
+        assertFalse(MultiLinkedListTokoOlahraga.openStore(dir));
+    }
+
+    // snapshot memori dibangun dari snapshot sebelumnya dan segmen journal yang sudah ditutup, bukan dari state
+    // hidup, jadi perubahan yang tidak ada di journal tidak ikut tertulis
+    @Test
+    void memoryCheckpointReplaysClosedSegments() throws IOException {
+        MemoryStorageEngine live = new MemoryStorageEngine(dir);
+        assertEquals(0, live.recover());
+        live.products().insert(new ProductNode("Kok", Money.ofRupiah(5_000), 10, null));
+        live.checkpoint(1).write();
+
+        Journal journal = new Journal(dir, 1, 0);
+        ProductNode kok = live.products().get("Kok");
+        journal.logAddStok(kok, 5);
+        live.products().addStock("Kok", 5);
+        live.products().addStock("Kok", 100); // tanpa record journal
+        StorageEngine.Checkpoint checkpoint = live.checkpoint(journal.rotate());
+        journal.logAddStok(kok, 1);
+        live.products().addStock("Kok", 1);
+        checkpoint.write();
+        journal.close();
+
+        MemoryStorageEngine reopened = new MemoryStorageEngine(dir);
+        assertEquals(2, reopened.recover());
+        assertEquals(15, reopened.products().get("Kok").stock);
+    }
+}